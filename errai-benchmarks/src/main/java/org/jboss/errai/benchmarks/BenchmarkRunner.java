@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON, so they can be compared across versions. Accepts the regular
+ * JMH command line options (for instance a regular expression selecting the benchmarks to run, or <tt>-p</tt> to
+ * restrict a parameter). The results are written to <tt>jmh-result.json</tt>, unless another file is given with
+ * <tt>-rff</tt>.
+ * <p>
+ * <pre>
+ * java -jar target/benchmarks.jar TransmissionBuffer -p allocationMode=heap
+ * </pre>
+ */
+public class BenchmarkRunner {
+  private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  public static void main(final String[] args) throws Exception {
+    final CommandLineOptions commandLine = new CommandLineOptions(args);
+
+    final Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .resultFormat(ResultFormatType.JSON)
+        .result(commandLine.getResult().orElse(DEFAULT_RESULT_FILE))
+        .build();
+
+    new Runner(options).run();
+  }
+}
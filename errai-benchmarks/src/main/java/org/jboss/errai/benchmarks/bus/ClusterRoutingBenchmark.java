@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.errai.benchmarks.support.BenchmarkConfigurator;
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.framework.BuiltInServices;
+import org.jboss.errai.bus.client.protocols.BusCommand;
+import org.jboss.errai.bus.server.MockQueueSessionFactory;
+import org.jboss.errai.bus.server.ServerMessageBusImpl;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.api.QueueActivationCallback;
+import org.jboss.errai.bus.server.cluster.loopback.LoopbackClusteringProvider;
+import org.jboss.errai.bus.server.cluster.loopback.LoopbackConfigAttribs;
+import org.jboss.errai.bus.server.io.AbstractByteWriteAdapter;
+import org.jboss.errai.bus.server.mock.MockErraiService;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.Resources;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures routing messages between the buses of a cluster, connected in memory by the
+ * {@link LoopbackClusteringProvider}. The first bus sends messages to sessions owned by the other buses.
+ * <p>
+ * With a {@code directorySize} of 0 the sending bus never remembers the owner of a session, so each message is parked
+ * in the dead letter map while a <tt>WhoHandles</tt> broadcast and the <tt>NotifyOwner</tt> reply go around, and
+ * {@link #roundTrip()} measures that round trip plus the forwarding. Otherwise messages are forwarded directly to the
+ * owner, known from the session ownership directory.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ClusterRoutingBenchmark {
+  private static final String SUBJECT = "ClusterBench";
+  private static final int SESSIONS_PER_NODE = 10;
+  private static final int BURST = 100;
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Param({"2", "4", "8", "12"})
+  public int nodes;
+
+  @Param({"0", "100000"})
+  public int directorySize;
+
+  @Param({"0", "1000"})
+  public int batchDelayMicros;
+
+  @Param({"0", "200"})
+  public int latencyMicros;
+
+  private final List<Runnable> shutdownHooks = new ArrayList<Runnable>();
+  private final AtomicLong delivered = new AtomicLong();
+
+  private ServerMessageBusImpl[] buses;
+  private String[] sessionIds;
+  private Map<String, Object> parts;
+  private long sent;
+  private int next;
+
+  @Setup
+  public void setup() {
+    MappingContextSingleton.get();
+
+    final String clusterName = "ClusterRoutingBenchmark-" + System.nanoTime();
+    final MockErraiService service = new MockErraiService() {
+      @Override
+      public void addShutdownHook(final Runnable runnable) {
+        shutdownHooks.add(runnable);
+      }
+    };
+
+    buses = new ServerMessageBusImpl[nodes];
+    for (int i = 0; i < nodes; i++) {
+      final BenchmarkConfigurator config = new BenchmarkConfigurator();
+      ErraiConfigAttribs.BUS_BUFFER_SIZE.set(config, "8");
+      ErraiConfigAttribs.ENABLE_CLUSTERING.set(config, "true");
+      ErraiConfigAttribs.CLUSTERING_PROVIDER.set(config, LoopbackClusteringProvider.class.getName());
+      ErraiConfigAttribs.CLUSTER_NAME.set(config, clusterName);
+      ErraiConfigAttribs.CLUSTER_SESSION_DIRECTORY_SIZE.set(config, String.valueOf(directorySize));
+      ErraiConfigAttribs.CLUSTER_BATCH_DELAY_MICROS.set(config, String.valueOf(batchDelayMicros));
+      LoopbackConfigAttribs.LOOPBACK_LATENCY_MICROS.set(config, String.valueOf(latencyMicros));
+
+      buses[i] = new ServerMessageBusImpl(service, config);
+    }
+
+    final QueueActivationCallback counter = new QueueActivationCallback() {
+      @Override
+      public void activate(final MessageQueue queue) {
+        try {
+          queue.poll(DiscardWriteAdapter.INSTANCE);
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        delivered.incrementAndGet();
+      }
+    };
+
+    final List<String> remoteSessions = new ArrayList<String>();
+    for (int i = 1; i < nodes; i++) {
+      for (int j = 0; j < SESSIONS_PER_NODE; j++) {
+        final QueueSession session = MockQueueSessionFactory.newSession();
+        buses[i].sendGlobal(CommandMessage.create()
+            .toSubject(BuiltInServices.ServerBus.name())
+            .command(BusCommand.Associate)
+            .set(MessageParts.RemoteServices, SUBJECT)
+            .setResource(Resources.Session.name(), session));
+
+        final MessageQueue queue = buses[i].getQueue(session);
+        queue.finishInit();
+        queue.setActivationCallback(counter);
+        remoteSessions.add(session.getSessionId());
+      }
+    }
+    sessionIds = remoteSessions.toArray(new String[remoteSessions.size()]);
+
+    parts = Payloads.parts(SUBJECT, 256);
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (final Runnable hook : shutdownHooks) {
+      hook.run();
+    }
+    shutdownHooks.clear();
+
+    for (final ServerMessageBusImpl bus : buses) {
+      bus.stop();
+    }
+  }
+
+  /**
+   * Sends a message to a session owned by another bus, and waits until it has been delivered to the session's queue.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void roundTrip() {
+    sendToNextSession();
+    awaitDelivery();
+  }
+
+  /**
+   * Sends a burst of messages to sessions owned by the other buses, and waits until all of them have been delivered.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BURST)
+  public void forwardThroughput() {
+    for (int i = 0; i < BURST; i++) {
+      sendToNextSession();
+    }
+    awaitDelivery();
+  }
+
+  private void sendToNextSession() {
+    final Map<String, Object> message = new HashMap<String, Object>(parts);
+    message.put(MessageParts.SessionID.name(), sessionIds[next]);
+    next = (next + 1) % sessionIds.length;
+
+    sent++;
+    buses[0].send(CommandMessage.createWithParts(message));
+  }
+
+  private void awaitDelivery() {
+    final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (delivered.get() < sent) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("only " + delivered.get() + " of " + sent + " messages were delivered");
+      }
+      Thread.yield();
+    }
+  }
+
+  private static class DiscardWriteAdapter extends AbstractByteWriteAdapter {
+    private static final DiscardWriteAdapter INSTANCE = new DiscardWriteAdapter();
+
+    @Override
+    public void write(final byte b) throws IOException {
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException {
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+  }
+}
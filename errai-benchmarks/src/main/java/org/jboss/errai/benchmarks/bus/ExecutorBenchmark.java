@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.SaturationPolicy;
+import org.jboss.errai.bus.server.async.scheduling.TaskExecutor;
+import org.jboss.errai.bus.server.async.scheduling.WorkStealingExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the task throughput of the {@link PooledExecutorService} and the {@link WorkStealingExecutorService}, with
+ * several threads submitting tasks at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(4)
+public class ExecutorBenchmark {
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"pooled", "workStealing"})
+  public String executor;
+
+  private TaskExecutor taskExecutor;
+
+  @Setup
+  public void setup() {
+    if ("workStealing".equals(executor)) {
+      taskExecutor = new WorkStealingExecutorService(100000, Runtime.getRuntime().availableProcessors(),
+          SaturationPolicy.CallerRuns);
+    }
+    else {
+      taskExecutor = new PooledExecutorService(100000, SaturationPolicy.CallerRuns);
+    }
+    taskExecutor.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    taskExecutor.requestStop();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void execute() throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(BATCH_SIZE);
+    final Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        done.countDown();
+      }
+    };
+
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      taskExecutor.execute(task);
+    }
+    done.await();
+  }
+}
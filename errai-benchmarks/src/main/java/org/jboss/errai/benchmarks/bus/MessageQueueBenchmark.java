@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.BlackholeWriteAdapter;
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.MessageQueueImpl;
+import org.jboss.errai.bus.server.MockQueueSessionFactory;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures offering a message to a {@link MessageQueueImpl} and polling it out again, with a number of sessions
+ * sharing one buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MessageQueueBenchmark {
+  @Param({"1", "100", "1000"})
+  public int sessions;
+
+  @Param({"64", "1024", "16384"})
+  public int payloadSize;
+
+  @Param({"heap", "direct"})
+  public String allocationMode;
+
+  private MessageQueueImpl[] queues;
+  private Message message;
+  private int next;
+
+  @Setup
+  public void setup() {
+    MappingContextSingleton.get();
+
+    final TransmissionBuffer buffer = "direct".equals(allocationMode)
+        ? TransmissionBuffer.createDirect() : TransmissionBuffer.create();
+
+    queues = new MessageQueueImpl[sessions];
+    for (int i = 0; i < sessions; i++) {
+      queues[i] = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+      queues[i].finishInit();
+    }
+
+    message = CommandMessage.createWithParts(Payloads.parts("Bench", payloadSize));
+  }
+
+  @Benchmark
+  public boolean offerAndPoll(final Blackhole blackhole) throws IOException {
+    final MessageQueueImpl queue = queues[next];
+    next = (next + 1) % queues.length;
+
+    queue.offer(message);
+    return queue.poll(new BlackholeWriteAdapter(blackhole));
+  }
+}
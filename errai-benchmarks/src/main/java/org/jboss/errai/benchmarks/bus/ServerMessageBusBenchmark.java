@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.BenchmarkConfigurator;
+import org.jboss.errai.benchmarks.support.BlackholeWriteAdapter;
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.client.framework.BuiltInServices;
+import org.jboss.errai.bus.client.protocols.BusCommand;
+import org.jboss.errai.bus.server.MockQueueSessionFactory;
+import org.jboss.errai.bus.server.ServerMessageBusImpl;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.mock.MockErraiService;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.Resources;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures routing messages through the {@link ServerMessageBusImpl}: to a local subscriber, to the queue of a single
+ * remote session, and broadcast to all remote sessions through the <tt>RemoteMessageCallback</tt>.
+ * <p>
+ * The remote sessions are associated with the bus the same way as a client connecting, so the remote subject is
+ * subscribed by every queue and qualifies for broadcasting on the shared buffer color.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ServerMessageBusBenchmark {
+  private static final String LOCAL_SUBJECT = "LocalBench";
+  private static final String REMOTE_SUBJECT = "RemoteBench";
+
+  @Param({"1", "100", "1000"})
+  public int sessions;
+
+  @Param({"64", "1024", "16384"})
+  public int payloadSize;
+
+  @Param({"8", "64"})
+  public int segmentSizeKb;
+
+  @Param({"heap", "direct"})
+  public String allocationMode;
+
+  private ServerMessageBusImpl bus;
+  private MessageQueue[] queues;
+  private String[] sessionIds;
+  private Map<String, Object> localParts;
+  private Map<String, Object> remoteParts;
+  private int next;
+
+  @Setup
+  public void setup() {
+    MappingContextSingleton.get();
+
+    final BenchmarkConfigurator config = new BenchmarkConfigurator();
+    ErraiConfigAttribs.BUS_BUFFER_SEGMENT_SIZE.set(config, String.valueOf(segmentSizeKb));
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(config, "32");
+    ErraiConfigAttribs.BUS_BUFFER_ALLOCATION_MODE.set(config, allocationMode);
+
+    bus = new ServerMessageBusImpl(new MockErraiService(), config);
+    bus.subscribe(LOCAL_SUBJECT, new MessageCallback() {
+      @Override
+      public void callback(final Message message) {
+      }
+    });
+
+    queues = new MessageQueue[sessions];
+    sessionIds = new String[sessions];
+    for (int i = 0; i < sessions; i++) {
+      final QueueSession session = MockQueueSessionFactory.newSession();
+      bus.sendGlobal(CommandMessage.create()
+          .toSubject(BuiltInServices.ServerBus.name())
+          .command(BusCommand.Associate)
+          .set(MessageParts.RemoteServices, REMOTE_SUBJECT)
+          .setResource(Resources.Session.name(), session));
+
+      queues[i] = bus.getQueue(session);
+      queues[i].finishInit();
+      sessionIds[i] = session.getSessionId();
+    }
+
+    localParts = Payloads.parts(LOCAL_SUBJECT, payloadSize);
+    remoteParts = Payloads.parts(REMOTE_SUBJECT, payloadSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    bus.stop();
+  }
+
+  @Benchmark
+  public void sendLocal() {
+    bus.sendGlobal(CommandMessage.createWithParts(new HashMap<String, Object>(localParts)));
+  }
+
+  @Benchmark
+  public boolean sendToSession(final Blackhole blackhole) throws IOException {
+    final int i = next;
+    next = (next + 1) % queues.length;
+
+    final Map<String, Object> parts = new HashMap<String, Object>(remoteParts);
+    parts.put(MessageParts.SessionID.name(), sessionIds[i]);
+    bus.send(CommandMessage.createWithParts(parts));
+
+    return queues[i].poll(new BlackholeWriteAdapter(blackhole));
+  }
+
+  @Benchmark
+  public void broadcast() {
+    bus.sendGlobal(CommandMessage.createWithParts(new HashMap<String, Object>(remoteParts)));
+  }
+}
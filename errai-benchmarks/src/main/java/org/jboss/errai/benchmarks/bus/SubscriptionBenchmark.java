@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.benchmarks.support.BenchmarkConfigurator;
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.client.framework.BuiltInServices;
+import org.jboss.errai.bus.client.protocols.BusCommand;
+import org.jboss.errai.bus.server.MockQueueSessionFactory;
+import org.jboss.errai.bus.server.ServerMessageBusImpl;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.mock.MockErraiService;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.Resources;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures subscribing and unsubscribing on the {@link ServerMessageBusImpl} from several threads at once, as during a
+ * reconnect storm: local subscriptions added to and removed from a few shared subjects, and remote subscriptions of
+ * many sessions to the same subjects.
+ * <p>
+ * A subscribe listener is registered, so the cost of notifying listeners (synchronously or on the event thread, as
+ * with <tt>errai.bus.async_listeners</tt>) is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(4)
+public class SubscriptionBenchmark {
+  private static final int SUBJECTS = 8;
+  private static final int SESSIONS = 1000;
+
+  @Param({"true", "false"})
+  public boolean asyncListeners;
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  private ServerMessageBusImpl bus;
+  private String[] subjects;
+  private QueueSession[] sessions;
+  private MessageQueue[] queues;
+
+  private final MessageCallback receiver = new MessageCallback() {
+    @Override
+    public void callback(final Message message) {
+    }
+  };
+
+  /**
+   * The subjects and sessions each benchmark thread works on.
+   */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    private int index;
+    private int next;
+
+    @Setup
+    public void setup(final SubscriptionBenchmark benchmark) {
+      index = benchmark.threads.getAndIncrement();
+      next = index;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    MappingContextSingleton.get();
+
+    final BenchmarkConfigurator config = new BenchmarkConfigurator();
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(config, "8");
+    ErraiConfigAttribs.BUS_ASYNC_LISTENERS.set(config, String.valueOf(asyncListeners));
+
+    bus = new ServerMessageBusImpl(new MockErraiService(), config);
+
+    subjects = new String[SUBJECTS];
+    for (int i = 0; i < SUBJECTS; i++) {
+      subjects[i] = "SubscriptionBench" + i;
+    }
+
+    sessions = new QueueSession[SESSIONS];
+    queues = new MessageQueue[SESSIONS];
+    for (int i = 0; i < SESSIONS; i++) {
+      sessions[i] = MockQueueSessionFactory.newSession();
+      bus.sendGlobal(CommandMessage.create()
+          .toSubject(BuiltInServices.ServerBus.name())
+          .command(BusCommand.Associate)
+          .set(MessageParts.RemoteServices, subjects[0])
+          .setResource(Resources.Session.name(), sessions[i]));
+      queues[i] = bus.getQueue(sessions[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    bus.stop();
+  }
+
+  /**
+   * Subscribes a local callback to one of the shared subjects and removes the subscription again.
+   */
+  @Benchmark
+  public void subscribeUnsubscribe(final ThreadState state) {
+    final String subject = subjects[state.next++ % SUBJECTS];
+    bus.subscribe(subject, receiver).remove();
+  }
+
+  /**
+   * Subscribes the queue of one of the sessions to one of the shared subjects and unsubscribes it again.
+   */
+  @Benchmark
+  public void remoteSubscribeUnsubscribe(final ThreadState state) {
+    final int i = state.next++ % SESSIONS;
+    final String subject = subjects[i % SUBJECTS];
+    bus.remoteSubscribe(sessions[i], queues[i], subject);
+    bus.remoteUnsubscribe(sessions[i], queues[i], subject);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.bus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.BlackholeWriteAdapter;
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures writing a message to the {@link TransmissionBuffer} and reading it back for its color.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TransmissionBufferBenchmark {
+  private static final int BUFFER_SIZE = 32 * 1024 * 1024;
+
+  @Param({"64", "1024", "16384"})
+  public int payloadSize;
+
+  @Param({"8", "16", "64"})
+  public int segmentSizeKb;
+
+  @Param({"heap", "direct"})
+  public String allocationMode;
+
+  private TransmissionBuffer buffer;
+  private BufferColor color;
+  private String json;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    final int segmentSize = segmentSizeKb * 1024;
+    if ("direct".equals(allocationMode)) {
+      buffer = TransmissionBuffer.createDirect(segmentSize, BUFFER_SIZE / segmentSize);
+    }
+    else {
+      buffer = TransmissionBuffer.create(segmentSize, BUFFER_SIZE / segmentSize);
+    }
+
+    color = BufferColor.getNewColorFromHead(buffer);
+    json = Payloads.json("Bench", payloadSize);
+    bytes = json.getBytes(Payloads.UTF_8);
+  }
+
+  @Benchmark
+  public boolean writeBytesAndRead(final Blackhole blackhole) throws IOException {
+    buffer.write(bytes.length, new ByteArrayInputStream(bytes), color);
+    return buffer.read(new BlackholeWriteAdapter(blackhole), color);
+  }
+
+  @Benchmark
+  public boolean writeEncodedAndRead(final Blackhole blackhole) throws IOException {
+    buffer.write(json, color);
+    return buffer.read(new BlackholeWriteAdapter(blackhole), color);
+  }
+}
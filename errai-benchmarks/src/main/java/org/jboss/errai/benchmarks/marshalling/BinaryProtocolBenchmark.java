@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.marshalling;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.benchmarks.support.Quote;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.jboss.errai.marshalling.server.BinaryDecoder;
+import org.jboss.errai.marshalling.server.BinaryEncoder;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.jboss.errai.marshalling.server.TypeIdTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the JSON encoding of the Errai Wire Protocol to the binary encoding of {@link BinaryEncoder}, for a message
+ * carrying a list of portable objects (marshalled by the
+ * {@link org.jboss.errai.marshalling.server.marshallers.DefaultDefinitionMarshaller}). The size of both payloads is
+ * printed during setup.
+ * <p>
+ * The <tt>decode</tt> benchmarks only parse a payload into the wire structures, while the <tt>demarshall</tt>
+ * benchmarks go on to turn these into the message parts. The <tt>binaryEncode</tt> benchmark encodes the wire
+ * structures, which is the work a client sending binary payloads does in addition to marshalling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BinaryProtocolBenchmark {
+  @Param({"1", "10", "100"})
+  public int quotes;
+
+  private Map<String, Object> parts;
+  private byte[] json;
+  private EJValue structures;
+  private byte[] binary;
+  private BinaryEncoder encoder;
+
+  @Setup
+  public void setup() throws IOException {
+    MappingContextSingleton.get();
+
+    final List<Quote> value = new ArrayList<Quote>(quotes);
+    for (int i = 0; i < quotes; i++) {
+      value.add(new Quote("SYM" + i, 100 + i * 0.25, 1000L * i, (i & 1) == 0));
+    }
+    parts = Payloads.parts("Bench", 0);
+    parts.put("Value", value);
+
+    json = ErraiProtocol.encodePayload(parts).getBytes(Payloads.UTF_8);
+    structures = JSONStreamDecoder.decode(new ByteArrayInputStream(json));
+    encoder = new BinaryEncoder(TypeIdTable.get());
+    binary = encoder.encodePayload(structures);
+
+    System.out.printf("%n%d quotes: JSON payload %d bytes, binary payload %d bytes%n", quotes, json.length,
+        binary.length);
+  }
+
+  @Benchmark
+  public String jsonEncode() {
+    return ErraiProtocol.encodePayload(parts);
+  }
+
+  @Benchmark
+  public byte[] binaryEncode() {
+    return encoder.encodePayload(structures);
+  }
+
+  @Benchmark
+  public EJValue jsonDecode() throws IOException {
+    return JSONStreamDecoder.decode(new ByteArrayInputStream(json));
+  }
+
+  @Benchmark
+  public EJValue binaryDecode() {
+    return BinaryDecoder.decode(binary);
+  }
+
+  @Benchmark
+  public Map<String, Object> jsonDemarshall() throws IOException {
+    return ErraiProtocol.decodePayload(JSONStreamDecoder.decode(new ByteArrayInputStream(json)));
+  }
+
+  @Benchmark
+  public Map<String, Object> binaryDemarshall() {
+    return ErraiProtocol.decodePayload(BinaryDecoder.decode(binary));
+  }
+}
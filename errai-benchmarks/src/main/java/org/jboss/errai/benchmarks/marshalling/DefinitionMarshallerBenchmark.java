@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.marshalling;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.Quote;
+import org.jboss.errai.benchmarks.support.QuoteMarshaller;
+import org.jboss.errai.marshalling.client.api.Marshaller;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
+import org.jboss.errai.marshalling.server.DecodingSession;
+import org.jboss.errai.marshalling.server.EncodingSession;
+import org.jboss.errai.marshalling.server.JSONDecoder;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.jboss.errai.marshalling.server.ServerMappingContext;
+import org.jboss.errai.marshalling.server.marshallers.DefaultDefinitionMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares marshalling and demarshalling a portable object with the {@link DefaultDefinitionMarshaller} accessing its
+ * members reflectively (<tt>reflection</tt>), with the {@link DefaultDefinitionMarshaller} accessing its members
+ * through method handles (<tt>methodHandles</tt>), and with a marshaller like the precompiled ones
+ * (<tt>precompiled</tt>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DefinitionMarshallerBenchmark {
+  @Param({"reflection", "methodHandles", "precompiled"})
+  public String marshaller;
+
+  private ServerMappingContext context;
+  private Marshaller<Object> instance;
+  private Quote quote;
+  private EJValue encoded;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    context = MappingContextSingleton.get();
+
+    final MappingDefinition definition = context.getDefinitionsFactory().getDefinition(Quote.class);
+    if ("reflection".equals(marshaller)) {
+      instance = new DefaultDefinitionMarshaller(definition, false);
+    }
+    else if ("methodHandles".equals(marshaller)) {
+      instance = new DefaultDefinitionMarshaller(definition, true);
+    }
+    else {
+      instance = (Marshaller) new QuoteMarshaller(new DecodingSession(context));
+    }
+
+    quote = new Quote("RHT", 123.25, 40000, true);
+    encoded = JSONDecoder.decode(instance.marshall(quote, new EncodingSession(context)));
+  }
+
+  @Benchmark
+  public String marshall() {
+    return instance.marshall(quote, new EncodingSession(context));
+  }
+
+  @Benchmark
+  public Object demarshall() {
+    return instance.demarshall(encoded, new DecodingSession(context));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.marshalling;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.benchmarks.support.Payloads;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.JSONByteDecoder;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding an inbound payload (a JSON array of messages) with the {@link JSONStreamDecoder} and the
+ * {@link JSONByteDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JSONDecoderBenchmark {
+  @Param({"64", "1024", "16384"})
+  public int payloadSize;
+
+  @Param({"1", "10"})
+  public int messages;
+
+  private byte[] payload;
+
+  @Setup
+  public void setup() {
+    final StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < messages; i++) {
+      if (i != 0) {
+        sb.append(',');
+      }
+      sb.append(Payloads.json("Bench", payloadSize));
+    }
+    payload = sb.append(']').toString().getBytes(Payloads.UTF_8);
+  }
+
+  @Benchmark
+  public EJValue streamDecoder() throws IOException {
+    return JSONStreamDecoder.decode(new ByteArrayInputStream(payload));
+  }
+
+  @Benchmark
+  public EJValue byteDecoder() {
+    return JSONByteDecoder.decode(payload);
+  }
+
+  @Benchmark
+  public EJValue byteDecoderFromStream() throws IOException {
+    return JSONByteDecoder.decode(new ByteArrayInputStream(payload));
+  }
+
+  @Benchmark
+  public EJValue byteDecoderCapturingEnvelopes() throws IOException {
+    return JSONByteDecoder.decodeEnvelopes(new ByteArrayInputStream(payload));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.reflections;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.reflections.Reflections;
+import org.jboss.errai.reflections.Store;
+import org.jboss.errai.reflections.adapters.ClassFileReaderAdapter;
+import org.jboss.errai.reflections.adapters.JavassistAdapter;
+import org.jboss.errai.reflections.adapters.MetadataAdapter;
+import org.jboss.errai.reflections.scanners.FieldAnnotationsScanner;
+import org.jboss.errai.reflections.scanners.MethodAnnotationsScanner;
+import org.jboss.errai.reflections.scanners.SubTypesScanner;
+import org.jboss.errai.reflections.scanners.TypeAnnotationsScanner;
+import org.jboss.errai.reflections.util.ClasspathHelper;
+import org.jboss.errai.reflections.util.ConfigurationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares scanning a set of jars and class directories for types, sub types and annotated fields and methods, as the
+ * {@link org.jboss.errai.common.metadata.MetaDataScanner} does, with class files read by Javassist (<tt>javassist</tt>)
+ * and by the {@link ClassFileReaderAdapter} (<tt>reader</tt>).
+ * <p>
+ * The jars and directories are the given <tt>classpath</tt>, or the benchmark's own class path (the shaded benchmarks
+ * jar) if it is empty. Run with <tt>-prof gc</tt> to see the allocation per scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClassScanningBenchmark {
+  @Param({"javassist", "reader"})
+  public String adapter;
+
+  @Param({""})
+  public String classpath;
+
+  private Collection<URL> urls;
+
+  @Setup
+  public void setup() throws MalformedURLException {
+    if (classpath.isEmpty()) {
+      urls = ClasspathHelper.forJavaClassPath();
+    }
+    else {
+      final List<URL> list = new ArrayList<URL>();
+      for (final String path : classpath.split(File.pathSeparator)) {
+        list.add(new File(path).toURI().toURL());
+      }
+      urls = list;
+    }
+  }
+
+  @Benchmark
+  public Store scan() {
+    final MetadataAdapter metadataAdapter =
+        "javassist".equals(adapter) ? new JavassistAdapter() : new ClassFileReaderAdapter();
+
+    final Reflections reflections = new Reflections(new ConfigurationBuilder()
+        .setUrls(urls)
+        .setMetadataAdapter(metadataAdapter)
+        .setScanners(new TypeAnnotationsScanner(), new SubTypesScanner(), new FieldAnnotationsScanner(),
+            new MethodAnnotationsScanner())) {
+      {
+        scan();
+      }
+    };
+    return reflections.getStore();
+  }
+}
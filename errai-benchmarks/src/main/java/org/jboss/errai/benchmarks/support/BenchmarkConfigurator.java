@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.common.client.api.ResourceProvider;
+import org.jboss.errai.common.metadata.MetaDataScanner;
+import org.jboss.errai.common.metadata.ScannerSingleton;
+
+/**
+ * An {@link ErraiServiceConfigurator} backed by a map, so each benchmark can configure the bus it measures.
+ */
+public class BenchmarkConfigurator implements ErraiServiceConfigurator {
+  private final Map<String, String> properties = new HashMap<String, String>();
+
+  @Override
+  public MetaDataScanner getMetaDataScanner() {
+    return ScannerSingleton.getOrCreateInstance();
+  }
+
+  @Override
+  public Map<String, ResourceProvider> getResourceProviders() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public <T> T getResource(final Class<? extends T> resourceClass) {
+    return null;
+  }
+
+  @Override
+  public boolean hasProperty(final String key) {
+    return properties.containsKey(key);
+  }
+
+  @Override
+  public String getProperty(final String key) {
+    return properties.get(key);
+  }
+
+  @Override
+  public boolean getBooleanProperty(final String key) {
+    return Boolean.parseBoolean(properties.get(key));
+  }
+
+  @Override
+  public Integer getIntProperty(final String key) {
+    final String value = properties.get(key);
+    return value == null ? null : Integer.valueOf(value.trim());
+  }
+
+  @Override
+  public void setProperty(final String key, final String value) {
+    properties.put(key, value);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.support;
+
+import java.io.IOException;
+
+import org.jboss.errai.bus.server.io.AbstractByteWriteAdapter;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A {@link org.jboss.errai.bus.server.io.ByteWriteAdapter} which hands everything written to it to a JMH
+ * {@link Blackhole}, so reads from the bus are measured without the cost of a real transport.
+ */
+public class BlackholeWriteAdapter extends AbstractByteWriteAdapter {
+  private final Blackhole blackhole;
+
+  public BlackholeWriteAdapter(final Blackhole blackhole) {
+    this.blackhole = blackhole;
+  }
+
+  @Override
+  public void write(final byte b) throws IOException {
+    blackhole.consume(b);
+  }
+
+  @Override
+  public void write(final byte[] b) throws IOException {
+    blackhole.consume(b);
+  }
+
+  @Override
+  public void flush() throws IOException {
+  }
+}
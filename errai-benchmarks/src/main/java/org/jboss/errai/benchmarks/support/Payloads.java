@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.support;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.errai.common.client.protocols.MessageParts;
+
+/**
+ * Builds message payloads of a given size.
+ */
+public final class Payloads {
+  public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private Payloads() {
+  }
+
+  /**
+   * Returns the parts of a message to the specified subject, padded with a value so that the encoded message is about
+   * the specified number of bytes.
+   */
+  public static Map<String, Object> parts(final String subject, final int size) {
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), subject);
+    parts.put(MessageParts.CommandType.name(), "Benchmark");
+    parts.put("Value", pad(Math.max(0, size - 64)));
+    return parts;
+  }
+
+  /**
+   * Returns the JSON encoding of a single message to the specified subject, of about the specified number of bytes.
+   */
+  public static String json(final String subject, final int size) {
+    return "{\"" + MessageParts.ToSubject.name() + "\":\"" + subject + "\",\""
+        + MessageParts.CommandType.name() + "\":\"Benchmark\",\"Value\":\"" + pad(Math.max(0, size - 64)) + "\"}";
+  }
+
+  private static String pad(final int length) {
+    final StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('a' + (i % 26)));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.support;
+
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * A portable type, marshalled by the default definition marshaller.
+ */
+@Portable
+public class Quote {
+  private String symbol;
+  private double price;
+  private long volume;
+  private boolean open;
+
+  public Quote() {
+  }
+
+  public Quote(final String symbol, final double price, final long volume, final boolean open) {
+    this.symbol = symbol;
+    this.price = price;
+    this.volume = volume;
+    this.open = open;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  public double getPrice() {
+    return price;
+  }
+
+  public long getVolume() {
+    return volume;
+  }
+
+  public boolean isOpen() {
+    return open;
+  }
+
+  public void setSymbol(final String symbol) {
+    this.symbol = symbol;
+  }
+
+  public void setPrice(final double price) {
+    this.price = price;
+  }
+
+  public void setVolume(final long volume) {
+    this.volume = volume;
+  }
+
+  public void setOpen(final boolean open) {
+    this.open = open;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.benchmarks.support;
+
+import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.Marshaller;
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
+import org.jboss.errai.marshalling.client.api.json.EJObject;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+
+/**
+ * A marshaller for {@link Quote} written the way the marshaller generator writes them: members are accessed directly,
+ * and the marshallers of the member types are looked up once. It stands in for a precompiled marshaller, which this
+ * module does not generate.
+ */
+public class QuoteMarshaller implements Marshaller<Quote> {
+  private static final String PREFIX = "{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + Quote.class.getName()
+      + "\",\"" + SerializationParts.OBJECT_ID + "\":\"";
+
+  private final Marshaller<Object> strings;
+  private final Marshaller<Object> doubles;
+  private final Marshaller<Object> longs;
+  private final Marshaller<Object> booleans;
+
+  public QuoteMarshaller(final MarshallingSession ctx) {
+    this.strings = ctx.getMarshallerInstance(String.class.getName());
+    this.doubles = ctx.getMarshallerInstance(Double.class.getName());
+    this.longs = ctx.getMarshallerInstance(Long.class.getName());
+    this.booleans = ctx.getMarshallerInstance(Boolean.class.getName());
+  }
+
+  @Override
+  public Quote demarshall(final EJValue o, final MarshallingSession ctx) {
+    final EJObject obj = o.isObject();
+    if (obj == null) {
+      return null;
+    }
+
+    final String objId = obj.get(SerializationParts.OBJECT_ID).isString().stringValue();
+    if (ctx.hasObject(objId)) {
+      return ctx.getObject(Quote.class, objId);
+    }
+
+    final Quote quote = new Quote();
+    ctx.recordObject(objId, quote);
+    quote.setSymbol((String) strings.demarshall(obj.get("symbol"), ctx));
+    quote.setPrice((Double) doubles.demarshall(obj.get("price"), ctx));
+    quote.setVolume((Long) longs.demarshall(obj.get("volume"), ctx));
+    quote.setOpen((Boolean) booleans.demarshall(obj.get("open"), ctx));
+    return quote;
+  }
+
+  @Override
+  public String marshall(final Quote o, final MarshallingSession ctx) {
+    if (o == null) {
+      return "null";
+    }
+
+    final boolean ref = ctx.hasObject(o);
+    final StringBuilder buf = new StringBuilder(128).append(PREFIX).append(ctx.getObject(o));
+    if (ref) {
+      return buf.append("\"}").toString();
+    }
+
+    return buf.append("\",\"symbol\":").append(strings.marshall(o.getSymbol(), ctx))
+        .append(",\"price\":").append(doubles.marshall(o.getPrice(), ctx))
+        .append(",\"volume\":").append(longs.marshall(o.getVolume(), ctx))
+        .append(",\"open\":").append(booleans.marshall(o.isOpen(), ctx))
+        .append('}').toString();
+  }
+
+  @Override
+  public Quote[] getEmptyArray() {
+    return new Quote[0];
+  }
+}
@@ -43,4 +43,11 @@ public enum Capabilities {
    * This message bus can communicate using Server-Sent Events
    */
   SSE,
+
+  /**
+   * This message bus accepts messages in the binary encoding of the Errai protocol (see
+   * {@link org.jboss.errai.marshalling.server.BinaryEncoder}) over a WebSocket channel, as binary frames, in addition
+   * to JSON text frames.
+   */
+  BinaryProtocol,
 }
@@ -449,6 +449,12 @@ public class ClientMessageBusImpl implements ClientMessageBus {
 
   private void processCapabilities(final Message message) {
     for (final String capability : message.get(String.class, MessageParts.CapabilitiesFlags).split(",")) {
+      if (Capabilities.BinaryProtocol.name().equals(capability)) {
+        // the binary encoding (and its type table) is offered to clients which can produce it. this client keeps
+        // sending JSON, as its transports are text based.
+        continue;
+      }
+
       final TransportHandler handler = availableHandlers.get(capability);
       if (handler == null) {
         logger.warn("could not find handler for capability type: " + capability);
@@ -118,6 +118,11 @@ public class RpcProxyLoaderGenerator extends AbstractAsyncGenerator {
     return new InterceptorProvider(featureInterceptors, standaloneInterceptors);
   }
 
+  @Override
+  protected boolean isOutputPersistable() {
+    return true;
+  }
+
   @Override
   protected boolean isRelevantClass(MetaClass clazz) {
     for (final Annotation anno : clazz.getAnnotations()) {
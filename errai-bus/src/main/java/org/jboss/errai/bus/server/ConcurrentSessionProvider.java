@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.SessionEndEvent;
+import org.jboss.errai.bus.client.api.SessionEndListener;
+import org.jboss.errai.bus.client.api.laundry.LaundryListProviderFactory;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.api.SessionProvider;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.util.ServerLaundryList;
+import org.jboss.errai.common.client.api.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * A SessionProvider for HTTP-based queue sessions which keeps the queue sessions, and the attributes they share, in a
+ * concurrent registry of its own instead of in the {@link HttpSession}. Concurrent requests from the same browser can
+ * therefore create and look up queue sessions safely, and the queue sessions are not affected by the replication of
+ * HTTP sessions by the servlet container.
+ * <p>
+ * Session ids are random 128-bit values. By default they are drawn from a non-cryptographic random number generator,
+ * which is much cheaper than the secure hashes used by {@link HttpSessionProvider}; set
+ * {@link ErraiConfigAttribs#SECURE_SESSION_IDS} to draw them from a {@link SecureRandom} instead.
+ * <p>
+ * The registry is keyed by a random token which is kept in the HTTP session, so it is not affected by a change of the
+ * HTTP session id. A queue session is removed from the registry when it ends, while the attributes shared by the queue
+ * sessions are kept until the HTTP session is invalidated. At that point the queue sessions belonging to it are ended
+ * and their message queues are closed on the bus.
+ */
+public class ConcurrentSessionProvider implements SessionProvider<HttpSession> {
+  private static final Logger log = LoggerFactory.getLogger(ConcurrentSessionProvider.class);
+
+  private static final String END_NOTIFIER_ATTRIBUTE = ConcurrentSessionProvider.class.getName() + ".EndNotifier";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final int TOKEN_LOCK_COUNT = 64;
+
+  private final ConcurrentMap<String, SessionsContainer> containers = new ConcurrentHashMap<String, SessionsContainer>();
+  private final SecureRandom secureRandom;
+  private final ServerMessageBus bus;
+
+  /**
+   * Striped by HTTP session id, so that only the first requests of the same HTTP session wait for each other.
+   */
+  private final Object[] tokenLocks = new Object[TOKEN_LOCK_COUNT];
+
+  @Inject
+  public ConcurrentSessionProvider(final ErraiServiceConfigurator config, final MessageBus bus) {
+    this(ErraiConfigAttribs.SECURE_SESSION_IDS.getBoolean(config),
+        bus instanceof ServerMessageBus ? (ServerMessageBus) bus : null);
+  }
+
+  /**
+   * @param secureIds
+   *     whether session ids are drawn from a {@link SecureRandom}.
+   * @param bus
+   *     the bus whose message queues are closed when their HTTP session is invalidated. May be null.
+   */
+  public ConcurrentSessionProvider(final boolean secureIds, final ServerMessageBus bus) {
+    this.secureRandom = secureIds ? new SecureRandom() : null;
+    this.bus = bus;
+    for (int i = 0; i < tokenLocks.length; i++) {
+      tokenLocks[i] = new Object();
+    }
+  }
+
+  @Override
+  public QueueSession createOrGetSession(final HttpSession externSessRef, final String remoteQueueID) {
+    final String token = getOrCreateToken(externSessRef);
+
+    while (true) {
+      final SessionsContainer container = getOrCreateContainer(token);
+
+      QueueSession qs = container.queueSessions.get(remoteQueueID);
+      if (qs == null) {
+        final RegisteredQueueSession newSession =
+            new RegisteredQueueSession(container, externSessRef.getId(), nextSessionId(), remoteQueueID);
+
+        qs = container.queueSessions.putIfAbsent(remoteQueueID, newSession);
+        if (qs == null) {
+          log.debug("queue session " + remoteQueueID + " started");
+          qs = newSession;
+          qs.setAttribute(HttpSession.class.getName(), externSessRef);
+        }
+      }
+
+      // the container may have been dropped by a concurrent invalidation of the HTTP session.
+      if (containers.get(token) == container) {
+        return qs;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of queue sessions in this provider.
+   */
+  public int getSessionCount() {
+    int count = 0;
+    for (final SessionsContainer container : containers.values()) {
+      count += container.queueSessions.size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of HTTP sessions this provider keeps queue sessions or shared attributes for.
+   */
+  int getHttpSessionCount() {
+    return containers.size();
+  }
+
+  /**
+   * Returns the token identifying the specified HTTP session in the registry, placing a new one in the HTTP session if
+   * it does not carry one of this provider yet.
+   */
+  private String getOrCreateToken(final HttpSession httpSession) {
+    final Object notifier = httpSession.getAttribute(END_NOTIFIER_ATTRIBUTE);
+    if (notifier instanceof EndNotifier && ((EndNotifier) notifier).provider == this) {
+      return ((EndNotifier) notifier).token;
+    }
+
+    // only taken on the first requests of a session, so that they agree on its token.
+    synchronized (tokenLocks[(httpSession.getId().hashCode() & 0x7FFFFFFF) % TOKEN_LOCK_COUNT]) {
+      final Object current = httpSession.getAttribute(END_NOTIFIER_ATTRIBUTE);
+      if (current instanceof EndNotifier && ((EndNotifier) current).provider == this) {
+        return ((EndNotifier) current).token;
+      }
+
+      final EndNotifier newNotifier = new EndNotifier(this, nextSessionId());
+      httpSession.setAttribute(END_NOTIFIER_ATTRIBUTE, newNotifier);
+      return newNotifier.token;
+    }
+  }
+
+  private SessionsContainer getOrCreateContainer(final String token) {
+    final SessionsContainer container = containers.get(token);
+    if (container != null) {
+      return container;
+    }
+
+    final SessionsContainer newContainer = new SessionsContainer();
+    final SessionsContainer existing = containers.putIfAbsent(token, newContainer);
+    return existing != null ? existing : newContainer;
+  }
+
+  private void removeSession(final SessionsContainer container, final RegisteredQueueSession session) {
+    container.queueSessions.remove(session.remoteQueueID, session);
+  }
+
+  /**
+   * Ends all queue sessions of the specified HTTP session, and closes their message queues.
+   */
+  void httpSessionEnded(final String token) {
+    final SessionsContainer container = containers.remove(token);
+    if (container == null) {
+      return;
+    }
+
+    for (final QueueSession qs : new ArrayList<QueueSession>(container.queueSessions.values())) {
+      if (bus != null) {
+        final MessageQueue queue = bus.getQueue(qs);
+        if (queue != null) {
+          queue.stopQueue();
+          bus.closeQueue(queue);
+        }
+      }
+      qs.endSession();
+    }
+  }
+
+  private String nextSessionId() {
+    final byte[] bytes = new byte[16];
+    if (secureRandom != null) {
+      secureRandom.nextBytes(bytes);
+    }
+    else {
+      ThreadLocalRandom.current().nextBytes(bytes);
+    }
+
+    final char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  private static class SessionsContainer {
+    private final ConcurrentMap<String, Object> sharedAttributes = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentMap<String, RegisteredQueueSession> queueSessions =
+        new ConcurrentHashMap<String, RegisteredQueueSession>();
+  }
+
+  /**
+   * Placed in the HTTP session to carry its registry token, and to be told when it is invalidated. Nothing else is kept
+   * in the HTTP session, and a replicated copy of the notifier does nothing.
+   */
+  private static class EndNotifier implements HttpSessionBindingListener, Serializable {
+    private final transient ConcurrentSessionProvider provider;
+    private final String token;
+
+    private EndNotifier(final ConcurrentSessionProvider provider, final String token) {
+      this.provider = provider;
+      this.token = token;
+    }
+
+    @Override
+    public void valueBound(final HttpSessionBindingEvent event) {
+    }
+
+    @Override
+    public void valueUnbound(final HttpSessionBindingEvent event) {
+      if (provider != null) {
+        provider.httpSessionEnded(token);
+      }
+    }
+  }
+
+  private class RegisteredQueueSession implements QueueSession {
+    private final SessionsContainer container;
+    private final String parentSessionId;
+    private final String sessionId;
+    private final String remoteQueueID;
+    private final List<SessionEndListener> sessionEndListeners = new CopyOnWriteArrayList<SessionEndListener>();
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private RegisteredQueueSession(final SessionsContainer container, final String httpSessionId,
+                                   final String sessionId, final String remoteQueueID) {
+      this.container = Assert.notNull(container);
+      this.parentSessionId = Assert.notNull(httpSessionId);
+      this.sessionId = Assert.notNull(sessionId);
+      this.remoteQueueID = Assert.notNull(remoteQueueID);
+    }
+
+    @Override
+    public String getSessionId() {
+      return sessionId;
+    }
+
+    @Override
+    public String getParentSessionId() {
+      return parentSessionId;
+    }
+
+    @Override
+    public boolean endSession() {
+      if (!ended.compareAndSet(false, true)) {
+        return false;
+      }
+
+      log.debug("queue session " + remoteQueueID + " ended");
+      removeSession(container, this);
+      fireSessionEndListeners();
+      return true;
+    }
+
+    @Override
+    public boolean isValid() {
+      return !ended.get();
+    }
+
+    @Override
+    public void setAttribute(final String attribute, final Object value) {
+      if (value == null) {
+        container.sharedAttributes.remove(attribute);
+      }
+      else {
+        container.sharedAttributes.put(attribute, value);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(final Class<T> type, final String attribute) {
+      return (T) container.sharedAttributes.get(attribute);
+    }
+
+    @Override
+    public Collection<String> getAttributeNames() {
+      return container.sharedAttributes.keySet();
+    }
+
+    @Override
+    public boolean hasAttribute(final String attribute) {
+      return container.sharedAttributes.containsKey(attribute);
+    }
+
+    @Override
+    public Object removeAttribute(final String attribute) {
+      return container.sharedAttributes.remove(attribute);
+    }
+
+    @Override
+    public void addSessionEndListener(final SessionEndListener listener) {
+      sessionEndListeners.add(listener);
+    }
+
+    private void fireSessionEndListeners() {
+      ((ServerLaundryList) LaundryListProviderFactory.get().getLaundryList(this)).cleanAll();
+
+      final SessionEndEvent event = new SessionEndEvent(this);
+      for (final SessionEndListener sessionEndListener : sessionEndListeners) {
+        sessionEndListener.onSessionEnd(event);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "RegisteredQueueSession{" +
+              "sessionId='" + sessionId + '\'' +
+              ", remoteQueueID='" + remoteQueueID + '\'' +
+              '}';
+    }
+  }
+}
@@ -22,18 +22,30 @@ import org.jboss.errai.common.client.api.tasks.HasAsyncTaskRef;
 import org.jboss.errai.common.client.api.tasks.TaskManager;
 import org.jboss.errai.common.client.util.TimeUnit;
 import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService;
+import org.jboss.errai.bus.server.async.scheduling.TaskExecutor;
+import org.jboss.errai.bus.server.async.scheduling.WorkStealingExecutorService;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiServiceConfiguratorImpl;
 
 public class DefaultTaskManager implements TaskManager {
   private QueueSession session;
   private static final String ACTIVE_TASKS_KEY = DefaultTaskManager.class.getName() + "/ActiveAsyncTasks";
 
   private final static DefaultTaskManager taskManager = new DefaultTaskManager(null);
-  private final static PooledExecutorService service = new PooledExecutorService(2000);
+  private final static TaskExecutor service = createExecutor();
 
   static {
     service.start();
   }
 
+  private static TaskExecutor createExecutor() {
+    final String dispatcher = ErraiConfigAttribs.ERRAI_DISPATCHER_IMPLEMENTATION.get(new ErraiServiceConfiguratorImpl());
+    if (WorkStealingDispatcher.class.getName().equals(dispatcher)) {
+      return new WorkStealingExecutorService(2000);
+    }
+    return new PooledExecutorService(2000);
+  }
+
   public static DefaultTaskManager get() {
     return taskManager;
   }
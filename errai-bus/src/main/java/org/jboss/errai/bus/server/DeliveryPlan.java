@@ -79,18 +79,23 @@ public class DeliveryPlan {
   }
 
   public DeliveryPlan newDeliveryPlanWithOut(final MessageCallback callback) {
-    final MessageCallback[] newPlan = new MessageCallback[deliverTo.length - 1];
-
-    boolean found = false;
-    //noinspection ManualArrayCopy
+    int index = -1;
     for (int i = 0; i < deliverTo.length; i++) {
       if (deliverTo[i] == callback) {
-        found = true;
-        continue;
+        index = i;
+        break;
       }
-      newPlan[found ? i - 1 : i] = deliverTo[i];
     }
 
+    if (index == -1) {
+      // already removed, for instance by a concurrent unsubscribe.
+      return this;
+    }
+
+    final MessageCallback[] newPlan = new MessageCallback[deliverTo.length - 1];
+    System.arraycopy(deliverTo, 0, newPlan, 0, index);
+    System.arraycopy(deliverTo, index + 1, newPlan, index, newPlan.length - index);
+
     return new DeliveryPlan(newPlan);
   }
 }
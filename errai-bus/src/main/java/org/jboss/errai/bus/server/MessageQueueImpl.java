@@ -20,6 +20,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.errai.bus.client.api.QueueSession;
@@ -27,14 +28,18 @@ import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.server.api.MessageQueue;
 import org.jboss.errai.bus.server.api.QueueActivationCallback;
 import org.jboss.errai.bus.server.io.BufferDeliveryHandler;
+import org.jboss.errai.bus.server.io.BufferHelper;
 import org.jboss.errai.bus.server.io.Buffered;
 import org.jboss.errai.bus.server.io.ByteWriteAdapter;
 import org.jboss.errai.bus.server.io.Cleanable;
+import org.jboss.errai.bus.server.io.CoalescingPolicy;
 import org.jboss.errai.bus.server.io.DirectChannel;
 import org.jboss.errai.bus.server.io.MessageDeliveryHandler;
+import org.jboss.errai.bus.server.io.OutboundCoalescer;
 import org.jboss.errai.bus.server.io.Wakeable;
 import org.jboss.errai.bus.server.io.buffers.Buffer;
 import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.ShardedTransmissionBuffer;
 import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
 import org.slf4j.Logger;
 
@@ -63,13 +68,64 @@ public class MessageQueueImpl implements MessageQueue {
   private final Object pageLock = new Object();
   private final AtomicInteger messageCount = new AtomicInteger();
 
+  private final OutboundCoalescer coalescer;
+
   private static final Logger log = getLogger(MessageQueueImpl.class);
 
   public MessageQueueImpl(final TransmissionBuffer buffer, final QueueSession session, final int timeoutSecs) {
+    this(buffer, session, timeoutSecs, null);
+  }
+
+  /**
+   * @param coalescingPolicy
+   *     the policy for coalescing outbound messages, or null to flush every message as soon as it is offered.
+   */
+  public MessageQueueImpl(final TransmissionBuffer buffer, final QueueSession session, final int timeoutSecs,
+                          final CoalescingPolicy coalescingPolicy) {
+    this(buffer, BufferColor.getNewColorFromHead(buffer), session, timeoutSecs, coalescingPolicy);
+  }
+
+  /**
+   * Creates a queue bound to the shard of the specified buffer its new color hashes to.
+   *
+   * @param coalescingPolicy
+   *     the policy for coalescing outbound messages, or null to flush every message as soon as it is offered.
+   */
+  public MessageQueueImpl(final ShardedTransmissionBuffer buffer, final QueueSession session, final int timeoutSecs,
+                          final CoalescingPolicy coalescingPolicy) {
+    this(buffer, buffer.newColorFromHead(), session, timeoutSecs, coalescingPolicy);
+  }
+
+  private MessageQueueImpl(final ShardedTransmissionBuffer buffer, final BufferColor bufferColor,
+                           final QueueSession session, final int timeoutSecs,
+                           final CoalescingPolicy coalescingPolicy) {
+    this(buffer.shardFor(bufferColor), bufferColor, session, timeoutSecs, coalescingPolicy);
+  }
+
+  private MessageQueueImpl(final TransmissionBuffer buffer, final BufferColor bufferColor,
+                           final QueueSession session, final int timeoutSecs,
+                           final CoalescingPolicy coalescingPolicy) {
     this.buffer = buffer;
     this.session = session;
-    this.bufferColor = BufferColor.getNewColorFromHead(buffer);
+    this.bufferColor = bufferColor;
     this.timeout = (timeoutSecs * 1000);
+
+    if (coalescingPolicy != null) {
+      this.coalescer = new OutboundCoalescer(coalescingPolicy, new Runnable() {
+        @Override
+        public void run() {
+          flushCoalesced();
+        }
+      }, new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+          DefaultTaskManager.get().execute(command);
+        }
+      });
+    }
+    else {
+      this.coalescer = null;
+    }
   }
 
   @Override
@@ -120,7 +176,53 @@ public class MessageQueueImpl implements MessageQueue {
       throw new QueueUnavailableException("queue is not available");
     }
 
-    return deliveryHandler.deliver(this, message);
+    final MessageDeliveryHandler handler = deliveryHandler;
+    if (coalescer == null || !(handler instanceof Buffered || handler instanceof Wakeable)) {
+      return handler.deliver(this, message);
+    }
+
+    if (coalescer.getPolicy().isExempt(message)) {
+      if (handler instanceof Wakeable) {
+        // a direct channel bypasses the buffer, so anything held back in it must be sent first.
+        coalescer.flush();
+      }
+      return handler.deliver(this, message);
+    }
+
+    // the message is written to the buffer now, but the queue is flushed later along with any messages that follow.
+    int size = 0;
+    try {
+      size = BufferHelper.encodeAndWrite(buffer, bufferColor, message);
+    }
+    finally {
+      incrementMessageCount();
+      coalescer.written(Math.max(1, size));
+    }
+    return true;
+  }
+
+  private void flushCoalesced() {
+    if (!queueRunning || !messagesWaiting()) return;
+
+    try {
+      if (deliveryHandler instanceof Wakeable) {
+        ((Wakeable) deliveryHandler).onWake(this);
+        resetMessageCount();
+      }
+
+      fireActivationCallback();
+    }
+    catch (Throwable e) {
+      log.debug("unable to flush queue: " + session.getSessionId());
+      stopQueue();
+    }
+  }
+
+  /**
+   * Returns the outbound coalescer of this queue, or null if outbound coalescing is disabled.
+   */
+  public OutboundCoalescer getCoalescer() {
+    return coalescer;
   }
 
   @Override
@@ -28,17 +28,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -64,10 +66,14 @@ import org.jboss.errai.bus.server.api.MessageQueue;
 import org.jboss.errai.bus.server.api.QueueCloseEvent;
 import org.jboss.errai.bus.server.api.QueueClosedListener;
 import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.async.scheduling.HashedTimingWheel;
 import org.jboss.errai.bus.server.cluster.ClusteringProvider;
 import org.jboss.errai.bus.server.io.BufferHelper;
+import org.jboss.errai.bus.server.io.CoalescingPolicy;
+import org.jboss.errai.bus.server.io.MappedPageStore;
 import org.jboss.errai.bus.server.io.PageUtil;
 import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.ShardedTransmissionBuffer;
 import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
 import org.jboss.errai.bus.server.io.websockets.WebSocketServerHandler;
 import org.jboss.errai.bus.server.io.websockets.WebSocketTokenManager;
@@ -79,6 +85,7 @@ import org.jboss.errai.bus.server.util.SecureHashUtil;
 import org.jboss.errai.common.client.protocols.MessageParts;
 import org.jboss.errai.common.client.protocols.Resources;
 import org.jboss.errai.common.server.api.ErraiBootstrapFailure;
+import org.jboss.errai.marshalling.server.TypeIdTable;
 import org.slf4j.Logger;
 
 import com.google.inject.AbstractModule;
@@ -94,11 +101,16 @@ import com.google.inject.Singleton;
  */
 @Singleton
 public class ServerMessageBusImpl implements ServerMessageBus {
-  private final TransmissionBuffer transmissionbuffer;
+  private final ShardedTransmissionBuffer transmissionbuffer;
 
-  private final Map<String, DeliveryPlan> subscriptions = new ConcurrentHashMap<String, DeliveryPlan>();
+  private final ConcurrentMap<String, DeliveryPlan> subscriptions = new ConcurrentHashMap<String, DeliveryPlan>();
   private final Set<String> globalSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
-  private final Map<String, RemoteMessageCallback> remoteSubscriptions = new ConcurrentHashMap<String, RemoteMessageCallback>();
+  private final ConcurrentMap<String, RemoteMessageCallback> remoteSubscriptions = new ConcurrentHashMap<String, RemoteMessageCallback>();
+
+  /**
+   * The subjects each queue is remotely subscribed to, so a queue can be torn down without looking at every subject.
+   */
+  private final ConcurrentMap<MessageQueue, Set<String>> queueSubjects = new ConcurrentHashMap<MessageQueue, Set<String>>();
 
   private final Map<QueueSession, MessageQueue> messageQueues = new ConcurrentHashMap<QueueSession, MessageQueue>();
 
@@ -106,12 +118,25 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   private final Map<String, QueueSession> sessionLookup = new ConcurrentHashMap<String, QueueSession>();
   private final Map<String, ClusterWaitEntry> deadLetter = new ConcurrentHashMap<String, ClusterWaitEntry>();
 
-  private final List<SubscribeListener> subscribeListeners = new ArrayList<SubscribeListener>();
-  private final List<UnsubscribeListener> unsubscribeListeners = new ArrayList<UnsubscribeListener>();
-  private final List<QueueClosedListener> queueClosedListeners = new ArrayList<QueueClosedListener>();
+  private final List<SubscribeListener> subscribeListeners = new CopyOnWriteArrayList<SubscribeListener>();
+  private final List<UnsubscribeListener> unsubscribeListeners = new CopyOnWriteArrayList<UnsubscribeListener>();
+  private final List<QueueClosedListener> queueClosedListeners = new CopyOnWriteArrayList<QueueClosedListener>();
+
+  /**
+   * Notifies the listeners in the order of the events, off the thread which caused them. Null if listeners are
+   * notified synchronously.
+   */
+  private final ExecutorService listenerExecutor;
 
   private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
+  /**
+   * Each queue is checked for expiry and paging when its timeout, counted from its last transmission, would pass, or
+   * after {@link #QUEUE_CHECK_INTERVAL_MILLIS} at the latest.
+   */
+  private final HashedTimingWheel queueChecks = new HashedTimingWheel(scheduler, 1000, 128);
+  private static final long QUEUE_CHECK_INTERVAL_MILLIS = 8000;
+
   private static final Logger log = getLogger(ServerMessageBus.class);
 
   private BusMonitor busMonitor;
@@ -121,7 +146,9 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   private final boolean hostedModeTesting;
   private final boolean doLongPolling;
   private final int messageQueueTimeoutSecs;
+  private final CoalescingPolicy coalescingPolicy;
   private final boolean sseEnabled;
+  private final boolean binaryProtocol;
   private final boolean webSocketServlet;
   private final boolean webSocketServer;
   private final boolean useSecureWebsocket;
@@ -141,8 +168,24 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     this.hostedModeTesting = ErraiConfigAttribs.HOSTED_MODE_TESTING.getBoolean(config);
     this.doLongPolling = !hostedModeTesting && ErraiConfigAttribs.DO_LONG_POLL.getBoolean(config);
     this.messageQueueTimeoutSecs = ErraiConfigAttribs.MESSAGE_QUEUE_TIMEOUT_SECS.getInt(config);
+    this.coalescingPolicy = CoalescingPolicy.fromConfig(config);
     this.sseEnabled = ErraiConfigAttribs.ENABLE_SSE_SUPPORT.getBoolean(config);
     this.webSocketServer = ErraiConfigAttribs.ENABLE_WEB_SOCKET_SERVER.getBoolean(config);
+    this.binaryProtocol = webSocketServer && ErraiConfigAttribs.WEB_SOCKET_BINARY_PROTOCOL.getBoolean(config);
+
+    if (ErraiConfigAttribs.BUS_ASYNC_LISTENERS.getBoolean(config)) {
+      this.listenerExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new Thread(r, "Errai Bus Listeners");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    else {
+      this.listenerExecutor = null;
+    }
 
     final int webSocketPort;
     final String webSocketPath;
@@ -179,6 +222,16 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       segmentCount = 4096;
     }
 
+    final int shards = Math.max(1, ErraiConfigAttribs.BUS_BUFFER_SHARDS.getInt(config));
+    final Integer shardSize = ErraiConfigAttribs.BUS_BUFFER_SHARD_SIZE.getInt(config);
+
+    if (shardSize != null) {
+      segmentCount = (shardSize * 1024 * 1024) / segmentSize;
+    }
+    else {
+      segmentCount = Math.max(1, segmentCount / shards);
+    }
+
     final boolean directAlloc;
     if (allocMode != null) {
       if ("direct".equals(allocMode)) {
@@ -196,23 +249,25 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       directAlloc = false;
     }
 
-    TransmissionBuffer buffer;
-    if (directAlloc) {
-      try {
-        buffer = TransmissionBuffer.createDirect(segmentSize, segmentCount);
+    final TransmissionBuffer[] buffers = new TransmissionBuffer[shards];
+    for (int i = 0; i < shards; i++) {
+      if (directAlloc) {
+        try {
+          buffers[i] = TransmissionBuffer.createDirect(segmentSize, segmentCount);
+        }
+        catch (OutOfMemoryError e) {
+          log.warn("could not allocate direct memory buffer. insufficient direct memory. increase the direct memory " +
+              "buffer size with the JVM argument: -XX:MaxDirectMemorySize=<size>");
+          log.warn("falling back to a heap allocated buffer.");
+          buffers[i] = TransmissionBuffer.create(segmentSize, segmentCount);
+        }
       }
-      catch (OutOfMemoryError e) {
-        log.warn("could not allocate direct memory buffer. insufficient direct memory. increase the direct memory " +
-            "buffer size with the JVM argument: -XX:MaxDirectMemorySize=<size>");
-        log.warn("falling back to a heap allocated buffer.");
-        buffer = TransmissionBuffer.create(segmentSize, segmentCount);
+      else {
+        buffers[i] = TransmissionBuffer.create(segmentSize, segmentCount);
       }
     }
-    else {
-      buffer = TransmissionBuffer.create(segmentSize, segmentCount);
-    }
 
-    transmissionbuffer = buffer;
+    transmissionbuffer = new ShardedTransmissionBuffer(buffers);
 
     /**
      * Define the default ServerBus service used for intrabus communication.
@@ -223,6 +278,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     addUnsubscribeListener(new DefaultUnsubscribeListener());
 
     scheduler.scheduleAtFixedRate(new HousekeeeperRunnable(), 8, 8, TimeUnit.SECONDS);
+    queueChecks.start();
 
     try {
       clustering = ErraiConfigAttribs.ENABLE_CLUSTERING.getBoolean(config);
@@ -245,6 +301,11 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   private void addQueue(final QueueSession session, final MessageQueue queue) {
     messageQueues.put(session, queue);
     sessionLookup.put(session.getSessionId(), session);
+    scheduleQueueCheck(queue, System.currentTimeMillis());
+
+    if (clustering) {
+      clusteringProvider.sessionOpened(session.getSessionId());
+    }
   }
 
   /**
@@ -513,17 +574,31 @@ public class ServerMessageBusImpl implements ServerMessageBus {
    */
   @Override
   public void closeQueue(final MessageQueue queue) {
-    messageQueues.values().remove(queue);
-    sessionLookup.values().remove(queue.getSession());
-
-    for (Iterator<RemoteMessageCallback> iterator = remoteSubscriptions.values().iterator(); iterator.hasNext(); ) {
-      final RemoteMessageCallback cb = iterator.next();
-      cb.removeQueue(queue);
-      if (cb.getQueueCount() == 0) {
-        iterator.remove();
+    final QueueSession session = queue.getSession();
+    if (!messageQueues.remove(session, queue)) {
+      messageQueues.values().remove(queue);
+    }
+    if (!sessionLookup.remove(session.getSessionId(), session)) {
+      sessionLookup.values().remove(session);
+    }
+
+    final Set<String> subjects = queueSubjects.remove(queue);
+    if (subjects != null) {
+      for (final String subject : subjects) {
+        final RemoteMessageCallback cb = remoteSubscriptions.get(subject);
+        if (cb != null) {
+          cb.removeQueue(queue);
+          if (cb.getQueueCount() == 0) {
+            remoteSubscriptions.remove(subject, cb);
+          }
+        }
       }
     }
 
+    if (clustering) {
+      clusteringProvider.sessionClosed(queue.getSession().getSessionId());
+    }
+
     fireQueueCloseListeners(new QueueCloseEvent(queue));
   }
 
@@ -570,23 +645,30 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       throw new NullPointerException("message callback cannot but null");
     }
 
-    DeliveryPlan plan = subscriptions.get(subject);
+    // plans are immutable, so a concurrent change to the same subject makes the replace fail and the change is retried.
+    for (;;) {
+      final DeliveryPlan plan = subscriptions.get(subject);
 
-    if (plan == null) {
-      subscriptions.put(subject, plan = DeliveryPlan.newDeliveryPlan(receiver));
-    }
-    else {
-      subscriptions.put(subject, plan.newDeliveryPlanWith(receiver));
+      if (plan == null) {
+        final DeliveryPlan newPlan = DeliveryPlan.newDeliveryPlan(receiver);
+        if (subscriptions.putIfAbsent(subject, newPlan) == null) {
+          return newPlan;
+        }
+      }
+      else if (subscriptions.replace(subject, plan, plan.newDeliveryPlanWith(receiver))) {
+        return plan;
+      }
     }
-
-    return plan;
   }
 
   private DeliveryPlan removeFromDeliveryPlan(final String subject, final MessageCallback receiver) {
-    final DeliveryPlan plan = subscriptions.get(subject);
+    DeliveryPlan plan;
+    do {
+      plan = subscriptions.get(subject);
+    }
+    while (plan != null && !subscriptions.replace(subject, plan, plan.newDeliveryPlanWithOut(receiver)));
 
     if (plan != null) {
-      subscriptions.put(subject, plan.newDeliveryPlanWithOut(receiver));
       fireUnsubscribeListeners(
           new SubscriptionEvent(false, "InBus", plan.getTotalReceivers(), false, subject));
     }
@@ -616,28 +698,41 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
     boolean isNew = false;
 
-    RemoteMessageCallback rmc;
-    synchronized (remoteSubscriptions) {
-      rmc = remoteSubscriptions.get(subject);
-      if (rmc == null) {
-        rmc = new RemoteMessageCallback(!broadcastExclusionSet.contains(subject), subject);
-        rmc.addQueue(queue);
+    RemoteMessageCallback rmc = remoteSubscriptions.get(subject);
+    if (rmc == null) {
+      final RemoteMessageCallback newRmc = new RemoteMessageCallback(!broadcastExclusionSet.contains(subject), subject);
+      newRmc.addQueue(queue);
 
+      rmc = remoteSubscriptions.putIfAbsent(subject, newRmc);
+      if (rmc == null) {
+        rmc = newRmc;
         isNew = true;
-
-        remoteSubscriptions.put(subject, rmc);
         createOrAddDeliveryPlan(subject, rmc);
       }
-      else if (!rmc.contains(queue)) {
-        rmc.addQueue(queue);
-      }
     }
 
+    if (!isNew) {
+      rmc.addQueue(queue);
+    }
+    subjectsOf(queue).add(subject);
+
     fireSubscribeListeners(
         new SubscriptionEvent(true, sessionContext.getSessionId(), rmc.getQueueCount(), isNew, subject)
     );
   }
 
+  private Set<String> subjectsOf(final MessageQueue queue) {
+    Set<String> subjects = queueSubjects.get(queue);
+    if (subjects == null) {
+      final Set<String> newSubjects = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+      subjects = queueSubjects.putIfAbsent(queue, newSubjects);
+      if (subjects == null) {
+        subjects = newSubjects;
+      }
+    }
+    return subjects;
+  }
+
   public class RemoteMessageCallback implements MessageCallback {
 
     private final String svc;
@@ -729,6 +824,11 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     final RemoteMessageCallback rmc = remoteSubscriptions.get(subject);
     rmc.removeQueue(queue);
 
+    final Set<String> subjects = queueSubjects.get(queue);
+    if (subjects != null) {
+      subjects.remove(subject);
+    }
+
     try {
       fireUnsubscribeListeners(new SubscriptionEvent(true, rmc.getQueueCount() == 0, false, false, rmc.getQueueCount(),
           sessionContext.getSessionId(), subject));
@@ -790,17 +890,20 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       busMonitor.notifyNewSubscriptionEvent(event);
     }
 
-    synchronized (subscribeListeners) {
-      event.setDisposeListener(false);
+    notifyListeners(new Runnable() {
+      @Override
+      public void run() {
+        event.setDisposeListener(false);
 
-      for (Iterator<SubscribeListener> iter = subscribeListeners.iterator(); iter.hasNext(); ) {
-        iter.next().onSubscribe(event);
-        if (event.isDisposeListener()) {
-          iter.remove();
-          event.setDisposeListener(false);
+        for (final SubscribeListener listener : subscribeListeners) {
+          listener.onSubscribe(event);
+          if (event.isDisposeListener()) {
+            subscribeListeners.remove(listener);
+            event.setDisposeListener(false);
+          }
         }
       }
-    }
+    });
   }
 
   private void fireUnsubscribeListeners(final SubscriptionEvent event) {
@@ -808,17 +911,20 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       busMonitor.notifyUnSubcriptionEvent(event);
     }
 
-    synchronized (unsubscribeListeners) {
-      event.setDisposeListener(false);
+    notifyListeners(new Runnable() {
+      @Override
+      public void run() {
+        event.setDisposeListener(false);
 
-      for (Iterator<UnsubscribeListener> iter = unsubscribeListeners.iterator(); iter.hasNext(); ) {
-        iter.next().onUnsubscribe(event);
-        if (event.isDisposeListener()) {
-          iter.remove();
-          event.setDisposeListener(false);
+        for (final UnsubscribeListener listener : unsubscribeListeners) {
+          listener.onUnsubscribe(event);
+          if (event.isDisposeListener()) {
+            unsubscribeListeners.remove(listener);
+            event.setDisposeListener(false);
+          }
         }
       }
-    }
+    });
   }
 
   private void fireQueueCloseListeners(final QueueCloseEvent event) {
@@ -826,17 +932,39 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       busMonitor.notifyQueueDetached(event.getQueue().getSession().getSessionId(), event.getQueue());
     }
 
-    synchronized (queueClosedListeners) {
-      event.setDisposeListener(false);
+    notifyListeners(new Runnable() {
+      @Override
+      public void run() {
+        event.setDisposeListener(false);
 
-      for (Iterator<QueueClosedListener> iter = queueClosedListeners.iterator(); iter.hasNext(); ) {
-        iter.next().onQueueClosed(event);
-        if (event.isDisposeListener()) {
-          iter.remove();
-          event.setDisposeListener(false);
+        for (final QueueClosedListener listener : queueClosedListeners) {
+          listener.onQueueClosed(event);
+          if (event.isDisposeListener()) {
+            queueClosedListeners.remove(listener);
+            event.setDisposeListener(false);
+          }
         }
       }
+    });
+  }
+
+  private void notifyListeners(final Runnable notification) {
+    if (listenerExecutor == null) {
+      notification.run();
+      return;
     }
+
+    listenerExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          notification.run();
+        }
+        catch (Throwable t) {
+          log.error("error notifying bus listeners", t);
+        }
+      }
+    });
   }
 
   /**
@@ -847,9 +975,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
    */
   @Override
   public void addSubscribeListener(final SubscribeListener listener) {
-    synchronized (subscribeListeners) {
-      subscribeListeners.add(listener);
-    }
+    subscribeListeners.add(listener);
   }
 
   /**
@@ -860,9 +986,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
    */
   @Override
   public void addUnsubscribeListener(final UnsubscribeListener listener) {
-    synchronized (unsubscribeListeners) {
-      unsubscribeListeners.add(listener);
-    }
+    unsubscribeListeners.add(listener);
   }
 
   private static QueueSession getSession(final Message message) {
@@ -884,6 +1008,10 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   public void associateNewQueue(final QueueSession oldSession, final QueueSession newSession) {
     sessionLookup.put(newSession.getSessionId(), oldSession);
     messageQueues.put(newSession, getQueue(oldSession));
+
+    if (clustering) {
+      clusteringProvider.sessionOpened(newSession.getSessionId());
+    }
   }
 
   @Override
@@ -923,9 +1051,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
   @Override
   public void addQueueClosedListener(final QueueClosedListener listener) {
-    synchronized (queueClosedListeners) {
-      queueClosedListeners.add(listener);
-    }
+    queueClosedListeners.add(listener);
   }
 
   @Override
@@ -982,7 +1108,12 @@ public class ServerMessageBusImpl implements ServerMessageBus {
       queue.stopQueue();
     }
 
+    queueChecks.stop();
     scheduler.shutdown();
+    MappedPageStore.shutdown();
+    if (listenerExecutor != null) {
+      listenerExecutor.shutdown();
+    }
 
     transmissionbuffer.clear();
     subscriptions.clear();
@@ -1072,7 +1203,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
                 messageQueues.get(session).stopQueue();
               }
 
-              queue = new MessageQueueImpl(transmissionbuffer, session, messageQueueTimeoutSecs);
+              queue = new MessageQueueImpl(transmissionbuffer, session, messageQueueTimeoutSecs, coalescingPolicy);
 
               addQueue(session, queue);
 
@@ -1147,6 +1278,14 @@ public class ServerMessageBusImpl implements ServerMessageBus {
               capabilitiesBuffer.append(",").append(Capabilities.SSE.name());
             }
 
+            if (binaryProtocol) {
+              // a client needs the type table to produce the binary encoding.
+              final TypeIdTable table = TypeIdTable.get();
+              capabilitiesBuffer.append(",").append(Capabilities.BinaryProtocol.name());
+              msg.set(MessageParts.BinaryProtocolTypes, table.getTypeNames());
+              msg.set(MessageParts.BinaryProtocolFingerprint, table.getFingerprint());
+            }
+
             msg.set(MessageParts.CapabilitiesFlags, capabilitiesBuffer.toString());
 
             msg.set(ConnectionSessionKey, queue.getSession().getSessionId());
@@ -1186,8 +1325,23 @@ public class ServerMessageBusImpl implements ServerMessageBus {
   }
 
   private BufferStatus bufferStatus() {
-    final int headBytes = transmissionbuffer.getHeadPositionBytes();
-    final int bufSize = transmissionbuffer.getBufferSize();
+    int freeBytes = 0;
+    int tailRange = 0;
+    int activeTails = 0;
+
+    for (int i = 0; i < transmissionbuffer.getShardCount(); i++) {
+      final BufferStatus stat = bufferStatus(transmissionbuffer.getShard(i));
+      freeBytes += stat.getFreeBytes();
+      tailRange = Math.max(tailRange, stat.getTailRange());
+      activeTails += stat.getActiveTails();
+    }
+
+    return new BufferStatus(freeBytes, tailRange, activeTails, ((float) freeBytes) / transmissionbuffer.getBufferSize());
+  }
+
+  private BufferStatus bufferStatus(final TransmissionBuffer shard) {
+    final int headBytes = shard.getHeadPositionBytes();
+    final int bufSize = shard.getBufferSize();
 
     long lowTail = -1;
     long highTail = -1;
@@ -1199,6 +1353,8 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
 
     for (final MessageQueue q : messageQueues.values()) {
+      if (transmissionbuffer.shardFor(q.getBufferColor()) != shard) continue;
+
       activeTails++;
       final long seq = q.getCurrentBufferSequenceNumber();
       if (lowTail == -1) {
@@ -1211,8 +1367,8 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     }
 
     if (activeTails > 0) {
-      lowSegBytes = (lowTail % transmissionbuffer.getBufferSize()) * transmissionbuffer.getSegmentSize();
-      highSegBytes = (highTail % transmissionbuffer.getBufferSize()) * transmissionbuffer.getSegmentSize();
+      lowSegBytes = (lowTail % shard.getBufferSize()) * shard.getSegmentSize();
+      highSegBytes = (highTail % shard.getBufferSize()) * shard.getSegmentSize();
 
       if (lowSegBytes < headBytes) {
         free = (int) ((bufSize - headBytes) + lowSegBytes);
@@ -1259,55 +1415,74 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     }
   }
 
-  private class HousekeeeperRunnable implements Runnable {
-    int runCount = 0;
-    boolean lastWasEmpty = false;
+  private void scheduleQueueCheck(final MessageQueue queue, final long now) {
+    final long expiry = queue.getLastTransmissionTime() + TimeUnit.SECONDS.toMillis(messageQueueTimeoutSecs);
+    queueChecks.schedule(new QueueCheck(queue), Math.min(expiry, now + QUEUE_CHECK_INTERVAL_MILLIS) - now);
+  }
+
+  /**
+   * Checks a queue when it becomes due on the {@link #queueChecks} wheel: a stale queue is torn down, otherwise it is
+   * paged out if its data is straddling the buffer, and scheduled for its next check.
+   */
+  private class QueueCheck implements Runnable {
+    private final MessageQueue queue;
+
+    private QueueCheck(final MessageQueue queue) {
+      this.queue = queue;
+    }
 
     @Override
     public void run() {
-      runCount++;
-      boolean houseKeepingPerformed = false;
-      final List<MessageQueue> endSessions = new LinkedList<MessageQueue>();
+      if (messageQueues.get(queue.getSession()) != queue) {
+        // closed or replaced in the meantime.
+        return;
+      }
 
-      int paged = 0, killed = 0;
+      try {
+        if (queue.isStale()) {
+          endSession();
+          log.debug("[bus] killed session " + queue.getSession().getSessionId());
+          return;
+        }
 
-      while (!houseKeepingPerformed) {
-        try {
-          final Iterator<MessageQueue> iter = ServerMessageBusImpl.this.messageQueues.values().iterator();
-          MessageQueue q;
-          while (iter.hasNext()) {
-            if ((q = iter.next()).isStale()) {
-              iter.remove();
-              endSessions.add(q);
-              killed++;
-            }
+        if (PageUtil.pageIfStraddling(queue)) {
+          log.debug("[bus] paged out queue for session " + queue.getSession().getSessionId());
+        }
+      }
+      catch (Throwable t) {
+        log.warn("error checking queue: " + queue.getSession().getSessionId(), t);
+      }
 
-            if (PageUtil.pageIfStraddling(q)) {
-              paged++;
-            }
-          }
+      scheduleQueueCheck(queue, System.currentTimeMillis());
+    }
 
-          houseKeepingPerformed = true;
-        }
-        catch (ConcurrentModificationException cme) {
-          // fall-through and try again.
+    private void endSession() {
+      final Set<String> subjects = queueSubjects.get(queue);
+      if (subjects != null) {
+        for (final String subject : new ArrayList<String>(subjects)) {
+          remoteUnsubscribe(queue.getSession(), queue, subject);
         }
       }
 
-      if (paged > 0 || killed > 0) {
-        log.debug("[bus] killed " + killed + " sessions and paged out " + paged + " queues");
-      }
+      closeQueue(queue);
+      queue.getSession().endSession();
+      deferredQueue.remove(queue);
+      queue.discard();
+    }
 
-      for (final MessageQueue ref : endSessions) {
-        for (final String subject : new HashSet<String>(ServerMessageBusImpl.this.remoteSubscriptions.keySet())) {
-          ServerMessageBusImpl.this.remoteUnsubscribe(ref.getSession(), ref, subject);
-        }
+    @Override
+    public String toString() {
+      return "Bus Queue Checker";
+    }
+  }
 
-        ServerMessageBusImpl.this.closeQueue(ref);
-        ref.getSession().endSession();
-        deferredQueue.remove(ref);
-        ref.discard();
-      }
+  private class HousekeeeperRunnable implements Runnable {
+    int runCount = 0;
+    boolean lastWasEmpty = false;
+
+    @Override
+    public void run() {
+      runCount++;
 
       final Iterator<ClusterWaitEntry> entryIterator = deadLetter.values().iterator();
 
@@ -1380,9 +1555,17 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
     @Override
     public void remove() {
-      if (removeFromDeliveryPlan(subject, receiver).getTotalReceivers() == 0) {
+      if (removeFromDeliveryPlan(subject, receiver) == null) {
+        return;
+      }
+
+      final DeliveryPlan current = subscriptions.get(subject);
+      if (current == null || current.getTotalReceivers() == 0) {
         globalSubscriptions.remove(subject);
-        subscriptions.remove(subject);
+        if (current != null) {
+          // only if nobody has subscribed since.
+          subscriptions.remove(subject, current);
+        }
       }
       else {
         boolean nonRemote = true;
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import static org.jboss.errai.bus.client.util.ErrorHelper.handleMessageDeliveryFailure;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.bus.client.api.RoutingFlag;
+import org.jboss.errai.bus.client.api.base.MessageDeliveryFailure;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
+import org.jboss.errai.bus.client.api.messaging.RequestDispatcher;
+import org.jboss.errai.bus.server.async.scheduling.EventLoopThreads;
+import org.jboss.errai.bus.server.async.scheduling.VirtualThreads;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * An asynchronous dispatcher which delivers every message on its own thread, so services which block on JDBC or
+ * remote calls neither pin container threads nor exhaust a bounded worker pool. On a JVM with virtual threads each
+ * delivery runs on a virtual thread; on older JVMs it runs on a cached platform thread (see {@link VirtualThreads}).
+ * <p>
+ * The number of concurrent deliveries per subject is limited by <tt>errai.dispatcher.subject_concurrency_limit</tt>.
+ * Once a subject is at its limit, the thread handing over further messages for that subject is blocked until a
+ * delivery completes, rather than running the delivery itself. If no delivery completes within
+ * <tt>errai.dispatcher.backpressure_timeout</tt> milliseconds, the message fails with a delivery error. Messages
+ * handed over by an I/O event loop (see {@link EventLoopThreads}) fail straight away instead, as blocking the event
+ * loop would stall every connection it serves.
+ * <p>
+ * Subjects are named by the clients, so their permits are only kept while the subject has deliveries in progress or
+ * waiting.
+ */
+@Singleton
+public class VirtualThreadDispatcher implements RequestDispatcher {
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+
+  private final MessageBus bus;
+  private final ExecutorService executor;
+  private final Map<String, SubjectPermits> subjectPermits = new HashMap<String, SubjectPermits>();
+  private final int subjectConcurrencyLimit;
+  private final long backpressureTimeout;
+
+  @Inject
+  public VirtualThreadDispatcher(final ErraiService service) {
+    this(service.getBus(),
+        ErraiConfigAttribs.DISPATCHER_SUBJECT_CONCURRENCY_LIMIT.getInt(service.getConfiguration()),
+        ErraiConfigAttribs.DISPATCHER_BACKPRESSURE_TIMEOUT.getInt(service.getConfiguration()));
+
+    service.addShutdownHook(new Runnable() {
+      @Override
+      public void run() {
+        shutdown();
+      }
+    });
+  }
+
+  VirtualThreadDispatcher(final MessageBus bus, final int subjectConcurrencyLimit, final long backpressureTimeout) {
+    this.bus = bus;
+    this.subjectConcurrencyLimit = subjectConcurrencyLimit;
+    this.backpressureTimeout = backpressureTimeout;
+
+    log.debug("initializing thread-per-message dispatcher (virtual threads: " + VirtualThreads.isSupported()
+        + "; subjectConcurrencyLimit: " + subjectConcurrencyLimit + "; backpressureTimeout: " + backpressureTimeout + ")");
+
+    this.executor = VirtualThreads.newThreadPerTaskExecutor("MessageDelivery-");
+  }
+
+  /**
+   * Stops accepting messages, and interrupts the deliveries in progress.
+   */
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public void dispatchGlobal(final Message message) throws InterruptedException {
+    if (message.hasPart(MessageParts.PriorityProcessing)) {
+      new Delivery(message, null).run();
+    }
+    else {
+      deliver(message);
+    }
+  }
+
+  @Override
+  public void dispatch(final Message message) throws InterruptedException {
+    message.setFlag(RoutingFlag.NonGlobalRouting);
+    deliver(message);
+  }
+
+  private void deliver(final Message message) throws InterruptedException {
+    final SubjectPermits permits = retainPermits(String.valueOf(message.getSubject()));
+
+    boolean acquired = false;
+    try {
+      if (EventLoopThreads.isEventLoop()) {
+        acquired = permits.tryAcquire();
+      }
+      else {
+        acquired = permits.tryAcquire(backpressureTimeout, TimeUnit.MILLISECONDS);
+      }
+
+      if (!acquired) {
+        handleMessageDeliveryFailure(bus, message, "Too many concurrent requests for: " + message.getSubject(),
+            new MessageDeliveryFailure("concurrency limit for subject reached: " + message.getSubject()), false);
+        return;
+      }
+
+      executor.execute(new Delivery(message, permits));
+    }
+    catch (RuntimeException e) {
+      if (acquired) {
+        acquired = false;
+        permits.release();
+      }
+      throw e;
+    }
+    finally {
+      // once the delivery is running, it releases the permits when it completes.
+      if (!acquired) {
+        releasePermits(permits);
+      }
+    }
+  }
+
+  /**
+   * Returns the permits of the specified subject, which are kept until they are released with
+   * {@link #releasePermits(SubjectPermits)}.
+   */
+  private SubjectPermits retainPermits(final String subject) {
+    synchronized (subjectPermits) {
+      SubjectPermits permits = subjectPermits.get(subject);
+      if (permits == null) {
+        permits = new SubjectPermits(subject, subjectConcurrencyLimit);
+        subjectPermits.put(subject, permits);
+      }
+      permits.users++;
+      return permits;
+    }
+  }
+
+  private void releasePermits(final SubjectPermits permits) {
+    synchronized (subjectPermits) {
+      if (--permits.users == 0) {
+        subjectPermits.remove(permits.subject);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of subjects for which permits are currently kept.
+   */
+  int getTrackedSubjectCount() {
+    synchronized (subjectPermits) {
+      return subjectPermits.size();
+    }
+  }
+
+  private static class SubjectPermits extends Semaphore {
+    private static final long serialVersionUID = 1L;
+
+    private final String subject;
+
+    /**
+     * The number of deliveries which are running or waiting for a permit. Guarded by the permits map.
+     */
+    private int users;
+
+    private SubjectPermits(final String subject, final int permits) {
+      super(permits);
+      this.subject = subject;
+    }
+  }
+
+  private class Delivery implements Runnable {
+    private final Message message;
+    private final SubjectPermits permits;
+
+    private Delivery(final Message message, final SubjectPermits permits) {
+      this.message = message;
+      this.permits = permits;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Worker.deliverToBus(bus, message);
+      }
+      catch (QueueUnavailableException e) {
+        log.debug("queue not available", e);
+      }
+      catch (Throwable e) {
+        message.setResource("Exception", e.getCause());
+        handleMessageDeliveryFailure(bus, message, "Error calling remote service: " + message.getSubject(), e, false);
+      }
+      finally {
+        if (permits != null) {
+          permits.release();
+          releasePermits(permits);
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Delivery of message to: " + message.getSubject();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import static org.jboss.errai.bus.client.util.ErrorHelper.handleMessageDeliveryFailure;
+
+import org.jboss.errai.bus.client.api.RoutingFlag;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
+import org.jboss.errai.bus.client.api.messaging.RequestDispatcher;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.SaturationPolicy;
+import org.jboss.errai.bus.server.async.scheduling.WorkStealingExecutorService;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * An asynchronous dispatcher, like the {@link AsyncDispatcher}, which delivers messages on a
+ * {@link WorkStealingExecutorService} rather than on a pool of workers sharing a single blocking queue. It is
+ * selected by setting <tt>errai.dispatcher_implementation</tt> to the name of this class, which also makes
+ * {@link DefaultTaskManager} use the same kind of executor.
+ * <p>
+ * The pool size and the number of messages waiting for delivery are configured with the same
+ * <tt>errai.async.thread_pool_size</tt> and <tt>errai.async.delivery.queue_size</tt> properties as the
+ * {@link AsyncDispatcher}. Once the delivery queue is full, the configured <tt>errai.bus.saturation_policy</tt> applies.
+ * Unlike the {@link AsyncDispatcher}, long-running deliveries are not interrupted.
+ */
+@Singleton
+public class WorkStealingDispatcher implements RequestDispatcher {
+  private static final int DEFAULT_DELIVERY_QUEUE_SIZE = 10000;
+
+  private static final Logger log = LoggerFactory.getLogger(WorkStealingDispatcher.class);
+
+  private final MessageBus bus;
+  private final WorkStealingExecutorService executor;
+
+  @Inject
+  public WorkStealingDispatcher(final ErraiService service) {
+    this.bus = service.getBus();
+
+    final ErraiServiceConfigurator cfg = service.getConfiguration();
+
+    int poolSize = Runtime.getRuntime().availableProcessors();
+    if (cfg.hasProperty(WorkerFactory.CONFIG_ASYNC_THREAD_POOL_SIZE)) {
+      poolSize = Integer.parseInt(cfg.getProperty(WorkerFactory.CONFIG_ASYNC_THREAD_POOL_SIZE));
+    }
+
+    int deliveryQueueSize = DEFAULT_DELIVERY_QUEUE_SIZE;
+    if (cfg.hasProperty(WorkerFactory.CONFIG_ASYNC_DELIVERY_QUEUE_SIZE)) {
+      deliveryQueueSize = Integer.parseInt(cfg.getProperty(WorkerFactory.CONFIG_ASYNC_DELIVERY_QUEUE_SIZE));
+    }
+
+    log.debug("initializing work-stealing dispatcher (poolSize: " + poolSize + "; queueSize: " + deliveryQueueSize + ")");
+
+    this.executor = new WorkStealingExecutorService(deliveryQueueSize, poolSize,
+        SaturationPolicy.valueOf(ErraiConfigAttribs.SATURATION_POLICY.get(cfg)));
+    this.executor.start();
+
+    service.addShutdownHook(new Runnable() {
+      @Override
+      public void run() {
+        executor.requestStop();
+      }
+    });
+  }
+
+  @Override
+  public void dispatchGlobal(final Message message) {
+    if (message.hasPart(MessageParts.PriorityProcessing)) {
+      new Delivery(message).run();
+    }
+    else {
+      executor.execute(new Delivery(message));
+    }
+  }
+
+  @Override
+  public void dispatch(final Message message) {
+    message.setFlag(RoutingFlag.NonGlobalRouting);
+    executor.execute(new Delivery(message));
+  }
+
+  private class Delivery implements Runnable {
+    private final Message message;
+
+    private Delivery(final Message message) {
+      this.message = message;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Worker.deliverToBus(bus, message);
+      }
+      catch (QueueUnavailableException e) {
+        log.debug("queue not available", e);
+      }
+      catch (Throwable e) {
+        message.setResource("Exception", e.getCause());
+        handleMessageDeliveryFailure(bus, message, "Error calling remote service: " + message.getSubject(), e, false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Delivery of message to: " + message.getSubject();
+    }
+  }
+}
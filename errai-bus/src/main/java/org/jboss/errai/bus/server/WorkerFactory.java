@@ -37,9 +37,9 @@ public class WorkerFactory {
   private static final int DEFAULT_DELIVERY_QUEUE_SIZE = 100;
   private static final int DEFAULT_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
-  private static final String CONFIG_ASYNC_THREAD_POOL_SIZE = "errai.async.thread_pool_size";
+  static final String CONFIG_ASYNC_THREAD_POOL_SIZE = "errai.async.thread_pool_size";
   private static final String CONFIG_ASYNC_WORKER_TIMEOUT = "errai.async.worker.timeout";
-  private static final String CONFIG_ASYNC_DELIVERY_QUEUE_SIZE = "errai.async.delivery.queue_size";
+  static final String CONFIG_ASYNC_DELIVERY_QUEUE_SIZE = "errai.async.delivery.queue_size";
 
   private Worker[] workerPool;
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.async.scheduling;
+
+/**
+ * Marks a thread as running an I/O event loop while it hands messages over to the bus. Such a thread serves many
+ * connections, so the bus must never block it, for instance to apply backpressure.
+ */
+public final class EventLoopThreads {
+  private static final ThreadLocal<Boolean> eventLoop = new ThreadLocal<Boolean>();
+
+  private EventLoopThreads() {
+  }
+
+  /**
+   * Marks the current thread as an event loop thread, until {@link #exit()} is called.
+   */
+  public static void enter() {
+    eventLoop.set(Boolean.TRUE);
+  }
+
+  public static void exit() {
+    eventLoop.remove();
+  }
+
+  /**
+   * Returns true if the current thread is an event loop thread, and therefore must not block.
+   */
+  public static boolean isEventLoop() {
+    return eventLoop.get() != null;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.async.scheduling;
+
+import static java.lang.System.currentTimeMillis;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.errai.bus.server.async.TimedTask;
+import org.slf4j.Logger;
+
+/**
+ * A hashed timing wheel for delayed and repeating {@link TimedTask}s. Tasks are hashed into a ring of buckets by the
+ * tick in which they become due, and a single ticker thread expires one bucket per tick, handing the due tasks to an
+ * {@link Executor}. Scheduling a task is a lock-free offer onto a queue which the ticker drains at the start of each
+ * tick, so producers never contend with each other or with the ticker.
+ * <p>
+ * Tasks fire no earlier than their scheduled time, and at most one tick late.
+ */
+public class HashedTimingWheel {
+  private static final Logger log = getLogger(HashedTimingWheel.class);
+
+  private final long tickMillis;
+  private final List<TimedTask>[] wheel;
+  private final int mask;
+
+  private final Queue<TimedTask> pending = new ConcurrentLinkedQueue<TimedTask>();
+  private final Executor executor;
+  private final Ticker ticker = new Ticker();
+
+  private volatile long startTime;
+  private long tick;
+
+  /**
+   * @param executor
+   *     the executor due tasks are handed to.
+   * @param tickMillis
+   *     the duration of a tick in milliseconds.
+   * @param wheelSize
+   *     the number of buckets. This is rounded up to a power of two.
+   */
+  @SuppressWarnings("unchecked")
+  public HashedTimingWheel(final Executor executor, final long tickMillis, final int wheelSize) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("tick duration must be positive: " + tickMillis);
+    }
+
+    int size = 1;
+    while (size < wheelSize) {
+      size <<= 1;
+    }
+
+    this.executor = executor;
+    this.tickMillis = tickMillis;
+    this.wheel = new List[size];
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new ArrayList<TimedTask>();
+    }
+  }
+
+  public void start() {
+    startTime = currentTimeMillis();
+    ticker.start();
+  }
+
+  public void stop() {
+    ticker.requestStop();
+    pending.clear();
+  }
+
+  /**
+   * Schedules the specified task to run at {@link TimedTask#nextRuntime()}. A task which is already due is handed to
+   * the executor immediately, from the calling thread.
+   */
+  public void schedule(final TimedTask task) {
+    if (task.isDue(currentTimeMillis())) {
+      fire(task);
+    }
+    else {
+      pending.offer(task);
+    }
+  }
+
+  /**
+   * Schedules the specified runnable to run once, after the specified delay.
+   *
+   * @return the task, which can be used to cancel the run.
+   */
+  public TimedTask schedule(final Runnable runnable, final long delayMillis) {
+    final TimedTask task = new PooledExecutorService.DelayedTask(runnable, delayMillis);
+    schedule(task);
+    return task;
+  }
+
+  private void fire(final TimedTask task) {
+    executor.execute(task);
+
+    if (task.calculateNextRuntime()) {
+      pending.offer(task);
+    }
+  }
+
+  private long tickOf(final long time) {
+    return (time - startTime + tickMillis - 1) / tickMillis;
+  }
+
+  private void transferPending() {
+    TimedTask task;
+    while ((task = pending.poll()) != null) {
+      if (task.isCancelled() || task.nextRuntime() == -1) {
+        continue;
+      }
+      wheel[(int) (Math.max(tick, tickOf(task.nextRuntime())) & mask)].add(task);
+    }
+  }
+
+  private void expire(final List<TimedTask> bucket) {
+    final long now = currentTimeMillis();
+    final List<TimedTask> due = new ArrayList<TimedTask>();
+
+    for (final Iterator<TimedTask> iter = bucket.iterator(); iter.hasNext(); ) {
+      final TimedTask task = iter.next();
+      if (task.isCancelled() || task.nextRuntime() == -1) {
+        iter.remove();
+      }
+      else if (task.isDue(now)) {
+        iter.remove();
+        due.add(task);
+      }
+      // otherwise the task is due on a later revolution of the wheel.
+    }
+
+    for (final TimedTask task : due) {
+      try {
+        fire(task);
+      }
+      catch (Throwable t) {
+        log.error("failed to dispatch scheduled task: " + task, t);
+      }
+    }
+  }
+
+  private class Ticker extends Thread {
+    private volatile boolean running;
+
+    private Ticker() {
+      super("TimingWheelTicker");
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        final long deadline = startTime + (tick + 1) * tickMillis;
+        while (currentTimeMillis() < deadline) {
+          LockSupport.parkUntil(deadline);
+          if (Thread.interrupted() && !running) {
+            return;
+          }
+        }
+
+        tick++;
+        transferPending();
+        expire(wheel[(int) (tick & mask)]);
+      }
+    }
+
+    @Override
+    public void start() {
+      running = true;
+      super.start();
+    }
+
+    void requestStop() {
+      running = false;
+      interrupt();
+    }
+  }
+}
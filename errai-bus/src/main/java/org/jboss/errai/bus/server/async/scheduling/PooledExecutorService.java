@@ -34,7 +34,7 @@ import org.jboss.errai.common.client.api.tasks.HasAsyncTaskRef;
 import org.jboss.errai.common.client.util.TimeUnit;
 import org.slf4j.Logger;
 
-public class PooledExecutorService implements TaskProvider {
+public class PooledExecutorService implements TaskProvider, TaskExecutor {
   private final static Logger log = getLogger(PooledExecutorService.class);
   private final BlockingQueue<TimedTask> queue;
 
@@ -237,11 +237,11 @@ public class PooledExecutorService implements TaskProvider {
       return null; // It's yet unclear how this happens. See https://jira.jboss.org/browse/ERRAI-104
   }
 
-  private static class SingleFireTask extends TimedTask {
+  static class SingleFireTask extends TimedTask {
     private final Runnable runnable;
     boolean fired = false;
 
-    private SingleFireTask(Runnable runnable) {
+    SingleFireTask(Runnable runnable) {
       period = -1;
       nextRuntime = -1;
       this.runnable = runnable;
@@ -274,12 +274,12 @@ public class PooledExecutorService implements TaskProvider {
     }
   }
 
-  private static final class DelayedTask extends TimedTask {
+  static final class DelayedTask extends TimedTask {
     private final Runnable runnable;
     private boolean fired = false;
     private volatile Thread runningOn;
 
-    private DelayedTask(Runnable runnable, long delayMillis) {
+    DelayedTask(Runnable runnable, long delayMillis) {
       this.interruptHook = new InterruptHandle() {
         @Override
         public void sendInterrupt() {
@@ -334,12 +334,12 @@ public class PooledExecutorService implements TaskProvider {
     }
   }
 
-  private static final class RepeatingTimedTask extends TimedTask {
+  static final class RepeatingTimedTask extends TimedTask {
     private final Runnable runnable;
     private volatile Thread runningOn;
     private volatile boolean finished;
 
-    private RepeatingTimedTask(Runnable runnable, long initialMillis, long intervalMillis) {
+    RepeatingTimedTask(Runnable runnable, long initialMillis, long intervalMillis) {
       this.interruptHook = new InterruptHandle() {
         @Override
         public void sendInterrupt() {
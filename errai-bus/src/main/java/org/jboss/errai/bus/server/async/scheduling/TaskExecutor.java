@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.async.scheduling;
+
+import org.jboss.errai.common.client.api.tasks.AsyncTask;
+import org.jboss.errai.common.client.util.TimeUnit;
+
+/**
+ * A service which runs tasks on a pool of threads, either immediately or after a delay.
+ *
+ * @see PooledExecutorService
+ * @see WorkStealingExecutorService
+ */
+public interface TaskExecutor {
+
+  /**
+   * Schedule a task for immediate execution.
+   *
+   * @param runnable Runnable task
+   * @throws InterruptedException thrown if the calling thread is interrupted while waiting to hand off the task.
+   */
+  public void execute(Runnable runnable) throws InterruptedException;
+
+  public AsyncTask schedule(Runnable runnable, TimeUnit unit, long interval);
+
+  public AsyncTask scheduleRepeating(Runnable runnable, TimeUnit unit, long initial, long interval);
+
+  public void start();
+
+  public void requestStop();
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.async.scheduling;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.bus.server.async.TimedTask;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.DelayedTask;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.RepeatingTimedTask;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.SaturationPolicy;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.SingleFireTask;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiServiceConfiguratorImpl;
+import org.jboss.errai.common.client.api.tasks.AsyncTask;
+import org.jboss.errai.common.client.util.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * A {@link TaskExecutor} which runs tasks on a work-stealing pool and keeps delayed and repeating tasks in a
+ * {@link HashedTimingWheel}.
+ * <p>
+ * Every worker owns a lock-free deque of tasks (in FIFO mode, as the tasks are independent of one another), and idle
+ * workers steal from the deques of busy ones, so there is no single queue or lock for all workers and producers to
+ * contend on. Tasks submitted from outside the pool are spread over a number of submission queues by the submitting
+ * thread. The number of tasks which have been accepted but not yet started is bounded, and the
+ * {@link SaturationPolicy} is applied once the bound is reached.
+ */
+public class WorkStealingExecutorService implements TaskExecutor {
+  private static final Logger log = getLogger(WorkStealingExecutorService.class);
+
+  private static final long TICK_MILLIS = 10;
+  private static final int WHEEL_SIZE = 512;
+
+  private final ForkJoinPool pool;
+  private final HashedTimingWheel wheel;
+  private final int maxQueueSize;
+  private final SaturationPolicy saturationPolicy;
+
+  private final AtomicInteger queued = new AtomicInteger();
+
+  private volatile boolean stopped = false;
+
+  public WorkStealingExecutorService(final int queueSize) {
+    this(queueSize, Runtime.getRuntime().availableProcessors(), SaturationPolicy.valueOf(
+        ErraiConfigAttribs.SATURATION_POLICY.get(new ErraiServiceConfiguratorImpl())));
+  }
+
+  public WorkStealingExecutorService(final int queueSize, final int parallelism,
+                                     final SaturationPolicy saturationPolicy) {
+    this.maxQueueSize = queueSize;
+    this.saturationPolicy = saturationPolicy;
+    this.pool = new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("ExecutorPoolWorker-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+      }
+    }, null, true);
+
+    this.wheel = new HashedTimingWheel(new Executor() {
+      @Override
+      public void execute(final Runnable task) {
+        submit(task);
+      }
+    }, TICK_MILLIS, WHEEL_SIZE);
+  }
+
+  @Override
+  public void execute(final Runnable runnable) {
+    if (stopped) {
+      throw new IllegalStateException("work queue has been stopped");
+    }
+
+    if (queued.incrementAndGet() > maxQueueSize) {
+      queued.decrementAndGet();
+      saturationPolicy.dealWith(runnable);
+      return;
+    }
+
+    pool.execute(new Job(new SingleFireTask(runnable)));
+  }
+
+  /**
+   * Hands a due scheduled task to the pool. Scheduled tasks are not subject to the saturation policy, as they have
+   * already been accepted.
+   */
+  private void submit(final Runnable task) {
+    if (!stopped) {
+      queued.incrementAndGet();
+      pool.execute(new Job(task));
+    }
+  }
+
+  @Override
+  public AsyncTask schedule(final Runnable runnable, final TimeUnit unit, final long interval) {
+    final TimedTask task = new DelayedTask(runnable, unit.toMillis(interval));
+    wheel.schedule(task);
+    return task;
+  }
+
+  @Override
+  public AsyncTask scheduleRepeating(final Runnable runnable, final TimeUnit unit, final long initial,
+                                     final long interval) {
+    final TimedTask task = new RepeatingTimedTask(runnable, unit.toMillis(initial), unit.toMillis(interval));
+    wheel.schedule(task);
+    return task;
+  }
+
+  @Override
+  public void start() {
+    if (stopped) {
+      throw new IllegalStateException("work queue cannot be started after it's been stopped");
+    }
+    wheel.start();
+  }
+
+  @Override
+  public void requestStop() {
+    stopped = true;
+    wheel.stop();
+    pool.shutdownNow();
+  }
+
+  /**
+   * Returns the number of tasks which have been accepted but have not started running yet.
+   */
+  public int getQueuedTaskCount() {
+    return queued.get();
+  }
+
+  private class Job implements Runnable {
+    private final Runnable task;
+
+    private Job(final Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      queued.decrementAndGet();
+      try {
+        task.run();
+      }
+      catch (Throwable t) {
+        // an exception escaping into the pool would needlessly kill the worker thread.
+        if (task instanceof TimedTask) {
+          ((TimedTask) task).cancel(true);
+        }
+        log.error("error running task: " + task, t);
+      }
+    }
+  }
+}
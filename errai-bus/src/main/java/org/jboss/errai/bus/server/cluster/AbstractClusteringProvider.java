@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster;
+
+import static org.jboss.errai.bus.server.cluster.ClusterParts.BusId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.MessageId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.Payload;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.SessId;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.SessIds;
+import static org.jboss.errai.bus.server.cluster.ClusterParts.Subject;
+import static org.jboss.errai.common.client.protocols.MessageParts.CommandType;
+import static org.jboss.errai.common.client.protocols.MessageParts.SessionID;
+import static org.jboss.errai.common.client.protocols.MessageParts.ToSubject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.RoutingFlag;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.QueueUnavailableException;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.io.MessageFactory;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.bus.server.util.SecureHashUtil;
+import org.jboss.errai.common.client.protocols.Resources;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The cluster protocol shared by the clustering providers: finding the owner of a session
+ * ({@link ClusterCommands#WhoHandles}, {@link ClusterCommands#NotifyOwner}), forwarding messages
+ * ({@link ClusterCommands#MessageForward}) and replicating session ownership
+ * ({@link ClusterCommands#SessionOwned}, {@link ClusterCommands#SessionReleased}).
+ * <p>
+ * Subclasses provide the transport: they send encoded messages to one or all members, and pass received messages to
+ * {@link #receive(Object, String)} and changes of the cluster membership to {@link #membersChanged(Collection)}.
+ *
+ * @param <A>
+ *     the type of address identifying a cluster member.
+ */
+public abstract class AbstractClusteringProvider<A> implements ClusteringProvider, MessageCallback {
+
+  protected static final String CLUSTER_SERVICE = "local:ErraiClusterService"; // erraibus service
+  private static final String SOURCE_RESOURCE = "ClusterSource";
+
+  private static Logger log = LoggerFactory.getLogger(AbstractClusteringProvider.class);
+
+  protected final String busId = SecureHashUtil.nextSecureHash();
+  protected final ServerMessageBus serverMessageBus;
+
+  protected final SessionOwnershipDirectory<A> sessionDirectory;
+  private final ForwardingBatcher<A> batcher;
+  private volatile Collection<A> members;
+
+  protected AbstractClusteringProvider(final ServerMessageBus messageBus, final ErraiServiceConfigurator config) {
+    this.serverMessageBus = messageBus;
+    this.sessionDirectory = new SessionOwnershipDirectory<A>(
+        ErraiConfigAttribs.CLUSTER_SESSION_DIRECTORY_SIZE.getInt(config));
+
+    final int batchDelayMicros = ErraiConfigAttribs.CLUSTER_BATCH_DELAY_MICROS.getInt(config);
+    if (batchDelayMicros > 0) {
+      batcher = new ForwardingBatcher<A>(new ForwardingBatcher.Sender<A>() {
+        @Override
+        public void send(final A destination, final String batch) throws Exception {
+          transmit(destination, batch);
+        }
+      }, batchDelayMicros, ErraiConfigAttribs.CLUSTER_BATCH_MAX_BYTES.getInt(config));
+    }
+    else {
+      batcher = null;
+    }
+  }
+
+  /**
+   * Returns the address of the local member.
+   */
+  protected abstract A getLocalAddress();
+
+  /**
+   * Sends an encoded message, or a batch of them, to the specified member.
+   *
+   * @param destination
+   *     the member to send to, or null to send to all members.
+   * @param payload
+   *     the encoded message or batch.
+   */
+  protected abstract void transmit(A destination, String payload) throws Exception;
+
+  /**
+   * Subscribes the cluster service. Called by subclasses once the transport is ready.
+   */
+  protected void start() {
+    serverMessageBus.subscribe(CLUSTER_SERVICE, this);
+  }
+
+  /**
+   * Sends the pending batches. Called by subclasses before the transport is closed.
+   */
+  protected void stop() {
+    if (batcher != null) {
+      batcher.stop();
+    }
+  }
+
+  /**
+   * Hands the messages received from another member to the cluster service.
+   *
+   * @param source
+   *     the member which sent the payload.
+   * @param payload
+   *     a single encoded message or a batch of forwarded messages.
+   */
+  protected void receive(final A source, final String payload) {
+    try {
+      for (final Message erraiMessage : MessageFactory.createCommandMessages(IntrabusQueueSession.INSTANCE, payload)) {
+        erraiMessage.setResource(SOURCE_RESOURCE, source);
+
+        if (busId.equals(erraiMessage.get(String.class, BusId))) {
+          continue;
+        }
+        erraiMessage.setFlag(RoutingFlag.FromPeer);
+
+        serverMessageBus.sendGlobal(erraiMessage);
+      }
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Forgets the sessions of members which left the cluster, and tells members which joined it about the sessions
+   * owned by this bus.
+   */
+  protected void membersChanged(final Collection<A> newMembers) {
+    final Collection<A> oldMembers = members;
+    members = newMembers;
+
+    sessionDirectory.retainMembers(newMembers);
+    if (oldMembers != null && batcher != null) {
+      for (final A member : oldMembers) {
+        if (!newMembers.contains(member)) {
+          batcher.remove(member);
+        }
+      }
+    }
+
+    final List<A> joined = new ArrayList<A>(newMembers);
+    joined.remove(getLocalAddress());
+    if (oldMembers != null) {
+      joined.removeAll(oldMembers);
+    }
+    if (joined.isEmpty()) {
+      return;
+    }
+
+    // sending from within the membership callback would hold up the transport, so hand it off to the bus.
+    serverMessageBus.getScheduler().execute(new Runnable() {
+      @Override
+      public void run() {
+        final StringBuilder sessionIds = new StringBuilder();
+        for (final QueueSession session : serverMessageBus.getMessageQueues().keySet()) {
+          if (sessionIds.length() != 0) {
+            sessionIds.append(',');
+          }
+          sessionIds.append(session.getSessionId());
+        }
+        if (sessionIds.length() == 0) {
+          return;
+        }
+
+        final Message ownedMessage = createSessionOwnedMessage(sessionIds.toString());
+        for (final A member : joined) {
+          send(member, ownedMessage);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void callback(final Message message) {
+    final QueueSession queueSession = message.getResource(QueueSession.class, "Session");
+    if (queueSession != IntrabusQueueSession.INSTANCE) {
+      log.warn("message to cluster service ('" + CLUSTER_SERVICE + "') originating from illegal session. " +
+          " message was discarded.");
+      return;
+    }
+
+    switch (ClusterCommands.valueOf(message.getCommandType())) {
+      case WhoHandles: {
+        final String subject = message.get(String.class, Subject);
+        if (serverMessageBus.hasRemoteSubscriptions(subject)) {
+          final String sessionIdRequested = message.get(String.class, ClusterParts.SessId);
+
+          try {
+            if (serverMessageBus.getQueueBySession(sessionIdRequested) == null) {
+              return;
+            }
+          }
+          catch (QueueUnavailableException e) {
+            return;
+          }
+
+          final Message replyMsg = CommandMessage.create()
+              .set(ToSubject, CLUSTER_SERVICE)
+              .set(CommandType, ClusterCommands.NotifyOwner.name())
+              .set(BusId, busId)
+              .copy(MessageId, message)
+              .set(ClusterParts.SessId, sessionIdRequested);
+
+          send(getSource(message), replyMsg);
+        }
+      }
+      break;
+
+      case NotifyOwner: {
+        final String messageId = message.get(String.class, MessageId);
+        final String sessId = message.get(String.class, SessId);
+        final Message deferredMessage = serverMessageBus.getDeadLetterMessage(messageId);
+        serverMessageBus.removeDeadLetterMessage(messageId);
+
+        sessionDirectory.owned(sessId, getSource(message));
+
+        if (deferredMessage != null) {
+          forward(getSource(message), createForwardMessageFor(deferredMessage, messageId));
+        }
+      }
+      break;
+
+      case InvalidRoute: {
+        final String sessionId = message.get(String.class, SessId);
+        sessionDirectory.invalidate(sessionId);
+
+        final String messageId = message.get(String.class, MessageId);
+        final String subject = message.get(String.class, Subject);
+
+        send(null, createWhoHandlesMessage(sessionId, subject, messageId));
+        break;
+      }
+
+      case MessageForward: {
+        final String payload = message.get(String.class, Payload);
+        final Message forwardMessage = MessageFactory.createCommandMessage(IntrabusQueueSession.INSTANCE, payload);
+        forwardMessage.setFlag(RoutingFlag.FromPeer);
+
+        final String sessId = message.get(String.class, SessId);
+        if (sessId == null) {
+          serverMessageBus.sendGlobal(forwardMessage);
+        }
+        else {
+          final MessageQueue messageQueue;
+
+          try {
+            messageQueue = serverMessageBus.getQueueBySession(sessId);
+          }
+          catch (QueueUnavailableException e) {
+            final String messageId = message.get(String.class, MessageId);
+            send(getSource(message), createInvalidRouteMessage(sessId, forwardMessage.getSubject(), messageId));
+            return;
+          }
+
+          // otherwise route it directly to the client.
+          forwardMessage.setResource(Resources.Session.name(), messageQueue.getSession());
+          serverMessageBus.send(forwardMessage);
+        }
+      }
+      break;
+
+      case SessionOwned: {
+        for (final String sessId : message.get(String.class, SessIds).split(",")) {
+          if (sessId.length() != 0) {
+            sessionDirectory.owned(sessId, getSource(message));
+          }
+        }
+      }
+      break;
+
+      case SessionReleased: {
+        sessionDirectory.released(message.get(String.class, SessId), getSource(message));
+      }
+      break;
+    }
+  }
+
+  @Override
+  public void clusterTransmit(final String sessionId, final String subject, final String messageId) {
+    final A knownAddress = sessionDirectory.lookup(sessionId);
+    if (knownAddress != null) {
+      forward(knownAddress, createForwardMessageFor(serverMessageBus.getDeadLetterMessage(messageId), messageId));
+    }
+    else {
+      send(null, createWhoHandlesMessage(sessionId, subject, messageId));
+    }
+  }
+
+  @Override
+  public void clusterTransmitGlobal(final Message message) {
+    forward(null, createForwardMessageFor(message, null));
+  }
+
+  @Override
+  public void sessionOpened(final String sessionId) {
+    send(null, createSessionOwnedMessage(sessionId));
+  }
+
+  @Override
+  public void sessionClosed(final String sessionId) {
+    send(null, CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.SessionReleased.name())
+        .set(SessId, sessionId)
+        .set(BusId, busId));
+  }
+
+  /**
+   * Returns the batcher aggregating forwarded messages, which counts the messages and batches sent and the latency
+   * added by batching, or null if batching is disabled.
+   */
+  public ForwardingBatcher<A> getForwardingBatcher() {
+    return batcher;
+  }
+
+  /**
+   * Sends a control message to the specified member, or to all members if the address is null.
+   */
+  private void send(final A destination, final Message message) {
+    try {
+      transmit(destination, ErraiProtocol.encodePayload(message.getParts()));
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Sends a <tt>MessageForward</tt> to the specified member, or to all members if the address is null. Unless batching
+   * is disabled, the message is added to the batch for that destination.
+   */
+  private void forward(final A destination, final Message forwardMessage) {
+    if (batcher != null) {
+      batcher.add(destination, ErraiProtocol.encodePayload(forwardMessage.getParts()));
+    }
+    else {
+      send(destination, forwardMessage);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private A getSource(final Message message) {
+    return (A) message.getResource(Object.class, SOURCE_RESOURCE);
+  }
+
+  private Message createForwardMessageFor(final Message message, final String messageId) {
+    final Message forward = CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.MessageForward.name())
+        .set(Payload, ErraiProtocol.encodePayload(message.getParts()))
+        .set(BusId, busId);
+
+    if (message.hasPart(SessionID)) {
+      final String value = message.get(String.class, SessionID);
+      if (!IntrabusQueueSession.INSTANCE.getSessionId().equals(value)) {
+        forward.set(SessId, value);
+      }
+    }
+
+    if (messageId != null) {
+      forward.set(MessageId, messageId);
+    }
+
+    return forward;
+  }
+
+  private Message createInvalidRouteMessage(final String sessionId, final String subject, final String messageId) {
+    return CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.InvalidRoute.name())
+        .set(SessId, sessionId)
+        .set(Subject, subject)
+        .set(MessageId, messageId)
+        .set(BusId, busId);
+  }
+
+  private Message createWhoHandlesMessage(final String sessionId, final String subject, final String messageId) {
+    return CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.WhoHandles.name())
+        .set(ClusterParts.SessId, sessionId)
+        .set(BusId, busId)
+        .set(Subject, subject)
+        .set(MessageId, messageId);
+  }
+
+  private Message createSessionOwnedMessage(final String sessionIds) {
+    return CommandMessage.create()
+        .set(ToSubject, CLUSTER_SERVICE)
+        .set(CommandType, ClusterCommands.SessionOwned.name())
+        .set(SessIds, sessionIds)
+        .set(BusId, busId);
+  }
+}
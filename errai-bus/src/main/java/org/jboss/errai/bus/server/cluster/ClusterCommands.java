@@ -43,5 +43,16 @@ public enum ClusterCommands {
    * The <tt>InvalidRoute</tt> verb is used in a point-to-point message to indicate that the bus was
    * forwarded a message which it is not or no longer responsible for.
    */
-  InvalidRoute
+  InvalidRoute,
+
+  /**
+   * The <tt>SessionOwned</tt> verb is broadcast by a bus when it creates a queue for one or more sessions, or sent
+   * point-to-point to a bus joining the cluster, so that peers can forward messages for those sessions directly.
+   */
+  SessionOwned,
+
+  /**
+   * The <tt>SessionReleased</tt> verb is broadcast by a bus when it closes the queue for a session it owned.
+   */
+  SessionReleased
 }
@@ -39,5 +39,23 @@ public interface ClusteringProvider {
    * @param message
    */
   public void clusterTransmitGlobal(final Message message);
+
+  /**
+   * Notifies the cluster that the local bus has created a queue for the specified session. Does nothing by default.
+   *
+   * @param sessionId
+   *        the session ID of the new queue.
+   */
+  public default void sessionOpened(final String sessionId) {
+  }
+
+  /**
+   * Notifies the cluster that the local bus has closed the queue for the specified session. Does nothing by default.
+   *
+   * @param sessionId
+   *        the session ID of the closed queue.
+   */
+  public default void sessionClosed(final String sessionId) {
+  }
 }
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the encoded messages a bus forwards to its peers, so that several of them go out in a single cluster
+ * message. Messages are batched per destination member, and messages for all members are batched separately.
+ * <p>
+ * A batch is a JSON array of the encoded messages. The first message added to an empty batch schedules the batch to
+ * be sent {@code delayMicros} later, and once {@code maxBytes} are pending the batch is sent at once by the adding
+ * thread. Batches for the same destination are sent in the order their messages were added.
+ * <p>
+ * The number of messages, the number of batches and the time messages spent waiting in a batch are counted, so the
+ * ratio of messages to batches and the average added latency can be monitored. Messages of a batch which could not
+ * be sent are not retried; they are logged and counted as lost.
+ *
+ * @param <A>
+ *     the type of address identifying a cluster member.
+ */
+public class ForwardingBatcher<A> {
+  private static final Logger log = LoggerFactory.getLogger(ForwardingBatcher.class);
+
+  /**
+   * Sends a batch to the cluster.
+   *
+   * @param <A>
+   *     the type of address identifying a cluster member.
+   */
+  public interface Sender<A> {
+    /**
+     * @param destination
+     *     the member to send the batch to, or null to send it to all members.
+     * @param batch
+     *     a JSON array of encoded messages.
+     */
+    void send(A destination, String batch) throws Exception;
+  }
+
+  private final Sender<A> sender;
+  private final long delayMicros;
+  private final int maxBytes;
+
+  private final ScheduledExecutorService timer;
+
+  private final Batch broadcast = new Batch(null);
+  private final ConcurrentMap<A, Batch> batches = new ConcurrentHashMap<A, Batch>();
+
+  private final AtomicLong messages = new AtomicLong();
+  private final AtomicLong batchCount = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong latencyNanos = new AtomicLong();
+  private final AtomicLong lostMessages = new AtomicLong();
+
+  /**
+   * @param sender
+   *     sends the batches to the cluster.
+   * @param delayMicros
+   *     how long the first message of a batch may wait for others.
+   * @param maxBytes
+   *     the size of pending messages at which a batch is sent regardless.
+   */
+  public ForwardingBatcher(final Sender<A> sender, final long delayMicros, final int maxBytes) {
+    this.sender = sender;
+    this.delayMicros = delayMicros;
+    this.maxBytes = maxBytes;
+
+    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r, "ForwardingBatcher");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    this.timer = executor;
+  }
+
+  /**
+   * Adds an encoded message to the batch for the specified destination.
+   *
+   * @param destination
+   *     the member to forward the message to, or null to forward it to all members.
+   * @param encoded
+   *     the message encoded as a JSON object.
+   */
+  public void add(final A destination, final String encoded) {
+    batchFor(destination).add(encoded);
+  }
+
+  /**
+   * Sends all pending batches.
+   */
+  public void flush() {
+    broadcast.flush();
+    for (final Batch batch : batches.values()) {
+      batch.flush();
+    }
+  }
+
+  /**
+   * Forgets the batch for a member which has left the cluster. Messages still pending for it are discarded.
+   */
+  public void remove(final A destination) {
+    batches.remove(destination);
+  }
+
+  /**
+   * Sends all pending batches and stops the flush timer.
+   */
+  public void stop() {
+    flush();
+    timer.shutdownNow();
+  }
+
+  private Batch batchFor(final A destination) {
+    if (destination == null) {
+      return broadcast;
+    }
+
+    Batch batch = batches.get(destination);
+    if (batch == null) {
+      final Batch newBatch = new Batch(destination);
+      batch = batches.putIfAbsent(destination, newBatch);
+      if (batch == null) {
+        batch = newBatch;
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Returns the number of messages which went through this batcher.
+   */
+  public long getMessageCount() {
+    return messages.get();
+  }
+
+  /**
+   * Returns the number of batches sent to the cluster.
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * Returns the number of bytes (characters) of encoded messages sent to the cluster.
+   */
+  public long getByteCount() {
+    return bytes.get();
+  }
+
+  /**
+   * Returns the number of messages which were lost because their batch could not be sent.
+   */
+  public long getLostMessageCount() {
+    return lostMessages.get();
+  }
+
+  /**
+   * Returns the average time, in microseconds, a message waited in a batch before it was sent.
+   */
+  public long getAverageLatencyMicros() {
+    final long sent = messages.get();
+    return sent == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencyNanos.get() / sent);
+  }
+
+  private class Batch implements Runnable {
+    private final A destination;
+    private final StringBuilder frames = new StringBuilder();
+    private int count;
+    private long enqueuedNanos;
+    private boolean flushScheduled;
+
+    private Batch(final A destination) {
+      this.destination = destination;
+    }
+
+    private synchronized void add(final String encoded) {
+      frames.append(count == 0 ? '[' : ',').append(encoded);
+      count++;
+      enqueuedNanos += System.nanoTime();
+
+      if (frames.length() >= maxBytes) {
+        flush();
+      }
+      else if (!flushScheduled) {
+        flushScheduled = true;
+        timer.schedule(this, delayMicros, TimeUnit.MICROSECONDS);
+      }
+    }
+
+    @Override
+    public void run() {
+      flush();
+    }
+
+    // the batch is sent while holding the lock, so that batches for the same destination can't overtake each other.
+    private synchronized void flush() {
+      flushScheduled = false;
+      if (count == 0) {
+        return;
+      }
+
+      final String batch = frames.append(']').toString();
+      final int batchSize = count;
+      messages.addAndGet(count);
+      batchCount.incrementAndGet();
+      bytes.addAndGet(batch.length());
+      latencyNanos.addAndGet(count * System.nanoTime() - enqueuedNanos);
+
+      frames.setLength(0);
+      count = 0;
+      enqueuedNanos = 0;
+
+      try {
+        sender.send(destination, batch);
+      }
+      catch (Exception e) {
+        lostMessages.addAndGet(batchSize);
+        log.error("failed to forward batch of " + batchSize + " messages to "
+            + (destination == null ? "the cluster" : destination) + ", the messages are lost", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A replicated directory of which cluster member owns which session. Each member announces the sessions it creates
+ * and closes to its peers, so that a message for a session owned elsewhere can be forwarded directly to the owning
+ * member instead of asking the whole cluster who handles it.
+ * <p>
+ * The directory is bounded: once it holds the configured maximum number of sessions, the least recently used ones
+ * are evicted, and messages for them fall back to a broadcast.
+ *
+ * @param <A>
+ *     the type of address identifying a cluster member.
+ */
+public class SessionOwnershipDirectory<A> {
+  private final Cache<String, A> owners;
+
+  public SessionOwnershipDirectory(final long maximumSize) {
+    this.owners = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .build();
+  }
+
+  /**
+   * Records that the specified session is owned by the member with the specified address.
+   */
+  public void owned(final String sessionId, final A address) {
+    owners.put(sessionId, address);
+  }
+
+  /**
+   * Forgets the owner of the specified session, if the session is still recorded as owned by the member with the
+   * specified address. A session which has meanwhile moved to another member is left alone.
+   */
+  public void released(final String sessionId, final A address) {
+    owners.asMap().remove(sessionId, address);
+  }
+
+  /**
+   * Returns the address of the member owning the specified session, or null if the owner is not known.
+   */
+  public A lookup(final String sessionId) {
+    return owners.getIfPresent(sessionId);
+  }
+
+  /**
+   * Forgets the owner of the specified session, for instance because the member it pointed to no longer knows it.
+   */
+  public void invalidate(final String sessionId) {
+    owners.invalidate(sessionId);
+  }
+
+  /**
+   * Forgets all sessions owned by members which are not in the specified collection. Called when the cluster view
+   * changes.
+   */
+  public void retainMembers(final Collection<A> members) {
+    final Set<A> current = new HashSet<A>(members);
+    for (final Map.Entry<String, A> entry : owners.asMap().entrySet()) {
+      if (!current.contains(entry.getValue())) {
+        owners.asMap().remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the number of sessions whose owner is known.
+   */
+  public long size() {
+    return owners.size();
+  }
+}
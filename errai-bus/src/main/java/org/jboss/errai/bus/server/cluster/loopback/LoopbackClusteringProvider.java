@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.cluster.loopback;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Inject;
+import org.jboss.errai.bus.server.api.ServerMessageBus;
+import org.jboss.errai.bus.server.cluster.AbstractClusteringProvider;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A clustering provider connecting the buses of a single JVM through in-memory channels, for testing and benchmarking
+ * the cluster protocol without a network. The buses configured with the same cluster name
+ * ({@link ErraiConfigAttribs#CLUSTER_NAME}) form a cluster.
+ * <p>
+ * Messages reach the other members after {@link LoopbackConfigAttribs#LOOPBACK_LATENCY_MICROS}, and
+ * {@link LoopbackConfigAttribs#LOOPBACK_LOSS_PERCENT} of them are dropped. All messages of a cluster are delivered by
+ * a single thread, in the order they were sent (unless the members are configured with different latencies).
+ */
+public class LoopbackClusteringProvider extends AbstractClusteringProvider<String> {
+  private static final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+
+  private final Channel channel;
+  private final long latencyMicros;
+  private final int lossPercent;
+
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  private static Logger log = LoggerFactory.getLogger(LoopbackClusteringProvider.class);
+
+  @Inject
+  private LoopbackClusteringProvider(final ServerMessageBus messageBus,
+                                     final ErraiServiceConfigurator config,
+                                     final ErraiService erraiService) {
+    super(messageBus, config);
+
+    this.latencyMicros = LoopbackConfigAttribs.LOOPBACK_LATENCY_MICROS.getInt(config);
+    this.lossPercent = LoopbackConfigAttribs.LOOPBACK_LOSS_PERCENT.getInt(config);
+    this.channel = join(ErraiConfigAttribs.CLUSTER_NAME.get(config), this);
+
+    erraiService.addShutdownHook(new Runnable() {
+      @Override
+      public void run() {
+        stop();
+        leave(channel, LoopbackClusteringProvider.this);
+        log.info("shut down loopback clustering service");
+      }
+    });
+
+    log.info("starting errai loopback clustering service.");
+  }
+
+  @Override
+  protected String getLocalAddress() {
+    return busId;
+  }
+
+  @Override
+  protected void transmit(final String destination, final String payload) {
+    if (destination == null) {
+      for (final LoopbackClusteringProvider member : channel.members.values()) {
+        if (member != this) {
+          deliver(member, payload);
+        }
+      }
+    }
+    else {
+      final LoopbackClusteringProvider member = channel.members.get(destination);
+      if (member != null) {
+        deliver(member, payload);
+      }
+    }
+  }
+
+  private void deliver(final LoopbackClusteringProvider member, final String payload) {
+    if (lossPercent > 0 && ThreadLocalRandom.current().nextInt(100) < lossPercent) {
+      dropped.incrementAndGet();
+      return;
+    }
+
+    delivered.incrementAndGet();
+    channel.executor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        member.receive(busId, payload);
+      }
+    }, latencyMicros, TimeUnit.MICROSECONDS);
+  }
+
+  /**
+   * Returns the number of messages this member sent to other members.
+   */
+  public long getDeliveredCount() {
+    return delivered.get();
+  }
+
+  /**
+   * Returns the number of messages this member sent which were dropped.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private static Channel join(final String clusterName, final LoopbackClusteringProvider provider) {
+    synchronized (channels) {
+      Channel channel = channels.get(clusterName);
+      if (channel == null) {
+        channels.put(clusterName, channel = new Channel(clusterName));
+      }
+
+      provider.start();
+      channel.members.put(provider.busId, provider);
+      channel.membersChanged();
+      return channel;
+    }
+  }
+
+  private static void leave(final Channel channel, final LoopbackClusteringProvider provider) {
+    synchronized (channels) {
+      channel.members.remove(provider.busId);
+      if (channel.members.isEmpty()) {
+        channels.remove(channel.name);
+        channel.executor.shutdown();
+      }
+      else {
+        channel.membersChanged();
+      }
+    }
+  }
+
+  /**
+   * The members of a loopback cluster, and the thread delivering their messages.
+   */
+  private static class Channel {
+    private final String name;
+    private final ConcurrentMap<String, LoopbackClusteringProvider> members
+        = new ConcurrentHashMap<String, LoopbackClusteringProvider>();
+    private final ScheduledExecutorService executor;
+
+    private Channel(final String name) {
+      this.name = name;
+      this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new Thread(r, "LoopbackCluster-" + name);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    // the members are told about the new view on the delivery thread, as a network transport would do.
+    private void membersChanged() {
+      final ArrayList<String> view = new ArrayList<String>(members.keySet());
+      for (final LoopbackClusteringProvider member : members.values()) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            member.membersChanged(view);
+          }
+        });
+      }
+    }
+  }
+}
@@ -39,6 +39,7 @@ public abstract class AbstractRPCMethodCallback implements MessageCallback {
   protected final ServiceInstanceProvider serviceProvider;
   protected final Class[] targetTypes;
   protected final Method method;
+  protected final MethodInvoker invoker;
   protected final MessageBus bus;
 
   protected AbstractRPCMethodCallback(final ServiceInstanceProvider genericSvc,
@@ -46,13 +47,14 @@ public abstract class AbstractRPCMethodCallback implements MessageCallback {
                                       final MessageBus bus) {
     this.serviceProvider = genericSvc;
     this.targetTypes = (this.method = method).getParameterTypes();
+    this.invoker = MethodInvoker.forMethod(method);
     this.bus = bus;
   }
 
   public Object invokeMethodFromMessage(Message message) {
     final List<Object> parms = message.get(List.class, "MethodParms");
 
-    if ((parms == null && targetTypes.length != 0) || (parms.size() != targetTypes.length)) {
+    if (parms == null ? targetTypes.length != 0 : parms.size() != targetTypes.length) {
       throw new MessageDeliveryFailure(
           "wrong number of arguments sent to endpoint. (received: "
               + (parms == null ? 0 : parms.size())
@@ -61,7 +63,8 @@ public abstract class AbstractRPCMethodCallback implements MessageCallback {
 
     try {
       RpcContext.set(message);
-      return method.invoke(serviceProvider.get(message), parms.toArray(new Object[parms.size()]));
+      final Object target = serviceProvider.get(message);
+      return parms == null ? invoker.invoke(target) : invoker.invoke(target, parms);
     }
     catch (QueueUnavailableException e) {
       throw e;
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+/**
+ * A {@link QueueChannel} which accepts the UTF-8 encoded bytes of an outbound frame directly, written into memory
+ * owned by the channel. Data read from the buffer therefore does not have to be decoded into a <tt>String</tt> to be
+ * written to the channel, only to be encoded back into bytes by the transport.
+ */
+public interface BinaryQueueChannel extends QueueChannel {
+
+  /**
+   * Returns a new, empty outbound frame. The frame must either be sent or released.
+   */
+  public OutboundFrame newFrame();
+
+  /**
+   * Returns false while the transport has more data pending to be written to the client than it is willing to hold.
+   * Data for a channel which is not writable stays in the bus buffer until the channel becomes writable again, and
+   * the transport then wakes the queue.
+   */
+  public boolean isWritable();
+}
@@ -34,7 +34,7 @@ import java.util.concurrent.TimeUnit;
  *
  * @author Mike Brock
  */
-public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered, Cleanable {
+public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered, Cleanable, Pageable {
   private static Logger log = LoggerFactory.getLogger(BufferDeliveryHandler.class);
   private static final BufferDeliveryHandler singleton = new BufferDeliveryHandler();
 
@@ -68,7 +68,19 @@ public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered,
 
   @Override
   public void clean(final MessageQueue queue) {
-    //   discardPageData(queue);
+    discardPageData(queue);
+  }
+
+  @Override
+  public boolean pageOut(final MessageQueue queue) {
+    synchronized (queue.getPageLock()) {
+      return MappedPageStore.getInstance().pageOut(queue);
+    }
+  }
+
+  @Override
+  public void discardPageData(final MessageQueue queue) {
+    PageUtil.discardPageData(queue);
   }
 
 
@@ -80,7 +92,8 @@ public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered,
     final MarkedByteWriteAdapter markedOutputStream = new MarkedByteWriteAdapter(toAdapter);
 
     try {
-      queue.getBuffer().read(markedOutputStream, queue.getBufferColor(), new MultiMessageFilter());
+      queue.getBuffer().read(markedOutputStream, queue.getBufferColor(),
+          PageReplayFilter.wrap(queue, new MultiMessageFilter()));
       
       if (markedOutputStream.dataWasWritten() && markedOutputStream.getBytesWritten() > 2) {
         queue.resetMessageCount();
@@ -88,7 +101,7 @@ public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered,
       }
     }
     catch (BufferOverflowException e) {
-      queue.getBufferColor().getSequence().set(queue.getBuffer().getHeadSequence());
+      queue.getBufferColor().getSequence().set(queue.getBuffer().getHeadSequence(queue.getBufferColor()));
       log.warn("buffer data was evicted for session " + queue.getSession().getSessionId()
           + " due to overflow condition. (consider increasing buffer size with errai.bus.buffer_size "
           + "in ErraiService.properties)");
@@ -100,11 +113,17 @@ public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered,
   @Override
   public boolean copyFromBuffer(TimeUnit timeUnit, int timeout, MessageQueue queue, ByteWriteAdapter toAdapter)
       throws IOException {
+    if (queue.isPaged()) {
+      // the paged data is replayed ahead of the buffer, but readWait would not return until the buffer has new
+      // data (or the timeout passes), so the replayed messages are returned without waiting.
+      return copyFromBuffer(queue, toAdapter);
+    }
+
     final MarkedByteWriteAdapter markedOutputStream = new MarkedByteWriteAdapter(toAdapter);
 
     try {
       queue.getBuffer().readWait(timeUnit, timeout, markedOutputStream, queue.getBufferColor(),
-          new MultiMessageFilter());
+          PageReplayFilter.wrap(queue, new MultiMessageFilter()));
       
       if (markedOutputStream.dataWasWritten() && markedOutputStream.getBytesWritten() > 2) {
         queue.resetMessageCount();
@@ -112,7 +131,7 @@ public class BufferDeliveryHandler implements MessageDeliveryHandler, Buffered,
       }
     }
     catch (BufferOverflowException e) {
-      queue.getBufferColor().getSequence().set(queue.getBuffer().getHeadSequence());
+      queue.getBufferColor().getSequence().set(queue.getBuffer().getHeadSequence(queue.getBufferColor()));
       log.warn("buffer data was evicted for session " + queue.getSession().getSessionId()
           + " due to overflow condition. (consider increasing buffer size with errai.bus.buffer_size "
           + "in ErraiService.properties)");
@@ -16,11 +16,11 @@
 
 package org.jboss.errai.bus.server.io;
 
-import static org.jboss.errai.marshalling.server.protocol.ErraiProtocolServer.encodePayloadToByteArrayInputStream;
-
+import org.jboss.errai.bus.client.api.HasEncoded;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.server.io.buffers.Buffer;
 import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -32,10 +32,89 @@ public final class BufferHelper {
   private BufferHelper() {
   }
 
-  public static void encodeAndWrite(final Buffer buffer, final BufferColor bufferColor, final Message message)
+  /**
+   * Encodes the specified message and writes it to the buffer.
+   *
+   * @return the number of bytes written to the buffer.
+   */
+  public static int encodeAndWrite(final Buffer buffer, final BufferColor bufferColor, final Message message)
           throws IOException {
 
-    buffer.write(encodePayloadToByteArrayInputStream(message.getParts()), bufferColor);
+    if (message instanceof EncodedFrameMessage) {
+      final EncodedFrame frame = ((EncodedFrameMessage) message).getFrame();
+      buffer.write(frame.getLength(), frame.newInputStream(), bufferColor);
+      return frame.getLength();
+    }
+    else if (message instanceof HasEncoded) {
+      return buffer.write(((HasEncoded) message).getEncoded(), bufferColor);
+    }
+    else {
+      final byte[] raw = (message instanceof LazyMessage) ? ((LazyMessage) message).getRawBytes() : null;
+      if (raw != null) {
+        // a message relayed unchanged is written out exactly as it was received.
+        buffer.write(raw.length, new ByteArrayInputStream(raw), bufferColor);
+        return raw.length;
+      }
+      else {
+        // the payload is encoded straight into the buffer, without an intermediate byte array.
+        return buffer.write(ErraiProtocol.encodePayload(message.getParts()), bufferColor);
+      }
+    }
+  }
+
+  /**
+   * Encodes the specified message as UTF-8 straight into the specified adapter, such as an {@link OutboundFrame}.
+   */
+  public static void encodeAndWrite(final ByteWriteAdapter out, final Message message) throws IOException {
+    if (message instanceof EncodedFrameMessage) {
+      ((EncodedFrameMessage) message).getFrame().writeTo(out);
+    }
+    else if (message instanceof HasEncoded) {
+      writeUtf8(out, ((HasEncoded) message).getEncoded());
+    }
+    else {
+      final byte[] raw = (message instanceof LazyMessage) ? ((LazyMessage) message).getRawBytes() : null;
+      if (raw != null) {
+        out.write(raw);
+      }
+      else {
+        writeUtf8(out, ErraiProtocol.encodePayload(message.getParts()));
+      }
+    }
+  }
+
+  /**
+   * Writes the specified characters as UTF-8. Unpaired surrogates are written as <tt>'?'</tt>, as they are by
+   * {@link org.jboss.errai.bus.server.io.buffers.TransmissionBuffer}.
+   */
+  private static void writeUtf8(final ByteWriteAdapter out, final CharSequence data) throws IOException {
+    final int length = data.length();
+    for (int i = 0; i < length; i++) {
+      final char c = data.charAt(i);
+
+      if (c < 0x80) {
+        out.write(c);
+      }
+      else if (c < 0x800) {
+        out.write(0xC0 | (c >> 6));
+        out.write(0x80 | (c & 0x3F));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, data.charAt(++i));
+        out.write(0xF0 | (codePoint >> 18));
+        out.write(0x80 | ((codePoint >> 12) & 0x3F));
+        out.write(0x80 | ((codePoint >> 6) & 0x3F));
+        out.write(0x80 | (codePoint & 0x3F));
+      }
+      else if (Character.isSurrogate(c)) {
+        out.write('?');
+      }
+      else {
+        out.write(0xE0 | (c >> 12));
+        out.write(0x80 | ((c >> 6) & 0x3F));
+        out.write(0x80 | (c & 0x3F));
+      }
+    }
   }
 
   private static final byte[] NOOP_ARRAY = new byte[0];
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
+import org.jboss.errai.common.client.protocols.MessageParts;
+
+/**
+ * The settings of the {@link OutboundCoalescer}: how long outbound messages may be held, how many bytes may be held
+ * before they are flushed regardless, and which subjects are never held.
+ */
+public final class CoalescingPolicy {
+  private final long delayMicros;
+  private final int maxBytes;
+  private final Set<String> exemptSubjects;
+
+  public CoalescingPolicy(final long delayMicros, final int maxBytes, final Set<String> exemptSubjects) {
+    this.delayMicros = delayMicros;
+    this.maxBytes = maxBytes;
+    this.exemptSubjects = Collections.unmodifiableSet(new HashSet<String>(exemptSubjects));
+  }
+
+  /**
+   * Returns the coalescing policy configured in the specified configuration, or null if outbound coalescing is
+   * disabled.
+   */
+  public static CoalescingPolicy fromConfig(final ErraiServiceConfigurator config) {
+    final int delayMicros = ErraiConfigAttribs.BUS_COALESCING_DELAY_MICROS.getInt(config);
+    if (delayMicros <= 0) {
+      return null;
+    }
+
+    final Set<String> exempt = new HashSet<String>();
+    final String exemptSubjects = ErraiConfigAttribs.BUS_COALESCING_EXEMPT_SUBJECTS.get(config);
+    if (exemptSubjects != null) {
+      for (final String subject : exemptSubjects.split(",")) {
+        if (subject.trim().length() != 0) {
+          exempt.add(subject.trim());
+        }
+      }
+    }
+
+    return new CoalescingPolicy(delayMicros, ErraiConfigAttribs.BUS_COALESCING_MAX_BYTES.getInt(config), exempt);
+  }
+
+  public long getDelayMicros() {
+    return delayMicros;
+  }
+
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns true if the specified message must be sent without delay. This is the case for messages to an exempt
+   * subject, and for messages marked for priority processing.
+   */
+  public boolean isExempt(final Message message) {
+    return message.hasPart(MessageParts.PriorityProcessing) || exemptSubjects.contains(message.getSubject());
+  }
+}
@@ -41,10 +41,9 @@ public class CommandBindingsCallback extends MethodBindingCallback {
 
       verifyMethodSignature(method);
 
-      method.setAccessible(true);
-
-      methodDispatchers.put(entry.getKey(), parmTypes.length == 0 ? new NoParamMethodDispatcher(delegate, method)
-              : new DefaultMethodDispatcher(delegate, method));
+      final MethodInvoker invoker = MethodInvoker.forMethod(method);
+      methodDispatchers.put(entry.getKey(), parmTypes.length == 0 ? new NoParamMethodDispatcher(delegate, invoker)
+              : new DefaultMethodDispatcher(delegate, invoker));
     }
   }
 
@@ -75,9 +74,9 @@ public class CommandBindingsCallback extends MethodBindingCallback {
 
   private abstract class MethodDispatcher {
     protected Object delegate;
-    protected Method method;
+    protected MethodInvoker method;
 
-    protected MethodDispatcher(final Object delegate, final Method method) {
+    protected MethodDispatcher(final Object delegate, final MethodInvoker method) {
       this.delegate = delegate;
       this.method = method;
     }
@@ -86,7 +85,7 @@ public class CommandBindingsCallback extends MethodBindingCallback {
   }
 
   private class NoParamMethodDispatcher extends MethodDispatcher {
-    NoParamMethodDispatcher(final Object delegate, final Method method) {
+    NoParamMethodDispatcher(final Object delegate, final MethodInvoker method) {
       super(delegate, method);
     }
 
@@ -97,12 +96,12 @@ public class CommandBindingsCallback extends MethodBindingCallback {
   }
 
   private class DefaultMethodDispatcher extends MethodDispatcher {
-    DefaultMethodDispatcher(final Object delegate, final Method method) {
+    DefaultMethodDispatcher(final Object delegate, final MethodInvoker method) {
       super(delegate, method);
     }
 
     @Override
-    void dispatch(final Message m) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+    void dispatch(final Message m) throws InvocationTargetException {
       method.invoke(delegate, m);
     }
   }
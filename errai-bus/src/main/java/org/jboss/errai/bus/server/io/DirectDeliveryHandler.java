@@ -19,6 +19,7 @@ package org.jboss.errai.bus.server.io;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.util.BusToolsCli;
 import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.io.buffers.Buffer;
 import org.jboss.errai.bus.server.util.LocalContext;
 import org.jboss.errai.marshalling.server.util.UnwrappedByteArrayOutputStream;
 import org.slf4j.Logger;
@@ -27,12 +28,22 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 
 /**
+ * Writes messages straight to the channel of the queue. While a binary channel is not writable, the messages are
+ * kept in the buffer instead, and once the client has fallen half a ring behind they are paged out (see
+ * {@link MappedPageStore}), so that they are not overwritten before the client catches up.
+ *
  * @author Mike Brock
  */
-public class DirectDeliveryHandler implements MessageDeliveryHandler, Wakeable, DirectChannel {
+public class DirectDeliveryHandler implements MessageDeliveryHandler, Wakeable, DirectChannel, Cleanable, Pageable {
   private static final Logger log = LoggerFactory.getLogger(DirectDeliveryHandler.class);
   private final QueueChannel directSocketChannel;
 
+  /**
+   * Set while messages are kept in the buffer because the channel was not writable, so that new messages queue up
+   * behind them rather than overtaking them.
+   */
+  private volatile boolean backlogged;
+
   public static MessageDeliveryHandler createFor(final QueueChannel channel) {
     return new DirectDeliveryHandler(channel);
   }
@@ -43,8 +54,28 @@ public class DirectDeliveryHandler implements MessageDeliveryHandler, Wakeable,
 
   @Override
   public boolean deliver(final MessageQueue queue, final Message message) throws IOException {
+    if (directSocketChannel instanceof BinaryQueueChannel
+        && (backlogged || !((BinaryQueueChannel) directSocketChannel).isWritable())) {
+      // the client is not keeping up, so the message waits in the buffer until the channel is writable again.
+      backlogged = true;
+      BufferHelper.encodeAndWrite(queue.getBuffer(), queue.getBufferColor(), message);
+
+      if (((BinaryQueueChannel) directSocketChannel).isWritable()) {
+        onWake(queue);
+      }
+      else if (isHalfARingBehind(queue)) {
+        pageOut(queue);
+      }
+      return true;
+    }
+
     try {
-      directSocketChannel.write("[" + BusToolsCli.encodeMessage(message) + "]");
+      if (directSocketChannel instanceof BinaryQueueChannel) {
+        sendBinary(message, (BinaryQueueChannel) directSocketChannel);
+      }
+      else {
+        directSocketChannel.write("[" + BusToolsCli.encodeMessage(message) + "]");
+      }
       return true;
     }
     catch (Throwable e) {
@@ -58,13 +89,90 @@ public class DirectDeliveryHandler implements MessageDeliveryHandler, Wakeable,
 
   @Override
   public void onWake(MessageQueue queue) throws IOException {
+    if (directSocketChannel instanceof BinaryQueueChannel) {
+      wakeBinary(queue, (BinaryQueueChannel) directSocketChannel);
+      return;
+    }
+
     UnwrappedByteArrayOutputStream outputStream = new UnwrappedByteArrayOutputStream();
     ByteWriteAdapter adapter = new OutputStreamWriteAdapter(outputStream);
-    queue.getBuffer().read(adapter, queue.getBufferColor(), new MultiMessageFilter());
+    queue.getBuffer().read(adapter, queue.getBufferColor(), PageReplayFilter.wrap(queue, new MultiMessageFilter()));
 
     directSocketChannel.write(new String(outputStream.toByteArray(), 0, outputStream.size()));
   }
 
+  /**
+   * Encodes the message straight into a frame of the channel, so it does not pass through a <tt>String</tt>.
+   */
+  private static void sendBinary(final Message message, final BinaryQueueChannel channel) throws IOException {
+    final OutboundFrame frame = channel.newFrame();
+    boolean sent = false;
+    try {
+      frame.write('[');
+      BufferHelper.encodeAndWrite(frame, message);
+      frame.write(']');
+      frame.send();
+      sent = true;
+    }
+    finally {
+      if (!sent) {
+        frame.release();
+      }
+    }
+  }
+
+  /**
+   * Reads the data of the queue straight into a frame of the channel, so it does not pass through a
+   * <tt>String</tt>.
+   */
+  private void wakeBinary(final MessageQueue queue, final BinaryQueueChannel channel) throws IOException {
+    if (!channel.isWritable()) {
+      // the data stays in the buffer. the transport wakes the queue again once the client has caught up.
+      return;
+    }
+
+    final OutboundFrame frame = channel.newFrame();
+    boolean sent = false;
+    try {
+      queue.getBuffer().read(frame, queue.getBufferColor(), PageReplayFilter.wrap(queue, new MultiMessageFilter()));
+
+      // nothing is written if another thread is reading the queue already.
+      if (frame.size() != 0) {
+        frame.send();
+        sent = true;
+        backlogged = false;
+      }
+    }
+    finally {
+      if (!sent) {
+        frame.release();
+      }
+    }
+  }
+
+  private static boolean isHalfARingBehind(final MessageQueue queue) {
+    final Buffer buffer = queue.getBuffer();
+    final long pending = buffer.getHeadSequence(queue.getBufferColor()) - queue.getBufferColor().getSequence().get();
+    return pending > buffer.getTotalSegments() / 2;
+  }
+
+  @Override
+  public boolean pageOut(final MessageQueue queue) {
+    synchronized (queue.getPageLock()) {
+      return MappedPageStore.getInstance().pageOut(queue);
+    }
+  }
+
+  @Override
+  public void discardPageData(final MessageQueue queue) {
+    PageUtil.discardPageData(queue);
+  }
+
+  @Override
+  public void clean(final MessageQueue queue) {
+    discardPageData(queue);
+  }
+
   @Override
   public void noop(MessageQueue queue) throws IOException {
   }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+
+/**
+ * An immutable, pre-encoded wire representation of a set of message parts. The parts are marshalled exactly once
+ * when the frame is created, and the resulting bytes can then be written into any number of queues without
+ * re-encoding the payload. This is intended for server-side fan-out, where the same payload is pushed to many
+ * sessions at once.
+ *
+ * @see EncodedFrameMessage
+ */
+public final class EncodedFrame {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final String encoded;
+  private final byte[] bytes;
+
+  private EncodedFrame(final String encoded) {
+    this.encoded = encoded;
+    this.bytes = encoded.getBytes(UTF_8);
+  }
+
+  /**
+   * Encodes the specified parts into a new frame. The parts should not contain any session specific routing
+   * information, as the frame is shared verbatim between all of its recipients.
+   *
+   * @param parts
+   *     the message parts to encode.
+   *
+   * @return a new frame.
+   */
+  public static EncodedFrame encode(final Map<String, Object> parts) {
+    return new EncodedFrame(ErraiProtocol.encodePayload(parts));
+  }
+
+  /**
+   * Creates a new message addressed to the specified session which will be transmitted using this frame. The
+   * routing parts of the returned message are private to it, while the encoded payload is shared.
+   *
+   * @param parts
+   *     the parts of the new message. These are used for routing on the server only.
+   *
+   * @return a new message backed by this frame.
+   */
+  public Message newMessage(final Map<String, Object> parts) {
+    return new EncodedFrameMessage(parts, this);
+  }
+
+  public String getEncoded() {
+    return encoded;
+  }
+
+  public int getLength() {
+    return bytes.length;
+  }
+
+  /**
+   * Writes the encoded bytes of this frame to the specified adapter.
+   *
+   * @param out
+   *     the adapter to write to.
+   */
+  public void writeTo(final ByteWriteAdapter out) throws IOException {
+    out.write(bytes);
+  }
+
+  /**
+   * Returns a new stream over the encoded bytes of this frame. The backing array is not copied.
+   *
+   * @return a stream of the UTF-8 encoded frame.
+   */
+  public ByteArrayInputStream newInputStream() {
+    return new ByteArrayInputStream(bytes);
+  }
+}
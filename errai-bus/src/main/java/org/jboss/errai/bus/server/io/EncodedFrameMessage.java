@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.util.Map;
+
+import org.jboss.errai.bus.client.api.HasEncoded;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+
+/**
+ * A message whose on-the-wire representation is provided by a shared {@link EncodedFrame}. The parts of the message
+ * are still available for routing, but they are never marshalled again when the message is delivered.
+ */
+public class EncodedFrameMessage extends CommandMessage implements HasEncoded {
+  private final EncodedFrame frame;
+
+  EncodedFrameMessage(final Map<String, Object> parts, final EncodedFrame frame) {
+    super(parts, 0);
+    this.frame = frame;
+  }
+
+  public EncodedFrame getFrame() {
+    return frame;
+  }
+
+  @Override
+  public String getEncoded() {
+    return frame.getEncoded();
+  }
+}
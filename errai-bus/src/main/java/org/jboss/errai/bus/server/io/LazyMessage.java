@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.util.Map;
+
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.CapturedEnvelope;
+
+/**
+ * A message received from a remote bus whose parts are only demarshalled when they are needed. The routing headers
+ * are available immediately, so the bus can dispatch the message (or drop it) without touching the payload. If the
+ * message was decoded with {@link org.jboss.errai.marshalling.server.JSONByteDecoder#decodeEnvelopes}, and it is
+ * relayed to another session without any of its parts being changed, the bytes it was received as are written out
+ * again verbatim.
+ *
+ * @see LazyPartsMap
+ */
+public class LazyMessage extends CommandMessage {
+  private final LazyPartsMap lazyParts;
+  private final byte[] rawBytes;
+
+  private LazyMessage(final LazyPartsMap lazyParts, final byte[] rawBytes) {
+    super(lazyParts, 0);
+    this.lazyParts = lazyParts;
+    this.rawBytes = rawBytes;
+  }
+
+  /**
+   * Creates a message from a decoded (but not demarshalled) message envelope.
+   *
+   * @param envelope
+   *     the JSON object representing the message.
+   *
+   * @return a new message.
+   */
+  public static LazyMessage fromEnvelope(final EJValue envelope) {
+    final Object raw = envelope.getRawValue();
+    if (!(raw instanceof Map)) {
+      throw new RuntimeException("bad payload");
+    }
+
+    // the session id is never passed on, so an envelope which carries one can not be relayed as it was received.
+    final boolean relayable = raw instanceof CapturedEnvelope
+        && !((Map<?, ?>) raw).containsKey(MessageParts.SessionID.name());
+
+    return new LazyMessage(new LazyPartsMap(envelope),
+        relayable ? ((CapturedEnvelope) raw).getRawBytes() : null);
+  }
+
+  /**
+   * Returns the bytes this message was received as, or null if they are not available, contain the
+   * <tt>SessionID</tt> of the sender, or no longer represent the parts of this message. The returned array must not be modified.
+   */
+  public byte[] getRawBytes() {
+    return lazyParts.isUnmodified() ? rawBytes : null;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.marshallers.ErraiProtocolEnvelopeMarshaller;
+import org.jboss.errai.marshalling.server.DecodingSession;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+
+/**
+ * The parts of a message received from a remote bus. Parts which are plain JSON strings, which includes all of the
+ * routing headers such as <tt>ToSubject</tt>, <tt>CommandType</tt> and <tt>ReplyTo</tt>, are available straight
+ * away. Everything else is left in its decoded JSON form until a part which needs demarshalling is first accessed,
+ * at which point the whole envelope is demarshalled in one session, so that object references between parts are
+ * resolved just as they would have been eagerly.
+ */
+class LazyPartsMap extends AbstractMap<String, Object> {
+  private final Map<?, ?> raw;
+
+  /**
+   * Until the envelope is decoded this map only holds the plain string parts and is never changed. Decoding
+   * publishes a new map, so that readers which do not take the lock never see a map which is being filled.
+   */
+  private volatile Map<String, Object> parts = new HashMap<String, Object>();
+
+  private volatile EJValue envelope;
+  private boolean modified;
+
+  LazyPartsMap(final EJValue envelope) {
+    this.raw = (Map<?, ?>) envelope.getRawValue();
+
+    boolean pending = false;
+    for (final Map.Entry<?, ?> entry : raw.entrySet()) {
+      final Object key = entry.getKey();
+      final Object value = entry.getValue();
+
+      if (MessageParts.SessionID.name().equals(key)) {
+        continue;
+      }
+      if (value == null || value instanceof String) {
+        parts.put((String) key, value);
+      }
+      else {
+        pending = true;
+      }
+    }
+
+    if (pending) {
+      this.envelope = envelope;
+    }
+  }
+
+  private void ensureDecoded() {
+    if (envelope != null) {
+      synchronized (this) {
+        if (envelope != null) {
+          final Map<String, Object> decoded = new HashMap<String, Object>(parts);
+          decoded.putAll(ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(envelope,
+              new DecodingSession(MappingContextSingleton.get())));
+          parts = decoded;
+          envelope = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns true if none of the parts have been changed, or exposed for modification, since the message was
+   * received.
+   */
+  boolean isUnmodified() {
+    return !modified;
+  }
+
+  private boolean isPending(final Object key) {
+    return envelope != null && raw.containsKey(key) && !parts.containsKey(key)
+        && !MessageParts.SessionID.name().equals(key);
+  }
+
+  @Override
+  public Object get(final Object key) {
+    if (isPending(key)) {
+      ensureDecoded();
+    }
+    return parts.get(key);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    // the envelope is checked first: once it is seen to be decoded, the decoded parts are visible.
+    return isPending(key) || parts.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    ensureDecoded();
+    return parts.size();
+  }
+
+  @Override
+  public Object put(final String key, final Object value) {
+    ensureDecoded();
+    modified = true;
+    return parts.put(key, value);
+  }
+
+  @Override
+  public Object remove(final Object key) {
+    ensureDecoded();
+    modified = true;
+    return parts.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    ensureDecoded();
+    modified = true;
+    parts.clear();
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    ensureDecoded();
+    modified = true;
+    return parts.entrySet();
+  }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.io.buffers.BufferFilter;
+import org.jboss.errai.bus.server.io.buffers.SegmentSink;
+
+/**
+ * A paging store for queue data, shared by all queues in the JVM. Paged data is appended to a single log file which
+ * is memory-mapped in fixed size segments. Every JVM creates a log file of its own, so servers sharing a temporary
+ * directory do not interfere with each other. Each session keeps an index of the extents it occupies in the log, and a
+ * segment is recycled as soon as all of the extents within it have been replayed or discarded.
+ * <p/>
+ * Data is copied into the log in bulk, directly from the {@link org.jboss.errai.bus.server.io.buffers.Buffer}
+ * segments, and replayed straight from the mapped memory. No file streams are involved on either path.
+ * <p/>
+ * The segment size (in bytes) can be configured with the system property <tt>errai.bus.page_segment_size</tt>.
+ *
+ * @see PageUtil
+ */
+public final class MappedPageStore {
+  private static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 4;         /* 4 Megabytes */
+  private static final int COPY_BUFFER_SIZE = 1024 * 8;
+
+  private static final String tempDir = System.getProperty("java.io.tmpdir");
+
+  private static volatile MappedPageStore instance;
+
+  private final File logFile;
+  private final FileChannel channel;
+  private final int segmentSize;
+
+  /**
+   * All segments mapped so far, indexed by their position in the log.
+   */
+  private final List<Segment> segments = new ArrayList<Segment>();
+
+  /**
+   * Segments which are not holding any live data and can be reused.
+   */
+  private final LinkedList<Segment> freeSegments = new LinkedList<Segment>();
+
+  /**
+   * The per-session index of the extents in the log.
+   */
+  private final Map<String, List<Extent>> index = new ConcurrentHashMap<String, List<Extent>>();
+
+  /**
+   * Guards allocation within the log, the index and the segment lifecycle.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private Segment activeSegment;
+
+  private MappedPageStore(final File logFile, final int segmentSize) throws IOException {
+    logFile.getParentFile().mkdirs();
+    logFile.deleteOnExit();
+
+    this.logFile = logFile;
+    this.segmentSize = segmentSize;
+    this.channel = new RandomAccessFile(logFile, "rw").getChannel();
+    this.channel.truncate(0);
+  }
+
+  /**
+   * Returns the shared page store, creating it if necessary.
+   *
+   * @return the page store for this JVM.
+   */
+  public static MappedPageStore getInstance() {
+    if (instance == null) {
+      synchronized (MappedPageStore.class) {
+        if (instance == null) {
+          try {
+            final File dir = new File(tempDir, "queuecache");
+            dir.mkdirs();
+            instance = new MappedPageStore(File.createTempFile("pages", ".log", dir),
+                Integer.getInteger("errai.bus.page_segment_size", DEFAULT_SEGMENT_SIZE));
+          }
+          catch (IOException e) {
+            throw new RuntimeException("could not create page store", e);
+          }
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Closes the shared page store, if it was created. A later call to {@link #getInstance()} creates a new one.
+   */
+  public static void shutdown() {
+    synchronized (MappedPageStore.class) {
+      if (instance != null) {
+        try {
+          instance.close();
+        }
+        catch (IOException e) {
+          // the log is deleted on exit anyway.
+        }
+        finally {
+          instance = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a page store backed by the specified file. Intended for testing.
+   *
+   * @param logFile
+   *     the file backing the log. Any existing contents are discarded.
+   * @param segmentSize
+   *     the size of the individual segments in bytes.
+   *
+   * @return a new page store.
+   *
+   * @throws IOException
+   *     thrown if the backing file cannot be opened.
+   */
+  public static MappedPageStore create(final File logFile, final int segmentSize) throws IOException {
+    return new MappedPageStore(logFile, segmentSize);
+  }
+
+  /**
+   * Moves all data currently waiting in the buffer for the specified queue into the log.
+   *
+   * @param queue
+   *     the queue to page out.
+   *
+   * @return true if any data was paged out.
+   */
+  public boolean pageOut(final MessageQueue queue) {
+    try {
+      return queue.getBuffer().transferTo(new Appender(queue), queue.getBufferColor());
+    }
+    catch (IOException e) {
+      throw new RuntimeException("paging error", e);
+    }
+  }
+
+  /**
+   * Appends the contents of the specified stream to the data paged out for the specified queue.
+   *
+   * @param queue
+   *     the queue to append to.
+   * @param inputStream
+   *     the data to append.
+   */
+  public void append(final MessageQueue queue, final InputStream inputStream) {
+    try {
+      final Appender appender = new Appender(queue);
+      final byte[] buf = new byte[COPY_BUFFER_SIZE];
+
+      int read;
+      while ((read = inputStream.read(buf)) != -1) {
+        appender.write(ByteBuffer.wrap(buf, 0, read));
+      }
+    }
+    catch (IOException e) {
+      throw new RuntimeException("paging error", e);
+    }
+  }
+
+  /**
+   * Replays all data paged out for the specified queue into the provided adapter through the specified filter. The
+   * replayed data is removed from the store. The {@link BufferFilter#before(ByteWriteAdapter)} and
+   * {@link BufferFilter#after(ByteWriteAdapter)} methods of the filter are not invoked.
+   *
+   * @param queue
+   *     the queue to replay.
+   * @param writeAdapter
+   *     the adapter to write to.
+   * @param callback
+   *     the filter to apply to each byte, or null.
+   *
+   * @return true if any data was replayed.
+   *
+   * @throws IOException
+   *     thrown if the data cannot be written to the adapter.
+   */
+  public boolean replay(final MessageQueue queue,
+                        final ByteWriteAdapter writeAdapter,
+                        final BufferFilter callback) throws IOException {
+
+    final List<Extent> extents = detach(queue);
+    if (extents.isEmpty()) {
+      return false;
+    }
+
+    try {
+      for (final Extent extent : extents) {
+        final ByteBuffer data = extent.segment.buffer;
+        final int end = extent.offset + extent.length;
+
+        if (callback == null) {
+          for (int i = extent.offset; i < end; i++) {
+            writeAdapter.write(data.get(i));
+          }
+        }
+        else {
+          for (int i = extent.offset; i < end; i++) {
+            writeAdapter.write(callback.each(data.get(i), writeAdapter));
+          }
+        }
+      }
+    }
+    finally {
+      release(extents);
+    }
+    return true;
+  }
+
+  /**
+   * Discards all data paged out for the specified queue.
+   *
+   * @param queue
+   *     the queue to discard the paged data for.
+   */
+  public void discard(final MessageQueue queue) {
+    release(detach(queue));
+  }
+
+  /**
+   * Returns the number of bytes currently paged out for the specified queue.
+   *
+   * @param queue
+   *     the queue.
+   *
+   * @return the number of paged bytes.
+   */
+  public int getPagedBytes(final MessageQueue queue) {
+    lock.lock();
+    try {
+      final List<Extent> extents = index.get(getKey(queue));
+      int total = 0;
+      if (extents != null) {
+        for (final Extent extent : extents) {
+          total += extent.length;
+        }
+      }
+      return total;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of segments which have been mapped so far.
+   *
+   * @return the total number of mapped segments.
+   */
+  public int getMappedSegments() {
+    lock.lock();
+    try {
+      return segments.size();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public File getLogFile() {
+    return logFile;
+  }
+
+  /**
+   * Discards all paged data, and closes and deletes the log.
+   *
+   * @throws IOException
+   *     thrown if the log cannot be closed.
+   */
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      index.clear();
+      segments.clear();
+      freeSegments.clear();
+      activeSegment = null;
+      channel.close();
+    }
+    finally {
+      lock.unlock();
+    }
+    logFile.delete();
+  }
+
+  private static String getKey(final MessageQueue queue) {
+    return queue.getSession().getSessionId();
+  }
+
+  private List<Extent> getOrCreateEntry(final String key) {
+    List<Extent> extents = index.get(key);
+    if (extents == null) {
+      index.put(key, extents = new ArrayList<Extent>());
+    }
+    return extents;
+  }
+
+  private List<Extent> detach(final MessageQueue queue) {
+    lock.lock();
+    try {
+      final List<Extent> extents = index.remove(getKey(queue));
+      queue.setPaged(false);
+      if (extents == null) {
+        return Collections.emptyList();
+      }
+      return extents;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(final List<Extent> extents) {
+    if (extents.isEmpty()) {
+      return;
+    }
+
+    lock.lock();
+    try {
+      for (final Extent extent : extents) {
+        final Segment segment = extent.segment;
+        segment.live -= extent.length;
+
+        if (segment.live == 0) {
+          // the segment no longer holds any data, so we can start writing from the top of it again.
+          segment.position = 0;
+          if (segment != activeSegment) {
+            freeSegments.add(segment);
+          }
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private Segment nextSegment() throws IOException {
+    if (!freeSegments.isEmpty()) {
+      return freeSegments.removeFirst();
+    }
+
+    final int number = segments.size();
+    final MappedByteBuffer buffer
+        = channel.map(FileChannel.MapMode.READ_WRITE, (long) number * segmentSize, segmentSize);
+
+    final Segment segment = new Segment(buffer);
+    segments.add(segment);
+    return segment;
+  }
+
+  /**
+   * Appends the data it receives to the log, recording the extents written for a single queue. The store lock is
+   * only held for each individual write, as the caller may already be holding the lock on the buffer color.
+   */
+  private class Appender implements SegmentSink {
+    private final MessageQueue queue;
+    private final String key;
+
+    private Appender(final MessageQueue queue) {
+      this.queue = queue;
+      this.key = getKey(queue);
+    }
+
+    @Override
+    public void write(final ByteBuffer data) throws IOException {
+      if (!data.hasRemaining()) {
+        return;
+      }
+
+      lock.lock();
+      try {
+        final List<Extent> extents = getOrCreateEntry(key);
+
+        while (data.hasRemaining()) {
+          if (activeSegment == null || activeSegment.position == segmentSize) {
+            activeSegment = nextSegment();
+          }
+
+          final Segment segment = activeSegment;
+          final int length = Math.min(data.remaining(), segmentSize - segment.position);
+
+          final ByteBuffer target = segment.buffer.duplicate();
+          target.position(segment.position);
+
+          final int limit = data.limit();
+          data.limit(data.position() + length);
+          target.put(data);
+          data.limit(limit);
+
+          addExtent(extents, segment, segment.position, length);
+
+          segment.position += length;
+          segment.live += length;
+        }
+
+        queue.setPaged(true);
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+
+    private void addExtent(final List<Extent> extents, final Segment segment, final int offset, final int length) {
+      if (!extents.isEmpty()) {
+        final Extent last = extents.get(extents.size() - 1);
+        if (last.segment == segment && last.offset + last.length == offset) {
+          last.length += length;
+          return;
+        }
+      }
+      extents.add(new Extent(segment, offset, length));
+    }
+  }
+
+  private static class Segment {
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The next write position within the segment.
+     */
+    private int position;
+
+    /**
+     * The number of bytes in this segment which have not yet been replayed or discarded.
+     */
+    private int live;
+
+    private Segment(final MappedByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private static class Extent {
+    private final Segment segment;
+    private final int offset;
+    private int length;
+
+    private Extent(final Segment segment, final int offset, final int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
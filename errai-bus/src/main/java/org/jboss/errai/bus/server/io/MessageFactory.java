@@ -24,8 +24,8 @@ import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.marshallers.ErraiProtocolEnvelopeMarshaller;
 import org.jboss.errai.marshalling.server.DecodingSession;
+import org.jboss.errai.marshalling.server.JSONByteDecoder;
 import org.jboss.errai.marshalling.server.JSONDecoder;
-import org.jboss.errai.marshalling.server.JSONStreamDecoder;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 
 import javax.servlet.http.HttpServletRequest;
@@ -73,11 +73,35 @@ public class MessageFactory {
     return from(parts, session, request);
   }
 
-  @SuppressWarnings("unchecked")
   public static Message createCommandMessage(QueueSession session, String json) {
     if (json.length() == 0) return null;
 
-    Message msg = createWithPartsFromRawMap(ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(JSONDecoder.decode(json),
+    return demarshallCommandMessage(session, JSONDecoder.decode(json));
+  }
+
+  /**
+   * Creates the command messages from the given JSON string, which holds either a single message or an array of
+   * messages.
+   */
+  public static List<Message> createCommandMessages(QueueSession session, String json) {
+    if (json.length() == 0) return Collections.emptyList();
+
+    final EJValue value = JSONDecoder.decode(json);
+    if (value.isArray() == null) {
+      return Collections.singletonList(demarshallCommandMessage(session, value));
+    }
+
+    final EJArray arr = value.isArray();
+    final List<Message> messages = new ArrayList<Message>(arr.size());
+    for (int i = 0; i < arr.size(); i++) {
+      messages.add(demarshallCommandMessage(session, arr.get(i)));
+    }
+    return messages;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Message demarshallCommandMessage(QueueSession session, EJValue envelope) {
+    Message msg = createWithPartsFromRawMap(ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(envelope,
         new DecodingSession(MappingContextSingleton.get())))
             .setResource("Session", session)
             .setResource("SessionID", session.getSessionId());
@@ -89,15 +113,15 @@ public class MessageFactory {
 
 
   public static List<Message> createCommandMessage(QueueSession session, HttpServletRequest request) throws IOException {
-    EJValue value = JSONStreamDecoder.decode(request.getInputStream());
+    EJValue value = JSONByteDecoder.decodeEnvelopes(request.getInputStream());
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, request));
+      return Collections.singletonList(from(value, session, request));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, request));
+        messages.add(from(arr.get(i), session, request));
       }
       return messages;
     }
@@ -111,15 +135,15 @@ public class MessageFactory {
 
 
   public static List<Message> createCommandMessage(QueueSession session, InputStream inputStream) throws IOException {
-    EJValue value = JSONStreamDecoder.decode(inputStream);
+    EJValue value = JSONByteDecoder.decodeEnvelopes(inputStream);
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, null));
+      return Collections.singletonList(from(value, session, null));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, null));
+        messages.add(from(arr.get(i), session, null));
       }
       return messages;
     }
@@ -130,13 +154,13 @@ public class MessageFactory {
 
   public static List<Message> createCommandMessage(QueueSession session, EJValue value) {
     if (value.isObject() != null) {
-      return Collections.singletonList(from(getParts(value), session, null));
+      return Collections.singletonList(from(value, session, null));
     }
     else if (value.isArray() != null) {
       EJArray arr = value.isArray();
       List<Message> messages = new ArrayList<Message>(arr.size());
       for (int i = 0; i < arr.size(); i++) {
-        messages.add(from(getParts(arr.get(i)), session, null));
+        messages.add(from(arr.get(i), session, null));
       }
       return messages;
     }
@@ -147,15 +171,21 @@ public class MessageFactory {
 
 
 
-  private static Map getParts(EJValue value) {
-    return ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(value,
-            new DecodingSession(MappingContextSingleton.get()));
+  /**
+   * Creates a message from a decoded envelope. Only the routing headers are read up front, the rest of the parts are
+   * demarshalled when they are first accessed.
+   */
+  private static Message from(EJValue envelope, QueueSession session, HttpServletRequest request) {
+    return from(LazyMessage.fromEnvelope(envelope), session, request);
   }
 
   @SuppressWarnings("unchecked")
   private static Message from(Map parts, QueueSession session, HttpServletRequest request) {
-    Message msg = createWithParts(parts)
-            .setResource("Session", session)
+    return from(createWithParts(parts), session, request);
+  }
+
+  private static Message from(Message msg, QueueSession session, HttpServletRequest request) {
+    msg.setResource("Session", session)
             .setResource("SessionID", session.getSessionId())
             .setResource(HttpServletRequest.class.getName(), request);
     msg.setFlag(RoutingFlag.FromRemote);
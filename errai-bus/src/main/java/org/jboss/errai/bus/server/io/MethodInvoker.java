@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+/**
+ * Invokes a service or RPC endpoint method through a {@link MethodHandle}, which (unlike
+ * {@link Method#invoke(Object, Object...)}) the JIT can inline. The handle is adapted once to take the target and
+ * each argument as an {@link Object}, and methods of up to {@value #MAX_FIXED_ARITY} parameters are called without
+ * collecting the arguments into an array. The arguments are checked against the parameter types, and boxed numbers
+ * are widened to primitive parameter types, just as reflection would do; the conversion for each parameter is worked
+ * out when the invoker is created.
+ * <p>
+ * If no method handle can be obtained for the method, it is invoked reflectively. Either way, exceptions thrown by the
+ * method are wrapped in an {@link InvocationTargetException}, and illegal arguments cause an
+ * {@link IllegalArgumentException}, as with reflection.
+ */
+public final class MethodInvoker {
+  private static final Logger log = getLogger(MethodInvoker.class);
+
+  static final int MAX_FIXED_ARITY = 4;
+
+  private final Method method;
+  private final int arity;
+  private final Class<?>[] argumentTypes;
+  private final boolean[] primitive;
+  private final MethodHandle handle;
+
+  private MethodInvoker(final Method method, final MethodHandle handle) {
+    final Class<?>[] parameterTypes = method.getParameterTypes();
+
+    this.method = method;
+    this.arity = parameterTypes.length;
+    this.argumentTypes = new Class<?>[arity];
+    this.primitive = new boolean[arity];
+    for (int i = 0; i < arity; i++) {
+      primitive[i] = parameterTypes[i].isPrimitive();
+      argumentTypes[i] = primitive[i] ? MethodType.methodType(parameterTypes[i]).wrap().returnType()
+          : parameterTypes[i];
+    }
+    this.handle = handle;
+  }
+
+  /**
+   * Returns an invoker for the specified method.
+   */
+  public static MethodInvoker forMethod(final Method method) {
+    MethodHandle handle;
+    try {
+      method.setAccessible(true);
+
+      handle = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      handle = handle.asType(MethodType.genericMethodType(method.getParameterTypes().length + 1));
+      if (method.getParameterTypes().length > MAX_FIXED_ARITY) {
+        handle = handle.asSpreader(Object[].class, method.getParameterTypes().length);
+      }
+    }
+    catch (Exception e) {
+      log.warn("could not obtain a method handle for " + method + "; falling back to reflection", e);
+      handle = null;
+    }
+
+    return new MethodInvoker(method, handle);
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  /**
+   * Returns true if this invoker calls the method through a method handle rather than reflectively.
+   */
+  public boolean isMethodHandle() {
+    return handle != null;
+  }
+
+  /**
+   * Invokes a method without parameters.
+   */
+  public Object invoke(final Object target) throws InvocationTargetException {
+    checkArity(0);
+    if (handle == null) {
+      return invokeReflectively(target);
+    }
+
+    try {
+      return (Object) handle.invokeExact(target);
+    }
+    catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /**
+   * Invokes a method with a single parameter.
+   */
+  public Object invoke(final Object target, final Object arg) throws InvocationTargetException {
+    checkArity(1);
+    if (handle == null) {
+      return invokeReflectively(target, arg);
+    }
+
+    final Object a0 = convert(0, arg);
+    try {
+      return (Object) handle.invokeExact(target, a0);
+    }
+    catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /**
+   * Invokes the method with the specified arguments.
+   */
+  public Object invoke(final Object target, final List<?> args) throws InvocationTargetException {
+    checkArity(args.size());
+    if (handle == null) {
+      return invokeReflectively(target, args.toArray());
+    }
+
+    switch (arity) {
+      case 0:
+        return invoke(target);
+      case 1:
+        return invoke(target, args.get(0));
+      case 2: {
+        final Object a0 = convert(0, args.get(0));
+        final Object a1 = convert(1, args.get(1));
+        try {
+          return (Object) handle.invokeExact(target, a0, a1);
+        }
+        catch (Throwable t) {
+          throw new InvocationTargetException(t);
+        }
+      }
+      case 3: {
+        final Object a0 = convert(0, args.get(0));
+        final Object a1 = convert(1, args.get(1));
+        final Object a2 = convert(2, args.get(2));
+        try {
+          return (Object) handle.invokeExact(target, a0, a1, a2);
+        }
+        catch (Throwable t) {
+          throw new InvocationTargetException(t);
+        }
+      }
+      case 4: {
+        final Object a0 = convert(0, args.get(0));
+        final Object a1 = convert(1, args.get(1));
+        final Object a2 = convert(2, args.get(2));
+        final Object a3 = convert(3, args.get(3));
+        try {
+          return (Object) handle.invokeExact(target, a0, a1, a2, a3);
+        }
+        catch (Throwable t) {
+          throw new InvocationTargetException(t);
+        }
+      }
+      default: {
+        final Object[] spread = new Object[arity];
+        for (int i = 0; i < arity; i++) {
+          spread[i] = convert(i, args.get(i));
+        }
+        try {
+          return (Object) handle.invokeExact(target, spread);
+        }
+        catch (Throwable t) {
+          throw new InvocationTargetException(t);
+        }
+      }
+    }
+  }
+
+  private Object invokeReflectively(final Object target, final Object... args) throws InvocationTargetException {
+    try {
+      return method.invoke(target, args);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("cannot access " + method, e);
+    }
+  }
+
+  private void checkArity(final int count) {
+    if (count != arity) {
+      throw new IllegalArgumentException("wrong number of arguments (received: " + count + "; required: " + arity
+          + ")");
+    }
+  }
+
+  /**
+   * Checks that the specified argument can be passed for the parameter at the specified index, widening boxed numbers
+   * to the type of primitive parameters.
+   */
+  private Object convert(final int index, final Object arg) {
+    if (arg == null) {
+      if (primitive[index]) {
+        throw new IllegalArgumentException("null passed for primitive parameter " + index + " of " + method);
+      }
+      return null;
+    }
+
+    final Class<?> type = argumentTypes[index];
+    if (type.isInstance(arg)) {
+      return arg;
+    }
+
+    if (primitive[index]) {
+      final Object widened = widen(arg, type);
+      if (widened != null) {
+        return widened;
+      }
+    }
+
+    throw new IllegalArgumentException("argument type mismatch: " + arg.getClass().getName()
+        + " passed for parameter " + index + " of " + method);
+  }
+
+  /**
+   * Returns the specified value widened to the specified wrapper type, or null if this would not be a widening
+   * primitive conversion.
+   */
+  private static Object widen(final Object value, final Class<?> wrapperType) {
+    final int from = rank(value.getClass());
+    final int to = rank(wrapperType);
+    if (from < 0 || to <= from || wrapperType == Character.class) {
+      return null;
+    }
+
+    if (from == 4) {
+      return ((Float) value).doubleValue();
+    }
+
+    final long l = value instanceof Character ? (Character) value : ((Number) value).longValue();
+    if (wrapperType == Short.class) {
+      return (short) l;
+    }
+    else if (wrapperType == Integer.class) {
+      return (int) l;
+    }
+    else if (wrapperType == Long.class) {
+      return l;
+    }
+    else if (wrapperType == Float.class) {
+      return (float) l;
+    }
+    else {
+      return (double) l;
+    }
+  }
+
+  private static int rank(final Class<?> type) {
+    if (type == Byte.class) {
+      return 0;
+    }
+    else if (type == Short.class || type == Character.class) {
+      return 1;
+    }
+    else if (type == Integer.class) {
+      return 2;
+    }
+    else if (type == Long.class) {
+      return 3;
+    }
+    else if (type == Float.class) {
+      return 4;
+    }
+    else if (type == Double.class) {
+      return 5;
+    }
+    return -1;
+  }
+}
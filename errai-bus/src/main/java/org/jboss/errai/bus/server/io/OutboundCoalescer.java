@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds back the flushing of a message queue so that messages written in quick succession go out together, as a
+ * single JSON array frame (for WebSockets) or a single completed response (for asynchronous long polls).
+ * <p>
+ * The messages themselves are written to the queue's buffer as usual; only the flush is deferred. The first message
+ * written after a flush schedules the next flush {@link CoalescingPolicy#getDelayMicros()} later, and once
+ * {@link CoalescingPolicy#getMaxBytes()} are pending the queue is flushed at once by the writing thread. A single
+ * timer thread is shared by all coalescers, but it only hands scheduled flushes over to an executor (normally the
+ * bus worker pool), so a flush which writes to a slow client does not hold up the flushes of other queues.
+ * <p>
+ * The number of messages and the number of flushes are counted per queue and in total, so the ratio of the two shows
+ * how many messages were sent per frame (and per write to the network).
+ */
+public class OutboundCoalescer {
+  private static final ScheduledExecutorService timer;
+
+  private static final AtomicLong totalMessages = new AtomicLong();
+  private static final AtomicLong totalFlushes = new AtomicLong();
+
+  static {
+    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r, "OutboundCoalescer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    timer = executor;
+  }
+
+  private final CoalescingPolicy policy;
+  private final Runnable flusher;
+  private final Executor flushExecutor;
+
+  private final AtomicInteger pendingBytes = new AtomicInteger();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  private final AtomicLong messages = new AtomicLong();
+  private final AtomicLong flushes = new AtomicLong();
+
+  private final Runnable scheduledFlush = new Runnable() {
+    @Override
+    public void run() {
+      flushScheduled.set(false);
+      flush();
+    }
+  };
+
+  private final Runnable dispatchFlush = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        flushExecutor.execute(scheduledFlush);
+      }
+      catch (RuntimeException e) {
+        // the executor is saturated or stopped, but the flush must not be lost.
+        scheduledFlush.run();
+      }
+    }
+  };
+
+  /**
+   * @param policy
+   *     the coalescing policy.
+   * @param flusher
+   *     flushes the messages in the queue's buffer to the client.
+   * @param flushExecutor
+   *     runs the scheduled flushes.
+   */
+  public OutboundCoalescer(final CoalescingPolicy policy, final Runnable flusher, final Executor flushExecutor) {
+    this.policy = policy;
+    this.flusher = flusher;
+    this.flushExecutor = flushExecutor;
+  }
+
+  public CoalescingPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Records that a message of the specified size has been written to the queue's buffer, and either flushes the queue
+   * or makes sure a flush is scheduled.
+   */
+  public void written(final int size) {
+    messages.incrementAndGet();
+    totalMessages.incrementAndGet();
+
+    if (pendingBytes.addAndGet(size) >= policy.getMaxBytes()) {
+      flush();
+    }
+    else if (flushScheduled.compareAndSet(false, true)) {
+      timer.schedule(dispatchFlush, policy.getDelayMicros(), TimeUnit.MICROSECONDS);
+    }
+  }
+
+  /**
+   * Flushes the queue if any messages are pending.
+   */
+  public void flush() {
+    if (pendingBytes.getAndSet(0) == 0) {
+      return;
+    }
+
+    flushes.incrementAndGet();
+    totalFlushes.incrementAndGet();
+    flusher.run();
+  }
+
+  /**
+   * Returns the number of messages which went through this coalescer.
+   */
+  public long getMessageCount() {
+    return messages.get();
+  }
+
+  /**
+   * Returns the number of flushes (frames) this coalescer has produced.
+   */
+  public long getFlushCount() {
+    return flushes.get();
+  }
+
+  /**
+   * Returns the number of messages which went through any coalescer.
+   */
+  public static long getTotalMessageCount() {
+    return totalMessages.get();
+  }
+
+  /**
+   * Returns the number of flushes (frames) produced by all coalescers.
+   */
+  public static long getTotalFlushCount() {
+    return totalFlushes.get();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import java.io.IOException;
+
+/**
+ * An outbound text frame of a {@link BinaryQueueChannel}, which the UTF-8 encoded data of the frame is written into.
+ */
+public interface OutboundFrame extends ByteWriteAdapter {
+
+  /**
+   * Returns the number of bytes written into this frame.
+   */
+  public int size();
+
+  /**
+   * Writes this frame to the channel. The frame must not be used afterwards.
+   */
+  public void send() throws IOException;
+
+  /**
+   * Discards this frame without writing it to the channel, releasing its memory.
+   */
+  public void release();
+}
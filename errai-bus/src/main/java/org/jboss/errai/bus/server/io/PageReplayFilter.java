@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io;
+
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.io.buffers.BufferFilter;
+
+import java.io.IOException;
+
+/**
+ * A {@link BufferFilter} which replays any data paged out for a queue ahead of the data read from the buffer, so
+ * that both are delivered in order as part of the same payload.
+ *
+ * @see PageUtil#replayPagedData(MessageQueue, ByteWriteAdapter, BufferFilter)
+ */
+public class PageReplayFilter implements BufferFilter {
+  private final MessageQueue queue;
+  private final BufferFilter delegate;
+
+  private PageReplayFilter(final MessageQueue queue, final BufferFilter delegate) {
+    this.queue = queue;
+    this.delegate = delegate;
+  }
+
+  /**
+   * Wraps the specified filter so that it replays the paged data of the specified queue. If the queue is not
+   * paged, the filter is returned as-is.
+   */
+  public static BufferFilter wrap(final MessageQueue queue, final BufferFilter delegate) {
+    if (queue.isPaged()) {
+      return new PageReplayFilter(queue, delegate);
+    }
+    return delegate;
+  }
+
+  @Override
+  public void before(final ByteWriteAdapter writer) throws IOException {
+    delegate.before(writer);
+    PageUtil.replayPagedData(queue, writer, delegate);
+  }
+
+  @Override
+  public int each(final int i, final ByteWriteAdapter writer) throws IOException {
+    return delegate.each(i, writer);
+  }
+
+  @Override
+  public void after(final ByteWriteAdapter writer) throws IOException {
+    delegate.after(writer);
+  }
+}
@@ -16,22 +16,18 @@
 
 package org.jboss.errai.bus.server.io;
 
-import static java.lang.System.nanoTime;
+import static java.lang.System.currentTimeMillis;
 
 import org.jboss.errai.bus.server.api.MessageQueue;
 import org.jboss.errai.bus.server.io.buffers.BufferFilter;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Utility methods for paging queue data out of the {@link org.jboss.errai.bus.server.io.buffers.Buffer}. The paged
+ * data is held in the shared {@link MappedPageStore}.
+ *
  * @author Mike Brock
  */
 public final class PageUtil {
@@ -39,61 +35,22 @@ public final class PageUtil {
   }
 
   private static final long DOWNGRADE_THRESHOLD = Boolean.getBoolean("org.jboss.errai.debugmode") ?
-      TimeUnit.SECONDS.toNanos(1600) : TimeUnit.SECONDS.toNanos(10);
-
-  private static final String tempDir = System.getProperty("java.io.tmpdir");
-
-  public static String getPageFileName(final MessageQueue queue) {
-    return tempDir + "/queuecache/" + queue.getSession().getSessionId().replaceAll("\\-", "_");
-  }
-
-  public static File getOrCreatePageFile(final MessageQueue queue) throws IOException {
-    final File pageFile = new File(getPageFileName(queue));
-    if (!pageFile.exists()) {
-      pageFile.getParentFile().mkdirs();
-      pageFile.createNewFile();
-      pageFile.deleteOnExit();
-    }
-    return pageFile;
-  }
+      TimeUnit.SECONDS.toMillis(1600) : TimeUnit.SECONDS.toMillis(10);
 
   public static void writeToPageFile(final MessageQueue queue, final InputStream inputStream, final boolean append) {
-
-    try {
-      final OutputStream outputStream
-          = new BufferedOutputStream(new FileOutputStream(getOrCreatePageFile(queue), append));
-
-      int read;
-      while ((read = inputStream.read()) != -1) outputStream.write(read);
-
-      outputStream.flush();
-      outputStream.close();
-
-    }
-    catch (IOException e) {
-      throw new RuntimeException("paging error", e);
+    synchronized (queue.getPageLock()) {
+      if (!append) {
+        MappedPageStore.getInstance().discard(queue);
+      }
+      MappedPageStore.getInstance().append(queue, inputStream);
     }
   }
 
   public static boolean pageWaitingToDisk(final MessageQueue queue) {
     synchronized (queue.getPageLock()) {
-      try {
-        final boolean alreadyPaged = queue.isPaged();
-
-        final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(getOrCreatePageFile(queue), alreadyPaged));
-        final ByteWriteAdapter writeAdapter = new OutputStreamWriteAdapter(outputStream);
-
-        queue.getBuffer().read(writeAdapter, queue.getBufferColor());
-        outputStream.flush();
-        outputStream.close();
-
-        queue.setPaged(true);
-
-        return alreadyPaged;
-      }
-      catch (IOException e) {
-        throw new RuntimeException("paging error", e);
-      }
+      final boolean alreadyPaged = queue.isPaged();
+      MappedPageStore.getInstance().pageOut(queue);
+      return alreadyPaged;
     }
   }
 
@@ -103,25 +60,9 @@ public final class PageUtil {
     synchronized (queue.getPageLock()) {
       try {
         if (queue.isPaged()) {
-          final File pageFile = new File(getPageFileName(queue));
-          if (!pageFile.exists()) {
-            queue.setPaged(false);
-            return;
-          }
-
-          final InputStream inputStream = new BufferedInputStream(new FileInputStream(pageFile));
-
           callback.before(outputStream);
-
-          int read;
-          while ((read = inputStream.read()) != -1) {
-            outputStream.write(callback.each(read, outputStream));
-          }
-          inputStream.close();
-
+          MappedPageStore.getInstance().replay(queue, outputStream, callback);
           callback.after(outputStream);
-
-          queue.setPaged(false);
         }
       }
       catch (Exception e) {
@@ -130,21 +71,40 @@ public final class PageUtil {
     }
   }
 
+  /**
+   * Replays any paged data for the specified queue through the specified filter, without invoking the
+   * {@link BufferFilter#before(ByteWriteAdapter)} and {@link BufferFilter#after(ByteWriteAdapter)} methods. This
+   * is intended to be used from within a buffer read, so the paged data precedes the data still in the buffer.
+   * The page lock is not taken here, as the lock on the buffer color already excludes a concurrent page out.
+   *
+   * @return true if any paged data was replayed.
+   */
+  public static boolean replayPagedData(final MessageQueue queue,
+                                        final ByteWriteAdapter outputStream,
+                                        final BufferFilter callback) {
+    if (!queue.isPaged()) {
+      return false;
+    }
+
+    try {
+      return MappedPageStore.getInstance().replay(queue, outputStream, callback);
+    }
+    catch (Exception e) {
+      throw new RuntimeException("paging error", e);
+    }
+  }
+
   public static void discardPageData(final MessageQueue queue) {
     if (queue.isPaged()) {
-      File pageFile = new File(getPageFileName(queue));
-      if (pageFile.exists()) {
-        pageFile.delete();
-      }
+      MappedPageStore.getInstance().discard(queue);
     }
   }
 
   public static boolean pageIfStraddling(final MessageQueue queue) {
-    if (queue.getDeliveryHandler() instanceof Pageable) {
+    if (queue.getDeliveryHandler() instanceof Pageable && queue.messagesWaiting()) {
 
-      if (((nanoTime() - queue.getLastTransmissionTime()) > DOWNGRADE_THRESHOLD)) {
-        ((Pageable) queue.getDeliveryHandler()).pageOut(queue);
-        return true;
+      if (((currentTimeMillis() - queue.getLastTransmissionTime()) > DOWNGRADE_THRESHOLD)) {
+        return ((Pageable) queue.getDeliveryHandler()).pageOut(queue);
       }
     }
     return false;
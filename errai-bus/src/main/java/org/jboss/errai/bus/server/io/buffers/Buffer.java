@@ -31,6 +31,13 @@ public interface Buffer {
 
   public void write(int writeSize, InputStream inputStream, BufferColor bufferColor) throws IOException;
 
+  /**
+   * Writes the UTF-8 encoding of the specified characters into the buffer.
+   *
+   * @return the number of bytes written.
+   */
+  public int write(CharSequence data, BufferColor bufferColor) throws IOException;
+
   public boolean read(ByteWriteAdapter outputStream, BufferColor bufferColor) throws IOException;
 
   public boolean read(ByteWriteAdapter outputStream, BufferColor bufferColor, BufferFilter callback) throws IOException;
@@ -51,9 +58,17 @@ public interface Buffer {
   public boolean readWait(TimeUnit unit, long time, ByteWriteAdapter outputStream, BufferColor bufferColor,
                           BufferFilter callback) throws IOException, InterruptedException;
 
-  public long getHeadSequence();
-  
-  public int getHeadPositionBytes();
+  public boolean transferTo(SegmentSink sink, BufferColor bufferColor) throws IOException;
+
+  /**
+   * Returns the head sequence of the data the specified color reads from.
+   */
+  public long getHeadSequence(BufferColor bufferColor);
+
+  /**
+   * Returns the position, in bytes, of the head of the data the specified color reads from.
+   */
+  public int getHeadPositionBytes(BufferColor bufferColor);
   
   public int getBufferSize();
   
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.buffers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A sink which receives the raw data of a buffer color as views over the underlying buffer memory, rather than
+ * byte-by-byte. This allows consumers to bulk copy whole segments out of a {@link Buffer}.
+ *
+ * @see Buffer#transferTo(SegmentSink, BufferColor)
+ */
+public interface SegmentSink {
+
+  /**
+   * Accepts the data between the position and the limit of the specified view. The view is only valid for the
+   * duration of the call and must not be retained.
+   *
+   * @param data
+   *     a read-only view of the data to be transferred.
+   *
+   * @throws IOException
+   *     thrown if the data cannot be accepted by the sink.
+   */
+  public void write(ByteBuffer data) throws IOException;
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.buffers;
+
+import org.jboss.errai.bus.server.io.ByteWriteAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Buffer} made up of <i>1..n</i> independent {@link TransmissionBuffer}s (shards), each with its own write
+ * sequence and segment map. Every color is bound to a single shard, chosen by the color itself, so that writers and
+ * readers of different colors only contend with the colors that share their shard.
+ * <p/>
+ * Data written with the {@link BufferColor#getAllBuffersColor() global color} is written to every shard, so it
+ * remains visible to all colors. The global writes are serialized on the lock of the global color, so all shards
+ * see them in the same order.
+ * <p/>
+ * A sharded buffer has no single head, so the head and position of the shard of a color are returned for that
+ * color. Use {@link #shardFor(BufferColor)} to obtain the shard of a color.
+ *
+ * @see TransmissionBuffer
+ */
+public class ShardedTransmissionBuffer implements Buffer {
+  private final TransmissionBuffer[] shards;
+
+  public ShardedTransmissionBuffer(final TransmissionBuffer... shards) {
+    if (shards.length == 0) {
+      throw new IllegalArgumentException("at least one shard is required");
+    }
+    this.shards = shards.clone();
+  }
+
+  /**
+   * Creates a sharded buffer of heap allocated transmission buffers. The resulting buffer will be of size:
+   * <i>shards * segmentSize * segments</i>.
+   *
+   * @param shards
+   *     the number of shards
+   * @param segmentSize
+   *     the size of individual segments
+   * @param segments
+   *     the number of segments in each shard
+   *
+   * @return an instance of the sharded buffer
+   */
+  public static ShardedTransmissionBuffer create(final int shards, final int segmentSize, final int segments) {
+    final TransmissionBuffer[] buffers = new TransmissionBuffer[shards];
+    for (int i = 0; i < shards; i++) {
+      buffers[i] = TransmissionBuffer.create(segmentSize, segments);
+    }
+    return new ShardedTransmissionBuffer(buffers);
+  }
+
+  /**
+   * Creates a sharded buffer of direct allocated transmission buffers. The resulting buffer will be of size:
+   * <i>shards * segmentSize * segments</i>.
+   *
+   * @param shards
+   *     the number of shards
+   * @param segmentSize
+   *     the size of individual segments
+   * @param segments
+   *     the number of segments in each shard
+   *
+   * @return an instance of the sharded buffer
+   */
+  public static ShardedTransmissionBuffer createDirect(final int shards, final int segmentSize, final int segments) {
+    final TransmissionBuffer[] buffers = new TransmissionBuffer[shards];
+    for (int i = 0; i < shards; i++) {
+      buffers[i] = TransmissionBuffer.createDirect(segmentSize, segments);
+    }
+    return new ShardedTransmissionBuffer(buffers);
+  }
+
+  /**
+   * Returns the shard the specified color is bound to.
+   *
+   * @param bufferColor
+   *     the buffer color.
+   *
+   * @return the shard holding the data of the color.
+   */
+  public TransmissionBuffer shardFor(final BufferColor bufferColor) {
+    // colors are handed out sequentially, so this spreads them evenly over the shards.
+    return shards[(bufferColor.getColor() & 0xFFFF) % shards.length];
+  }
+
+  /**
+   * Returns a new unique BufferColor set to the head sequence of the shard it is bound to.
+   *
+   * @return a new unique BufferColor instance.
+   */
+  public BufferColor newColorFromHead() {
+    final BufferColor color = BufferColor.getNewColor();
+    color.sequence.set(shardFor(color).getHeadSequence());
+    return color;
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  public TransmissionBuffer getShard(final int index) {
+    return shards[index];
+  }
+
+  @Override
+  public void write(final InputStream inputStream, final BufferColor bufferColor) throws IOException {
+    write(inputStream.available(), inputStream, bufferColor);
+  }
+
+  @Override
+  public void write(final int writeSize,
+                    final InputStream inputStream,
+                    final BufferColor bufferColor) throws IOException {
+
+    if (bufferColor != BufferColor.getAllBuffersColor() || shards.length == 1) {
+      shardFor(bufferColor).write(writeSize, inputStream, bufferColor);
+      return;
+    }
+
+    // the stream can only be read once, so it is copied before being written to each shard.
+    final byte[] data = new byte[writeSize];
+    for (int i = 0; i < writeSize; i++) {
+      data[i] = (byte) inputStream.read();
+    }
+
+    final ReentrantLock lock = bufferColor.lock;
+    lock.lock();
+    try {
+      for (final TransmissionBuffer shard : shards) {
+        shard.write(writeSize, new ByteArrayInputStream(data), bufferColor);
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int write(final CharSequence data, final BufferColor bufferColor) throws IOException {
+    if (bufferColor != BufferColor.getAllBuffersColor() || shards.length == 1) {
+      return shardFor(bufferColor).write(data, bufferColor);
+    }
+
+    final ReentrantLock lock = bufferColor.lock;
+    lock.lock();
+    try {
+      int writeSize = 0;
+      for (final TransmissionBuffer shard : shards) {
+        writeSize = shard.write(data, bufferColor);
+      }
+      return writeSize;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean read(final ByteWriteAdapter outputStream, final BufferColor bufferColor) throws IOException {
+    return shardFor(bufferColor).read(outputStream, bufferColor);
+  }
+
+  @Override
+  public boolean read(final ByteWriteAdapter outputStream,
+                      final BufferColor bufferColor,
+                      final BufferFilter callback) throws IOException {
+    return shardFor(bufferColor).read(outputStream, bufferColor, callback);
+  }
+
+  @Override
+  public boolean read(final ByteWriteAdapter outputStream,
+                      final BufferColor bufferColor,
+                      final BufferFilter callback,
+                      final long sequence) throws IOException {
+    return shardFor(bufferColor).read(outputStream, bufferColor, callback, sequence);
+  }
+
+  @Override
+  public boolean readWait(final ByteWriteAdapter outputStream,
+                          final BufferColor bufferColor) throws IOException, InterruptedException {
+    return shardFor(bufferColor).readWait(outputStream, bufferColor);
+  }
+
+  @Override
+  public boolean readWait(final TimeUnit unit,
+                          final long time,
+                          final ByteWriteAdapter outputStream,
+                          final BufferColor bufferColor) throws IOException, InterruptedException {
+    return shardFor(bufferColor).readWait(unit, time, outputStream, bufferColor);
+  }
+
+  @Override
+  public boolean readWait(final ByteWriteAdapter outputStream,
+                          final BufferColor bufferColor,
+                          final BufferFilter callback) throws IOException, InterruptedException {
+    return shardFor(bufferColor).readWait(outputStream, bufferColor, callback);
+  }
+
+  @Override
+  public boolean readWait(final TimeUnit unit,
+                          final long time,
+                          final ByteWriteAdapter outputStream,
+                          final BufferColor bufferColor,
+                          final BufferFilter callback) throws IOException, InterruptedException {
+    return shardFor(bufferColor).readWait(unit, time, outputStream, bufferColor, callback);
+  }
+
+  @Override
+  public boolean transferTo(final SegmentSink sink, final BufferColor bufferColor) throws IOException {
+    return shardFor(bufferColor).transferTo(sink, bufferColor);
+  }
+
+  /**
+   * Returns the head sequence of the shard of the specified color.
+   */
+  @Override
+  public long getHeadSequence(final BufferColor bufferColor) {
+    return shardFor(bufferColor).getHeadSequence();
+  }
+
+  /**
+   * Returns the head position of the shard of the specified color.
+   */
+  @Override
+  public int getHeadPositionBytes(final BufferColor bufferColor) {
+    return shardFor(bufferColor).getHeadPositionBytes();
+  }
+
+  /**
+   * Returns the total size of all shards in bytes.
+   */
+  @Override
+  public int getBufferSize() {
+    int size = 0;
+    for (final TransmissionBuffer shard : shards) {
+      size += shard.getBufferSize();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the total number of segments in all shards.
+   */
+  @Override
+  public int getTotalSegments() {
+    int segments = 0;
+    for (final TransmissionBuffer shard : shards) {
+      segments += shard.getTotalSegments();
+    }
+    return segments;
+  }
+
+  @Override
+  public int getSegmentSize() {
+    return shards[0].getSegmentSize();
+  }
+
+  /**
+   * Clear all shards.
+   */
+  public void clear() {
+    for (final TransmissionBuffer shard : shards) {
+      shard.clear();
+    }
+  }
+}
@@ -249,6 +249,59 @@ public class TransmissionBuffer implements Buffer {
     }
   }
 
+  /**
+   * Writes the UTF-8 encoding of the specified characters into the buffer. The characters are encoded directly into
+   * the allocated segments, so no intermediate byte array or stream is created.
+   *
+   * @param data
+   *     the characters to be encoded into the buffer.
+   * @param bufferColor
+   *     the color of the data to be inserted.
+   *
+   * @return the number of bytes written.
+   *
+   * @throws IOException
+   */
+  @Override
+  public int write(final CharSequence data, final BufferColor bufferColor) throws IOException {
+    final int writeSize = utf8Length(data);
+
+    if (writeSize > bufferSize) {
+      throw new IOException("write size larger than buffer can fit");
+    }
+
+    final ReentrantLock lock = bufferColor.lock;
+    lock.lock();
+    try {
+      final int allocSize = ((writeSize + SEGMENT_HEADER_SIZE) / segmentSize) + 1;
+      final long writeHead = writeSequenceNumber.getAndAdd(allocSize);
+      final int seq = (int) writeHead % segments;
+
+      final int writeCursor = seq * segmentSize;
+
+      // write the chunk size header for the data we're about to write
+      writeChunkSize(writeCursor, writeSize);
+
+      /*
+      * Allocate the segments to the this color
+      */
+      final short color = bufferColor.color;
+      for (int i = 0; i < allocSize; i++) {
+        segmentMap[((seq + i) % segments)] = color;
+      }
+
+      encodeUtf8(writeCursor + SEGMENT_HEADER_SIZE, data);
+
+      headSequence = writeHead + allocSize;
+    }
+    finally {
+      bufferColor.wake();
+      lock.unlock();
+    }
+
+    return writeSize;
+  }
+
   /**
    * Reads all the available data of the specified color from the buffer into the provided <tt>OutputStream</tt>
    *
@@ -577,16 +630,60 @@ public class TransmissionBuffer implements Buffer {
     }
   }
 
+  /**
+   * Transfers all the available data of the specified color from the buffer into the provided {@link SegmentSink}.
+   * Rather than copying the data byte-by-byte, the sink is handed views over the underlying buffer for each chunk
+   * of data (or two views, if the chunk wraps around the end of the buffer).
+   *
+   * @param sink
+   *     the sink to transfer into.
+   * @param bufferColor
+   *     the buffer color
+   *
+   * @return returns a boolean indicating whether or not the cursor advanced.
+   *
+   * @throws IOException
+   */
   @Override
+  public boolean transferTo(final SegmentSink sink, final BufferColor bufferColor) throws IOException {
+    bufferColor.lock.lock();
+
+    final long writeHead = headSequence;
+    final long startSeq = bufferColor.sequence.get();
+
+    long read = startSeq;
+    long lastSeq = startSeq;
+
+    try {
+      while ((read = transferNextChunk(writeHead, read, bufferColor, sink)) != -1)
+        lastSeq = read;
+
+      return lastSeq != startSeq;
+    }
+    finally {
+      bufferColor.sequence.set(lastSeq);
+      bufferColor.lock.unlock();
+    }
+  }
+
   public long getHeadSequence() {
     return headSequence;
   }
 
-  @Override
   public int getHeadPositionBytes() {
     return ((int) headSequence % segments) * segmentSize;
   }
 
+  @Override
+  public long getHeadSequence(final BufferColor bufferColor) {
+    return getHeadSequence();
+  }
+
+  @Override
+  public int getHeadPositionBytes(final BufferColor bufferColor) {
+    return getHeadPositionBytes();
+  }
+
   @Override
   public int getBufferSize() {
     return bufferSize;
@@ -703,6 +800,117 @@ public class TransmissionBuffer implements Buffer {
     }
   }
 
+  /**
+   * Transfer the next data chunk up to the specified {@param head} position, from the specified {@param sequence},
+   * for the specified {@param color} into the provided {@link SegmentSink}.
+   *
+   * @return returns the segment position after reading + 1, or -1 if there was no chunk to transfer.
+   *
+   * @throws IOException
+   *     thrown if the data cannot be written to the sink.
+   */
+  private long transferNextChunk(final long head,
+                                 final long sequence,
+                                 final BufferColor color,
+                                 final SegmentSink sink) throws IOException {
+
+    final long sequenceToRead = getNextSegment(color, head, sequence);
+    if (sequenceToRead == -1) {
+      return -1;
+    }
+
+    final int readCursor = ((int) sequenceToRead % segments) * segmentSize + SEGMENT_HEADER_SIZE;
+    final int readSize = readChunkSize(readCursor - SEGMENT_HEADER_SIZE);
+    final int endRead = readCursor + readSize;
+
+    final ByteBuffer view = _buffer.asReadOnlyBuffer();
+    if (endRead <= bufferSize) {
+      view.limit(endRead);
+      view.position(readCursor);
+      sink.write(view);
+    }
+    else {
+      view.limit(bufferSize);
+      view.position(readCursor);
+      sink.write(view);
+
+      final ByteBuffer wrapped = _buffer.asReadOnlyBuffer();
+      wrapped.limit(endRead - bufferSize);
+      wrapped.position(0);
+      sink.write(wrapped);
+    }
+
+    return sequenceToRead + ((readSize + SEGMENT_HEADER_SIZE) / segmentSize) + 1;
+  }
+
+  /**
+   * Returns the number of bytes required to encode the specified characters as UTF-8. Unpaired surrogates are
+   * counted as a single byte, as they are replaced with <tt>'?'</tt> when encoded.
+   */
+  private static int utf8Length(final CharSequence data) {
+    final int length = data.length();
+    int size = length;
+
+    for (int i = 0; i < length; i++) {
+      final char c = data.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          size += 1;
+        }
+        else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+          // four bytes for the pair of chars.
+          size += 2;
+          i++;
+        }
+        else if (!Character.isSurrogate(c)) {
+          size += 2;
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Encodes the specified characters as UTF-8 into the buffer, starting at the specified position and wrapping
+   * around the end of the buffer as needed.
+   */
+  private void encodeUtf8(final int position, final CharSequence data) {
+    final int length = data.length();
+    int cursor = position >= bufferSize ? position - bufferSize : position;
+
+    for (int i = 0; i < length; i++) {
+      final char c = data.charAt(i);
+
+      if (c < 0x80) {
+        cursor = put(cursor, c);
+      }
+      else if (c < 0x800) {
+        cursor = put(cursor, 0xC0 | (c >> 6));
+        cursor = put(cursor, 0x80 | (c & 0x3F));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, data.charAt(++i));
+        cursor = put(cursor, 0xF0 | (codePoint >> 18));
+        cursor = put(cursor, 0x80 | ((codePoint >> 12) & 0x3F));
+        cursor = put(cursor, 0x80 | ((codePoint >> 6) & 0x3F));
+        cursor = put(cursor, 0x80 | (codePoint & 0x3F));
+      }
+      else if (Character.isSurrogate(c)) {
+        cursor = put(cursor, '?');
+      }
+      else {
+        cursor = put(cursor, 0xE0 | (c >> 12));
+        cursor = put(cursor, 0x80 | ((c >> 6) & 0x3F));
+        cursor = put(cursor, 0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private int put(final int position, final int b) {
+    _buffer.put(position, (byte) b);
+    return position + 1 == bufferSize ? 0 : position + 1;
+  }
+
   /**
    * Read in the size of the chunk.
    *
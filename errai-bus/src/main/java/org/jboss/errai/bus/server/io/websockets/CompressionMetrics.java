@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.websockets;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the <tt>permessage-deflate</tt> compression of the WebSocket server, across all connections: how many
+ * frames were compressed, how much smaller they got, and how much time was spent compressing and decompressing.
+ */
+public final class CompressionMetrics {
+  private static final AtomicLong compressedFrames = new AtomicLong();
+  private static final AtomicLong uncompressedFrames = new AtomicLong();
+  private static final AtomicLong bytesBeforeCompression = new AtomicLong();
+  private static final AtomicLong bytesAfterCompression = new AtomicLong();
+  private static final AtomicLong compressionNanos = new AtomicLong();
+  private static final AtomicLong decompressedFrames = new AtomicLong();
+  private static final AtomicLong decompressionNanos = new AtomicLong();
+
+  private CompressionMetrics() {
+  }
+
+  static void compressed(final int before, final int after, final long nanos) {
+    compressedFrames.incrementAndGet();
+    bytesBeforeCompression.addAndGet(before);
+    bytesAfterCompression.addAndGet(after);
+    compressionNanos.addAndGet(nanos);
+  }
+
+  static void skipped() {
+    uncompressedFrames.incrementAndGet();
+  }
+
+  static void decompressed(final long nanos) {
+    decompressedFrames.incrementAndGet();
+    decompressionNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Returns the number of outbound frames which were compressed.
+   */
+  public static long getCompressedFrames() {
+    return compressedFrames.get();
+  }
+
+  /**
+   * Returns the number of outbound frames on compressing connections which were sent uncompressed, as they were
+   * smaller than the compression threshold.
+   */
+  public static long getUncompressedFrames() {
+    return uncompressedFrames.get();
+  }
+
+  public static long getBytesBeforeCompression() {
+    return bytesBeforeCompression.get();
+  }
+
+  public static long getBytesAfterCompression() {
+    return bytesAfterCompression.get();
+  }
+
+  /**
+   * Returns the size of the compressed frames relative to their original size, or 1 if nothing has been compressed.
+   */
+  public static double getCompressionRatio() {
+    final long before = bytesBeforeCompression.get();
+    return before == 0 ? 1 : ((double) bytesAfterCompression.get()) / before;
+  }
+
+  /**
+   * Returns the total time in nanoseconds spent compressing outbound frames.
+   */
+  public static long getCompressionNanos() {
+    return compressionNanos.get();
+  }
+
+  public static long getDecompressedFrames() {
+    return decompressedFrames.get();
+  }
+
+  /**
+   * Returns the total time in nanoseconds spent decompressing inbound frames.
+   */
+  public static long getDecompressionNanos() {
+    return decompressionNanos.get();
+  }
+
+  /**
+   * Returns a one-line summary of all counters, suitable for logging.
+   */
+  public static String getSummary() {
+    return "compressed frames: " + getCompressedFrames() + "; uncompressed frames: " + getUncompressedFrames()
+        + "; ratio: " + getCompressionRatio() + "; compression time: " + (getCompressionNanos() / 1000000) + "ms"
+        + "; decompressed frames: " + getDecompressedFrames()
+        + "; decompression time: " + (getDecompressionNanos() / 1000000) + "ms";
+  }
+}
@@ -16,15 +16,18 @@
 
 package org.jboss.errai.bus.server.io.websockets;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import org.jboss.errai.bus.server.io.QueueChannel;
+import org.jboss.errai.bus.server.io.AbstractByteWriteAdapter;
+import org.jboss.errai.bus.server.io.BinaryQueueChannel;
+import org.jboss.errai.bus.server.io.OutboundFrame;
 
 /**
  * @author Mike Brock
  * @author Christian Sadilek <csadilek@redhat.com>
  */
-public class NettyQueueChannel implements QueueChannel {
+public class NettyQueueChannel implements BinaryQueueChannel {
   final Channel channel;
 
   public NettyQueueChannel(Channel channel) {
@@ -36,9 +39,60 @@ public class NettyQueueChannel implements QueueChannel {
     return channel.isActive();
   }
 
+  @Override
+  public boolean isWritable() {
+    return channel.isWritable();
+  }
+
   @Override
   public void write(String data) {
     channel.writeAndFlush(new TextWebSocketFrame(data));
   }
 
+  /**
+   * Returns a new frame backed by a direct buffer from the channel's (pooled) allocator, which Netty writes to the
+   * socket without copying it again.
+   */
+  @Override
+  public OutboundFrame newFrame() {
+    return new ByteBufFrame(channel.alloc().directBuffer());
+  }
+
+  private class ByteBufFrame extends AbstractByteWriteAdapter implements OutboundFrame {
+    private final ByteBuf buf;
+
+    private ByteBufFrame(final ByteBuf buf) {
+      this.buf = buf;
+    }
+
+    @Override
+    public void write(final byte b) {
+      buf.writeByte(b);
+    }
+
+    @Override
+    public void write(final byte[] b) {
+      buf.writeBytes(b);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public int size() {
+      return buf.readableBytes();
+    }
+
+    @Override
+    public void send() {
+      // the frame takes ownership of the buffer, which is released once it has been written.
+      channel.writeAndFlush(new TextWebSocketFrame(buf));
+    }
+
+    @Override
+    public void release() {
+      buf.release();
+    }
+  }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.websockets;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compression state of a single WebSocket connection using the <tt>permessage-deflate</tt> extension
+ * (RFC 7692).
+ * <p>
+ * Unless the client asked for <tt>server_no_context_takeover</tt>, the sliding window of the compressor is kept from
+ * one message to the next. As bus frames repeat the same keys and type names over and over, every message after the
+ * first can then refer back to them rather than repeating them.
+ * <p>
+ * Instances are not thread-safe. Each connection has its own, used from the connection's event loop only.
+ */
+public class PerMessageDeflate {
+  public static final String EXTENSION_NAME = "permessage-deflate";
+
+  private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+  private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+  private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+  private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+  /**
+   * The deflater's window is always 2^15 bytes.
+   */
+  private static final int WINDOW_BITS = 15;
+
+  private static final byte[] TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+  private final Deflater deflater;
+  private final Inflater inflater = new Inflater(true);
+  private final boolean contextTakeover;
+  private final int maxMessageSize;
+  private final byte[] chunk = new byte[8192];
+
+  /**
+   * @param level
+   *     the deflate compression level (0-9).
+   * @param contextTakeover
+   *     whether the compression context is kept between messages.
+   * @param maxMessageSize
+   *     the maximum size in bytes of a decompressed inbound message.
+   */
+  public PerMessageDeflate(final int level, final boolean contextTakeover, final int maxMessageSize) {
+    this.deflater = new Deflater(level, true);
+    this.contextTakeover = contextTakeover;
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  /**
+   * Picks the first <tt>permessage-deflate</tt> offer from the specified <tt>Sec-WebSocket-Extensions</tt> request
+   * header that the server can accept, and returns the response header value accepting it.
+   *
+   * @param requestHeader
+   *     the extensions offered by the client, or null.
+   *
+   * @return the value for the <tt>Sec-WebSocket-Extensions</tt> response header, or null if there is no acceptable
+   *         offer.
+   */
+  public static String negotiate(final String requestHeader) {
+    if (requestHeader == null) {
+      return null;
+    }
+
+    nextOffer:
+    for (final String offer : requestHeader.split(",")) {
+      final String[] params = offer.split(";");
+      if (!EXTENSION_NAME.equalsIgnoreCase(params[0].trim())) {
+        continue;
+      }
+
+      final StringBuilder response = new StringBuilder(EXTENSION_NAME);
+      for (int i = 1; i < params.length; i++) {
+        final String[] param = params[i].split("=", 2);
+        final String name = param[0].trim();
+        final String value = param.length == 2 ? param[1].trim().replace("\"", "") : null;
+
+        if (SERVER_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name)) {
+          response.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        else if (SERVER_MAX_WINDOW_BITS.equalsIgnoreCase(name)) {
+          // the deflater cannot be limited to a smaller window.
+          if (value == null || !String.valueOf(WINDOW_BITS).equals(value)) {
+            continue nextOffer;
+          }
+          response.append("; ").append(SERVER_MAX_WINDOW_BITS).append('=').append(WINDOW_BITS);
+        }
+        else if (!CLIENT_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name) && !CLIENT_MAX_WINDOW_BITS.equalsIgnoreCase(name)) {
+          // hints about the client's compressor need no answer, but anything else is not understood.
+          continue nextOffer;
+        }
+      }
+
+      return response.toString();
+    }
+    return null;
+  }
+
+  /**
+   * Returns true if the specified response header value (as returned by {@link #negotiate(String)}) keeps the
+   * compression context between messages.
+   */
+  public static boolean isContextTakeover(final String responseHeader) {
+    return !responseHeader.contains(SERVER_NO_CONTEXT_TAKEOVER);
+  }
+
+  /**
+   * Compresses the payload of an outbound message.
+   */
+  public byte[] compress(final byte[] data) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+
+    deflater.setInput(data);
+    int n;
+    do {
+      n = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+      out.write(chunk, 0, n);
+    }
+    while (n == chunk.length);
+
+    if (!contextTakeover) {
+      deflater.reset();
+    }
+
+    // a sync flush always ends with an empty stored block, which is removed from the message.
+    final byte[] compressed = out.toByteArray();
+    if (endsWithTail(compressed)) {
+      return Arrays.copyOf(compressed, compressed.length - TAIL.length);
+    }
+    return compressed;
+  }
+
+  /**
+   * Decompresses the payload of an inbound message.
+   *
+   * @throws DataFormatException
+   *     if the payload is not valid compressed data, or decompresses to more than the maximum message size.
+   */
+  public byte[] decompress(final byte[] data) throws DataFormatException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+
+    final byte[] input = Arrays.copyOf(data, data.length + TAIL.length);
+    System.arraycopy(TAIL, 0, input, data.length, TAIL.length);
+    inflater.setInput(input);
+
+    for (; ; ) {
+      final int n = inflater.inflate(chunk);
+      if (n > 0) {
+        out.write(chunk, 0, n);
+        if (out.size() > maxMessageSize) {
+          throw new DataFormatException("decompressed message exceeds " + maxMessageSize + " bytes");
+        }
+      }
+      else if (inflater.needsInput() || inflater.finished()) {
+        break;
+      }
+      else if (inflater.needsDictionary()) {
+        throw new DataFormatException("compressed message requires a dictionary");
+      }
+    }
+
+    if (inflater.finished()) {
+      // the client ended the deflate stream, so the next message starts a new one.
+      inflater.reset();
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Releases the native resources of the compressor and decompressor.
+   */
+  public void end() {
+    deflater.end();
+    inflater.end();
+  }
+
+  private static boolean endsWithTail(final byte[] data) {
+    if (data.length < TAIL.length) {
+      return false;
+    }
+    for (int i = 0; i < TAIL.length; i++) {
+      if (data[data.length - TAIL.length + i] != TAIL[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
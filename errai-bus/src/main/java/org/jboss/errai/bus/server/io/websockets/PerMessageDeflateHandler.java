@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.websockets;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import org.slf4j.Logger;
+
+/**
+ * Compresses outbound and decompresses inbound WebSocket messages of a connection which negotiated the
+ * <tt>permessage-deflate</tt> extension. Messages smaller than the threshold are sent uncompressed, which the
+ * extension permits on a per-message basis.
+ * <p>
+ * Fragmented messages are not supported, as the {@link WebSocketServerHandler} does not accept them either.
+ * <p>
+ * When a connection closes, the {@link CompressionMetrics} of all connections so far are logged at debug level.
+ *
+ * @see PerMessageDeflate
+ * @see CompressionMetrics
+ */
+public class PerMessageDeflateHandler extends MessageToMessageCodec<WebSocketFrame, WebSocketFrame> {
+  private static final Logger log = getLogger(PerMessageDeflateHandler.class);
+
+  /**
+   * The RSV1 bit, which marks a compressed message.
+   */
+  private static final int RSV1 = 0x04;
+
+  private final PerMessageDeflate deflate;
+  private final int threshold;
+
+  public PerMessageDeflateHandler(final PerMessageDeflate deflate, final int threshold) {
+    this.deflate = deflate;
+    this.threshold = threshold;
+  }
+
+  @Override
+  protected void encode(final ChannelHandlerContext ctx, final WebSocketFrame frame, final List<Object> out) {
+    final boolean data = frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame;
+    if (!data || !frame.isFinalFragment() || (frame.rsv() & RSV1) != 0) {
+      out.add(frame.retain());
+      return;
+    }
+
+    final ByteBuf content = frame.content();
+    final int size = content.readableBytes();
+    if (size < threshold) {
+      CompressionMetrics.skipped();
+      out.add(frame.retain());
+      return;
+    }
+
+    final long start = System.nanoTime();
+    final byte[] payload = new byte[size];
+    content.getBytes(content.readerIndex(), payload);
+    final byte[] compressed = deflate.compress(payload);
+    CompressionMetrics.compressed(size, compressed.length, System.nanoTime() - start);
+
+    final ByteBuf buf = ctx.alloc().buffer(compressed.length).writeBytes(compressed);
+    if (frame instanceof TextWebSocketFrame) {
+      out.add(new TextWebSocketFrame(true, frame.rsv() | RSV1, buf));
+    }
+    else {
+      out.add(new BinaryWebSocketFrame(true, frame.rsv() | RSV1, buf));
+    }
+  }
+
+  @Override
+  protected void decode(final ChannelHandlerContext ctx, final WebSocketFrame frame, final List<Object> out) {
+    if ((frame.rsv() & RSV1) == 0) {
+      out.add(frame.retain());
+      return;
+    }
+
+    if (!frame.isFinalFragment()) {
+      throw new CorruptedFrameException("fragmented compressed messages are not supported");
+    }
+
+    final long start = System.nanoTime();
+    final ByteBuf content = frame.content();
+    final byte[] payload = new byte[content.readableBytes()];
+    content.getBytes(content.readerIndex(), payload);
+
+    final byte[] decompressed;
+    try {
+      decompressed = deflate.decompress(payload);
+    }
+    catch (DataFormatException e) {
+      throw new CorruptedFrameException(e);
+    }
+    CompressionMetrics.decompressed(System.nanoTime() - start);
+
+    final ByteBuf buf = ctx.alloc().buffer(decompressed.length).writeBytes(decompressed);
+    if (frame instanceof TextWebSocketFrame) {
+      out.add(new TextWebSocketFrame(true, frame.rsv() & ~RSV1, buf));
+    }
+    else if (frame instanceof BinaryWebSocketFrame) {
+      out.add(new BinaryWebSocketFrame(true, frame.rsv() & ~RSV1, buf));
+    }
+    else {
+      buf.release();
+      throw new CorruptedFrameException("unexpected compressed frame: " + frame.getClass().getName());
+    }
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+    deflate.end();
+    if (log.isDebugEnabled()) {
+      log.debug("permessage-deflate connection closed. " + CompressionMetrics.getSummary());
+    }
+    super.handlerRemoved(ctx);
+  }
+}
@@ -18,11 +18,13 @@ package org.jboss.errai.bus.server.io.websockets;
 
 import static org.slf4j.LoggerFactory.getLogger;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.ssl.SslHandler;
@@ -50,22 +52,46 @@ public class WebSocketServer {
     final ErraiServiceConfigurator esc = svc.getConfiguration();
     useSecureWebSocket = ErraiConfigAttribs.SECURE_WEB_SOCKET_SERVER.getBoolean(esc);
     final int port = ErraiConfigAttribs.WEB_SOCKET_PORT.getInt(esc);
+    final WebSocketTransport transport = WebSocketTransport.forName(ErraiConfigAttribs.WEB_SOCKET_TRANSPORT.get(esc));
+    final int maxContentLength = ErraiConfigAttribs.WEB_SOCKET_MAX_CONTENT_LENGTH.getInt(esc);
+    final int lowWaterMark = ErraiConfigAttribs.WEB_SOCKET_WRITE_BUFFER_LOW_WATER_MARK.getInt(esc);
+    final int highWaterMark = ErraiConfigAttribs.WEB_SOCKET_WRITE_BUFFER_HIGH_WATER_MARK.getInt(esc);
+    final Integer backlog = ErraiConfigAttribs.WEB_SOCKET_BACKLOG.getInt(esc);
+
+    if (lowWaterMark > highWaterMark) {
+      throw new IllegalArgumentException("the low write buffer water mark (" + lowWaterMark
+          + ") must not be greater than the high water mark (" + highWaterMark + ")");
+    }
+
     final ServerBootstrap bootstrap = new ServerBootstrap();
     final WebSocketServerHandler webSocketHandler = new WebSocketServerHandler(svc);
 
     try {
-      final NioEventLoopGroup bossGroup = new NioEventLoopGroup();
-      final NioEventLoopGroup workerGroup = new NioEventLoopGroup();
-      final ChannelFuture channelFuture = bootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
+      final EventLoopGroup bossGroup =
+          transport.newEventLoopGroup(ErraiConfigAttribs.WEB_SOCKET_BOSS_THREADS.getInt(esc));
+      final EventLoopGroup workerGroup =
+          transport.newEventLoopGroup(ErraiConfigAttribs.WEB_SOCKET_WORKER_THREADS.getInt(esc));
+
+      bootstrap.group(bossGroup, workerGroup).channel(transport.getServerChannelClass());
+      if (backlog != null) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, backlog);
+      }
+
+      final ChannelFuture channelFuture = bootstrap
+              .childOption(ChannelOption.TCP_NODELAY, ErraiConfigAttribs.WEB_SOCKET_TCP_NODELAY.getBoolean(esc))
+              // outbound frames are written into pooled direct buffers (see NettyQueueChannel#newFrame()).
+              .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
               .childHandler(new ChannelInitializer() {
                 @Override
                 protected void initChannel(Channel ch) throws Exception {
+                  setWriteBufferWaterMarks(ch.config(), lowWaterMark, highWaterMark);
+
                   if (useSecureWebSocket) {
                     final SslHandler sslHandler = SslHandlerFactory.buildSslHandler(esc);
                     ch.pipeline().addLast("ssl", sslHandler);
                   }
                   ch.pipeline().addLast("codec-http", new HttpServerCodec());
-                  ch.pipeline().addLast("aggregator", new HttpObjectAggregator(65536));
+                  ch.pipeline().addLast("aggregator", new HttpObjectAggregator(maxContentLength));
                   ch.pipeline().addLast("handler", webSocketHandler);
                 }
 
@@ -93,6 +119,23 @@ public class WebSocketServer {
     catch (Throwable t) {
       throw new RuntimeException(t);
     }
-    log.info("started web socket server on port: " + port);
+    log.info("started web socket server on port: " + port + " (transport: " + transport.name().toLowerCase() + ")");
+  }
+
+  /**
+   * Sets the write buffer water marks of a channel. Once more than the high water mark is pending to be written, the
+   * channel becomes unwritable and the session's queue stops sending to it (see
+   * {@link WebSocketServerHandler#channelWritabilityChanged(io.netty.channel.ChannelHandlerContext)}).
+   */
+  private static void setWriteBufferWaterMarks(final ChannelConfig config, final int low, final int high) {
+    // the low water mark may never exceed the high water mark, so the order of the updates matters.
+    if (low > config.getWriteBufferHighWaterMark()) {
+      config.setWriteBufferHighWaterMark(high);
+      config.setWriteBufferLowWaterMark(low);
+    }
+    else {
+      config.setWriteBufferLowWaterMark(low);
+      config.setWriteBufferHighWaterMark(high);
+    }
   }
 }
@@ -18,6 +18,7 @@ package org.jboss.errai.bus.server.io.websockets;
 
 import static io.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static io.netty.handler.codec.http.HttpHeaders.setContentLength;
+import static io.netty.handler.codec.http.HttpHeaders.Names.SEC_WEBSOCKET_EXTENSIONS;
 import static io.netty.handler.codec.http.HttpMethod.GET;
 import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
@@ -30,10 +31,12 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
@@ -73,15 +76,19 @@ import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.protocols.BusCommand;
 import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.async.scheduling.EventLoopThreads;
 import org.jboss.errai.bus.server.io.DirectDeliveryHandler;
 import org.jboss.errai.bus.server.io.MessageFactory;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
 import org.jboss.errai.bus.server.service.ErraiService;
+import org.jboss.errai.bus.server.service.ErraiServiceConfigurator;
 import org.jboss.errai.bus.server.util.LocalContext;
 import org.jboss.errai.common.client.protocols.MessageParts;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJString;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
-import org.jboss.errai.marshalling.server.JSONDecoder;
+import org.jboss.errai.marshalling.server.BinaryDecoder;
+import org.jboss.errai.marshalling.server.JSONByteDecoder;
 
 /**
  * The working prototype ErraiBus Websocket Server.
@@ -98,8 +105,21 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler {
   private WebSocketServerHandshaker handshaker = null;
   private ErraiService svc;
 
+  private final boolean compression;
+  private final int compressionThreshold;
+  private final int compressionLevel;
+  private final int maxMessageSize;
+  private final boolean binaryProtocol;
+
   public WebSocketServerHandler(final ErraiService bus) {
     this.svc = bus;
+
+    final ErraiServiceConfigurator config = bus.getConfiguration();
+    this.compression = ErraiConfigAttribs.WEB_SOCKET_COMPRESSION.getBoolean(config);
+    this.compressionThreshold = ErraiConfigAttribs.WEB_SOCKET_COMPRESSION_THRESHOLD.getInt(config);
+    this.compressionLevel = ErraiConfigAttribs.WEB_SOCKET_COMPRESSION_LEVEL.getInt(config);
+    this.maxMessageSize = ErraiConfigAttribs.WEB_SOCKET_MAX_CONTENT_LENGTH.getInt(config);
+    this.binaryProtocol = ErraiConfigAttribs.WEB_SOCKET_BINARY_PROTOCOL.getBoolean(config);
   }
 
   @Override
@@ -117,6 +137,22 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler {
     ctx.flush();
   }
 
+  /**
+   * Resumes sending to a client once its channel is writable again. While it was not, the client's messages were
+   * kept in the bus buffer (see {@link DirectDeliveryHandler}).
+   */
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    final QueueSession session = activeChannels.get(ctx.channel());
+    if (session != null && ctx.channel().isWritable()) {
+      final MessageQueue queue = svc.getBus().getQueue(session);
+      if (queue != null) {
+        queue.wake();
+      }
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
   private void handleHttpRequest(final ChannelHandlerContext ctx, final FullHttpRequest req) throws Exception {
     // Allow only GET methods.
     if (req.getMethod() != GET) {
@@ -125,12 +161,25 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler {
     }
 
     // Handshake
+    final String extension =
+        compression ? PerMessageDeflate.negotiate(req.headers().get(SEC_WEBSOCKET_EXTENSIONS)) : null;
+
     final WebSocketServerHandshakerFactory wsFactory = new WebSocketServerHandshakerFactory(
-        this.getWebSocketLocation(req), null, false);
+        this.getWebSocketLocation(req), null, extension != null);
     this.handshaker = wsFactory.newHandshaker(req);
     if (this.handshaker == null) {
       wsFactory.sendUnsupportedWebSocketVersionResponse(ctx.channel());
     }
+    else if (extension != null) {
+      final PerMessageDeflate deflate =
+          new PerMessageDeflate(compressionLevel, PerMessageDeflate.isContextTakeover(extension), maxMessageSize);
+      ctx.pipeline().addBefore("handler", "permessage-deflate",
+          new PerMessageDeflateHandler(deflate, compressionThreshold));
+
+      final HttpHeaders responseHeaders = new DefaultHttpHeaders();
+      responseHeaders.set(SEC_WEBSOCKET_EXTENSIONS, extension);
+      this.handshaker.handshake(ctx.channel(), req, responseHeaders, ctx.channel().newPromise());
+    }
     else {
       this.handshaker.handshake(ctx.channel(), req);
     }
@@ -148,13 +197,26 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler {
       ctx.channel().write(new PongWebSocketFrame(frame.content().retain()));
       return;
     }
-    if (!(frame instanceof TextWebSocketFrame)) {
+    final EJValue val;
+    if (frame instanceof TextWebSocketFrame) {
+      val = JSONByteDecoder.decodeEnvelopes(frame.content().nioBuffer());
+    }
+    else if (binaryProtocol && frame instanceof BinaryWebSocketFrame) {
+      try {
+        val = BinaryDecoder.decode(frame.content().nioBuffer());
+      }
+      catch (RuntimeException e) {
+        // a malformed (or maliciously nested) frame is a protocol error.
+        ctx.channel().writeAndFlush(new CloseWebSocketFrame(1002, e.getMessage()))
+            .addListener(ChannelFutureListener.CLOSE);
+        return;
+      }
+    }
+    else {
       throw new UnsupportedOperationException(String.format("%s frame types not supported", frame.getClass()
           .getName()));
     }
 
-    @SuppressWarnings("unchecked") final EJValue val = JSONDecoder.decode(((TextWebSocketFrame) frame).text());
-
     final QueueSession session;
 
     // this is not an active channel.
@@ -249,9 +311,15 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler {
       // this is an active session. send the message.
       session = activeChannels.get(ctx.channel());
 
-      for (final Message msg : MessageFactory.createCommandMessage(session, val)) {
-        msg.setResource(HttpServletRequest.class.getName(), new SyntheticHttpServletRequest());
-        svc.store(msg);
+      EventLoopThreads.enter();
+      try {
+        for (final Message msg : MessageFactory.createCommandMessage(session, val)) {
+          msg.setResource(HttpServletRequest.class.getName(), new SyntheticHttpServletRequest());
+          svc.store(msg);
+        }
+      }
+      finally {
+        EventLoopThreads.exit();
       }
     }
   }
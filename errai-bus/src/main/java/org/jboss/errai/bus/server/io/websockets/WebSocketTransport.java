@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.io.websockets;
+
+import static org.slf4j.LoggerFactory.getLogger;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+
+/**
+ * The Netty transports the {@link WebSocketServer} can run on.
+ * <p>
+ * The epoll transport is only available on Linux, with <tt>netty-transport-native-epoll</tt> (and its native library)
+ * on the classpath. Its classes are therefore looked up reflectively, so errai-bus does not depend on it.
+ */
+public enum WebSocketTransport {
+  NIO {
+    @Override
+    public EventLoopGroup newEventLoopGroup(final int threads) {
+      return new NioEventLoopGroup(threads);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelClass() {
+      return NioServerSocketChannel.class;
+    }
+  },
+
+  EPOLL {
+    @Override
+    public EventLoopGroup newEventLoopGroup(final int threads) {
+      try {
+        return (EventLoopGroup) Class.forName(EPOLL_PACKAGE + "EpollEventLoopGroup")
+            .getConstructor(int.class).newInstance(threads);
+      }
+      catch (Exception e) {
+        throw new RuntimeException("could not create epoll event loop group", e);
+      }
+    }
+
+    @Override
+    public Class<? extends ServerChannel> getServerChannelClass() {
+      try {
+        return Class.forName(EPOLL_PACKAGE + "EpollServerSocketChannel").asSubclass(ServerChannel.class);
+      }
+      catch (ClassNotFoundException e) {
+        throw new RuntimeException("could not load epoll server socket channel", e);
+      }
+    }
+  };
+
+  private static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+  private static final Logger log = getLogger(WebSocketTransport.class);
+
+  /**
+   * Creates an event loop group for this transport.
+   *
+   * @param threads
+   *     the number of threads, or 0 to use the Netty default (twice the number of cores).
+   */
+  public abstract EventLoopGroup newEventLoopGroup(int threads);
+
+  public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+  /**
+   * Returns the transport with the specified (case-insensitive) name. The epoll transport falls back to NIO if it is
+   * not available on this system.
+   *
+   * @throws IllegalArgumentException
+   *     if there is no transport with the specified name.
+   */
+  public static WebSocketTransport forName(final String name) {
+    final WebSocketTransport transport = valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+
+    if (transport == EPOLL && !isEpollAvailable()) {
+      log.warn("the epoll transport is not available on this system. falling back to the NIO transport.");
+      return NIO;
+    }
+    return transport;
+  }
+
+  private static boolean isEpollAvailable() {
+    try {
+      return (Boolean) Class.forName(EPOLL_PACKAGE + "Epoll").getMethod("isAvailable").invoke(null);
+    }
+    catch (Throwable t) {
+      return false;
+    }
+  }
+}
@@ -64,6 +64,60 @@ public enum ErraiConfigAttribs {
    */
   BUS_BUFFER_ALLOCATION_MODE("errai.bus.buffer_allocation_mode", "direct"),
 
+  /**
+   * The number of independent ring buffers (shards) the bus buffer is split into. Each client queue is bound to one
+   * shard, so writers and readers only contend with the queues sharing their shard. Broadcast messages are written to
+   * every shard. Unless {@link #BUS_BUFFER_SHARD_SIZE} is specified, the buffer size is divided among the shards.
+   * <p/>
+   * Default value: 1
+   */
+  BUS_BUFFER_SHARDS("errai.bus.buffer_shards", "1"),
+
+  /**
+   * The size of each buffer shard in megabytes. If this attribute is specified, the total buffer size is
+   * {@code BUS_BUFFER_SHARDS * BUS_BUFFER_SHARD_SIZE} and {@link #BUS_BUFFER_SIZE} and
+   * {@link #BUS_BUFFER_SEGMENT_COUNT} are ignored.
+   */
+  BUS_BUFFER_SHARD_SIZE("errai.bus.buffer_shard_size"),
+
+  /**
+   * The time in microseconds outbound messages for a client are held back, so that messages sent in quick succession
+   * are flushed together as a single frame. A value of 0 disables outbound coalescing.
+   * <p/>
+   * Default value: 0
+   */
+  BUS_COALESCING_DELAY_MICROS("errai.bus.outbound_coalescing_delay_micros", "0"),
+
+  /**
+   * The number of bytes of outbound messages for a client after which they are flushed without waiting for the
+   * coalescing delay to pass.
+   * <p/>
+   * Default value: 16384
+   */
+  BUS_COALESCING_MAX_BYTES("errai.bus.outbound_coalescing_max_bytes", "16384"),
+
+  /**
+   * A comma-separated list of latency-sensitive subjects whose messages are never held back by outbound coalescing.
+   */
+  BUS_COALESCING_EXEMPT_SUBJECTS("errai.bus.outbound_coalescing_exempt_subjects"),
+
+  /**
+   * Whether subscribe, unsubscribe and queue closed listeners are notified on a separate event thread, in the order
+   * of the events, instead of by the thread subscribing or closing the queue. Listeners which expect to have been
+   * notified by the time <tt>subscribe</tt> returns should not be used with this option.
+   * <p/>
+   * Default value: false
+   */
+  BUS_ASYNC_LISTENERS("errai.bus.async_listeners", "false"),
+
+  /**
+   * Whether the {@link org.jboss.errai.bus.server.ConcurrentSessionProvider} draws queue session ids from a secure
+   * random number generator instead of a fast, non-cryptographic one.
+   * <p/>
+   * Default value: false
+   */
+  SECURE_SESSION_IDS("errai.bus.secure_session_ids", "false"),
+
   HOSTED_MODE_TESTING("errai.hosted_mode_testing", "false"),
   DO_LONG_POLL("org.jboss.errai.bus.do_long_poll", "true"),
   LONG_POLL_TIMEOUT("errai.bus.long_poll_timeout", "45000"),
@@ -80,6 +134,98 @@ public enum ErraiConfigAttribs {
   WEB_SOCKET_KEYSTORE_PASSWORD("errai.bus.web_socket_keystore_password"),
   WEB_SOCKET_KEY_PASSWORD("errai.bus.web_socket_key_password"),
 
+  /**
+   * The Netty transport of the standalone WebSocket server ('nio' or 'epoll'). The epoll transport requires Linux and
+   * <tt>netty-transport-native-epoll</tt> on the classpath; the server falls back to NIO if it is not available.
+   * <p/>
+   * Default value: 'nio'
+   */
+  WEB_SOCKET_TRANSPORT("errai.bus.web_socket_transport", "nio"),
+
+  /**
+   * The number of threads accepting connections for the standalone WebSocket server. 0 uses the Netty default of
+   * twice the number of cores.
+   * <p/>
+   * Default value: 1
+   */
+  WEB_SOCKET_BOSS_THREADS("errai.bus.web_socket_boss_threads", "1"),
+
+  /**
+   * The number of event loop threads serving the connections of the standalone WebSocket server. 0 uses the Netty
+   * default of twice the number of cores.
+   * <p/>
+   * Default value: 0
+   */
+  WEB_SOCKET_WORKER_THREADS("errai.bus.web_socket_worker_threads", "0"),
+
+  /**
+   * The maximum size in bytes of an HTTP request (such as the WebSocket handshake) to the standalone WebSocket server.
+   * <p/>
+   * Default value: 65536
+   */
+  WEB_SOCKET_MAX_CONTENT_LENGTH("errai.bus.web_socket_max_content_length", "65536"),
+
+  /**
+   * The accept backlog of the standalone WebSocket server socket. If not specified, the system default is used.
+   */
+  WEB_SOCKET_BACKLOG("errai.bus.web_socket_backlog"),
+
+  /**
+   * Whether Nagle's algorithm is disabled on WebSocket connections of the standalone WebSocket server.
+   * <p/>
+   * Default value: true
+   */
+  WEB_SOCKET_TCP_NODELAY("errai.bus.web_socket_tcp_nodelay", "true"),
+
+  /**
+   * The number of bytes pending to be written to a WebSocket connection below which a connection that was no longer
+   * writable becomes writable again, and its queue resumes sending.
+   * <p/>
+   * Default value: 32768
+   */
+  WEB_SOCKET_WRITE_BUFFER_LOW_WATER_MARK("errai.bus.web_socket_write_buffer_low_water_mark", "32768"),
+
+  /**
+   * The number of bytes pending to be written to a WebSocket connection above which the connection is no longer
+   * writable. Messages for a connection which is not writable are kept in the bus buffer until the client has caught
+   * up, rather than being queued up in memory by Netty.
+   * <p/>
+   * Default value: 65536
+   */
+  WEB_SOCKET_WRITE_BUFFER_HIGH_WATER_MARK("errai.bus.web_socket_write_buffer_high_water_mark", "65536"),
+
+  /**
+   * Whether the standalone WebSocket server compresses messages using the <tt>permessage-deflate</tt> extension, for
+   * clients which offer it. The compression context is kept between the messages of a connection (unless the client
+   * asks otherwise), so the keys and type names repeated in every message are only sent in full once.
+   * <p/>
+   * Default value: false
+   */
+  WEB_SOCKET_COMPRESSION("errai.bus.web_socket_compression", "false"),
+
+  /**
+   * The size in bytes below which messages are sent uncompressed, as compressing them costs more than it saves.
+   * <p/>
+   * Default value: 256
+   */
+  WEB_SOCKET_COMPRESSION_THRESHOLD("errai.bus.web_socket_compression_threshold", "256"),
+
+  /**
+   * The deflate compression level, from 1 (fastest) to 9 (smallest).
+   * <p/>
+   * Default value: 6
+   */
+  WEB_SOCKET_COMPRESSION_LEVEL("errai.bus.web_socket_compression_level", "6"),
+
+  /**
+   * Whether the standalone WebSocket server accepts messages in the binary encoding of the Errai protocol (see
+   * {@link org.jboss.errai.marshalling.server.BinaryEncoder}), sent as binary frames. Clients are told about it
+   * through the capabilities flags, and text frames are always accepted as JSON.
+   * <p/>
+   * Default value: false
+   */
+  WEB_SOCKET_BINARY_PROTOCOL("errai.bus.web_socket_binary_protocol", "false"),
+
   WEBSOCKET_SERVLET_ENABLED("errai.bus.websocket.servlet.enabled", "false"),
   WEBSOCKET_SERVLET_CONTEXT_PATH("errai.bus.websocket.servlet.path", "in.erraiBusWebSocket"),
   FORCE_SECURE_WEBSOCKET("errai.bus.websocket.force.secure", "false"),
@@ -91,8 +237,49 @@ public enum ErraiConfigAttribs {
   ENABLE_CLUSTERING("errai.bus.enable_clustering", "false"),
   CLUSTERING_PROVIDER("errai.bus.clustering_provider", "org.jboss.errai.bus.server.cluster.noop.NoopClusteringProvider"),
 
+  /**
+   * The maximum number of sessions owned by other cluster members whose owner is remembered. Messages for those
+   * sessions are forwarded directly to the owner, others are forwarded after asking the whole cluster.
+   * <p/>
+   * Default value: 100000
+   */
+  CLUSTER_SESSION_DIRECTORY_SIZE("errai.bus.cluster_session_directory_size", "100000"),
+
+  /**
+   * The time in microseconds a message forwarded to other cluster members may be held back, so that it is sent
+   * together with the messages forwarded after it. Set to 0 to send each message on its own.
+   * <p/>
+   * Default value: 1000
+   */
+  CLUSTER_BATCH_DELAY_MICROS("errai.bus.cluster_batch_delay_micros", "1000"),
+
+  /**
+   * The size in bytes of forwarded messages pending for a cluster member at which they are sent without further
+   * delay.
+   * <p/>
+   * Default value: 60000
+   */
+  CLUSTER_BATCH_MAX_BYTES("errai.bus.cluster_batch_max_bytes", "60000"),
+
   MESSAGE_QUEUE_TIMEOUT_SECS("errai.bus.message_queue_timeout_secs", "90"),
-  SATURATION_POLICY("errai.bus.saturation_policy", "CallerRuns");
+  SATURATION_POLICY("errai.bus.saturation_policy", "CallerRuns"),
+
+  /**
+   * The maximum number of messages for a single subject which the
+   * {@link org.jboss.errai.bus.server.VirtualThreadDispatcher} delivers concurrently.
+   * <p/>
+   * Default value: 64
+   */
+  DISPATCHER_SUBJECT_CONCURRENCY_LIMIT("errai.dispatcher.subject_concurrency_limit", "64"),
+
+  /**
+   * The time in milliseconds the {@link org.jboss.errai.bus.server.VirtualThreadDispatcher} blocks an incoming
+   * message while its subject is at the concurrency limit, before the delivery fails. Messages received by the
+   * WebSocket server fail straight away, so its event loop is never blocked.
+   * <p/>
+   * Default value: 30000
+   */
+  DISPATCHER_BACKPRESSURE_TIMEOUT("errai.dispatcher.backpressure_timeout", "30000");
 
   protected final String attributeName;
   protected final String defaultValue;
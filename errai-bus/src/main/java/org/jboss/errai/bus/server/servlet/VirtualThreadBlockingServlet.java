@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server.servlet;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jboss.errai.bus.server.async.scheduling.VirtualThreads;
+import org.slf4j.Logger;
+
+/**
+ * A variant of the {@link DefaultBlockingServlet} which hands every request to its own thread using the asynchronous
+ * support of Servlet 3.0, so that a long poll blocks that thread rather than a container thread. On a JVM with
+ * virtual threads the request is served on a virtual thread, which parks while waiting for messages instead of holding
+ * a platform thread (see {@link VirtualThreads}).
+ * <p>
+ * The servlet (or filter) must be marked with <tt>async-supported</tt> in <tt>web.xml</tt>. Requests for which
+ * asynchronous processing is not supported are served on the container thread, exactly as by the
+ * {@link DefaultBlockingServlet}.
+ */
+public class VirtualThreadBlockingServlet extends DefaultBlockingServlet {
+  private static final Logger log = getLogger(VirtualThreadBlockingServlet.class);
+  private static final long serialVersionUID = 1L;
+
+  private final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("ErraiServletPoll-");
+
+  @Override
+  protected void service(final HttpServletRequest request, final HttpServletResponse response)
+      throws ServletException, IOException {
+
+    if (!request.isAsyncSupported()) {
+      super.service(request, response);
+      return;
+    }
+
+    final AsyncContext asyncContext = request.startAsync();
+    // the poll itself is bounded by the long poll and SSE timeouts.
+    asyncContext.setTimeout(0);
+
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            VirtualThreadBlockingServlet.super.service((HttpServletRequest) asyncContext.getRequest(),
+                (HttpServletResponse) asyncContext.getResponse());
+          }
+          catch (Throwable t) {
+            log.debug("Problem when serving request", t);
+          }
+          finally {
+            asyncContext.complete();
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      // the servlet is being destroyed.
+      asyncContext.complete();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+    super.destroy();
+  }
+}
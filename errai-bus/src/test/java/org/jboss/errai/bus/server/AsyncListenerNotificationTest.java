@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.SubscribeListener;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.client.framework.SubscriptionEvent;
+import org.jboss.errai.bus.server.mock.MockErraiService;
+import org.jboss.errai.bus.server.mock.MockErraiServiceConfigurator;
+import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
+
+public class AsyncListenerNotificationTest extends TestCase {
+  private static final MessageCallback NOOP = new MessageCallback() {
+    @Override
+    public void callback(final Message message) {
+    }
+  };
+
+  private ServerMessageBusImpl bus;
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (bus != null) {
+      bus.stop();
+    }
+  }
+
+  private ServerMessageBusImpl newBus(final String asyncListeners) {
+    final MockErraiServiceConfigurator config = new MockErraiServiceConfigurator();
+    ErraiConfigAttribs.BUS_BUFFER_SIZE.set(config, "1");
+    if (asyncListeners != null) {
+      ErraiConfigAttribs.BUS_ASYNC_LISTENERS.set(config, asyncListeners);
+    }
+    return bus = new ServerMessageBusImpl(new MockErraiService(), config);
+  }
+
+  public void testListenersAreNotifiedSynchronouslyByDefault() {
+    newBus(null);
+    final RecordingListener listener = new RecordingListener(1);
+    bus.addSubscribeListener(listener);
+
+    bus.subscribe("Default", NOOP);
+
+    assertEquals(1, listener.subjects.size());
+    assertSame(Thread.currentThread(), listener.threads.get(0));
+  }
+
+  public void testAsyncListenersAreNotifiedInOrder() throws Exception {
+    newBus("true");
+    final RecordingListener listener = new RecordingListener(50);
+    bus.addSubscribeListener(listener);
+
+    for (int i = 0; i < 50; i++) {
+      bus.subscribe("Ordered" + i, NOOP);
+    }
+
+    assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+    for (int i = 0; i < 50; i++) {
+      assertEquals("Ordered" + i, listener.subjects.get(i));
+      assertNotSame(Thread.currentThread(), listener.threads.get(i));
+    }
+  }
+
+  public void testAsyncListenerIsDisposed() throws Exception {
+    newBus("true");
+    final RecordingListener disposing = new RecordingListener(1) {
+      @Override
+      public void onSubscribe(final SubscriptionEvent event) {
+        super.onSubscribe(event);
+        event.setDisposeListener(true);
+      }
+    };
+    final RecordingListener following = new RecordingListener(2);
+    bus.addSubscribeListener(disposing);
+    bus.addSubscribeListener(following);
+
+    bus.subscribe("First", NOOP);
+    bus.subscribe("Second", NOOP);
+
+    // the listener after a disposed one is still notified of both events.
+    assertTrue(following.latch.await(10, TimeUnit.SECONDS));
+    assertEquals(2, following.subjects.size());
+    assertEquals(1, disposing.subjects.size());
+    assertEquals("First", disposing.subjects.get(0));
+  }
+
+  private static class RecordingListener implements SubscribeListener {
+    final List<String> subjects = new CopyOnWriteArrayList<String>();
+    final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+    final CountDownLatch latch;
+
+    RecordingListener(final int expected) {
+      this.latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onSubscribe(final SubscriptionEvent event) {
+      subjects.add(event.getSubject());
+      threads.add(Thread.currentThread());
+      latch.countDown();
+    }
+  }
+}
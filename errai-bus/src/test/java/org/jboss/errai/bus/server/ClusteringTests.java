@@ -21,6 +21,8 @@ import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.api.base.MessageBuilder;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.cluster.ClusteringProvider;
+import org.jboss.errai.bus.server.cluster.jgroups.JGroupsClusteringProvider;
 import org.jboss.errai.bus.server.service.ErraiService;
 import org.jboss.errai.common.client.protocols.MessageParts;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
@@ -42,11 +44,15 @@ public class ClusteringTests extends TestCase {
   private final AtomicInteger counter = new AtomicInteger(0);
 
   private ErraiService startInstance() {
-    final ErraiService newService = InVMBusUtil.startService(counter.incrementAndGet());
+    final ErraiService newService = InVMBusUtil.startService(counter.incrementAndGet(), getClusteringProvider());
     startedInstances.add(newService);
     return newService;
   }
 
+  protected Class<? extends ClusteringProvider> getClusteringProvider() {
+    return JGroupsClusteringProvider.class;
+  }
+
   @Override
   protected void setUp() throws Exception {
     MappingContextSingleton.get();
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpSession;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.QueueSession;
+import org.jboss.errai.bus.client.api.SessionEndEvent;
+import org.jboss.errai.bus.client.api.SessionEndListener;
+import org.jboss.errai.bus.client.api.laundry.LaundryList;
+import org.jboss.errai.bus.client.api.laundry.LaundryListProvider;
+import org.jboss.errai.bus.client.api.laundry.LaundryListProviderFactory;
+import org.jboss.errai.bus.server.mock.MockHttpSession;
+import org.jboss.errai.bus.server.util.ServerLaundryList;
+
+public class ConcurrentSessionProviderTest extends TestCase {
+  private final ConcurrentSessionProvider provider = new ConcurrentSessionProvider(false, null);
+
+  @Override
+  protected void setUp() throws Exception {
+    LaundryListProviderFactory.setLaundryListProvider(new LaundryListProvider() {
+      @Override
+      public LaundryList getLaundryList(final Object ref) {
+        return ServerLaundryList.get((QueueSession) ref);
+      }
+    });
+  }
+
+  public void testSessionIsCreatedOnceAndSharesAttributes() {
+    final HttpSession httpSession = MockHttpSession.createMock();
+
+    final QueueSession a = provider.createOrGetSession(httpSession, "queueA");
+    final QueueSession b = provider.createOrGetSession(httpSession, "queueB");
+    assertSame(a, provider.createOrGetSession(httpSession, "queueA"));
+    assertNotSame(a, b);
+    assertFalse(a.getSessionId().equals(b.getSessionId()));
+    assertEquals(32, a.getSessionId().length());
+    assertEquals(httpSession.getId(), a.getParentSessionId());
+    assertSame(httpSession, a.getAttribute(HttpSession.class, HttpSession.class.getName()));
+
+    a.setAttribute("foo", "bar");
+    assertEquals("bar", b.getAttribute(String.class, "foo"));
+    a.setAttribute("foo", null);
+    assertFalse(b.hasAttribute("foo"));
+  }
+
+  public void testEndedSessionIsRemoved() {
+    final HttpSession httpSession = MockHttpSession.createMock();
+    final AtomicInteger ends = new AtomicInteger();
+
+    final QueueSession qs = provider.createOrGetSession(httpSession, "queueA");
+    qs.addSessionEndListener(new SessionEndListener() {
+      @Override
+      public void onSessionEnd(final SessionEndEvent event) {
+        ends.incrementAndGet();
+      }
+    });
+
+    assertTrue(qs.endSession());
+    assertFalse(qs.endSession());
+    assertFalse(qs.isValid());
+    assertEquals(1, ends.get());
+    assertEquals(0, provider.getSessionCount());
+    assertNotSame(qs, provider.createOrGetSession(httpSession, "queueA"));
+  }
+
+  public void testSharedAttributesOutliveTheQueueSessions() {
+    final HttpSession httpSession = MockHttpSession.createMock();
+
+    final QueueSession a = provider.createOrGetSession(httpSession, "queueA");
+    a.setAttribute("foo", "bar");
+    assertTrue(a.endSession());
+    assertEquals(0, provider.getSessionCount());
+
+    final QueueSession b = provider.createOrGetSession(httpSession, "queueB");
+    assertEquals("bar", b.getAttribute(String.class, "foo"));
+  }
+
+  public void testSessionsSurviveAChangeOfTheHttpSessionId() {
+    final MockHttpSession httpSession = (MockHttpSession) MockHttpSession.createMock();
+
+    final QueueSession a = provider.createOrGetSession(httpSession, "queueA");
+    httpSession.changeSessionId();
+    assertSame(a, provider.createOrGetSession(httpSession, "queueA"));
+    assertEquals(1, provider.getHttpSessionCount());
+
+    httpSession.invalidate();
+    assertFalse(a.isValid());
+    assertEquals(0, provider.getSessionCount());
+    assertEquals(0, provider.getHttpSessionCount());
+  }
+
+  public void testHttpSessionEndEndsItsQueueSessions() {
+    final HttpSession httpSession = MockHttpSession.createMock();
+    final HttpSession otherHttpSession = MockHttpSession.createMock();
+
+    final QueueSession a = provider.createOrGetSession(httpSession, "queueA");
+    final QueueSession b = provider.createOrGetSession(httpSession, "queueB");
+    final QueueSession c = provider.createOrGetSession(otherHttpSession, "queueA");
+
+    httpSession.invalidate();
+    assertFalse(a.isValid());
+    assertFalse(b.isValid());
+    assertTrue(c.isValid());
+    assertEquals(1, provider.getSessionCount());
+  }
+
+  public void testConcurrentRequestsGetTheSameSession() throws Exception {
+    final HttpSession httpSession = MockHttpSession.createMock();
+    provider.createOrGetSession(httpSession, "warmup");
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Callable<QueueSession>> tasks = new ArrayList<Callable<QueueSession>>();
+      for (int i = 0; i < 64; i++) {
+        tasks.add(new Callable<QueueSession>() {
+          @Override
+          public QueueSession call() {
+            return provider.createOrGetSession(httpSession, "queueA");
+          }
+        });
+      }
+
+      final Set<QueueSession> sessions = new HashSet<QueueSession>();
+      for (final Future<QueueSession> future : executor.invokeAll(tasks)) {
+        sessions.add(future.get());
+      }
+      assertEquals(1, sessions.size());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
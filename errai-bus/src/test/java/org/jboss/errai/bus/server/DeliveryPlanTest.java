@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+
+public class DeliveryPlanTest extends TestCase {
+  private final MessageCallback a = new NoopCallback();
+  private final MessageCallback b = new NoopCallback();
+  private final MessageCallback c = new NoopCallback();
+
+  public void testPlansAreCopiedOnWrite() {
+    final DeliveryPlan first = DeliveryPlan.newDeliveryPlan(a);
+    final DeliveryPlan second = first.newDeliveryPlanWith(b).newDeliveryPlanWith(c);
+
+    assertEquals(1, first.getTotalReceivers());
+    assertEquals(Arrays.asList(a, b, c), second.getDeliverTo());
+  }
+
+  public void testRemoveKeepsOrder() {
+    final DeliveryPlan plan = DeliveryPlan.newDeliveryPlan(a).newDeliveryPlanWith(b).newDeliveryPlanWith(c);
+
+    assertEquals(Arrays.asList(a, c), plan.newDeliveryPlanWithOut(b).getDeliverTo());
+    assertEquals(Arrays.asList(b, c), plan.newDeliveryPlanWithOut(a).getDeliverTo());
+    assertEquals(Arrays.asList(a, b), plan.newDeliveryPlanWithOut(c).getDeliverTo());
+  }
+
+  public void testRemovingAbsentReceiverLeavesPlanUnchanged() {
+    final DeliveryPlan plan = DeliveryPlan.newDeliveryPlan(a).newDeliveryPlanWith(b);
+    final DeliveryPlan removed = plan.newDeliveryPlanWithOut(b);
+
+    assertSame(removed, removed.newDeliveryPlanWithOut(b));
+    assertEquals(Arrays.asList(a), removed.getDeliverTo());
+  }
+
+  private static class NoopCallback implements MessageCallback {
+    @Override
+    public void callback(final Message message) {
+    }
+  }
+}
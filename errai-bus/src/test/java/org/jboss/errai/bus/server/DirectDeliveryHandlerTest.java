@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.HasEncoded;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.io.AbstractByteWriteAdapter;
+import org.jboss.errai.bus.server.io.BinaryQueueChannel;
+import org.jboss.errai.bus.server.io.DirectDeliveryHandler;
+import org.jboss.errai.bus.server.io.MessageDeliveryHandler;
+import org.jboss.errai.bus.server.io.OutboundFrame;
+import org.jboss.errai.bus.server.io.Wakeable;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+
+public class DirectDeliveryHandlerTest extends TestCase {
+  private final MessageQueueImpl queue =
+      new MessageQueueImpl(TransmissionBuffer.create(), MockQueueSessionFactory.newSession(), 90);
+
+  private final FrameChannel channel = new FrameChannel();
+  private final MessageDeliveryHandler handler = DirectDeliveryHandler.createFor(channel);
+
+  public void testBufferedMessagesAreSentAsOneFrame() throws Exception {
+    queue.getBuffer().write("{\"N\":0}", queue.getBufferColor());
+    queue.getBuffer().write("{\"N\":1}", queue.getBufferColor());
+
+    ((Wakeable) handler).onWake(queue);
+
+    assertEquals(1, channel.sent.size());
+    assertEquals("[{\"N\":0},{\"N\":1}]", channel.sent.get(0));
+    assertEquals(0, channel.released);
+  }
+
+  public void testMessageIsEncodedStraightIntoAFrame() throws Exception {
+    assertTrue(handler.deliver(queue, message("{\"V\":\"caf\u00e9 \uD83D\uDE00\"}")));
+
+    assertEquals(1, channel.sent.size());
+    assertEquals("[{\"V\":\"caf\u00e9 \uD83D\uDE00\"}]", channel.sent.get(0));
+    assertEquals(0, channel.released);
+  }
+
+  public void testFrameIsReleasedWhenQueueIsBeingRead() throws Exception {
+    queue.getBuffer().write("{\"N\":0}", queue.getBufferColor());
+
+    final ReentrantLock lock = queue.getBufferColor().getLock();
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    final Thread reader = new Thread() {
+      @Override
+      public void run() {
+        lock.lock();
+        try {
+          locked.countDown();
+          done.await();
+        }
+        catch (InterruptedException e) {
+          // fall through
+        }
+        finally {
+          lock.unlock();
+        }
+      }
+    };
+    reader.start();
+
+    try {
+      assertTrue(locked.await(5, TimeUnit.SECONDS));
+      ((Wakeable) handler).onWake(queue);
+    }
+    finally {
+      done.countDown();
+      reader.join();
+    }
+
+    assertEquals(0, channel.sent.size());
+    assertEquals(1, channel.released);
+  }
+
+  public void testQueueIsNotDrainedWhileChannelIsUnwritable() throws Exception {
+    queue.getBuffer().write("{\"N\":0}", queue.getBufferColor());
+
+    channel.writable = false;
+    ((Wakeable) handler).onWake(queue);
+    assertEquals(0, channel.sent.size());
+
+    channel.writable = true;
+    ((Wakeable) handler).onWake(queue);
+    assertEquals(1, channel.sent.size());
+    assertEquals("[{\"N\":0}]", channel.sent.get(0));
+  }
+
+  public void testMessagesArePagedOutWhileChannelIsUnwritable() throws Exception {
+    // a ring of 64 segments, each of which holds one message.
+    final MessageQueueImpl small =
+        new MessageQueueImpl(TransmissionBuffer.create(32, 64), MockQueueSessionFactory.newSession(), 90);
+
+    channel.writable = false;
+    final StringBuilder expected = new StringBuilder("[");
+    for (int i = 0; i < 200; i++) {
+      assertTrue(handler.deliver(small, message("{\"N\":" + i + "}")));
+      expected.append(i == 0 ? "" : ",").append("{\"N\":").append(i).append("}");
+    }
+    expected.append("]");
+
+    assertEquals(0, channel.sent.size());
+    assertTrue(small.isPaged());
+
+    channel.writable = true;
+    ((Wakeable) handler).onWake(small);
+
+    assertEquals(1, channel.sent.size());
+    assertEquals(expected.toString(), channel.sent.get(0));
+    assertFalse(small.isPaged());
+  }
+
+  private static Message message(final String encoded) {
+    return new EncodedMessage(new HashMap<String, Object>(), encoded);
+  }
+
+  private static class EncodedMessage extends CommandMessage implements HasEncoded {
+    private final String encoded;
+
+    private EncodedMessage(final Map<String, Object> parts, final String encoded) {
+      super(parts, 0);
+      this.encoded = encoded;
+    }
+
+    @Override
+    public String getEncoded() {
+      return encoded;
+    }
+  }
+
+  private static class FrameChannel implements BinaryQueueChannel {
+    private final List<String> sent = new ArrayList<String>();
+    private int released;
+    private volatile boolean writable = true;
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    @Override
+    public boolean isWritable() {
+      return writable;
+    }
+
+    @Override
+    public void write(final String data) {
+      fail("frame was written as a String");
+    }
+
+    @Override
+    public OutboundFrame newFrame() {
+      return new Frame();
+    }
+
+    private class Frame extends AbstractByteWriteAdapter implements OutboundFrame {
+      private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      @Override
+      public void write(final byte b) {
+        out.write(b);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public int size() {
+        return out.size();
+      }
+
+      @Override
+      public void send() {
+        try {
+          sent.add(new String(out.toByteArray(), "UTF-8"));
+        }
+        catch (UnsupportedEncodingException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      @Override
+      public void release() {
+        released++;
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.HasEncoded;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.io.BufferHelper;
+import org.jboss.errai.bus.server.io.EncodedFrame;
+import org.jboss.errai.bus.server.io.OutputStreamWriteAdapter;
+import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+
+public class EncodedFrameTest extends TestCase {
+  static {
+    // make sure the marshalling system has been setup.
+    MappingContextSingleton.get();
+  }
+
+  public void testFrameIsSharedBetweenColors() throws Exception {
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), "cdi.event:Foo");
+    parts.put(MessageParts.CommandType.name(), "CDIEvent");
+    parts.put("Value", "Hello There!");
+
+    final String expected = ErraiProtocol.encodePayload(parts);
+    final EncodedFrame frame = EncodedFrame.encode(parts);
+    assertEquals(expected, frame.getEncoded());
+
+    final TransmissionBuffer buffer = TransmissionBuffer.create();
+    final BufferColor[] colors = new BufferColor[3];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = BufferColor.getNewColorFromHead(buffer);
+
+      final Map<String, Object> routing = new HashMap<String, Object>(parts);
+      routing.put(MessageParts.SessionID.name(), "session" + i);
+
+      final Message message = frame.newMessage(routing);
+      assertTrue(message instanceof HasEncoded);
+      assertEquals("session" + i, message.get(String.class, MessageParts.SessionID));
+
+      BufferHelper.encodeAndWrite(buffer, colors[i], message);
+    }
+
+    for (final BufferColor color : colors) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      buffer.read(new OutputStreamWriteAdapter(out), color);
+      assertEquals(expected, new String(out.toByteArray(), "UTF-8"));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.cluster.ForwardingBatcher;
+
+public class ForwardingBatcherTest extends TestCase {
+  private static final long DELAY_MICROS = 200000;
+
+  public void testMessagesAreSentTogether() throws Exception {
+    final Batches batches = new Batches(1);
+    final ForwardingBatcher<String> batcher = new ForwardingBatcher<String>(batches, DELAY_MICROS, 1024 * 1024);
+
+    for (int i = 0; i < 5; i++) {
+      batcher.add("nodeA", "{\"N\":" + i + "}");
+    }
+    assertTrue(batches.sent.isEmpty());
+
+    assertTrue("batch was not sent", batches.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, batches.sent.size());
+    assertEquals("nodeA:[{\"N\":0},{\"N\":1},{\"N\":2},{\"N\":3},{\"N\":4}]", batches.sent.get(0));
+    assertEquals(5, batcher.getMessageCount());
+    assertEquals(1, batcher.getBatchCount());
+    batcher.stop();
+  }
+
+  public void testBatchIsSentOnceMaxBytesArePending() throws Exception {
+    final Batches batches = new Batches(1);
+    final ForwardingBatcher<String> batcher = new ForwardingBatcher<String>(batches, DELAY_MICROS, 10);
+
+    batcher.add("nodeA", "{\"N\":0}");
+    assertTrue(batches.sent.isEmpty());
+
+    batcher.add("nodeA", "{\"N\":1}");
+    assertEquals(1, batches.sent.size());
+    assertEquals("nodeA:[{\"N\":0},{\"N\":1}]", batches.sent.get(0));
+    batcher.stop();
+  }
+
+  public void testBatchesArePerDestination() throws Exception {
+    final Batches batches = new Batches(2);
+    final ForwardingBatcher<String> batcher = new ForwardingBatcher<String>(batches, DELAY_MICROS, 1024 * 1024);
+
+    batcher.add("nodeA", "{\"N\":0}");
+    batcher.add(null, "{\"N\":1}");
+    batcher.add("nodeA", "{\"N\":2}");
+    batcher.flush();
+
+    assertEquals(2, batches.sent.size());
+    assertTrue(batches.sent.contains("nodeA:[{\"N\":0},{\"N\":2}]"));
+    assertTrue(batches.sent.contains("null:[{\"N\":1}]"));
+    assertEquals(3, batcher.getMessageCount());
+    assertEquals(2, batcher.getBatchCount());
+    batcher.stop();
+  }
+
+  public void testMessagesOfAFailedBatchAreCountedAsLost() throws Exception {
+    final ForwardingBatcher<String> batcher = new ForwardingBatcher<String>(new ForwardingBatcher.Sender<String>() {
+      @Override
+      public void send(final String destination, final String batch) throws Exception {
+        throw new Exception("member is gone");
+      }
+    }, DELAY_MICROS, 1024 * 1024);
+
+    batcher.add("nodeA", "{\"N\":0}");
+    batcher.add("nodeA", "{\"N\":1}");
+    batcher.flush();
+
+    assertEquals(2, batcher.getLostMessageCount());
+    batcher.stop();
+  }
+
+  private static class Batches implements ForwardingBatcher.Sender<String> {
+    private final List<String> sent = new ArrayList<String>();
+    private final CountDownLatch latch;
+
+    private Batches(final int expected) {
+      this.latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public synchronized void send(final String destination, final String batch) {
+      sent.add(destination + ":" + batch);
+      latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.async.TimedTask;
+import org.jboss.errai.bus.server.async.scheduling.HashedTimingWheel;
+
+public class HashedTimingWheelTest extends TestCase {
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(final Runnable command) {
+      command.run();
+    }
+  };
+
+  private HashedTimingWheel wheel;
+
+  @Override
+  protected void setUp() throws Exception {
+    wheel = new HashedTimingWheel(DIRECT, 10, 8);
+    wheel.start();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    wheel.stop();
+  }
+
+  public void testRunnableRunsNoEarlierThanItsDelay() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicLong ranAt = new AtomicLong();
+    final long scheduledAt = System.currentTimeMillis();
+
+    wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        ranAt.set(System.currentTimeMillis());
+        latch.countDown();
+      }
+    }, 50);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(ranAt.get() - scheduledAt >= 50);
+  }
+
+  public void testDelaysBeyondOneRevolution() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long scheduledAt = System.currentTimeMillis();
+
+    // the wheel covers 80ms per revolution.
+    wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    }, 200);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() - scheduledAt >= 200);
+  }
+
+  public void testCancelledRunnableDoesNotRun() throws Exception {
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    final CountDownLatch other = new CountDownLatch(1);
+
+    final TimedTask task = wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        cancelled.countDown();
+      }
+    }, 30);
+    wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        other.countDown();
+      }
+    }, 60);
+    task.cancel(false);
+
+    assertTrue(other.await(5, TimeUnit.SECONDS));
+    assertEquals(1, cancelled.getCount());
+  }
+}
@@ -16,6 +16,7 @@
 
 package org.jboss.errai.bus.server;
 
+import org.jboss.errai.bus.server.cluster.ClusteringProvider;
 import org.jboss.errai.bus.server.cluster.jgroups.JGroupsClusteringProvider;
 import org.jboss.errai.bus.server.service.ErraiConfigAttribs;
 import org.jboss.errai.bus.server.service.ErraiService;
@@ -29,11 +30,16 @@ import org.jboss.errai.bus.server.service.ErraiServiceFactory;
 public class InVMBusUtil {
 
   public static ErraiService startService(final int portOffset) {
+    return startService(portOffset, JGroupsClusteringProvider.class);
+  }
+
+  public static ErraiService startService(final int portOffset,
+                                          final Class<? extends ClusteringProvider> clusteringProvider) {
     final ErraiServiceConfigurator configurator = new ErraiServiceConfiguratorImpl();
     final int port = ErraiConfigAttribs.CLUSTER_PORT.getInt(configurator) + portOffset;
     ErraiConfigAttribs.CLUSTER_PORT.set(configurator, String.valueOf(port));
     ErraiConfigAttribs.ENABLE_CLUSTERING.set(configurator, "true");
-    ErraiConfigAttribs.CLUSTERING_PROVIDER.set(configurator, JGroupsClusteringProvider.class.getName());
+    ErraiConfigAttribs.CLUSTERING_PROVIDER.set(configurator, clusteringProvider.getName());
     ErraiConfigAttribs.AUTO_DISCOVER_SERVICES.set(configurator, "false");
     ErraiConfigAttribs.BUS_BUFFER_SIZE.set(configurator, "2"); // 2 MB
     return ErraiServiceFactory.create(configurator);
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.server.io.BufferHelper;
+import org.jboss.errai.bus.server.io.LazyMessage;
+import org.jboss.errai.bus.server.io.MessageFactory;
+import org.jboss.errai.bus.server.io.OutputStreamWriteAdapter;
+import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+
+public class LazyMessageTest extends TestCase {
+  static {
+    // make sure the marshalling system has been setup.
+    MappingContextSingleton.get();
+  }
+
+  private static String envelope(final String subject, final Object value) {
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), subject);
+    parts.put(MessageParts.CommandType.name(), "Relay");
+    parts.put(MessageParts.Value.name(), value);
+    return ErraiProtocol.encodePayload(parts);
+  }
+
+  private static List<Message> decode(final String json) throws Exception {
+    return MessageFactory.createCommandMessage(MockQueueSessionFactory.newSession(),
+        new ByteArrayInputStream(json.getBytes("UTF-8")));
+  }
+
+  public void testRoutingHeadersAreAvailableWithoutDemarshalling() throws Exception {
+    final String first = envelope("First", Arrays.asList(1, 2, 3));
+    final String second = envelope("Second", "caf\u00e9");
+    final List<Message> messages = decode("[" + first + "," + second + "]");
+
+    assertEquals(2, messages.size());
+    final LazyMessage message = (LazyMessage) messages.get(0);
+    assertEquals("First", message.getSubject());
+    assertEquals("Relay", message.getCommandType());
+    assertTrue(message.hasPart(MessageParts.Value));
+    assertFalse(message.hasPart(MessageParts.SessionID));
+
+    assertEquals(first, new String(message.getRawBytes(), "UTF-8"));
+    assertEquals(second, new String(((LazyMessage) messages.get(1)).getRawBytes(), "UTF-8"));
+
+    // reading a part does not invalidate the raw bytes.
+    assertEquals(Arrays.asList(1, 2, 3), message.get(List.class, MessageParts.Value));
+    assertEquals("caf\u00e9", messages.get(1).get(String.class, MessageParts.Value));
+    assertNotNull(message.getRawBytes());
+  }
+
+  public void testUnmodifiedMessageIsRelayedVerbatim() throws Exception {
+    final String json = envelope("Relayed", 42L);
+    final Message message = decode(json).get(0);
+
+    final TransmissionBuffer buffer = TransmissionBuffer.create();
+    final BufferColor color = BufferColor.getNewColorFromHead(buffer);
+    BufferHelper.encodeAndWrite(buffer, color, message);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    buffer.read(new OutputStreamWriteAdapter(out), color);
+    assertEquals(json, new String(out.toByteArray(), "UTF-8"));
+  }
+
+  public void testSessionIdIsNotRelayed() throws Exception {
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), "Relayed");
+    parts.put(MessageParts.SessionID.name(), "sender-session");
+    parts.put(MessageParts.Value.name(), 42L);
+    final Message message = decode(ErraiProtocol.encodePayload(parts)).get(0);
+
+    assertNull(((LazyMessage) message).getRawBytes());
+
+    final TransmissionBuffer buffer = TransmissionBuffer.create();
+    final BufferColor color = BufferColor.getNewColorFromHead(buffer);
+    BufferHelper.encodeAndWrite(buffer, color, message);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    buffer.read(new OutputStreamWriteAdapter(out), color);
+    final String relayed = new String(out.toByteArray(), "UTF-8");
+    assertFalse(relayed.contains("sender-session"));
+    assertTrue(relayed.contains("Relayed"));
+  }
+
+  public void testLenientEnvelopeIsEncodedAgainForOtherSessions() throws Exception {
+    final String hostile = "{'ToSubject':'Relayed',\"CommandType\":Relay,\"Value\":\"</script>\"}";
+    final Message message = decode("[" + hostile + "]").get(0);
+    assertEquals("Relayed", message.getSubject());
+    assertNull(((LazyMessage) message).getRawBytes());
+
+    final TransmissionBuffer buffer = TransmissionBuffer.create();
+    final BufferColor sender = BufferColor.getNewColorFromHead(buffer);
+    final BufferColor receiver = BufferColor.getNewColorFromHead(buffer);
+    BufferHelper.encodeAndWrite(buffer, receiver, message);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    buffer.read(new OutputStreamWriteAdapter(out), receiver);
+    final String relayed = new String(out.toByteArray(), "UTF-8");
+    assertEquals(ErraiProtocol.encodePayload(message.getParts()), relayed);
+    assertFalse(relayed.contains("'"));
+
+    final ByteArrayOutputStream senderOut = new ByteArrayOutputStream();
+    buffer.read(new OutputStreamWriteAdapter(senderOut), sender);
+    assertEquals(0, senderOut.size());
+  }
+
+  public void testModifiedMessageIsEncodedAgain() throws Exception {
+    final LazyMessage message = (LazyMessage) decode(envelope("Modified", 42L)).get(0);
+    message.set(MessageParts.ReplyTo, "Somewhere");
+
+    assertNull(message.getRawBytes());
+    assertEquals(Long.valueOf(42L), message.get(Long.class, MessageParts.Value));
+    assertEquals("Somewhere", message.get(String.class, MessageParts.ReplyTo));
+    assertEquals("Modified", message.getSubject());
+  }
+}
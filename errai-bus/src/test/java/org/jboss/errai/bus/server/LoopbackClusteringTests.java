@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import org.jboss.errai.bus.server.cluster.ClusteringProvider;
+import org.jboss.errai.bus.server.cluster.loopback.LoopbackClusteringProvider;
+
+/**
+ * Runs the clustering tests with the buses connected in memory instead of through JGroups.
+ */
+public class LoopbackClusteringTests extends ClusteringTests {
+
+  @Override
+  protected Class<? extends ClusteringProvider> getClusteringProvider() {
+    return LoopbackClusteringProvider.class;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.io.BufferDeliveryHandler;
+import org.jboss.errai.bus.server.io.MappedPageStore;
+import org.jboss.errai.bus.server.io.OutputStreamWriteAdapter;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+
+public class MappedPageStoreTest extends TestCase {
+  private static final int SEGMENT_SIZE = 64;
+
+  private File logFile;
+  private MappedPageStore store;
+  private TransmissionBuffer buffer;
+
+  @Override
+  protected void setUp() throws Exception {
+    logFile = File.createTempFile("errai-pages", ".log");
+    store = MappedPageStore.create(logFile, SEGMENT_SIZE);
+    buffer = TransmissionBuffer.create(32, 64);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    store.close();
+    logFile.delete();
+  }
+
+  public void testSharedStoreHasALogOfItsOwn() throws Exception {
+    final File first = MappedPageStore.getInstance().getLogFile();
+    assertTrue(first.exists());
+
+    MappedPageStore.shutdown();
+    assertFalse(first.exists());
+
+    final File second = MappedPageStore.getInstance().getLogFile();
+    try {
+      assertFalse(first.equals(second));
+    }
+    finally {
+      MappedPageStore.shutdown();
+    }
+  }
+
+  public void testPageOutAndReplay() throws Exception {
+    final MessageQueue queue = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+    final MessageQueue other = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+
+    write(queue, "{\"Value\":\"first message for the paged queue\"}");
+    write(other, "{\"Value\":\"not for the paged queue\"}");
+    write(queue, "{\"Value\":\"second message for the paged queue\"}");
+
+    assertTrue(store.pageOut(queue));
+    assertTrue(queue.isPaged());
+    assertFalse(other.isPaged());
+
+    // the paged data spans more than one segment of the log.
+    assertTrue(store.getPagedBytes(queue) > SEGMENT_SIZE);
+    assertFalse(store.pageOut(queue));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertTrue(store.replay(queue, new OutputStreamWriteAdapter(out), null));
+    assertEquals("{\"Value\":\"first message for the paged queue\"}{\"Value\":\"second message for the paged queue\"}",
+        new String(out.toByteArray(), "UTF-8"));
+
+    assertFalse(queue.isPaged());
+    assertEquals(0, store.getPagedBytes(queue));
+    assertFalse(store.replay(queue, new OutputStreamWriteAdapter(new ByteArrayOutputStream()), null));
+  }
+
+  public void testSegmentsAreReclaimed() throws Exception {
+    final MessageQueue queue = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+
+    for (int i = 0; i < 10; i++) {
+      write(queue, "{\"Value\":\"a message which is paged out and replayed\"}");
+      assertTrue(store.pageOut(queue));
+      store.replay(queue, new OutputStreamWriteAdapter(new ByteArrayOutputStream()), null);
+    }
+
+    assertEquals(1, store.getMappedSegments());
+  }
+
+  public void testDiscard() throws Exception {
+    final MessageQueue queue = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+
+    store.append(queue, new ByteArrayInputStream("{\"Value\":\"appended\"}".getBytes("UTF-8")));
+    assertTrue(queue.isPaged());
+
+    store.discard(queue);
+    assertFalse(queue.isPaged());
+    assertEquals(0, store.getPagedBytes(queue));
+  }
+
+  public void testLongPollReturnsPagedDataWithoutWaiting() throws Exception {
+    final MessageQueue queue = new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90);
+
+    write(queue, "{\"Value\":\"paged while the client was away\"}");
+    assertTrue(BufferDeliveryHandler.getInstance().pageOut(queue));
+    assertTrue(queue.isPaged());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final long start = System.nanoTime();
+    assertTrue(queue.poll(TimeUnit.SECONDS, 10, new OutputStreamWriteAdapter(out)));
+    assertTrue("poll waited for the timeout", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+    assertEquals("[{\"Value\":\"paged while the client was away\"}]", new String(out.toByteArray(), "UTF-8"));
+    assertFalse(queue.isPaged());
+  }
+
+  private void write(final MessageQueue queue, final String data) throws Exception {
+    final byte[] bytes = data.getBytes("UTF-8");
+    buffer.write(bytes.length, new ByteArrayInputStream(bytes), queue.getBufferColor());
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.io.MethodInvoker;
+
+public class MethodInvokerTest extends TestCase {
+
+  public static class Service {
+    public String none() {
+      return "none";
+    }
+
+    public String one(final String s) {
+      return "one:" + s;
+    }
+
+    public long sum(final int a, final long b, final double c) {
+      return a + b + (long) c;
+    }
+
+    public String five(final String a, final String b, final String c, final String d, final int e) {
+      return a + b + c + d + e;
+    }
+
+    public void fail(final String message) {
+      throw new IllegalStateException(message);
+    }
+
+    public static String twice(final String s) {
+      return s + s;
+    }
+
+    private String hidden() {
+      return "hidden";
+    }
+  }
+
+  private final Service service = new Service();
+
+  public void testFixedArities() throws Exception {
+    assertTrue(invoker("none").isMethodHandle());
+    assertEquals("none", invoker("none").invoke(service));
+    assertEquals("none", invoker("none").invoke(service, Collections.emptyList()));
+    assertEquals("one:x", invoker("one", String.class).invoke(service, "x"));
+    assertEquals("one:y", invoker("one", String.class).invoke(service, Collections.singletonList("y")));
+    assertEquals(6L, invoker("sum", int.class, long.class, double.class).invoke(service, Arrays.asList(1, 2L, 3d)));
+  }
+
+  public void testSpreadArguments() throws Exception {
+    assertEquals("abcd5", invoker("five", String.class, String.class, String.class, String.class, int.class)
+        .invoke(service, Arrays.<Object>asList("a", "b", "c", "d", 5)));
+  }
+
+  public void testStaticAndPrivateMethods() throws Exception {
+    assertEquals("zz", invoker("twice", String.class).invoke(null, "z"));
+    assertEquals("hidden", invoker("hidden").invoke(service));
+  }
+
+  public void testBoxedNumbersAreWidened() throws Exception {
+    final MethodInvoker sum = invoker("sum", int.class, long.class, double.class);
+    assertEquals(6L, sum.invoke(service, Arrays.<Object>asList((short) 1, 2, 3f)));
+    assertEquals(100L, sum.invoke(service, Arrays.<Object>asList('a', (byte) 2, 1L)));
+  }
+
+  public void testIllegalArgumentsAreRejected() throws Exception {
+    final MethodInvoker sum = invoker("sum", int.class, long.class, double.class);
+    assertIllegalArguments(sum, 1L, 2L, 3d);
+    assertIllegalArguments(sum, null, 2L, 3d);
+    assertIllegalArguments(sum, "1", 2L, 3d);
+    assertIllegalArguments(sum, 1, 2L);
+    assertIllegalArguments(invoker("one", String.class), 1);
+  }
+
+  public void testExceptionsOfTheMethodAreWrapped() throws Exception {
+    try {
+      invoker("fail", String.class).invoke(service, "boom");
+      fail("exception was not thrown");
+    }
+    catch (InvocationTargetException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertEquals("boom", e.getCause().getMessage());
+    }
+  }
+
+  private void assertIllegalArguments(final MethodInvoker invoker, final Object... args) throws Exception {
+    try {
+      invoker.invoke(service, Arrays.asList(args));
+      fail("illegal arguments were accepted: " + Arrays.toString(args));
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static MethodInvoker invoker(final String name, final Class<?>... parameterTypes) throws Exception {
+    return MethodInvoker.forMethod(Service.class.getDeclaredMethod(name, parameterTypes));
+  }
+}
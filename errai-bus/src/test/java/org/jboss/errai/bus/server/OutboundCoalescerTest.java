@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.HasEncoded;
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.server.api.MessageQueue;
+import org.jboss.errai.bus.server.api.QueueActivationCallback;
+import org.jboss.errai.bus.server.io.CoalescingPolicy;
+import org.jboss.errai.bus.server.io.OutputStreamWriteAdapter;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+import org.jboss.errai.common.client.protocols.MessageParts;
+
+public class OutboundCoalescerTest extends TestCase {
+  private static final long DELAY_MICROS = 200000;
+
+  private final TransmissionBuffer buffer = TransmissionBuffer.create();
+
+  public void testMessagesAreFlushedTogether() throws Exception {
+    final MessageQueueImpl queue = newQueue(1024 * 1024);
+    final Activations activations = new Activations(1);
+    queue.setActivationCallback(activations);
+
+    for (int i = 0; i < 10; i++) {
+      queue.offer(message("Foo", i));
+    }
+    assertEquals(0, activations.count.get());
+
+    assertTrue("queue was not flushed", activations.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, activations.count.get());
+    assertEquals(10, queue.getCoalescer().getMessageCount());
+    assertEquals(1, queue.getCoalescer().getFlushCount());
+    assertFalse("flushed on the timer thread", "OutboundCoalescer".equals(activations.thread.getName()));
+
+    assertEquals("[{\"N\":0},{\"N\":1},{\"N\":2},{\"N\":3},{\"N\":4},{\"N\":5},{\"N\":6},{\"N\":7},{\"N\":8},{\"N\":9}]",
+        activations.polled);
+  }
+
+  public void testFlushOnceMaxBytesArePending() throws Exception {
+    final MessageQueueImpl queue = newQueue(10);
+    final Activations activations = new Activations(1);
+    queue.setActivationCallback(activations);
+
+    queue.offer(message("Foo", 0));
+    assertEquals(0, activations.count.get());
+
+    queue.offer(message("Foo", 1));
+    assertEquals(1, activations.count.get());
+    assertEquals("[{\"N\":0},{\"N\":1}]", activations.polled);
+  }
+
+  public void testExemptSubjectIsNotHeldBack() throws Exception {
+    final MessageQueueImpl queue = newQueue(1024 * 1024);
+    final Activations activations = new Activations(1);
+    queue.setActivationCallback(activations);
+
+    queue.offer(message("Foo", 0));
+    assertEquals(0, activations.count.get());
+
+    queue.offer(message("Urgent", 1));
+    assertTrue(activations.count.get() > 0);
+    assertEquals("[{\"N\":0},{\"N\":1}]", activations.polled);
+  }
+
+  private MessageQueueImpl newQueue(final int maxBytes) {
+    return new MessageQueueImpl(buffer, MockQueueSessionFactory.newSession(), 90,
+        new CoalescingPolicy(DELAY_MICROS, maxBytes, Collections.singleton("Urgent")));
+  }
+
+  private static CommandMessage message(final String subject, final int n) {
+    final Map<String, Object> parts = new HashMap<String, Object>();
+    parts.put(MessageParts.ToSubject.name(), subject);
+    return new EncodedMessage(parts, "{\"N\":" + n + "}");
+  }
+
+  private static class EncodedMessage extends CommandMessage implements HasEncoded {
+    private final String encoded;
+
+    private EncodedMessage(final Map<String, Object> parts, final String encoded) {
+      super(parts, 0);
+      this.encoded = encoded;
+    }
+
+    @Override
+    public String getEncoded() {
+      return encoded;
+    }
+  }
+
+  private static class Activations implements QueueActivationCallback {
+    private final AtomicInteger count = new AtomicInteger();
+    private final CountDownLatch latch;
+    private volatile String polled;
+    private volatile Thread thread;
+
+    private Activations(final int expected) {
+      this.latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void activate(final MessageQueue queue) {
+      try {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queue.poll(new OutputStreamWriteAdapter(out));
+        polled = new String(out.toByteArray(), "UTF-8");
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      thread = Thread.currentThread();
+      count.incrementAndGet();
+      latch.countDown();
+    }
+  }
+}
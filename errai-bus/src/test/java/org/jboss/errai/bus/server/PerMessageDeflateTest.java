@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.io.websockets.PerMessageDeflate;
+
+public class PerMessageDeflateTest extends TestCase {
+  private static final String MESSAGE = "[{\"ToSubject\":\"ClientBus\",\"CommandType\":\"RemoteSubscribe\","
+      + "\"Value\":{\"^EncodedType\":\"org.jboss.errai.demo.client.shared.Message\",\"^ObjectID\":\"1\"}}]";
+
+  public void testNegotiation() {
+    assertNull(PerMessageDeflate.negotiate(null));
+    assertNull(PerMessageDeflate.negotiate("x-webkit-deflate-frame"));
+    assertEquals("permessage-deflate", PerMessageDeflate.negotiate("permessage-deflate; client_max_window_bits"));
+    assertEquals("permessage-deflate; server_no_context_takeover",
+        PerMessageDeflate.negotiate("permessage-deflate; server_no_context_takeover"));
+
+    // a smaller server window cannot be honoured, so the next offer is picked.
+    assertEquals("permessage-deflate",
+        PerMessageDeflate.negotiate("permessage-deflate; server_max_window_bits=10, permessage-deflate"));
+    assertEquals("permessage-deflate; server_max_window_bits=15",
+        PerMessageDeflate.negotiate("permessage-deflate; server_max_window_bits=15"));
+    assertNull(PerMessageDeflate.negotiate("permessage-deflate; unknown_param"));
+  }
+
+  public void testRoundTripWithContextTakeover() throws Exception {
+    final PerMessageDeflate server = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, true, 65536);
+    final Inflater client = new Inflater(true);
+
+    final byte[] data = MESSAGE.getBytes("UTF-8");
+    final byte[] first = server.compress(data);
+    final byte[] second = server.compress(data);
+
+    assertEquals(MESSAGE, new String(inflate(client, first), "UTF-8"));
+    assertEquals(MESSAGE, new String(inflate(client, second), "UTF-8"));
+
+    // the second message refers back to the first.
+    assertTrue(second.length < first.length / 2);
+    server.end();
+  }
+
+  public void testNoContextTakeover() throws Exception {
+    final PerMessageDeflate server = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, false, 65536);
+    final byte[] data = MESSAGE.getBytes("UTF-8");
+
+    final byte[] first = server.compress(data);
+    final byte[] second = server.compress(data);
+
+    // each message can be decompressed on its own.
+    assertEquals(MESSAGE, new String(inflate(new Inflater(true), second), "UTF-8"));
+    assertEquals(first.length, second.length);
+    server.end();
+  }
+
+  public void testDecompressClientMessages() throws Exception {
+    final PerMessageDeflate server = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, true, 65536);
+    final PerMessageDeflate client = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, true, 65536);
+
+    for (int i = 0; i < 3; i++) {
+      final String message = MESSAGE + i;
+      assertEquals(message, new String(server.decompress(client.compress(message.getBytes("UTF-8"))), "UTF-8"));
+    }
+    server.end();
+    client.end();
+  }
+
+  public void testDecompressedSizeIsLimited() throws Exception {
+    final PerMessageDeflate server = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, true, 1024);
+    final PerMessageDeflate client = new PerMessageDeflate(Deflater.DEFAULT_COMPRESSION, true, 65536);
+
+    try {
+      server.decompress(client.compress(new byte[4096]));
+      fail("decompressed message should have been rejected");
+    }
+    catch (DataFormatException e) {
+      // expected
+    }
+    server.end();
+    client.end();
+  }
+
+  private static byte[] inflate(final Inflater inflater, final byte[] message) throws DataFormatException {
+    final byte[] input = new byte[message.length + 4];
+    System.arraycopy(message, 0, input, 0, message.length);
+    input[message.length + 2] = (byte) 0xFF;
+    input[message.length + 3] = (byte) 0xFF;
+    inflater.setInput(input);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buf = new byte[1024];
+    int n;
+    while ((n = inflater.inflate(buf)) > 0) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.cluster.SessionOwnershipDirectory;
+
+public class SessionOwnershipDirectoryTest extends TestCase {
+
+  public void testLookupOfOwnedSession() {
+    final SessionOwnershipDirectory<String> directory = new SessionOwnershipDirectory<String>(10);
+    directory.owned("session1", "nodeA");
+    directory.owned("session2", "nodeB");
+
+    assertEquals("nodeA", directory.lookup("session1"));
+    assertEquals("nodeB", directory.lookup("session2"));
+    assertNull(directory.lookup("session3"));
+  }
+
+  public void testReleaseOnlyByCurrentOwner() {
+    final SessionOwnershipDirectory<String> directory = new SessionOwnershipDirectory<String>(10);
+    directory.owned("session1", "nodeA");
+    directory.owned("session1", "nodeB");
+
+    directory.released("session1", "nodeA");
+    assertEquals("nodeB", directory.lookup("session1"));
+
+    directory.released("session1", "nodeB");
+    assertNull(directory.lookup("session1"));
+  }
+
+  public void testRetainMembersForgetsDepartedNodes() {
+    final SessionOwnershipDirectory<String> directory = new SessionOwnershipDirectory<String>(10);
+    directory.owned("session1", "nodeA");
+    directory.owned("session2", "nodeB");
+    directory.owned("session3", "nodeC");
+
+    directory.retainMembers(Arrays.asList("nodeA", "nodeC"));
+
+    assertEquals("nodeA", directory.lookup("session1"));
+    assertNull(directory.lookup("session2"));
+    assertEquals("nodeC", directory.lookup("session3"));
+    assertEquals(2, directory.size());
+  }
+
+  public void testDirectoryIsBounded() {
+    final SessionOwnershipDirectory<String> directory = new SessionOwnershipDirectory<String>(100);
+    for (int i = 0; i < 1000; i++) {
+      directory.owned("session" + i, "nodeA");
+    }
+
+    assertTrue(directory.size() <= 100);
+    assertEquals("nodeA", directory.lookup("session999"));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.io.OutputStreamWriteAdapter;
+import org.jboss.errai.bus.server.io.buffers.BufferColor;
+import org.jboss.errai.bus.server.io.buffers.ShardedTransmissionBuffer;
+import org.jboss.errai.bus.server.io.buffers.TransmissionBuffer;
+
+public class ShardedTransmissionBufferTest extends TestCase {
+  private final ShardedTransmissionBuffer buffer = ShardedTransmissionBuffer.create(4, 32, 64);
+
+  public void testColorsAreSpreadOverShards() {
+    final Set<TransmissionBuffer> used = new HashSet<TransmissionBuffer>();
+    for (int i = 0; i < 4; i++) {
+      used.add(buffer.shardFor(buffer.newColorFromHead()));
+    }
+    assertEquals(4, used.size());
+  }
+
+  public void testColorsAreIsolated() throws IOException {
+    final BufferColor[] colors = newColors(8);
+
+    for (int i = 0; i < colors.length; i++) {
+      buffer.write("color" + i, colors[i]);
+    }
+
+    for (int i = 0; i < colors.length; i++) {
+      assertEquals("color" + i, read(colors[i]));
+      assertEquals("", read(colors[i]));
+    }
+  }
+
+  public void testBroadcastIsVisibleInEveryShard() throws IOException {
+    final BufferColor[] colors = newColors(8);
+
+    buffer.write("one", BufferColor.getAllBuffersColor());
+    buffer.write(3, new ByteArrayInputStream("two".getBytes()), BufferColor.getAllBuffersColor());
+
+    for (final BufferColor color : colors) {
+      buffer.write("mine", color);
+    }
+
+    for (final BufferColor color : colors) {
+      assertEquals("onetwomine", read(color));
+    }
+  }
+
+  public void testHeadIsThatOfTheColorsShard() throws IOException {
+    final BufferColor[] colors = newColors(2);
+    assertNotSame(buffer.shardFor(colors[0]), buffer.shardFor(colors[1]));
+
+    buffer.write("data for the first color", colors[0]);
+
+    assertEquals(buffer.shardFor(colors[0]).getHeadSequence(), buffer.getHeadSequence(colors[0]));
+    assertEquals(buffer.shardFor(colors[1]).getHeadSequence(), buffer.getHeadSequence(colors[1]));
+    assertTrue(buffer.getHeadSequence(colors[0]) > buffer.getHeadSequence(colors[1]));
+    assertEquals(buffer.shardFor(colors[0]).getHeadPositionBytes(), buffer.getHeadPositionBytes(colors[0]));
+  }
+
+  public void testSingleShardBehavesLikeTransmissionBuffer() throws IOException {
+    final ShardedTransmissionBuffer single = ShardedTransmissionBuffer.create(1, 32, 64);
+    final BufferColor color = single.newColorFromHead();
+
+    single.write("global", BufferColor.getAllBuffersColor());
+    single.write("local", color);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    single.shardFor(color).read(new OutputStreamWriteAdapter(out), color);
+    assertEquals("globallocal", new String(out.toByteArray(), "UTF-8"));
+    assertEquals(32 * 64, single.getBufferSize());
+  }
+
+  private BufferColor[] newColors(final int count) {
+    final BufferColor[] colors = new BufferColor[count];
+    for (int i = 0; i < count; i++) {
+      colors[i] = buffer.newColorFromHead();
+    }
+    return colors;
+  }
+
+  private String read(final BufferColor color) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    buffer.read(new OutputStreamWriteAdapter(out), color);
+    return new String(out.toByteArray(), "UTF-8");
+  }
+}
@@ -80,6 +80,30 @@ public class TransmissionBufferTests extends TestCase {
     }
   }
 
+  public void testCharSequenceWriteAcrossBufferBoundary() throws IOException {
+    final TransmissionBuffer buffer = TransmissionBuffer.create(16, 8);
+    final BufferColor color = BufferColor.getNewColor();
+
+    final String[] samples = {
+        "plain ascii",
+        "{\"Value\":\"h\u00e9llo w\u00f6rld \u20ac \ud83d\ude00\"}",
+        "unpaired \ud800 surrogate",
+        "\u4e2d\u6587\u4e2d\u6587\u4e2d\u6587\u4e2d\u6587"
+    };
+
+    // cycle a few times so the encoded data wraps around the end of the buffer.
+    for (int i = 0; i < 10; i++) {
+      for (final String s : samples) {
+        final ByteArrayOutputStream bOutputStream = new ByteArrayOutputStream();
+
+        buffer.write(s, color);
+        buffer.read(new OutputStreamWriteAdapter(bOutputStream), color);
+
+        assertEquals(new String(s.getBytes("UTF-8"), "UTF-8"), new String(bOutputStream.toByteArray(), "UTF-8"));
+      }
+    }
+  }
+
   public void testBufferCycle() throws IOException {
     final TransmissionBuffer buffer = TransmissionBuffer.create(10, 10);
 
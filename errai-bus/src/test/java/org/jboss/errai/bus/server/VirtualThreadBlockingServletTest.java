@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.mock.MockErraiService;
+import org.jboss.errai.bus.server.servlet.VirtualThreadBlockingServlet;
+
+public class VirtualThreadBlockingServletTest extends TestCase {
+  private final List<String> events = new CopyOnWriteArrayList<String>();
+  private final CountDownLatch completed = new CountDownLatch(1);
+
+  private volatile Thread pollThread;
+
+  private final VirtualThreadBlockingServlet servlet = new VirtualThreadBlockingServlet() {
+    {
+      service = new MockErraiService<Object>();
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
+      pollThread = Thread.currentThread();
+      events.add("poll");
+    }
+  };
+
+  @Override
+  protected void tearDown() throws Exception {
+    servlet.destroy();
+  }
+
+  /**
+   * Returns a proxy which records the methods called on it, and answers the calls the specified handler does not.
+   */
+  private <T> T recording(final Class<T> type, final InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            events.add(method.getName());
+            final Object result = handler != null ? handler.invoke(proxy, method, args) : null;
+            if (result == null && method.getReturnType() == boolean.class) {
+              return false;
+            }
+            if (result == null && method.getReturnType() == long.class) {
+              return -1L;
+            }
+            if (result == null && method.getReturnType() == int.class) {
+              return 0;
+            }
+            return result;
+          }
+        }));
+  }
+
+  private HttpServletRequest request(final boolean asyncSupported) {
+    final HttpServletResponse response = recording(HttpServletResponse.class, null);
+
+    final HttpServletRequest[] request = new HttpServletRequest[1];
+    final AsyncContext asyncContext = recording(AsyncContext.class, new InvocationHandler() {
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if (method.getName().equals("getRequest")) {
+          return request[0];
+        }
+        else if (method.getName().equals("getResponse")) {
+          return response;
+        }
+        else if (method.getName().equals("complete")) {
+          completed.countDown();
+        }
+        return null;
+      }
+    });
+
+    request[0] = recording(HttpServletRequest.class, new InvocationHandler() {
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if (method.getName().equals("getMethod")) {
+          return "GET";
+        }
+        else if (method.getName().equals("isAsyncSupported")) {
+          return asyncSupported;
+        }
+        else if (method.getName().equals("startAsync")) {
+          return asyncContext;
+        }
+        return null;
+      }
+    });
+    return request[0];
+  }
+
+  public void testPollIsServedOffTheContainerThread() throws Exception {
+    servlet.service(request(true), recording(HttpServletResponse.class, null));
+
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+    assertNotNull(pollThread);
+    assertNotSame(Thread.currentThread(), pollThread);
+
+    // the async context never times out, and is only completed once the poll has been served.
+    assertTrue(events.contains("setTimeout"));
+    assertTrue(events.indexOf("poll") < events.lastIndexOf("complete"));
+  }
+
+  public void testPollIsServedInlineWithoutAsyncSupport() throws Exception {
+    servlet.service(request(false), recording(HttpServletResponse.class, null));
+
+    assertSame(Thread.currentThread(), pollThread);
+    assertFalse(events.contains("startAsync"));
+    assertFalse(events.contains("complete"));
+  }
+
+  public void testPollAfterDestroyIsCompleted() throws Exception {
+    servlet.destroy();
+    servlet.service(request(true), recording(HttpServletResponse.class, null));
+
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+    assertNull(pollThread);
+  }
+}
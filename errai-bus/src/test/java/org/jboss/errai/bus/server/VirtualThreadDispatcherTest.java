@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.client.api.base.CommandMessage;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
+import org.jboss.errai.bus.server.async.scheduling.EventLoopThreads;
+import org.jboss.errai.common.client.api.ErrorCallback;
+
+public class VirtualThreadDispatcherTest extends TestCase {
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger delivered = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+
+  private VirtualThreadDispatcher dispatcher;
+
+  @Override
+  protected void tearDown() throws Exception {
+    release.countDown();
+    if (dispatcher != null) {
+      dispatcher.shutdown();
+    }
+  }
+
+  /**
+   * Returns a bus on which every delivery blocks until {@link #release} is counted down.
+   */
+  private MessageBus blockingBus() {
+    return (MessageBus) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { MessageBus.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getName().startsWith("send")) {
+              release.await(10, TimeUnit.SECONDS);
+              delivered.incrementAndGet();
+            }
+            else if (method.getName().equals("toString")) {
+              return "BlockingBus";
+            }
+            return null;
+          }
+        });
+  }
+
+  private Message message(final String subject) {
+    return CommandMessage.create().toSubject(subject).errorsCall(new ErrorCallback<Message>() {
+      @Override
+      public boolean error(final Message message, final Throwable throwable) {
+        failed.incrementAndGet();
+        return false;
+      }
+    });
+  }
+
+  private void awaitDelivered(final int count) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (delivered.get() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, delivered.get());
+  }
+
+  public void testEventLoopIsNotBlockedAtTheConcurrencyLimit() throws Exception {
+    dispatcher = new VirtualThreadDispatcher(blockingBus(), 1, 10000);
+    dispatcher.dispatchGlobal(message("Busy"));
+
+    EventLoopThreads.enter();
+    try {
+      final long start = System.nanoTime();
+      dispatcher.dispatchGlobal(message("Busy"));
+      assertTrue("event loop was blocked", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+    finally {
+      EventLoopThreads.exit();
+    }
+    assertEquals(1, failed.get());
+
+    release.countDown();
+    awaitDelivered(1);
+  }
+
+  public void testCallerWaitsForAPermitOffTheEventLoop() throws Exception {
+    dispatcher = new VirtualThreadDispatcher(blockingBus(), 1, 10000);
+    dispatcher.dispatchGlobal(message("Busy"));
+
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        }
+        catch (InterruptedException e) {
+          // fall through and release the delivery.
+        }
+        release.countDown();
+      }
+    }.start();
+
+    dispatcher.dispatchGlobal(message("Busy"));
+    awaitDelivered(2);
+    assertEquals(0, failed.get());
+  }
+
+  public void testCallerFailsAfterTheBackpressureTimeout() throws Exception {
+    dispatcher = new VirtualThreadDispatcher(blockingBus(), 1, 50);
+    dispatcher.dispatchGlobal(message("Busy"));
+    dispatcher.dispatchGlobal(message("Busy"));
+
+    assertEquals(1, failed.get());
+  }
+
+  public void testPermitsOfIdleSubjectsAreDiscarded() throws Exception {
+    dispatcher = new VirtualThreadDispatcher(blockingBus(), 4, 10000);
+    for (int i = 0; i < 100; i++) {
+      dispatcher.dispatchGlobal(message("Subject" + i));
+    }
+    assertEquals(100, dispatcher.getTrackedSubjectCount());
+
+    release.countDown();
+    awaitDelivered(100);
+
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (dispatcher.getTrackedSubjectCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, dispatcher.getTrackedSubjectCount());
+  }
+}
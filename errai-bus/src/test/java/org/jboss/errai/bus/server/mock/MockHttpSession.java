@@ -20,6 +20,8 @@ import org.jboss.errai.bus.server.util.SecureHashUtil;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
 import javax.servlet.http.HttpSessionContext;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -31,7 +33,7 @@ import java.util.Map;
  */
 public class MockHttpSession implements HttpSession{
   private final long creationTime;
-  private final String sessionId;
+  private String sessionId;
   private final long lastAccessedTime;
   
   private final Map<String, Object> attributeMap;
@@ -51,6 +53,14 @@ public class MockHttpSession implements HttpSession{
     return new MockHttpSession();
   }
 
+  /**
+   * Assigns a new id to this session, as {@code HttpServletRequest.changeSessionId()} does.
+   */
+  public String changeSessionId() {
+    sessionId = SecureHashUtil.nextSecureHash("SHA-1");
+    return sessionId;
+  }
+
   @Override
   public long getCreationTime() {
     return creationTime;
@@ -140,6 +150,15 @@ public class MockHttpSession implements HttpSession{
   @Override
   public void invalidate() {
     valid = false;
+
+    final Map<String, Object> unbound = new HashMap<String, Object>(attributeMap);
+    attributeMap.clear();
+    for (Map.Entry<String, Object> entry : unbound.entrySet()) {
+      if (entry.getValue() instanceof HttpSessionBindingListener) {
+        ((HttpSessionBindingListener) entry.getValue())
+            .valueUnbound(new HttpSessionBindingEvent(this, entry.getKey(), entry.getValue()));
+      }
+    }
   }
 
   @Override
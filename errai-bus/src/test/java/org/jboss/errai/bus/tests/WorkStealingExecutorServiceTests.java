@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.bus.tests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService;
+import org.jboss.errai.bus.server.async.scheduling.PooledExecutorService.SaturationPolicy;
+import org.jboss.errai.bus.server.async.scheduling.TaskExecutor;
+import org.jboss.errai.bus.server.async.scheduling.WorkStealingExecutorService;
+import org.jboss.errai.common.client.api.tasks.AsyncTask;
+import org.jboss.errai.common.client.util.TimeUnit;
+
+public class WorkStealingExecutorServiceTests extends TestCase {
+  private WorkStealingExecutorService svc;
+
+  @Override
+  protected void setUp() throws Exception {
+    svc = new WorkStealingExecutorService(100000, 4, SaturationPolicy.CallerRuns);
+    svc.start();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    svc.requestStop();
+  }
+
+  public void testExecuteFromManyThreads() throws Exception {
+    final int producers = 4;
+    final int tasksPerProducer = 10000;
+    final AtomicInteger counter = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+
+    for (int p = 0; p < producers; p++) {
+      new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < tasksPerProducer; i++) {
+            svc.execute(new Runnable() {
+              @Override
+              public void run() {
+                counter.incrementAndGet();
+                done.countDown();
+              }
+            });
+          }
+        }
+      }.start();
+    }
+
+    assertTrue("tasks did not complete", done.await(30, java.util.concurrent.TimeUnit.SECONDS));
+    assertEquals(producers * tasksPerProducer, counter.get());
+  }
+
+  public void testSaturationRunsInCaller() throws Exception {
+    final WorkStealingExecutorService small = new WorkStealingExecutorService(1, 1, SaturationPolicy.CallerRuns);
+    small.start();
+    try {
+      final CountDownLatch release = new CountDownLatch(1);
+      final Thread caller = Thread.currentThread();
+      final Thread[] ranOn = new Thread[1];
+
+      // occupy the only worker, and fill the queue.
+      small.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            release.await();
+          }
+          catch (InterruptedException e) {
+            // ignore
+          }
+        }
+      });
+      while (small.getQueuedTaskCount() != 0) {
+        Thread.sleep(1);
+      }
+      small.execute(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+
+      small.execute(new Runnable() {
+        @Override
+        public void run() {
+          ranOn[0] = Thread.currentThread();
+        }
+      });
+      assertSame(caller, ranOn[0]);
+      release.countDown();
+    }
+    finally {
+      small.requestStop();
+    }
+  }
+
+  public void testDelayedTask() throws Exception {
+    final CountDownLatch fired = new CountDownLatch(1);
+    final long scheduledAt = System.currentTimeMillis();
+    final long[] firedAt = new long[1];
+
+    svc.schedule(new Runnable() {
+      @Override
+      public void run() {
+        firedAt[0] = System.currentTimeMillis();
+        fired.countDown();
+      }
+    }, TimeUnit.MILLISECONDS, 200);
+
+    assertTrue("delayed task did not fire", fired.await(5, java.util.concurrent.TimeUnit.SECONDS));
+    assertTrue("delayed task fired early", firedAt[0] - scheduledAt >= 200);
+  }
+
+  public void testCancelledDelayedTaskDoesNotFire() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    final AsyncTask task = svc.schedule(new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    }, TimeUnit.MILLISECONDS, 100);
+
+    task.cancel(false);
+    Thread.sleep(300);
+    assertEquals(0, runs.get());
+  }
+
+  public void testRepeatingTask() throws Exception {
+    final CountDownLatch fiveRuns = new CountDownLatch(5);
+    final AtomicInteger runs = new AtomicInteger();
+
+    final AsyncTask task = svc.scheduleRepeating(new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+        fiveRuns.countDown();
+      }
+    }, TimeUnit.MILLISECONDS, 0, 20);
+
+    assertTrue("repeating task did not repeat", fiveRuns.await(5, java.util.concurrent.TimeUnit.SECONDS));
+    task.cancel(false);
+
+    Thread.sleep(100);
+    final int afterCancel = runs.get();
+    Thread.sleep(200);
+    assertEquals(afterCancel, runs.get());
+  }
+
+  /**
+   * Compares the throughput of this executor against the {@link PooledExecutorService}. Not run by default.
+   */
+  public void notestThroughputAgainstPooledExecutor() throws Exception {
+    final PooledExecutorService pooled = new PooledExecutorService(100000, SaturationPolicy.CallerRuns);
+    pooled.start();
+
+    for (int i = 0; i < 5; i++) {
+      System.out.println("(pooled)        tasks/sec: " + measure(pooled));
+      System.out.println("(work-stealing) tasks/sec: " + measure(svc));
+    }
+    pooled.requestStop();
+  }
+
+  private static long measure(final TaskExecutor executor) throws Exception {
+    final int producers = Runtime.getRuntime().availableProcessors();
+    final int tasksPerProducer = 200000;
+    final CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+    final Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        done.countDown();
+      }
+    };
+
+    final long start = System.nanoTime();
+    for (int p = 0; p < producers; p++) {
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < tasksPerProducer; i++) {
+              executor.execute(task);
+            }
+          }
+          catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }.start();
+    }
+    done.await();
+
+    return (long) (producers * tasksPerProducer / ((System.nanoTime() - start) / 1e9));
+  }
+}
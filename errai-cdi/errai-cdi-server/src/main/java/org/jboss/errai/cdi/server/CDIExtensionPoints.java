@@ -55,6 +55,8 @@ import org.jboss.errai.bus.client.api.messaging.RequestDispatcher;
 import org.jboss.errai.bus.server.AsyncDispatcher;
 import org.jboss.errai.bus.server.ServerMessageBusImpl;
 import org.jboss.errai.bus.server.SimpleDispatcher;
+import org.jboss.errai.bus.server.VirtualThreadDispatcher;
+import org.jboss.errai.bus.server.WorkStealingDispatcher;
 import org.jboss.errai.bus.server.annotations.Remote;
 import org.jboss.errai.bus.server.annotations.Service;
 import org.jboss.errai.bus.server.io.RPCEndpointFactory;
@@ -138,9 +140,12 @@ public class CDIExtensionPoints implements Extension {
 
     final String dispatchImplKey = "errai.dispatcher_implementation";
     if (erraiServiceConfig.containsKey(dispatchImplKey)) {
-      if (AsyncDispatcher.class.getName().equals(erraiServiceConfig.getString(dispatchImplKey))) {
+      final String dispatchImpl = erraiServiceConfig.getString(dispatchImplKey);
+      if (AsyncDispatcher.class.getName().equals(dispatchImpl)
+              || WorkStealingDispatcher.class.getName().equals(dispatchImpl)
+              || VirtualThreadDispatcher.class.getName().equals(dispatchImpl)) {
         throw new ErraiBootstrapFailure("Cannot start Errai CDI. You have have configured the service to use the "
-                + AsyncDispatcher.class.getName()
+                + dispatchImpl
                 + " dispatcher implementation. Due to limitations of Weld, you must use the "
                 + SimpleDispatcher.class.getName() + " in order to use this module.");
       }
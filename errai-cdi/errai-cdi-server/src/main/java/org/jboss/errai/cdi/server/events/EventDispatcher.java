@@ -20,6 +20,7 @@ import static org.jboss.errai.enterprise.client.cdi.api.CDI.getSubjectNameByType
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.jboss.errai.bus.client.api.base.MessageBuilder;
 import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.client.api.messaging.MessageBus;
 import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.io.EncodedFrame;
 import org.jboss.errai.bus.server.util.LocalContext;
 import org.jboss.errai.cdi.server.CDIServerUtil;
 import org.jboss.errai.common.client.protocols.MessageParts;
@@ -215,8 +217,15 @@ public class EventDispatcher implements MessageCallback {
       messagebus.send(CommandMessage.createWithParts(messageParts));
     }
     else {
-      for (final String id : eventRoutingTable.getQueueIdsForRoute(eventType.getName(), qualifierTypes)) {
-        messagebus.send(CommandMessage.createWithParts(new RoutingMap(messageParts, id)));
+      final Collection<String> queueIds = eventRoutingTable.getQueueIdsForRoute(eventType.getName(), qualifierTypes);
+      if (queueIds.isEmpty()) {
+        return;
+      }
+
+      // marshall the event only once and share the encoded frame between all the queues we route to.
+      final EncodedFrame frame = EncodedFrame.encode(messageParts);
+      for (final String id : queueIds) {
+        messagebus.send(frame.newMessage(new RoutingMap(messageParts, id)));
       }
     }
   }
@@ -123,5 +123,16 @@ public enum MessageParts {
 
   WebSocketURL,
 
-  WebSocketToken
+  WebSocketToken,
+
+  /**
+   * The names of the types in the table the binary encoding of the protocol refers to by id, in table order. Sent
+   * along with the <tt>BinaryProtocol</tt> capability.
+   */
+  BinaryProtocolTypes,
+
+  /**
+   * The fingerprint of the table the binary encoding of the protocol refers to by id.
+   */
+  BinaryProtocolFingerprint
 }
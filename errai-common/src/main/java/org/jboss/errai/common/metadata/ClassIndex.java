@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.common.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.errai.reflections.Configuration;
+import org.jboss.errai.reflections.Store;
+import org.jboss.errai.reflections.scanners.AbstractScanner;
+import org.jboss.errai.reflections.vfs.Vfs;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * The scanning results for a single jar or class directory: the contents of the scanner stores, the digests of the
+ * annotated classes, and (for directories) the classes found outside of a jar.
+ * <p/>
+ * Indexes are stored in the Errai cache directory under a fingerprint of the jar or directory, so that an unchanged
+ * dependency is never scanned twice, whatever else on the classpath has changed. The fingerprint of a jar is a hash of
+ * its content. The fingerprint of a directory is a hash of the paths, sizes and modification times of its files, as
+ * reading every class file would cost about as much as scanning it. Both include the index version and whether the
+ * Javassist adapter is used, since the class digests differ between the adapters.
+ *
+ * @see MetaDataScanner
+ */
+class ClassIndex {
+  private static final int MAGIC = 0xE2A1C1D8;
+  private static final int VERSION = 2;
+
+  private final Store store;
+  private final ConcurrentMap<String, Set<SortableClassFileWrapper>> annotatedClasses =
+      new ConcurrentHashMap<String, Set<SortableClassFileWrapper>>();
+  private final Set<String> classesNotInJar = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  ClassIndex(final Configuration configuration) {
+    this.store = new Store(configuration);
+  }
+
+  Store getStore() {
+    return store;
+  }
+
+  ConcurrentMap<String, Set<SortableClassFileWrapper>> getAnnotatedClasses() {
+    return annotatedClasses;
+  }
+
+  void addClassNotInJar(final String className) {
+    classesNotInJar.add(className);
+  }
+
+  /**
+   * Adds the contents of this index to the specified store and annotated classes.
+   */
+  void mergeInto(final Store target, final ConcurrentMap<String, Set<SortableClassFileWrapper>> targetClasses) {
+    for (final Map.Entry<String, Multimap<String, String>> entry : store.getStoreMap().entrySet()) {
+      target.get(entry.getKey()).putAll(entry.getValue());
+    }
+
+    for (final Map.Entry<String, Set<SortableClassFileWrapper>> entry : annotatedClasses.entrySet()) {
+      for (final SortableClassFileWrapper cls : entry.getValue()) {
+        MetaDataScanner.addAnnotatedClass(targetClasses, entry.getKey(), cls);
+      }
+    }
+
+    for (final String className : classesNotInJar) {
+      AbstractScanner.addClassNotInJar(className);
+    }
+  }
+
+  void write(final File file) throws IOException {
+    final File tmpFile = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      final Map<String, Multimap<String, String>> storeMap = store.getStoreMap();
+      out.writeInt(storeMap.size());
+      for (final Map.Entry<String, Multimap<String, String>> index : storeMap.entrySet()) {
+        out.writeUTF(index.getKey());
+        final Map<String, Collection<String>> entries = index.getValue().asMap();
+        out.writeInt(entries.size());
+        for (final Map.Entry<String, Collection<String>> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          writeStrings(out, entry.getValue());
+        }
+      }
+
+      out.writeInt(annotatedClasses.size());
+      for (final Map.Entry<String, Set<SortableClassFileWrapper>> entry : annotatedClasses.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (final SortableClassFileWrapper cls : entry.getValue()) {
+          out.writeUTF(cls.getName());
+          out.writeInt(cls.getDigest().length);
+          out.write(cls.getDigest());
+        }
+      }
+
+      writeStrings(out, classesNotInJar);
+    }
+    finally {
+      out.close();
+    }
+
+    // renamed into place so that a concurrent reader never sees a partial index.
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        tmpFile.delete();
+        throw new IOException("could not move " + tmpFile + " to " + file);
+      }
+    }
+  }
+
+  static ClassIndex read(final File file, final Configuration configuration) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not a class index: " + file);
+      }
+
+      final ClassIndex index = new ClassIndex(configuration);
+
+      final int indexCount = in.readInt();
+      for (int i = 0; i < indexCount; i++) {
+        final Multimap<String, String> multimap = index.store.get(in.readUTF());
+        final int keyCount = in.readInt();
+        for (int k = 0; k < keyCount; k++) {
+          final String key = in.readUTF();
+          final int valueCount = in.readInt();
+          for (int v = 0; v < valueCount; v++) {
+            multimap.put(key, in.readUTF());
+          }
+        }
+      }
+
+      final int annotationCount = in.readInt();
+      for (int i = 0; i < annotationCount; i++) {
+        final String annotationType = in.readUTF();
+        final int classCount = in.readInt();
+        for (int c = 0; c < classCount; c++) {
+          final String className = in.readUTF();
+          final byte[] digest = new byte[in.readInt()];
+          in.readFully(digest);
+          MetaDataScanner.addAnnotatedClass(index.annotatedClasses, annotationType,
+              new SortableClassFileWrapper(className, digest));
+        }
+      }
+
+      final int notInJarCount = in.readInt();
+      for (int i = 0; i < notInJarCount; i++) {
+        index.classesNotInJar.add(in.readUTF());
+      }
+
+      return index;
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private static void writeStrings(final DataOutputStream out, final Collection<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (final String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  /**
+   * Returns the local jar or directory behind the specified scan URL, or null if it is neither. Directories in the
+   * temporary directory, such as the nested deployments unpacked by {@link DeploymentContext}, are not indexed either.
+   */
+  static File getIndexableFile(final URL url) {
+    URL fileUrl = url;
+    final String externalForm = url.toExternalForm();
+    if ("jar".equals(url.getProtocol())) {
+      if (!externalForm.endsWith("!/")) {
+        return null;
+      }
+      try {
+        fileUrl = new URL(externalForm.substring("jar:".length(), externalForm.length() - "!/".length()));
+      }
+      catch (MalformedURLException e) {
+        return null;
+      }
+    }
+
+    if (!"file".equals(fileUrl.getProtocol())) {
+      return null;
+    }
+
+    final File file = new File(Vfs.normalizePath(fileUrl)).getAbsoluteFile();
+    if (!file.exists()) {
+      return null;
+    }
+    if (file.isDirectory()
+        && file.getPath().startsWith(new File(System.getProperty("java.io.tmpdir")).getAbsolutePath())) {
+      return null;
+    }
+    return file;
+  }
+
+  /**
+   * Returns the fingerprint under which the index of the specified jar or directory is stored.
+   */
+  static String fingerprint(final File file) throws IOException {
+    final MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("could not generate hash", e);
+    }
+
+    md.update((byte) VERSION);
+    md.update((byte) (Boolean.getBoolean(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY) ? 'j' : 'c'));
+    if (file.isDirectory()) {
+      md.update((byte) 'd');
+      fingerprintDirectory(md, file, "");
+    }
+    else {
+      md.update((byte) 'f');
+      final byte[] buffer = new byte[64 * 1024];
+      final InputStream in = new FileInputStream(file);
+      try {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          md.update(buffer, 0, read);
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    for (final byte b : md.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static void fingerprintDirectory(final MessageDigest md, final File dir, final String path) {
+    final File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    Arrays.sort(files);
+    for (final File file : files) {
+      final String relativePath = path + file.getName();
+      md.update(relativePath.getBytes());
+      if (file.isDirectory()) {
+        md.update((byte) '/');
+        fingerprintDirectory(md, file, relativePath + "/");
+      }
+      else {
+        md.update(longToBytes(file.length()));
+        md.update(longToBytes(file.lastModified()));
+      }
+    }
+  }
+
+  private static byte[] longToBytes(final long value) {
+    final byte[] bytes = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      bytes[i] = (byte) (value >>> (56 - i * 8));
+    }
+    return bytes;
+  }
+}
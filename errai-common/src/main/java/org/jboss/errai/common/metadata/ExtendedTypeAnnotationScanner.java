@@ -18,23 +18,30 @@ package org.jboss.errai.common.metadata;
 
 import javassist.bytecode.ClassFile;
 
-import org.jboss.errai.common.metadata.MetaDataScanner.CacheHolder;
 import org.jboss.errai.common.rebind.CacheUtil;
+import org.jboss.errai.reflections.adapters.ClassFileReader;
 import org.jboss.errai.reflections.adapters.MetadataAdapter;
 import org.jboss.errai.reflections.scanners.TypeAnnotationsScanner;
 
 import java.lang.annotation.Inherited;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Mike Brock
  */
 public class ExtendedTypeAnnotationScanner extends TypeAnnotationsScanner {
-  private final CacheHolder cache = CacheUtil.getCache(MetaDataScanner.CacheHolder.class);
-  
+  private final ConcurrentMap<String, Set<SortableClassFileWrapper>> annotatedClasses;
+
+  public ExtendedTypeAnnotationScanner() {
+    this(CacheUtil.getCache(MetaDataScanner.CacheHolder.class).ANNOTATIONS_TO_CLASS);
+  }
+
+  ExtendedTypeAnnotationScanner(final ConcurrentMap<String, Set<SortableClassFileWrapper>> annotatedClasses) {
+    this.annotatedClasses = annotatedClasses;
+  }
+
   @Override
   public void scan(final Object cls) {
     final MetadataAdapter adapter = getMetadataAdapter();
@@ -47,12 +54,12 @@ public class ExtendedTypeAnnotationScanner extends TypeAnnotationsScanner {
         getStore().put(annotationType, className);
 
         if (cls instanceof ClassFile) {
-          Set<SortableClassFileWrapper> classes = cache.ANNOTATIONS_TO_CLASS.get(annotationType);
-          if (classes == null) {
-            cache.ANNOTATIONS_TO_CLASS.put(annotationType, classes = 
-                    Collections.synchronizedSet(new TreeSet<SortableClassFileWrapper>()));
-          }
-          classes.add(new SortableClassFileWrapper(className, (ClassFile) cls));
+          MetaDataScanner.addAnnotatedClass(annotatedClasses, annotationType,
+                  new SortableClassFileWrapper(className, (ClassFile) cls));
+        }
+        else if (cls instanceof ClassFileReader) {
+          MetaDataScanner.addAnnotatedClass(annotatedClasses, annotationType,
+                  new SortableClassFileWrapper(className, (ClassFileReader) cls));
         }
       }
     }
@@ -16,8 +16,6 @@
 
 package org.jboss.errai.common.metadata;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,8 +27,14 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
 
 import org.jboss.errai.common.rebind.CacheStore;
@@ -38,8 +42,11 @@ import org.jboss.errai.common.rebind.CacheUtil;
 import org.jboss.errai.reflections.Configuration;
 import org.jboss.errai.reflections.Reflections;
 import org.jboss.errai.reflections.ReflectionsException;
+import org.jboss.errai.reflections.adapters.ClassFileReaderAdapter;
+import org.jboss.errai.reflections.adapters.JavassistAdapter;
 import org.jboss.errai.reflections.scanners.FieldAnnotationsScanner;
 import org.jboss.errai.reflections.scanners.MethodAnnotationsScanner;
+import org.jboss.errai.reflections.scanners.Scanner;
 import org.jboss.errai.reflections.util.ConfigurationBuilder;
 import org.jboss.errai.reflections.vfs.Vfs;
 import org.slf4j.Logger;
@@ -67,7 +74,7 @@ public class MetaDataScanner extends Reflections {
   private static final String EXTENSION_KEY = "errai.class_scanning_extension";
 
   public static class CacheHolder implements CacheStore {
-    final Map<String, Set<SortableClassFileWrapper>> ANNOTATIONS_TO_CLASS = new ConcurrentHashMap<String, Set<SortableClassFileWrapper>>();
+    final ConcurrentMap<String, Set<SortableClassFileWrapper>> ANNOTATIONS_TO_CLASS = new ConcurrentHashMap<String, Set<SortableClassFileWrapper>>();
 
     @Override
     public void clear() {
@@ -77,12 +84,26 @@ public class MetaDataScanner extends Reflections {
 
   public static final String ERRAI_CONFIG_STUB_NAME = "ErraiApp.properties";
 
-  private static final ErraiPropertyScanner propScanner = new ErraiPropertyScanner(new Predicate<String>() {
+  /**
+   * Set this system property to false to scan all urls on every start instead of using the per-url
+   * {@link ClassIndex class indexes} in the Errai cache directory.
+   */
+  private static final String CLASS_INDEX_PROPERTY = "errai.reflections.index";
+  private static final String CLASS_INDEX_DIR = "class-index";
+
+  /**
+   * Set this system property to true to read class files with Javassist instead of the {@link ClassFileReaderAdapter}.
+   */
+  static final String JAVASSIST_ADAPTER_PROPERTY = "errai.reflections.javassist";
+
+  private static final Predicate<String> PROPERTIES_FILES = new Predicate<String>() {
     @Override
     public boolean apply(final String file) {
       return file.endsWith(".properties");
     }
-  });
+  };
+
+  private static final ErraiPropertyScanner propScanner = new ErraiPropertyScanner(PROPERTIES_FILES);
 
   MetaDataScanner(final List<URL> urls, File cacheFile) {
     super(getConfiguration(urls));
@@ -170,14 +191,236 @@ public class MetaDataScanner extends Reflections {
     }
   }
 
+  /**
+   * The scanner threads are daemons, so that a scanner which is never run (or fails to shut its pool down) can not
+   * keep the JVM alive.
+   */
+  private static final ThreadFactory SCANNER_THREADS = new ThreadFactory() {
+    @Override
+    public Thread newThread(final Runnable r) {
+      final Thread thread = new Thread(r, "MetaDataScanner");
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
   private static Configuration getConfiguration(final List<URL> urls) {
     return new ConfigurationBuilder()
             .setUrls(urls)
-            .setExecutorService(Executors.newFixedThreadPool(2))
+            .setMetadataAdapter(Boolean.getBoolean(JAVASSIST_ADAPTER_PROPERTY)
+                    ? new JavassistAdapter() : new ClassFileReaderAdapter())
+            .setExecutorService(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), SCANNER_THREADS))
             .setScanners(new FieldAnnotationsScanner(), new MethodAnnotationsScanner(),
                     new ExtendedTypeAnnotationScanner(), propScanner);
   }
 
+  /**
+   * Scans the urls which have changed since they were last scanned, and merges the {@link ClassIndex class indexes}
+   * of the others. Looking up the indexes and scanning the class files is done in parallel. The executor service is
+   * shut down afterwards, whichever way the urls were scanned.
+   */
+  @Override
+  protected void scan() {
+    try {
+      if ("false".equals(System.getProperty(CLASS_INDEX_PROPERTY))) {
+        super.scan();
+      }
+      else {
+        scanWithIndexes();
+      }
+    }
+    finally {
+      final ExecutorService executorService = configuration.getExecutorService();
+      if (executorService != null) {
+        executorService.shutdown();
+      }
+    }
+  }
+
+  private void scanWithIndexes() {
+    if (configuration.getUrls() == null || configuration.getUrls().isEmpty()) {
+      return;
+    }
+
+    long time = System.currentTimeMillis();
+
+    final ExecutorService executorService = configuration.getExecutorService();
+    final File indexDir = RebindUtils.getCacheFile(CLASS_INDEX_DIR);
+    // noinspection ResultOfMethodCallIgnored
+    indexDir.mkdirs();
+
+    final List<UrlScan> urlScans = new ArrayList<UrlScan>();
+    int indexed = 0;
+    final List<Future<UrlScan>> lookups = new ArrayList<Future<UrlScan>>();
+    for (final URL url : configuration.getUrls()) {
+      lookups.add(submit(executorService, new Callable<UrlScan>() {
+        @Override
+        public UrlScan call() {
+          return lookupIndex(url, indexDir);
+        }
+      }));
+    }
+
+    final List<Future<?>> scans = new ArrayList<Future<?>>();
+    for (final Future<UrlScan> lookup : lookups) {
+      final UrlScan urlScan = get(lookup);
+      if (urlScan.index != null) {
+        urlScans.add(urlScan);
+        indexed++;
+        continue;
+      }
+
+      try {
+        urlScan.dir = Vfs.fromURL(urlScan.url);
+      }
+      catch (ReflectionsException e) {
+        log.error("could not create Vfs.Dir from url. ignoring the exception and continuing", e);
+        continue;
+      }
+
+      urlScan.index = new ClassIndex(configuration);
+      final List<Scanner> scanners = createScanners(urlScan.index);
+      for (final Vfs.File file : urlScan.dir.getFiles()) {
+        scans.add(submit(executorService, new Callable<Object>() {
+          @Override
+          public Object call() {
+            scan(file, scanners, urlScan);
+            return null;
+          }
+        }));
+      }
+      urlScans.add(urlScan);
+    }
+
+    for (final Future<?> scan : scans) {
+      get(scan);
+    }
+
+    final ConcurrentMap<String, Set<SortableClassFileWrapper>> annotatedClasses =
+        CacheUtil.getCache(CacheHolder.class).ANNOTATIONS_TO_CLASS;
+    for (final UrlScan urlScan : urlScans) {
+      if (urlScan.dir != null) {
+        urlScan.dir.close();
+
+        if (urlScan.indexFile != null) {
+          try {
+            urlScan.index.write(urlScan.indexFile);
+          }
+          catch (IOException e) {
+            log.warn("could not write class index for " + urlScan.url, e);
+          }
+        }
+      }
+      urlScan.index.mergeInto(getStore(), annotatedClasses);
+    }
+
+    time = System.currentTimeMillis() - time;
+    log.info(String.format("Reflections took %d ms to scan %d urls (%d unchanged), producing %d keys and %d values",
+        time, configuration.getUrls().size(), indexed, getStore().getKeysCount(), getStore().getValuesCount()));
+  }
+
+  private UrlScan lookupIndex(final URL url, final File indexDir) {
+    final UrlScan urlScan = new UrlScan(url);
+
+    final File file = ClassIndex.getIndexableFile(url);
+    if (file == null) {
+      return urlScan;
+    }
+
+    try {
+      urlScan.directory = file.isDirectory();
+      urlScan.indexFile = new File(indexDir, ClassIndex.fingerprint(file) + ".idx");
+      if (urlScan.indexFile.exists()) {
+        urlScan.index = ClassIndex.read(urlScan.indexFile, configuration);
+      }
+    }
+    catch (IOException e) {
+      log.warn("could not read class index for " + url + ". scanning it instead", e);
+    }
+    return urlScan;
+  }
+
+  /**
+   * Creates the scanners for a single url, which store their results in the specified index. These must match the
+   * scanners configured in {@link #getConfiguration(List)}.
+   */
+  private List<Scanner> createScanners(final ClassIndex index) {
+    final List<Scanner> scanners = Arrays.<Scanner>asList(new FieldAnnotationsScanner(), new MethodAnnotationsScanner(),
+            new ExtendedTypeAnnotationScanner(index.getAnnotatedClasses()), new ErraiPropertyScanner(PROPERTIES_FILES));
+    for (final Scanner scanner : scanners) {
+      scanner.setConfiguration(configuration);
+      scanner.setStore(index.getStore().get(scanner));
+    }
+    return scanners;
+  }
+
+  private void scan(final Vfs.File file, final List<Scanner> scanners, final UrlScan urlScan) {
+    final String input = file.getRelativePath();
+    if (!configuration.acceptsInput(input)) {
+      return;
+    }
+
+    if (urlScan.directory && input.endsWith(".class")) {
+      urlScan.index.addClassNotInJar(input.substring(0, input.length() - ".class".length()).replace('/', '.'));
+    }
+
+    for (final Scanner scanner : scanners) {
+      try {
+        if (scanner.acceptsInput(input)) {
+          scanner.scan(file);
+        }
+      }
+      catch (Exception e) {
+        log.warn("could not scan file " + file.getFullPath() + " with scanner " + scanner.getName(), e);
+      }
+    }
+  }
+
+  private static <T> Future<T> submit(final ExecutorService executorService, final Callable<T> callable) {
+    final FutureTask<T> task = new FutureTask<T>(callable);
+    if (executorService == null) {
+      task.run();
+    }
+    else {
+      executorService.execute(task);
+    }
+    return task;
+  }
+
+  private static <T> T get(final Future<T> future) {
+    try {
+      return future.get();
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static class UrlScan {
+    private final URL url;
+    private File indexFile;
+    private boolean directory;
+    private ClassIndex index;
+    private Vfs.Dir dir;
+
+    private UrlScan(final URL url) {
+      this.url = url;
+    }
+  }
+
+  static void addAnnotatedClass(final ConcurrentMap<String, Set<SortableClassFileWrapper>> annotatedClasses,
+          final String annotationType, final SortableClassFileWrapper cls) {
+    Set<SortableClassFileWrapper> classes = annotatedClasses.get(annotationType);
+    if (classes == null) {
+      final Set<SortableClassFileWrapper> newClasses = Collections.synchronizedSet(new TreeSet<SortableClassFileWrapper>());
+      classes = annotatedClasses.putIfAbsent(annotationType, newClasses);
+      if (classes == null) {
+        classes = newClasses;
+      }
+    }
+    classes.add(cls);
+  }
+
   static MetaDataScanner createInstanceFromCache() {
     try {
       return createInstance(getConfigUrls(), RebindUtils.getCacheFile(RebindUtils.getClasspathHash() + ".cache.xml"));
@@ -311,14 +554,12 @@ public class MetaDataScanner extends Reflections {
           md.update(seed.getBytes());
         }
 
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        for (final SortableClassFileWrapper classFileWrapper : CacheUtil.getCache(CacheHolder.class).ANNOTATIONS_TO_CLASS
-                .get(annotation.getName())) {
-          byteArrayOutputStream.reset();
-          final DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-          classFileWrapper.getClassFile().write(dataOutputStream);
-          dataOutputStream.flush();
-          md.update(byteArrayOutputStream.toByteArray());
+        final Set<SortableClassFileWrapper> classes =
+            CacheUtil.getCache(CacheHolder.class).ANNOTATIONS_TO_CLASS.get(annotation.getName());
+        synchronized (classes) {
+          for (final SortableClassFileWrapper classFileWrapper : classes) {
+            md.update(classFileWrapper.getDigest());
+          }
         }
 
         return RebindUtils.hashToHexString(md.digest());
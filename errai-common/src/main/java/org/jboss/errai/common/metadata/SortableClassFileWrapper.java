@@ -16,22 +16,73 @@
 
 package org.jboss.errai.common.metadata;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import javassist.bytecode.ClassFile;
 
+import org.jboss.errai.reflections.adapters.ClassFileReader;
+
 /**
+ * The name of an annotated class and a digest of its class file, which {@link MetaDataScanner} uses to tell whether
+ * the classes with a given annotation have changed.
+ *
 * @author Mike Brock
 */
 class SortableClassFileWrapper implements Comparable<SortableClassFileWrapper> {
-  private String name;
-  private ClassFile classFile;
+  private final String name;
+  private final byte[] digest;
 
   SortableClassFileWrapper(final String name, final ClassFile classFile) {
+    this(name, digest(classFile));
+  }
+
+  SortableClassFileWrapper(final String name, final ClassFileReader classFile) {
+    this(name, digest(classFile));
+  }
+
+  SortableClassFileWrapper(final String name, final byte[] digest) {
     this.name = name;
-    this.classFile = classFile;
+    this.digest = digest;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public byte[] getDigest() {
+    return digest;
+  }
+
+  private static byte[] digest(final ClassFile classFile) {
+    try {
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      final DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+      classFile.write(dataOutputStream);
+      dataOutputStream.flush();
+      return newDigest().digest(byteArrayOutputStream.toByteArray());
+    }
+    catch (IOException e) {
+      throw new RuntimeException("could not write class file: " + classFile.getName(), e);
+    }
+  }
+
+  private static byte[] digest(final ClassFileReader classFile) {
+    final MessageDigest digest = newDigest();
+    digest.update(classFile.getBytes());
+    return digest.digest();
   }
 
-  public ClassFile getClassFile() {
-    return classFile;
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("could not generate hash", e);
+    }
   }
 
   @Override
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.common.metadata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Set;
+
+import org.jboss.errai.reflections.scanners.AbstractScanner;
+import org.jboss.errai.reflections.util.ConfigurationBuilder;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ClassIndex}.
+ */
+public class ClassIndexTest {
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    final ClassIndex index = new ClassIndex(new ConfigurationBuilder());
+    index.getStore().get("TypeAnnotationsScanner").put("my.Annotation", "my.Foo");
+    index.getStore().get("TypeAnnotationsScanner").put("my.Annotation", "my.Bar");
+    index.getStore().get("FieldAnnotationsScanner").put("my.Annotation", "my.Foo.field");
+    MetaDataScanner.addAnnotatedClass(index.getAnnotatedClasses(), "my.Annotation",
+        new SortableClassFileWrapper("my.Foo", new byte[] { 1, 2, 3 }));
+    index.addClassNotInJar("my.NotInJar");
+
+    final File file = File.createTempFile("classindex", ".idx");
+    try {
+      index.write(file);
+      final ClassIndex read = ClassIndex.read(file, new ConfigurationBuilder());
+
+      assertEquals(index.getStore().getStoreMap(), read.getStore().getStoreMap());
+
+      final Set<SortableClassFileWrapper> classes = read.getAnnotatedClasses().get("my.Annotation");
+      assertEquals(1, classes.size());
+      assertEquals("my.Foo", classes.iterator().next().getName());
+      assertArrayEquals(new byte[] { 1, 2, 3 }, classes.iterator().next().getDigest());
+
+      read.mergeInto(new ClassIndex(new ConfigurationBuilder()).getStore(), index.getAnnotatedClasses());
+      assertFalse(AbstractScanner.isInJar("my.NotInJar"));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testFingerprintOfJarFollowsContent() throws Exception {
+    final File jar = File.createTempFile("classindex", ".jar");
+    final File copy = File.createTempFile("classindex-copy", ".jar");
+    try {
+      write(jar, "content");
+      write(copy, "content");
+      assertEquals(ClassIndex.fingerprint(jar), ClassIndex.fingerprint(copy));
+
+      write(copy, "changed");
+      assertFalse(ClassIndex.fingerprint(jar).equals(ClassIndex.fingerprint(copy)));
+    }
+    finally {
+      jar.delete();
+      copy.delete();
+    }
+  }
+
+  @Test
+  public void testFingerprintOfDirectoryFollowsFiles() throws Exception {
+    final File dir = File.createTempFile("classindex", "");
+    dir.delete();
+    dir.mkdirs();
+    final File classFile = new File(dir, "Foo.class");
+    try {
+      write(classFile, "content");
+      final String fingerprint = ClassIndex.fingerprint(dir);
+      assertEquals(fingerprint, ClassIndex.fingerprint(dir));
+
+      write(classFile, "changed content");
+      assertFalse(fingerprint.equals(ClassIndex.fingerprint(dir)));
+    }
+    finally {
+      classFile.delete();
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void testFingerprintFollowsMetadataAdapter() throws Exception {
+    final File jar = File.createTempFile("classindex", ".jar");
+    final String previous = System.getProperty(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY);
+    try {
+      write(jar, "content");
+      System.setProperty(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY, "false");
+      final String fingerprint = ClassIndex.fingerprint(jar);
+
+      System.setProperty(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY, "true");
+      assertFalse(fingerprint.equals(ClassIndex.fingerprint(jar)));
+    }
+    finally {
+      if (previous == null) {
+        System.clearProperty(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY);
+      }
+      else {
+        System.setProperty(MetaDataScanner.JAVASSIST_ADAPTER_PROPERTY, previous);
+      }
+      jar.delete();
+    }
+  }
+
+  @Test
+  public void testIndexableFiles() throws Exception {
+    final File jar = File.createTempFile("classindex", ".jar");
+    try {
+      assertEquals(jar.getAbsoluteFile(), ClassIndex.getIndexableFile(jar.toURI().toURL()));
+      assertEquals(jar.getAbsoluteFile(), ClassIndex.getIndexableFile(new URL("jar:" + jar.toURI().toURL() + "!/")));
+      assertNull(ClassIndex.getIndexableFile(new File(System.getProperty("java.io.tmpdir")).toURI().toURL()));
+      assertNull(ClassIndex.getIndexableFile(new URL("http://localhost/foo.jar")));
+    }
+    finally {
+      jar.delete();
+    }
+  }
+
+  private static void write(final File file, final String content) throws IOException {
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+    }
+  }
+}
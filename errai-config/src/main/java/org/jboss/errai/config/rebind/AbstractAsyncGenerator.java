@@ -62,9 +62,27 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
           generatedCode = getGeneratedCache();
         }
         else {
-          log.info("Running generator " + AbstractAsyncGenerator.this.getClass().getName());
-          clearCacheRelevantClasses();
-          generatedCode = generate(logger, context);
+          final GeneratorOutputCache persistentCache = isPersistentCacheEnabled()
+              ? GeneratorOutputCache.forGenerator(AbstractAsyncGenerator.this) : null;
+          final String persistedCode = (persistentCache != null) ? persistentCache.read() : null;
+
+          if (persistedCode != null) {
+            log.info("Using persisted output from " + AbstractAsyncGenerator.this.getClass().getName());
+            clearCacheRelevantClasses();
+            if (persistentCache.getRelevantClasses() != null) {
+              cacheRelevantClasses.put(AbstractAsyncGenerator.this.getClass(),
+                  new HashSet<String>(persistentCache.getRelevantClasses()));
+            }
+            generatedCode = persistedCode;
+          }
+          else {
+            log.info("Running generator " + AbstractAsyncGenerator.this.getClass().getName());
+            clearCacheRelevantClasses();
+            generatedCode = generate(logger, context);
+            if (persistentCache != null) {
+              persistentCache.write(generatedCode, cacheRelevantClasses.get(AbstractAsyncGenerator.this.getClass()));
+            }
+          }
           setGeneratedCache(generatedCode);
         }
 
@@ -99,6 +117,25 @@ public abstract class AbstractAsyncGenerator extends Generator implements AsyncC
     return hasGenerationCache() && !(MetaClassFactory.hasAnyChanges() && hasRelevantChanges());
   }
 
+  private boolean isPersistentCacheEnabled() {
+    return isOutputPersistable() && CommonConfigAttribs.PERSISTENT_GENERATOR_CACHE.getBoolean();
+  }
+
+  /**
+   * Checks if the output of this generator may be kept on disk and reused by later compiler processes, when
+   * <tt>errai.generators.persistent_cache</tt> is enabled. The output is reused as long as the generator, the
+   * resources on the class path and the classes relevant to this generator (see {@link #isRelevantClass(MetaClass)}
+   * and {@link #addCacheRelevantClass(MetaClass)}) are unchanged.
+   * <p>
+   * Only generators whose output is all they produce should return true. A generator which writes files, or leaves
+   * state behind for other generators, must run in every compiler process.
+   *
+   * @return true if the output of this generator may be persisted. Defaults to false.
+   */
+  protected boolean isOutputPersistable() {
+    return false;
+  }
+
   private boolean hasRelevantChanges() {
     final String generatorName = this.getClass().getSimpleName();
     final Set<String> relevantClasses = cacheRelevantClasses.get(this.getClass());
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Keeps the output of an {@link AbstractAsyncGenerator} in the Errai cache directory, so that a generator whose inputs
+ * have not changed does not have to run again in a new compiler process.
+ * <p>
+ * Outputs are stored under a hash of everything the generator's output is assumed to depend on:
+ * <ul>
+ * <li>the generator class and a fingerprint of the code it comes from, standing in for the generator version;
+ * <li>the <tt>errai.*</tt> system properties;
+ * <li>the resources on the class path, such as <tt>ErraiApp.properties</tt>, module descriptors and templates, and the
+ * entries of every jar on the class path;
+ * <li>the name, structure and source (or byte code) of every class which the generator
+ * {@link AbstractAsyncGenerator#addCacheRelevantClass(MetaClass) marked as relevant} on its last run, and of every
+ * known class which it {@link AbstractAsyncGenerator#isRelevantClass(MetaClass) considers relevant} now.
+ * </ul>
+ * The relevant classes of the last run are kept in a manifest next to the output.
+ */
+final class GeneratorOutputCache {
+  private static final Logger log = LoggerFactory.getLogger(GeneratorOutputCache.class);
+
+  private static final String CACHE_DIR = "generators";
+  private static final int VERSION = 1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ConcurrentMap<String, byte[]> jarFingerprints = new ConcurrentHashMap<String, byte[]>();
+  private static final ConcurrentMap<Class<?>, Stats> stats = new ConcurrentHashMap<Class<?>, Stats>();
+
+  private final AbstractAsyncGenerator generator;
+  private final File cacheDir;
+  private final File manifestFile;
+  private final SortedSet<String> relevantNow;
+
+  private String previousKey;
+  private Set<String> relevantClasses;
+
+  private GeneratorOutputCache(final AbstractAsyncGenerator generator) {
+    this.generator = generator;
+    this.cacheDir = new File(RebindUtils.getErraiCacheDir(), CACHE_DIR);
+    this.manifestFile = new File(cacheDir, generator.getClass().getName() + ".manifest");
+
+    // taken before the generator runs, as generating may add classes to the MetaClassFactory.
+    this.relevantNow = new TreeSet<String>();
+    for (final MetaClass clazz : MetaClassFactory.getAllCachedClasses()) {
+      if (clazz != null && !clazz.isArray() && generator.isRelevantClass(clazz)) {
+        relevantNow.add(clazz.getFullyQualifiedName());
+      }
+    }
+  }
+
+  static GeneratorOutputCache forGenerator(final AbstractAsyncGenerator generator) {
+    return new GeneratorOutputCache(generator);
+  }
+
+  /**
+   * Returns the output stored for the current inputs of the generator, or null if there is none.
+   */
+  String read() {
+    final Stats generatorStats = getStats(generator.getClass());
+    String output = null;
+    try {
+      if (manifestFile.isFile()) {
+        final List<String> manifest = Files.readLines(manifestFile, UTF_8);
+        if (!manifest.isEmpty()) {
+          previousKey = manifest.get(0);
+          relevantClasses = manifest.size() > 1 ? new LinkedHashSet<String>(manifest.subList(1, manifest.size())) : null;
+
+          final File outputFile = new File(cacheDir, key(relevantClasses) + ".java");
+          if (outputFile.isFile()) {
+            output = Files.toString(outputFile, UTF_8);
+          }
+        }
+      }
+    }
+    catch (IOException e) {
+      log.warn("could not read the cached output of " + generator.getClass().getName(), e);
+    }
+
+    if (output != null) {
+      generatorStats.hits.incrementAndGet();
+    }
+    else {
+      generatorStats.misses.incrementAndGet();
+    }
+    log.info("Persistent generator cache {} for {} ({} hits, {} misses)", (output != null ? "hit" : "miss"),
+        generator.getClass().getName(), generatorStats.hits.get(), generatorStats.misses.get());
+
+    return output;
+  }
+
+  /**
+   * Returns the classes marked as relevant by the run which produced the output returned by {@link #read()}, or null
+   * if no classes were marked.
+   */
+  Set<String> getRelevantClasses() {
+    return relevantClasses;
+  }
+
+  /**
+   * Stores the output of the generator and the classes it marked as relevant (or null if it marked none).
+   */
+  void write(final String output, final Set<String> relevantClasses) {
+    try {
+      final String key = key(relevantClasses);
+
+      // the output goes first, so that a manifest never refers to a missing output.
+      writeAtomically(new File(cacheDir, key + ".java"), output.getBytes(UTF_8));
+
+      final StringBuilder manifest = new StringBuilder(key).append('\n');
+      if (relevantClasses != null) {
+        for (final String name : new TreeSet<String>(relevantClasses)) {
+          manifest.append(name).append('\n');
+        }
+      }
+      writeAtomically(manifestFile, manifest.toString().getBytes(UTF_8));
+
+      if (previousKey != null && !previousKey.equals(key)) {
+        new File(cacheDir, previousKey + ".java").delete();
+      }
+    }
+    catch (IOException e) {
+      log.warn("could not cache the output of " + generator.getClass().getName(), e);
+    }
+  }
+
+  private String key(final Set<String> relevantClasses) throws IOException {
+    final MessageDigest md = newDigest();
+    update(md, String.valueOf(VERSION));
+    update(md, generator.getClass().getName());
+
+    for (Class<?> type = generator.getClass(); type != Object.class; type = type.getSuperclass()) {
+      update(md, type.getName());
+      md.update(codeFingerprint(type));
+    }
+
+    final Properties properties = System.getProperties();
+    for (final String name : new TreeSet<String>(properties.stringPropertyNames())) {
+      if (name.startsWith("errai.")) {
+        update(md, name);
+        update(md, properties.getProperty(name));
+      }
+    }
+
+    for (final File entry : getClassPath()) {
+      update(md, entry.getName());
+      if (entry.isDirectory()) {
+        fingerprintDirectory(md, entry, "", false);
+      }
+      else if (entry.isFile()) {
+        md.update(jarFingerprint(entry));
+      }
+    }
+
+    final SortedSet<String> classes = new TreeSet<String>(relevantNow);
+    if (relevantClasses != null) {
+      classes.addAll(relevantClasses);
+    }
+    for (final String name : classes) {
+      update(md, name);
+      classFingerprint(md, name);
+    }
+
+    return toHex(md.digest());
+  }
+
+  private static void classFingerprint(final MessageDigest md, final String name) throws IOException {
+    final MetaClass clazz;
+    try {
+      clazz = MetaClassFactory.get(name);
+    }
+    catch (Throwable t) {
+      update(md, "<missing>");
+      return;
+    }
+    update(md, String.valueOf(clazz.hashContent()));
+
+    final int inner = name.indexOf('$');
+    final String path = (inner == -1 ? name : name.substring(0, inner)).replace('.', '/');
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    URL resource = classLoader.getResource(path + ".java");
+    if (resource == null) {
+      resource = classLoader.getResource(path + ".class");
+    }
+    if (resource != null) {
+      final InputStream in = resource.openStream();
+      try {
+        md.update(ByteStreams.toByteArray(in));
+      }
+      finally {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * Returns a fingerprint of the jar or directory the specified class was loaded from.
+   */
+  private static byte[] codeFingerprint(final Class<?> type) throws IOException {
+    final MessageDigest md = newDigest();
+    if (type.getProtectionDomain().getCodeSource() != null) {
+      final URL location = type.getProtectionDomain().getCodeSource().getLocation();
+      try {
+        final File file = new File(location.toURI());
+        if (file.isDirectory()) {
+          fingerprintDirectory(md, file, "", true);
+        }
+        else if (file.isFile()) {
+          md.update(jarFingerprint(file));
+        }
+      }
+      catch (URISyntaxException e) {
+        update(md, location.toExternalForm());
+      }
+      catch (IllegalArgumentException e) {
+        update(md, location.toExternalForm());
+      }
+    }
+    return md.digest();
+  }
+
+  /**
+   * Returns a hash of the names, sizes and checksums of the entries of a jar. They are read from the central
+   * directory, so the jar does not have to be inflated.
+   */
+  private static byte[] jarFingerprint(final File file) throws IOException {
+    final String cacheKey = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    byte[] fingerprint = jarFingerprints.get(cacheKey);
+    if (fingerprint == null) {
+      final MessageDigest md = newDigest();
+      ZipFile zipFile = null;
+      try {
+        zipFile = new ZipFile(file);
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          final ZipEntry entry = entries.nextElement();
+          update(md, entry.getName());
+          update(md, entry.getSize() + ":" + entry.getCrc());
+        }
+      }
+      catch (IOException e) {
+        // not a jar, such as a native library on the class path
+        md.reset();
+        md.update(Files.toByteArray(file));
+      }
+      finally {
+        if (zipFile != null) {
+          zipFile.close();
+        }
+      }
+      jarFingerprints.putIfAbsent(cacheKey, fingerprint = md.digest());
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Adds the paths and contents of the files in a directory to the digest, leaving out Java sources and class files
+   * unless asked to.
+   */
+  private static void fingerprintDirectory(final MessageDigest md, final File dir, final String path,
+                                           final boolean classes) throws IOException {
+    final File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+
+    for (final File file : files) {
+      final String name = path + "/" + file.getName();
+      if (file.isDirectory()) {
+        fingerprintDirectory(md, file, name, classes);
+      }
+      else if (classes || !(name.endsWith(".java") || name.endsWith(".class"))) {
+        update(md, name);
+        md.update(Files.toByteArray(file));
+      }
+    }
+  }
+
+  private static Set<File> getClassPath() {
+    final Set<File> entries = new LinkedHashSet<File>();
+    final String classPath = System.getProperty("java.class.path");
+    if (classPath != null) {
+      for (final String path : classPath.split(File.pathSeparator)) {
+        if (path.length() != 0) {
+          entries.add(new File(path).getAbsoluteFile());
+        }
+      }
+    }
+
+    for (ClassLoader cl = Thread.currentThread().getContextClassLoader(); cl != null; cl = cl.getParent()) {
+      if (cl instanceof URLClassLoader) {
+        for (final URL url : ((URLClassLoader) cl).getURLs()) {
+          if ("file".equals(url.getProtocol())) {
+            try {
+              entries.add(new File(url.toURI()).getAbsoluteFile());
+            }
+            catch (URISyntaxException e) {
+              entries.add(new File(url.getPath()).getAbsoluteFile());
+            }
+          }
+        }
+      }
+    }
+    return entries;
+  }
+
+  private static void writeAtomically(final File file, final byte[] content) throws IOException {
+    file.getParentFile().mkdirs();
+
+    // written to a temporary file and renamed into place, so that concurrent compiles sharing the cache directory
+    // never read a partial file. The name of the temporary file is unique across processes, not just threads.
+    final File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      final OutputStream out = new FileOutputStream(tmpFile);
+      try {
+        out.write(content);
+      }
+      finally {
+        out.close();
+      }
+    }
+    catch (IOException e) {
+      tmpFile.delete();
+      throw e;
+    }
+
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        tmpFile.delete();
+        throw new IOException("could not move " + tmpFile + " to " + file);
+      }
+    }
+  }
+
+  private static Stats getStats(final Class<?> generatorClass) {
+    Stats generatorStats = stats.get(generatorClass);
+    if (generatorStats == null) {
+      final Stats newStats = new Stats();
+      generatorStats = stats.putIfAbsent(generatorClass, newStats);
+      if (generatorStats == null) {
+        generatorStats = newStats;
+      }
+    }
+    return generatorStats;
+  }
+
+  private static void update(final MessageDigest md, final String value) {
+    md.update(value.getBytes(UTF_8));
+    md.update((byte) 0);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("could not generate hash", e);
+    }
+  }
+
+  private static String toHex(final byte[] bytes) {
+    final StringBuilder sb = new StringBuilder();
+    for (final byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static class Stats {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+
+/**
+ * Tests for {@link GeneratorOutputCache}.
+ */
+public class GeneratorOutputCacheTest {
+  private static final String CACHE_DIR_PROPERTY = "errai.devel.debugCacheDir";
+  private static final String RELEVANT_PACKAGE = "org.jboss.errai.config.rebind.relevant.";
+
+  private File cacheDir;
+  private String previousCacheDir;
+
+  public static class TestGenerator extends AbstractAsyncGenerator {
+    @Override
+    protected boolean isRelevantClass(final MetaClass clazz) {
+      return clazz.getFullyQualifiedName().startsWith(RELEVANT_PACKAGE);
+    }
+
+    @Override
+    protected String generate(final TreeLogger logger, final GeneratorContext context) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = File.createTempFile("generator-cache", "");
+    cacheDir.delete();
+    cacheDir.mkdirs();
+    previousCacheDir = System.setProperty(CACHE_DIR_PROPERTY, cacheDir.getAbsolutePath());
+
+    pushClass(RELEVANT_PACKAGE + "Foo", false);
+  }
+
+  @After
+  public void tearDown() {
+    if (previousCacheDir == null) {
+      System.clearProperty(CACHE_DIR_PROPERTY);
+    }
+    else {
+      System.setProperty(CACHE_DIR_PROPERTY, previousCacheDir);
+    }
+    MetaClassFactory.getMetaClassCache().clear();
+    delete(cacheDir);
+  }
+
+  @Test
+  public void testHitOnUnchangedInput() {
+    final AbstractAsyncGenerator generator = new TestGenerator();
+    final GeneratorOutputCache cache = GeneratorOutputCache.forGenerator(generator);
+    assertNull(cache.read());
+    cache.write("output", Collections.singleton(RELEVANT_PACKAGE + "Foo"));
+
+    final GeneratorOutputCache next = GeneratorOutputCache.forGenerator(generator);
+    assertEquals("output", next.read());
+    assertEquals(Collections.singleton(RELEVANT_PACKAGE + "Foo"), next.getRelevantClasses());
+  }
+
+  @Test
+  public void testMissAfterRelevantClassChanged() {
+    final AbstractAsyncGenerator generator = new TestGenerator();
+    GeneratorOutputCache.forGenerator(generator).write("output", null);
+
+    pushClass(RELEVANT_PACKAGE + "Foo", true);
+    assertNull(GeneratorOutputCache.forGenerator(generator).read());
+  }
+
+  @Test
+  public void testMissAfterRelevantClassAdded() {
+    final AbstractAsyncGenerator generator = new TestGenerator();
+    GeneratorOutputCache.forGenerator(generator).write("output", null);
+
+    pushClass("org.jboss.errai.config.rebind.irrelevant.Bar", false);
+    assertEquals("output", GeneratorOutputCache.forGenerator(generator).read());
+
+    pushClass(RELEVANT_PACKAGE + "Bar", false);
+    assertNull(GeneratorOutputCache.forGenerator(generator).read());
+  }
+
+  @Test
+  public void testMissAfterGeneratorJarChanged() throws Exception {
+    final File jar = new File(cacheDir, "generator-1.jar");
+    final File sameJar = new File(cacheDir, "generator-2.jar");
+    final File changedJar = new File(cacheDir, "generator-3.jar");
+    writeGeneratorJar(jar, "1.0");
+    writeGeneratorJar(sameJar, "1.0");
+    writeGeneratorJar(changedJar, "2.0");
+
+    GeneratorOutputCache.forGenerator(loadGenerator(jar)).write("output", null);
+    assertEquals("output", GeneratorOutputCache.forGenerator(loadGenerator(sameJar)).read());
+    assertNull(GeneratorOutputCache.forGenerator(loadGenerator(changedJar)).read());
+  }
+
+  private static void pushClass(final String name, final boolean withField) {
+    final MetaClass clazz;
+    if (withField) {
+      clazz = ClassBuilder.define(name).publicScope().body()
+          .publicField("added", String.class).finish().getClassDefinition();
+    }
+    else {
+      clazz = ClassBuilder.define(name).publicScope().body().getClassDefinition();
+    }
+    MetaClassFactory.getMetaClassCache().updateCache(Collections.singletonMap(name, clazz));
+  }
+
+  private static void writeGeneratorJar(final File jar, final String version) throws IOException {
+    final String classFile = TestGenerator.class.getName().replace('.', '/') + ".class";
+    final InputStream in = TestGenerator.class.getClassLoader().getResourceAsStream(classFile);
+    final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      out.putNextEntry(new ZipEntry(classFile));
+      out.write(ByteStreams.toByteArray(in));
+      out.putNextEntry(new ZipEntry("version.txt"));
+      out.write(version.getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+      in.close();
+    }
+  }
+
+  /**
+   * Loads the {@link TestGenerator} from the specified jar rather than from the test classes.
+   */
+  private static AbstractAsyncGenerator loadGenerator(final File jar) throws Exception {
+    final String name = TestGenerator.class.getName();
+    final ClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+        GeneratorOutputCacheTest.class.getClassLoader()) {
+      @Override
+      protected Class<?> loadClass(final String className, final boolean resolve) throws ClassNotFoundException {
+        if (className.equals(name)) {
+          final Class<?> loaded = findLoadedClass(className);
+          return loaded != null ? loaded : findClass(className);
+        }
+        return super.loadClass(className, resolve);
+      }
+    };
+    return (AbstractAsyncGenerator) loader.loadClass(name).newInstance();
+  }
+
+  private static void delete(final File file) {
+    final File[] files = file.listFiles();
+    if (files != null) {
+      for (final File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
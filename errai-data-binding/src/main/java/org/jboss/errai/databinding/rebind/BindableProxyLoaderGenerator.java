@@ -150,6 +150,11 @@ public class BindableProxyLoaderGenerator extends AbstractAsyncGenerator {
     }
   }
 
+  @Override
+  protected boolean isOutputPersistable() {
+    return true;
+  }
+
   @Override
   protected boolean isRelevantClass(MetaClass clazz) {
     for (final Annotation anno : clazz.getAnnotations()) {
@@ -160,6 +160,11 @@ public class JaxrsProxyLoaderGenerator extends AbstractAsyncGenerator {
     return result;
   }
 
+  @Override
+  protected boolean isOutputPersistable() {
+    return true;
+  }
+
   @Override
   protected boolean isRelevantClass(MetaClass clazz) {
     for (final Annotation anno : clazz.getAnnotations()) {
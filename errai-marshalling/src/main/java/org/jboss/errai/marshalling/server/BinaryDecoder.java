@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_ARRAY;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_DOUBLE;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_FALSE;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_INTEGER;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_NULL;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_OBJECT;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_STRING;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_STRING_REF;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.TAG_TRUE;
+import static org.jboss.errai.marshalling.server.BinaryEncoder.VERSION;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.json.impl.ErraiJSONValue;
+
+/**
+ * Decodes payloads produced by {@link BinaryEncoder}. The decoder produces the same structures as
+ * {@link JSONStreamDecoder} (all numbers are decoded as doubles), so the decoded messages are demarshalled exactly
+ * like messages received as JSON. Payloads nested deeper than {@link #MAX_DEPTH} arrays and objects are rejected, so
+ * that untrusted input can not exhaust the stack. Instances are not thread safe.
+ */
+public class BinaryDecoder {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * The maximum number of nested arrays and objects in a payload.
+   */
+  public static final int MAX_DEPTH = 512;
+
+  private final ByteBuffer buffer;
+  private final TypeIdTable table;
+  private final List<String> strings = new ArrayList<String>();
+
+  /**
+   * Creates a decoder which reads the remaining bytes of the specified buffer. The position of the buffer is not
+   * modified.
+   */
+  public BinaryDecoder(final ByteBuffer buffer, final TypeIdTable table) {
+    this.buffer = buffer.slice();
+    this.table = table;
+  }
+
+  /**
+   * Decodes the specified payload with the {@link TypeIdTable#get() default type table}.
+   */
+  public static EJValue decode(final byte[] payload) {
+    return new BinaryDecoder(ByteBuffer.wrap(payload), TypeIdTable.get()).parse();
+  }
+
+  /**
+   * Decodes the remaining bytes of the specified buffer with the {@link TypeIdTable#get() default type table}.
+   */
+  public static EJValue decode(final ByteBuffer payload) {
+    return new BinaryDecoder(payload, TypeIdTable.get()).parse();
+  }
+
+  /**
+   * Decodes the bytes of the specified stream with the {@link TypeIdTable#get() default type table}.
+   */
+  public static EJValue decode(final InputStream inStream) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] block = new byte[8 * 1024];
+    int read;
+    while ((read = inStream.read(block)) != -1) {
+      out.write(block, 0, read);
+    }
+    return decode(out.toByteArray());
+  }
+
+  public EJValue parse() {
+    try {
+      final int version = buffer.get() & 0xFF;
+      if (version != VERSION) {
+        throw new RuntimeException("unsupported binary protocol version: " + version);
+      }
+      if (buffer.getInt() != table.getFingerprint()) {
+        throw new RuntimeException("payload was encoded with a different type table");
+      }
+
+      final Object value = readValue(0);
+      if (buffer.hasRemaining()) {
+        throw new RuntimeException("unexpected data after the end of the payload");
+      }
+      return new ErraiJSONValue(value);
+    }
+    catch (BufferUnderflowException e) {
+      throw new RuntimeException("truncated payload", e);
+    }
+  }
+
+  private Object readValue(final int depth) {
+    final int tag = buffer.get();
+    if ((tag == TAG_ARRAY || tag == TAG_OBJECT) && depth == MAX_DEPTH) {
+      throw new RuntimeException("payload is nested deeper than " + MAX_DEPTH + " levels");
+    }
+
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_FALSE:
+        return Boolean.FALSE;
+      case TAG_TRUE:
+        return Boolean.TRUE;
+      case TAG_INTEGER: {
+        final long zigzag = readVarint();
+        return (double) ((zigzag >>> 1) ^ -(zigzag & 1));
+      }
+      case TAG_DOUBLE:
+        return buffer.getDouble();
+      case TAG_STRING:
+      case TAG_STRING_REF:
+        return readString(tag);
+      case TAG_ARRAY: {
+        final int size = readLength();
+        final List<Object> list = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(depth + 1));
+        }
+        return list;
+      }
+      case TAG_OBJECT: {
+        final int size = readLength();
+        final Map<Object, Object> map = new LinkedHashMap<Object, Object>(size * 2);
+        for (int i = 0; i < size; i++) {
+          final String key = readString(buffer.get());
+          map.put(key, readValue(depth + 1));
+        }
+        return map;
+      }
+      default:
+        throw new RuntimeException("illegal tag: " + tag);
+    }
+  }
+
+  private String readString(final int tag) {
+    if (tag == TAG_STRING_REF) {
+      final long id = readVarint();
+      if (id < table.size()) {
+        return table.get((int) id);
+      }
+      if (id - table.size() < strings.size()) {
+        return strings.get((int) (id - table.size()));
+      }
+      throw new RuntimeException("unknown string id: " + id);
+    }
+    else if (tag != TAG_STRING) {
+      throw new RuntimeException("expected a string but found tag: " + tag);
+    }
+
+    final int length = readLength();
+    final String value;
+    if (buffer.hasArray()) {
+      value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+      buffer.position(buffer.position() + length);
+    }
+    else {
+      final byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      value = new String(bytes, UTF_8);
+    }
+    strings.add(value);
+    return value;
+  }
+
+  /**
+   * Reads a length or element count, which can never exceed the number of remaining bytes.
+   */
+  private int readLength() {
+    final long length = readVarint();
+    if (length > buffer.remaining()) {
+      throw new RuntimeException("truncated payload");
+    }
+    return (int) length;
+  }
+
+  private long readVarint() {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new RuntimeException("malformed varint");
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+
+/**
+ * Encodes the structures of the Errai Wire Protocol (as produced by {@link JSONStreamDecoder}: maps, lists, strings,
+ * numbers, booleans and nulls) in a compact binary form, which {@link BinaryDecoder} turns back into exactly the same
+ * structures. Compared to JSON, nothing has to be quoted or escaped, numbers are written as
+ * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varints</a> (or as 8 byte doubles if
+ * they are not integral), and strings are written only once per payload: the protocol part names and the type names
+ * of the {@link TypeIdTable}, as well as any string which occurs again, are replaced by a varint id.
+ * <p>
+ * A payload consists of a version byte, the 4 byte fingerprint of the type table, and a single value. Each value
+ * starts with one of the tags below. Instances are not thread safe, but can be reused.
+ */
+public class BinaryEncoder {
+  static final int VERSION = 1;
+
+  static final int TAG_NULL = 0;
+  static final int TAG_FALSE = 1;
+  static final int TAG_TRUE = 2;
+  /** A zig-zag encoded varint. */
+  static final int TAG_INTEGER = 3;
+  /** An 8 byte IEEE 754 double. */
+  static final int TAG_DOUBLE = 4;
+  /** The varint length in bytes and the UTF-8 bytes of a string, which is assigned the next free id. */
+  static final int TAG_STRING = 5;
+  /** The varint id of a string in the type table or of a string which already occurred in this payload. */
+  static final int TAG_STRING_REF = 6;
+  /** The varint number of elements, followed by the elements. */
+  static final int TAG_ARRAY = 7;
+  /** The varint number of members, followed by the name (a string or string ref) and value of each member. */
+  static final int TAG_OBJECT = 8;
+
+  /** Longer strings are not expected to occur again, so they are not remembered. */
+  static final int MAX_REMEMBERED_LENGTH = 64;
+
+  /** Integral doubles up to this magnitude are exact, and written as varints. */
+  private static final double MAX_EXACT_INTEGER = 9007199254740992d;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final TypeIdTable table;
+  private final Map<String, Integer> strings = new HashMap<String, Integer>();
+  private int nextStringId;
+
+  private byte[] buf = new byte[1024];
+  private int count;
+
+  public BinaryEncoder(final TypeIdTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Encodes the specified value with the {@link TypeIdTable#get() default type table}.
+   */
+  public static byte[] encode(final Object value) {
+    return new BinaryEncoder(TypeIdTable.get()).encodePayload(value);
+  }
+
+  /**
+   * Returns the encoding of the specified value, which may be an {@link EJValue} or a structure of maps, lists,
+   * strings, numbers, booleans and nulls.
+   */
+  public byte[] encodePayload(final Object value) {
+    writePayload(value);
+    return Arrays.copyOf(buf, count);
+  }
+
+  /**
+   * Writes the encoding of the specified value to the specified stream.
+   */
+  public void encodePayload(final Object value, final OutputStream out) throws IOException {
+    writePayload(value);
+    out.write(buf, 0, count);
+  }
+
+  private void writePayload(final Object value) {
+    count = 0;
+    strings.clear();
+    nextStringId = table.size();
+
+    final int fingerprint = table.getFingerprint();
+    ensureCapacity(5);
+    buf[count++] = (byte) VERSION;
+    buf[count++] = (byte) (fingerprint >>> 24);
+    buf[count++] = (byte) (fingerprint >>> 16);
+    buf[count++] = (byte) (fingerprint >>> 8);
+    buf[count++] = (byte) fingerprint;
+
+    writeValue(value);
+  }
+
+  private void writeValue(final Object value) {
+    if (value == null) {
+      writeByte(TAG_NULL);
+    }
+    else if (value instanceof String) {
+      writeString((String) value);
+    }
+    else if (value instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) value;
+      writeByte(TAG_OBJECT);
+      writeVarint(map.size());
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        writeString(String.valueOf(entry.getKey()));
+        writeValue(entry.getValue());
+      }
+    }
+    else if (value instanceof Collection) {
+      final Collection<?> collection = (Collection<?>) value;
+      writeByte(TAG_ARRAY);
+      writeVarint(collection.size());
+      for (final Object element : collection) {
+        writeValue(element);
+      }
+    }
+    else if (value instanceof Number) {
+      writeNumber((Number) value);
+    }
+    else if (value instanceof Boolean) {
+      writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+    }
+    else if (value instanceof Character) {
+      writeString(value.toString());
+    }
+    else if (value instanceof EJValue) {
+      writeValue(((EJValue) value).getRawValue());
+    }
+    else {
+      throw new IllegalArgumentException("cannot encode value of type " + value.getClass().getName());
+    }
+  }
+
+  private void writeNumber(final Number number) {
+    if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+      writeInteger(number.longValue());
+      return;
+    }
+
+    final double d = number.doubleValue();
+    if (d == Math.rint(d) && Math.abs(d) <= MAX_EXACT_INTEGER
+        && (d != 0 || Double.doubleToRawLongBits(d) == 0)) {
+      writeInteger((long) d);
+    }
+    else {
+      final long bits = Double.doubleToRawLongBits(d);
+      ensureCapacity(9);
+      buf[count++] = (byte) TAG_DOUBLE;
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buf[count++] = (byte) (bits >>> shift);
+      }
+    }
+  }
+
+  private void writeInteger(final long value) {
+    writeByte(TAG_INTEGER);
+    writeVarint((value << 1) ^ (value >> 63));
+  }
+
+  private void writeString(final String value) {
+    int id = table.idOf(value);
+    if (id < 0) {
+      final Integer seen = strings.get(value);
+      if (seen != null) {
+        id = seen;
+      }
+    }
+
+    if (id >= 0) {
+      writeByte(TAG_STRING_REF);
+      writeVarint(id);
+      return;
+    }
+
+    if (value.length() <= MAX_REMEMBERED_LENGTH) {
+      strings.put(value, nextStringId);
+    }
+    nextStringId++;
+
+    final byte[] bytes = value.getBytes(UTF_8);
+    writeByte(TAG_STRING);
+    writeVarint(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buf, count, bytes.length);
+    count += bytes.length;
+  }
+
+  private void writeByte(final int b) {
+    ensureCapacity(1);
+    buf[count++] = (byte) b;
+  }
+
+  private void writeVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buf[count++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf[count++] = (byte) value;
+  }
+
+  private void ensureCapacity(final int n) {
+    if (count + n > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + n));
+    }
+  }
+}
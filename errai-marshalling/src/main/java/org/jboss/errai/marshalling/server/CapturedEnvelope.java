@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.util.LinkedHashMap;
+
+/**
+ * A decoded message envelope which also retains the exact UTF-8 bytes it was decoded from.
+ *
+ * @see JSONByteDecoder#decodeEnvelopes(java.io.InputStream)
+ */
+public class CapturedEnvelope extends LinkedHashMap<Object, Object> {
+  private static final long serialVersionUID = 1L;
+
+  private byte[] rawBytes;
+
+  CapturedEnvelope() {
+  }
+
+  /**
+   * Returns the bytes this envelope was decoded from, or null if they are not strict JSON. The returned array must not
+   * be modified.
+   */
+  public byte[] getRawBytes() {
+    return rawBytes;
+  }
+
+  void setRawBytes(final byte[] rawBytes) {
+    this.rawBytes = rawBytes;
+  }
+}
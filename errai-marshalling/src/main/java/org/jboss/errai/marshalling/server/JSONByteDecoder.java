@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder.ArrayContext;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder.Context;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder.ObjectContext;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder.OuterContext;
+import org.jboss.errai.marshalling.server.json.impl.ErraiJSONValue;
+
+/**
+ * A JSON parser for the Errai Wire Protocol which works directly on UTF-8 encoded bytes. Unlike
+ * {@link JSONStreamDecoder}, no {@link java.io.Reader} is involved: input is consumed in large blocks, ASCII runs are
+ * copied straight into a scratch buffer which is reused for every token, and the fixed protocol part names (such as
+ * <tt>ToSubject</tt>, <tt>CommandType</tt> or <tt>^EncodedType</tt>) are resolved to shared string instances rather
+ * than being allocated over and over again.
+ * <p>
+ * The decoder produces exactly the same structures as {@link JSONStreamDecoder}, and instances are not thread safe.
+ * Optionally, every message envelope can be captured along with the exact bytes it was received as (see
+ * {@link CapturedEnvelope}), which allows a message to be relayed without being encoded again. The bytes are only
+ * captured if the envelope is strict JSON.
+ */
+public class JSONByteDecoder {
+  private static final int BLOCK_SIZE = 8 * 1024;
+  private static final int REPLACEMENT_CHAR = 0xFFFD;
+
+  /** The states the number recognizer can go through while attempting to parse a JSON numeric value. */
+  private static final int READ_SIGN = 0;
+  private static final int READ_INT = 1;
+  private static final int READ_FRAC = 2;
+  private static final int READ_EXP_SIGN = 3;
+  private static final int READ_EXP = 4;
+
+  private static final String[] KNOWN_KEYS;
+  private static final int KNOWN_KEYS_MASK;
+  private static final int MAX_KNOWN_KEY_LENGTH;
+
+  static {
+    final List<String> keys = new ArrayList<String>();
+    for (final MessageParts part : MessageParts.values()) {
+      keys.add(part.name());
+    }
+    keys.addAll(Arrays.asList(SerializationParts.ENCODED_TYPE, SerializationParts.OBJECT_ID,
+        SerializationParts.QUALIFIED_VALUE, SerializationParts.NUMERIC_VALUE, SerializationParts.NULL_VALUE,
+        SerializationParts.INSTANTIATE_ONLY, SerializationParts.ENUM_STRING_VALUE,
+        SerializationParts.MARSHALLED_TYPES));
+
+    final String[] table = new String[Integer.highestOneBit(keys.size()) << 2];
+    final int mask = table.length - 1;
+    int maxLength = 0;
+    for (final String key : keys) {
+      int idx = key.hashCode() & mask;
+      while (table[idx] != null) {
+        idx = (idx + 1) & mask;
+      }
+      table[idx] = key;
+      maxLength = Math.max(maxLength, key.length());
+    }
+
+    KNOWN_KEYS = table;
+    KNOWN_KEYS_MASK = mask;
+    MAX_KNOWN_KEY_LENGTH = maxLength;
+  }
+
+  private final InputStream inStream;
+  private final ByteBuffer source;
+  private final boolean captureEnvelopes;
+
+  private byte[] block;
+  private int pos;
+  private int limit;
+
+  private char[] scratch = new char[64];
+
+  private int depth;
+  private int captureMark = -1;
+  private ByteArrayOutputStream captured;
+
+  /**
+   * Creates a decoder which reads UTF-8 encoded bytes from the given stream. The stream is read in large blocks, so
+   * it need not be buffered.
+   *
+   * @param inStream
+   *          the input stream to read from. It must be positioned at the start of the JSON message to be parsed.
+   */
+  public JSONByteDecoder(final InputStream inStream) {
+    this(inStream, false);
+  }
+
+  /**
+   * Creates a decoder which reads UTF-8 encoded bytes from the given stream.
+   *
+   * @param inStream
+   *          the input stream to read from. It must be positioned at the start of the JSON message to be parsed.
+   * @param captureEnvelopes
+   *          if true, the outer object, or each object of the outer array, is decoded into a {@link CapturedEnvelope}.
+   */
+  public JSONByteDecoder(final InputStream inStream, final boolean captureEnvelopes) {
+    this.inStream = inStream;
+    this.source = null;
+    this.captureEnvelopes = captureEnvelopes;
+    this.block = new byte[BLOCK_SIZE];
+  }
+
+  /**
+   * Creates a decoder which reads the remaining UTF-8 encoded bytes of the given buffer. Heap buffers are parsed in
+   * place, and the position of the buffer is not modified in that case.
+   *
+   * @param buffer
+   *          the buffer to read from.
+   */
+  public JSONByteDecoder(final ByteBuffer buffer) {
+    this(buffer, false);
+  }
+
+  /**
+   * Creates a decoder which reads the remaining UTF-8 encoded bytes of the given buffer.
+   *
+   * @param buffer
+   *          the buffer to read from.
+   * @param captureEnvelopes
+   *          if true, the outer object, or each object of the outer array, is decoded into a {@link CapturedEnvelope}.
+   */
+  public JSONByteDecoder(final ByteBuffer buffer, final boolean captureEnvelopes) {
+    this.inStream = null;
+    this.captureEnvelopes = captureEnvelopes;
+    if (buffer.hasArray()) {
+      this.source = null;
+      this.block = buffer.array();
+      this.pos = buffer.arrayOffset() + buffer.position();
+      this.limit = buffer.arrayOffset() + buffer.limit();
+    }
+    else {
+      this.source = buffer.duplicate();
+      this.block = new byte[Math.min(BLOCK_SIZE, Math.max(16, buffer.remaining()))];
+    }
+  }
+
+  public static EJValue decode(final InputStream inStream) throws IOException {
+    return new JSONByteDecoder(inStream).parse();
+  }
+
+  public static EJValue decode(final ByteBuffer buffer) {
+    return new JSONByteDecoder(buffer).parse();
+  }
+
+  public static EJValue decode(final byte[] bytes) {
+    return new JSONByteDecoder(ByteBuffer.wrap(bytes)).parse();
+  }
+
+  public static EJValue decodeEnvelopes(final InputStream inStream) throws IOException {
+    return new JSONByteDecoder(inStream, true).parse();
+  }
+
+  public static EJValue decodeEnvelopes(final ByteBuffer buffer) {
+    return new JSONByteDecoder(buffer, true).parse();
+  }
+
+  public EJValue parse() {
+    try {
+      return new ErraiJSONValue(_parse(new OuterContext()));
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    final int read;
+    if (inStream != null) {
+      if (captureMark != -1) spillCapture();
+      read = inStream.read(block, 0, block.length);
+    }
+    else if (source != null && source.hasRemaining()) {
+      if (captureMark != -1) spillCapture();
+      read = Math.min(block.length, source.remaining());
+      source.get(block, 0, read);
+    }
+    else {
+      return false;
+    }
+
+    if (read <= 0) {
+      return false;
+    }
+
+    pos = 0;
+    limit = read;
+    if (captureMark != -1) captureMark = 0;
+    return true;
+  }
+
+  /**
+   * Saves the part of the envelope being captured which is about to be overwritten by {@link #fill()}.
+   */
+  private void spillCapture() {
+    if (captured == null) {
+      captured = new ByteArrayOutputStream(Math.max(64, (limit - captureMark) << 1));
+    }
+    captured.write(block, captureMark, limit - captureMark);
+    captureMark = limit;
+  }
+
+  /**
+   * Returns the next byte as an unsigned value, or -1 at the end of the input. The byte most recently returned can
+   * always be pushed back with <tt>pos--</tt>.
+   */
+  private int read() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return block[pos++] & 0xFF;
+  }
+
+  private Object _parse(final Context ctx) throws IOException {
+    int b;
+    while ((b = read()) != -1) {
+      switch (b) {
+        case '[':
+          depth++;
+          ctx.addValue(_parse(new ArrayContext(new ArrayList<Object>())));
+          depth--;
+          break;
+
+        case '{':
+          if (captureEnvelopes && (depth == 0 || (depth == 1 && ctx instanceof ArrayContext))) {
+            ctx.addValue(parseEnvelope());
+          }
+          else {
+            depth++;
+            ctx.addValue(_parse(new ObjectContext(new LinkedHashMap<Object, Object>())));
+            depth--;
+          }
+          break;
+
+        case ']':
+        case '}':
+          return ctx.record();
+
+        case ',':
+          ctx.record();
+          break;
+
+        case '"':
+        case '\'':
+          ctx.addValue(parseString(b));
+          break;
+
+        case ':':
+        case ' ':
+        case '\t':
+        case '\r':
+        case '\n':
+          break;
+
+        default:
+          if (isNumberStart(b)) {
+            pos--;
+            ctx.addValue(parseDouble());
+          }
+          else if (b >= 0x80 || Character.isJavaIdentifierPart(b)) {
+            pos--;
+            ctx.addValue(parseLiteral());
+          }
+      }
+    }
+
+    return ctx.record();
+  }
+
+  private CapturedEnvelope parseEnvelope() throws IOException {
+    final CapturedEnvelope envelope = new CapturedEnvelope();
+    captureMark = pos - 1;
+
+    depth++;
+    _parse(new ObjectContext(envelope));
+    depth--;
+
+    final byte[] rawBytes;
+    if (captured == null) {
+      rawBytes = Arrays.copyOfRange(block, captureMark, pos);
+    }
+    else {
+      captured.write(block, captureMark, pos - captureMark);
+      rawBytes = captured.toByteArray();
+      captured = null;
+    }
+    captureMark = -1;
+
+    // this parser is lenient, so the bytes are only kept for relaying if they are valid JSON for any client.
+    if (StrictJSON.isObject(rawBytes)) {
+      envelope.setRawBytes(rawBytes);
+    }
+
+    return envelope;
+  }
+
+  private String parseString(final int term) throws IOException {
+    int length = 0;
+    int hash = 0;
+
+    while (true) {
+      if (pos == limit && !fill()) {
+        throw new RuntimeException("unterminated string literal");
+      }
+
+      // fast path: copy the run of plain ASCII characters which is already buffered.
+      ensureCapacity(length + (limit - pos));
+      final byte[] bytes = block;
+      final char[] chars = scratch;
+      int p = pos;
+      while (p < limit) {
+        final byte b = bytes[p];
+        if (b < 0 || b == term || b == '\\') {
+          break;
+        }
+        chars[length++] = (char) b;
+        hash = 31 * hash + b;
+        p++;
+      }
+      pos = p;
+
+      if (pos == limit) {
+        continue;
+      }
+
+      final int b = block[pos++] & 0xFF;
+      if (b == term) {
+        return toString(length, hash);
+      }
+
+      final int codePoint = (b == '\\') ? parseEscapeSequence() : decodeMultiByte(b);
+      ensureCapacity(length + 2);
+      if (Character.isSupplementaryCodePoint(codePoint)) {
+        final char high = Character.highSurrogate(codePoint);
+        final char low = Character.lowSurrogate(codePoint);
+        scratch[length++] = high;
+        scratch[length++] = low;
+        hash = 31 * (31 * hash + high) + low;
+      }
+      else {
+        scratch[length++] = (char) codePoint;
+        hash = 31 * hash + codePoint;
+      }
+    }
+  }
+
+  private Object parseLiteral() throws IOException {
+    int length = 0;
+    int hash = 0;
+
+    int b;
+    while ((b = read()) != -1) {
+      final int codePoint = (b < 0x80) ? b : decodeMultiByte(b);
+      if (!Character.isJavaIdentifierPart(codePoint)) {
+        // only an ASCII terminator can be meaningful to the parser; anything else would be skipped anyway.
+        if (b < 0x80) {
+          pos--;
+        }
+        break;
+      }
+
+      ensureCapacity(length + 2);
+      if (Character.isSupplementaryCodePoint(codePoint)) {
+        final char high = Character.highSurrogate(codePoint);
+        final char low = Character.lowSurrogate(codePoint);
+        scratch[length++] = high;
+        scratch[length++] = low;
+        hash = 31 * (31 * hash + high) + low;
+      }
+      else {
+        scratch[length++] = (char) codePoint;
+        hash = 31 * hash + codePoint;
+      }
+    }
+
+    if (length == 4 && matches("null", length)) {
+      return null;
+    }
+    else if (length == 4 && matches("true", length)) {
+      return Boolean.TRUE;
+    }
+    else if (length == 5 && matches("false", length)) {
+      return Boolean.FALSE;
+    }
+    else {
+      return toString(length, hash);
+    }
+  }
+
+  /**
+   * Decodes the remainder of a multi-byte UTF-8 sequence. Malformed input is decoded as U+FFFD, which is what an
+   * {@link java.io.InputStreamReader} would produce.
+   */
+  private int decodeMultiByte(final int lead) throws IOException {
+    final int trailing;
+    final int min;
+    int codePoint;
+
+    if ((lead & 0xE0) == 0xC0) {
+      trailing = 1;
+      min = 0x80;
+      codePoint = lead & 0x1F;
+    }
+    else if ((lead & 0xF0) == 0xE0) {
+      trailing = 2;
+      min = 0x800;
+      codePoint = lead & 0x0F;
+    }
+    else if ((lead & 0xF8) == 0xF0) {
+      trailing = 3;
+      min = 0x10000;
+      codePoint = lead & 0x07;
+    }
+    else {
+      return REPLACEMENT_CHAR;
+    }
+
+    for (int i = 0; i < trailing; i++) {
+      final int b = read();
+      if ((b & 0xC0) != 0x80) {
+        if (b != -1) pos--;
+        return REPLACEMENT_CHAR;
+      }
+      codePoint = (codePoint << 6) | (b & 0x3F);
+    }
+
+    if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+        || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+      return REPLACEMENT_CHAR;
+    }
+    return codePoint;
+  }
+
+  private int parseEscapeSequence() throws IOException {
+    final int b;
+    switch (b = read()) {
+      case '\\':
+        return '\\';
+      case '/':
+        return '/';
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 't':
+        return '\t';
+      case 'r':
+        return '\r';
+      case 'n':
+        return '\n';
+      case '\'':
+        return '\'';
+      case '"':
+        return '\"';
+      case 'u':
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          final int digit = Character.digit(read(), 16);
+          if (digit == -1) {
+            throw new RuntimeException("illegal unicode escape sequence: expected 4 hex characters after \\u");
+          }
+          value = (value << 4) | digit;
+        }
+        return value;
+
+      default:
+        throw new RuntimeException("illegal escape sequence: " + (char) b);
+    }
+  }
+
+  /**
+   * Parses a JSON numeric literal, consuming input up to the first byte which cannot be part of a number. See
+   * {@link JSONStreamDecoder} for the grammar. Plain integers of up to 15 digits are converted without going through
+   * {@link Double#parseDouble(String)}.
+   */
+  private double parseDouble() throws IOException {
+    int length = 0;
+    long integral = 0;
+    boolean simple = true;
+
+    int state = READ_SIGN;
+
+    int b;
+    recognize:
+    while ((b = read()) != -1) {
+      switch (state) {
+        case READ_SIGN:
+          if (b == '-' || ('0' <= b && b <= '9')) {
+            state = READ_INT;
+          }
+          else {
+            throw new NumberFormatException("Found '" + (char) b + "' but expected '-' or a digit 1-9");
+          }
+          break;
+
+        case READ_INT:
+          if ('0' <= b && b <= '9') {
+            break;
+          }
+          else if (b == '.') {
+            state = READ_FRAC;
+            simple = false;
+          }
+          else if (b == 'E' || b == 'e') {
+            state = READ_EXP_SIGN;
+            simple = false;
+          }
+          else {
+            pos--;
+            break recognize;
+          }
+          break;
+
+        case READ_FRAC:
+          if ('0' <= b && b <= '9') {
+            break;
+          }
+          else if (b == 'E' || b == 'e') {
+            state = READ_EXP_SIGN;
+          }
+          else {
+            pos--;
+            break recognize;
+          }
+          break;
+
+        case READ_EXP_SIGN:
+          if (b == '-' || b == '+' || ('0' <= b && b <= '9')) {
+            state = READ_EXP;
+          }
+          else {
+            throw new NumberFormatException("The numeric literal \"" + new String(scratch, 0, length)
+                + "\" is malformed (can't end with e or E)");
+          }
+          break;
+
+        case READ_EXP:
+          if ('0' <= b && b <= '9') {
+            break;
+          }
+          else {
+            pos--;
+            break recognize;
+          }
+      }
+
+      if (simple && b != '-') {
+        integral = integral * 10 + (b - '0');
+      }
+      ensureCapacity(length + 1);
+      scratch[length++] = (char) b;
+    }
+
+    if (state == READ_EXP_SIGN) {
+      throw new NumberFormatException("The numeric literal \"" + new String(scratch, 0, length)
+          + "\" is malformed (can't end with e or E)");
+    }
+
+    final boolean negative = length > 0 && scratch[0] == '-';
+    if (simple && length - (negative ? 1 : 0) <= 15 && length > (negative ? 1 : 0)) {
+      return negative ? -(double) integral : integral;
+    }
+    return Double.parseDouble(new String(scratch, 0, length));
+  }
+
+  private void ensureCapacity(final int capacity) {
+    if (capacity > scratch.length) {
+      scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length << 1));
+    }
+  }
+
+  private boolean matches(final String value, final int length) {
+    for (int i = 0; i < length; i++) {
+      if (scratch[i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Materializes the current contents of the scratch buffer, returning the shared instance if it is one of the
+   * well-known protocol part names.
+   */
+  private String toString(final int length, final int hash) {
+    if (length <= MAX_KNOWN_KEY_LENGTH) {
+      String key;
+      for (int idx = hash & KNOWN_KEYS_MASK; (key = KNOWN_KEYS[idx]) != null; idx = (idx + 1) & KNOWN_KEYS_MASK) {
+        if (key.length() == length && key.hashCode() == hash && matches(key, length)) {
+          return key;
+        }
+      }
+    }
+    return new String(scratch, 0, length);
+  }
+
+  private static boolean isNumberStart(final int b) {
+    return b == '-' || b == '.' || ('0' <= b && b <= '9');
+  }
+}
@@ -16,7 +16,6 @@
 
 package org.jboss.errai.marshalling.server;
 
-import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 
 import org.jboss.errai.marshalling.client.api.json.EJValue;
@@ -27,7 +26,7 @@ import org.jboss.errai.marshalling.client.api.json.EJValue;
 public class JSONDecoder {
   public static EJValue decode(final String o) {
     try {
-      return new JSONStreamDecoder(new ByteArrayInputStream(o.getBytes("UTF-8"))).parse();
+      return JSONByteDecoder.decode(o.getBytes("UTF-8"));
     } catch (UnsupportedEncodingException e) {
       throw new AssertionError("UTF-8 not supported by this JRE?");
     }
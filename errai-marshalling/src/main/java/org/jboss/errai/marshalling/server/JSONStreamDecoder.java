@@ -415,13 +415,13 @@ public class JSONStreamDecoder {
     }
   }
 
-  private static abstract class Context<T> {
+  static abstract class Context<T> {
     abstract T record();
 
     abstract void addValue(Object val);
   }
 
-  private static class OuterContext extends Context<Object> {
+  static class OuterContext extends Context<Object> {
     private Context _wrapped;
     private Object col;
 
@@ -453,10 +453,10 @@ public class JSONStreamDecoder {
     }
   }
 
-  private static class ArrayContext extends Context<List> {
+  static class ArrayContext extends Context<List> {
     List<Object> collection;
 
-    private ArrayContext(List<Object> collection) {
+    ArrayContext(List<Object> collection) {
       this.collection = collection;
     }
 
@@ -471,10 +471,10 @@ public class JSONStreamDecoder {
     }
   }
 
-  private static class StringContext extends Context<String> {
+  static class StringContext extends Context<String> {
     String value;
 
-    private StringContext(String value) {
+    StringContext(String value) {
       this.value = value;
     }
 
@@ -487,13 +487,13 @@ public class JSONStreamDecoder {
     }
   }
 
-  private static class ObjectContext extends Context<Map> {
+  static class ObjectContext extends Context<Map> {
     protected Object lhs;
     protected Object rhs;
 
     Map<Object, Object> collection;
 
-    private ObjectContext(Map<Object, Object> collection) {
+    ObjectContext(Map<Object, Object> collection) {
       this.collection = collection;
     }
 
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+/**
+ * Checks that UTF-8 encoded bytes are a single JSON object which strictly follows RFC 8259. Unlike the lenient
+ * {@link JSONByteDecoder}, single-quoted strings, bare words, stray characters, control characters in strings and
+ * malformed UTF-8 are all rejected. Only envelopes which pass this check are relayed to other clients as they were
+ * received.
+ */
+final class StrictJSON {
+  private static final int MAX_DEPTH = 512;
+
+  private final byte[] bytes;
+  private final int end;
+  private int pos;
+
+  private StrictJSON(final byte[] bytes) {
+    this.bytes = bytes;
+    this.end = bytes.length;
+  }
+
+  /**
+   * Returns true if the specified bytes are exactly one JSON object, optionally surrounded by whitespace.
+   */
+  static boolean isObject(final byte[] bytes) {
+    final StrictJSON json = new StrictJSON(bytes);
+    json.skipWhitespace();
+    if (json.peek() != '{' || !json.value(0)) {
+      return false;
+    }
+    json.skipWhitespace();
+    return json.pos == json.end;
+  }
+
+  private int peek() {
+    return pos < end ? bytes[pos] & 0xFF : -1;
+  }
+
+  private void skipWhitespace() {
+    while (pos < end) {
+      final byte b = bytes[pos];
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  private boolean value(final int depth) {
+    switch (peek()) {
+      case '{':
+        return depth < MAX_DEPTH && object(depth + 1);
+      case '[':
+        return depth < MAX_DEPTH && array(depth + 1);
+      case '"':
+        return string();
+      case 't':
+        return literal("true");
+      case 'f':
+        return literal("false");
+      case 'n':
+        return literal("null");
+      default:
+        return number();
+    }
+  }
+
+  private boolean object(final int depth) {
+    pos++;
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+      return true;
+    }
+
+    while (true) {
+      if (peek() != '"' || !string()) {
+        return false;
+      }
+      skipWhitespace();
+      if (peek() != ':') {
+        return false;
+      }
+      pos++;
+      skipWhitespace();
+      if (!value(depth)) {
+        return false;
+      }
+      skipWhitespace();
+
+      final int b = peek();
+      pos++;
+      if (b == '}') {
+        return true;
+      }
+      else if (b != ',') {
+        return false;
+      }
+      skipWhitespace();
+    }
+  }
+
+  private boolean array(final int depth) {
+    pos++;
+    skipWhitespace();
+    if (peek() == ']') {
+      pos++;
+      return true;
+    }
+
+    while (true) {
+      if (!value(depth)) {
+        return false;
+      }
+      skipWhitespace();
+
+      final int b = peek();
+      pos++;
+      if (b == ']') {
+        return true;
+      }
+      else if (b != ',') {
+        return false;
+      }
+      skipWhitespace();
+    }
+  }
+
+  private boolean string() {
+    pos++;
+    while (pos < end) {
+      final int b = bytes[pos++] & 0xFF;
+      if (b == '"') {
+        return true;
+      }
+      else if (b == '\\') {
+        if (!escape()) {
+          return false;
+        }
+      }
+      else if (b < 0x20) {
+        return false;
+      }
+      else if (b >= 0x80 && !multiByte(b)) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private boolean escape() {
+    if (pos == end) {
+      return false;
+    }
+    switch (bytes[pos++]) {
+      case '"':
+      case '\\':
+      case '/':
+      case 'b':
+      case 'f':
+      case 'n':
+      case 'r':
+      case 't':
+        return true;
+      case 'u':
+        for (int i = 0; i < 4; i++) {
+          if (pos == end || Character.digit(bytes[pos++], 16) == -1) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Checks the remainder of a multi-byte UTF-8 sequence, rejecting overlong encodings and surrogates.
+   */
+  private boolean multiByte(final int lead) {
+    final int trailing;
+    final int min;
+    int codePoint;
+
+    if ((lead & 0xE0) == 0xC0) {
+      trailing = 1;
+      min = 0x80;
+      codePoint = lead & 0x1F;
+    }
+    else if ((lead & 0xF0) == 0xE0) {
+      trailing = 2;
+      min = 0x800;
+      codePoint = lead & 0x0F;
+    }
+    else if ((lead & 0xF8) == 0xF0) {
+      trailing = 3;
+      min = 0x10000;
+      codePoint = lead & 0x07;
+    }
+    else {
+      return false;
+    }
+
+    for (int i = 0; i < trailing; i++) {
+      if (pos == end || (bytes[pos] & 0xC0) != 0x80) {
+        return false;
+      }
+      codePoint = (codePoint << 6) | (bytes[pos++] & 0x3F);
+    }
+
+    return codePoint >= min && codePoint <= Character.MAX_CODE_POINT
+        && !(codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE);
+  }
+
+  private boolean literal(final String literal) {
+    if (end - pos < literal.length()) {
+      return false;
+    }
+    for (int i = 0; i < literal.length(); i++) {
+      if (bytes[pos + i] != literal.charAt(i)) {
+        return false;
+      }
+    }
+    pos += literal.length();
+    return true;
+  }
+
+  private boolean number() {
+    if (peek() == '-') {
+      pos++;
+    }
+
+    if (peek() == '0') {
+      pos++;
+    }
+    else if (!digits()) {
+      return false;
+    }
+
+    if (peek() == '.') {
+      pos++;
+      if (!digits()) {
+        return false;
+      }
+    }
+
+    final int e = peek();
+    if (e == 'e' || e == 'E') {
+      pos++;
+      if (peek() == '+' || peek() == '-') {
+        pos++;
+      }
+      if (!digits()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean digits() {
+    final int start = pos;
+    while (pos < end && bytes[pos] >= '0' && bytes[pos] <= '9') {
+      pos++;
+    }
+    return pos > start;
+  }
+}
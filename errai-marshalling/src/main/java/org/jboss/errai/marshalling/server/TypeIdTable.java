@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
+
+/**
+ * The table of strings which the binary encoding of the Errai Wire Protocol (see {@link BinaryEncoder}) refers to by
+ * id rather than spelling them out: the protocol part names (such as <tt>ToSubject</tt> or <tt>^EncodedType</tt>)
+ * followed by the names of all types known to the mapping context, in alphabetical order. Both ends of a connection
+ * must use the same table; a binary payload carries the {@link #getFingerprint() fingerprint} of the table it was
+ * encoded with, and is rejected by a decoder using a different one.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public final class TypeIdTable {
+  private static volatile TypeIdTable instance;
+
+  private final String[] entries;
+  private final List<String> typeNames;
+  private final Map<String, Integer> ids;
+  private final int fingerprint;
+
+  /**
+   * Creates a table of the protocol part names followed by the specified type names, in alphabetical order.
+   */
+  public TypeIdTable(final Collection<String> typeNames) {
+    final List<String> entries = new ArrayList<String>();
+    for (final MessageParts part : MessageParts.values()) {
+      entries.add(part.name());
+    }
+    entries.addAll(Arrays.asList(SerializationParts.ENCODED_TYPE, SerializationParts.OBJECT_ID,
+        SerializationParts.QUALIFIED_VALUE, SerializationParts.NUMERIC_VALUE, SerializationParts.NULL_VALUE,
+        SerializationParts.INSTANTIATE_ONLY, SerializationParts.ENUM_STRING_VALUE,
+        SerializationParts.MARSHALLED_TYPES));
+
+    final List<String> types = new ArrayList<String>(typeNames);
+    Collections.sort(types);
+    entries.addAll(types);
+    this.typeNames = Collections.unmodifiableList(types);
+
+    this.entries = entries.toArray(new String[entries.size()]);
+    this.ids = new HashMap<String, Integer>(this.entries.length * 2);
+
+    int hash = 1;
+    for (int i = 0; i < this.entries.length; i++) {
+      if (!ids.containsKey(this.entries[i])) {
+        ids.put(this.entries[i], i);
+      }
+      hash = 31 * hash + this.entries[i].hashCode();
+    }
+    this.fingerprint = hash;
+  }
+
+  /**
+   * Creates a table of the types which have a mapping definition in the specified context.
+   */
+  public static TypeIdTable fromMappingContext(final ServerMappingContext context) {
+    final List<String> typeNames = new ArrayList<String>();
+    for (final MappingDefinition definition : context.getDefinitionsFactory().getMappingDefinitions()) {
+      typeNames.add(definition.getMappingClass().getFullyQualifiedName());
+    }
+    return new TypeIdTable(typeNames);
+  }
+
+  /**
+   * Creates the table a remote bus has advertised with its <tt>BinaryProtocol</tt> capability.
+   *
+   * @param typeNames
+   *     the type names of the remote table, as returned by {@link #getTypeNames()}.
+   * @param fingerprint
+   *     the fingerprint of the remote table.
+   *
+   * @throws RuntimeException
+   *     if the table built from the type names does not have the specified fingerprint, for instance because the two
+   *     ends disagree on the protocol part names.
+   */
+  public static TypeIdTable fromAdvertisement(final Collection<String> typeNames, final int fingerprint) {
+    final TypeIdTable table = new TypeIdTable(typeNames);
+    if (table.getFingerprint() != fingerprint) {
+      throw new RuntimeException("advertised type table does not match its fingerprint");
+    }
+    return table;
+  }
+
+  /**
+   * Returns the table of the types known to the {@link MappingContextSingleton}.
+   */
+  public static TypeIdTable get() {
+    TypeIdTable table = instance;
+    if (table == null) {
+      instance = table = fromMappingContext(MappingContextSingleton.get());
+    }
+    return table;
+  }
+
+  /**
+   * Returns the id of the specified string, or -1 if it is not part of this table.
+   */
+  public int idOf(final String value) {
+    final Integer id = ids.get(value);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the string with the specified id.
+   *
+   * @throws IndexOutOfBoundsException
+   *           if there is no string with this id.
+   */
+  public String get(final int id) {
+    return entries[id];
+  }
+
+  public int size() {
+    return entries.length;
+  }
+
+  /**
+   * Returns the type names of this table in table order. Together with the {@link #getFingerprint() fingerprint}
+   * they are all a remote bus needs to rebuild the table.
+   */
+  public List<String> getTypeNames() {
+    return typeNames;
+  }
+
+  /**
+   * Returns a hash of all entries of this table, in order.
+   */
+  public int getFingerprint() {
+    return fingerprint;
+  }
+}
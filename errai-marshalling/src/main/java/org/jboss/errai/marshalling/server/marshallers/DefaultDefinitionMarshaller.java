@@ -19,6 +19,7 @@ package org.jboss.errai.marshalling.server.marshallers;
 import org.jboss.errai.codegen.meta.MetaField;
 import org.jboss.errai.codegen.meta.MetaMethod;
 import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.MappingContext;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.exceptions.MarshallingException;
@@ -37,8 +38,9 @@ import org.jboss.errai.marshalling.server.EncodingSession;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.jboss.errai.marshalling.server.api.ServerMarshaller;
 import org.mvel2.DataConversion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Array;
@@ -46,17 +48,57 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
+ * Marshalls the types which have no generated marshaller, based on their {@link MappingDefinition}.
+ * <p>
+ * On first use, the marshaller obtains method handles for the members and the constructor of the mapped type (see
+ * {@link DefinitionAccessors}), and from then on resolves the marshallers of the members only once. If the members
+ * cannot be accessed through method handles, or if method handles are disabled, reflection is used instead.
+ *
  * @author Mike Brock
  */
 public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
+  private static final Logger log = LoggerFactory.getLogger(DefaultDefinitionMarshaller.class);
+
   static final Charset UTF_8 = Charset.forName("UTF-8");
 
+  private static final String ENCODED_TYPE_PREFIX = "{\"" + SerializationParts.ENCODED_TYPE + "\":\"";
+  private static final String OBJECT_ID_PREFIX = "\",\"" + SerializationParts.OBJECT_ID + "\":\"";
+  private static final String ENUM_STRING_VALUE_PREFIX = "\",\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"";
+  private static final String INSTANTIATE_ONLY_MEMBER = "\"" + SerializationParts.INSTANTIATE_ONLY + "\":true";
+
   private final MappingDefinition definition;
+  private final boolean useMethodHandles;
+
+  /**
+   * Lazily computed, constant fragments of the encoding for this definition. These are only ever replaced by
+   * equivalent values, so no synchronization is necessary.
+   */
+  private volatile String typePrefix;
+  private volatile String[] memberKeys;
+
+  /**
+   * Lazily obtained accessors and marshallers of the members. Like the fragments above, these are only ever replaced
+   * by equivalent values.
+   */
+  private volatile boolean accessorsResolved;
+  private volatile DefinitionAccessors accessors;
+  private volatile Marshaller<Object>[] readableMarshallers;
+  private volatile ResolvedMarshallers demarshallers;
 
   public DefaultDefinitionMarshaller(final MappingDefinition definition) {
+    this(definition, true);
+  }
+
+  /**
+   * @param useMethodHandles
+   *          if false, the members are always accessed reflectively.
+   */
+  public DefaultDefinitionMarshaller(final MappingDefinition definition, final boolean useMethodHandles) {
     this.definition = definition;
+    this.useMethodHandles = useMethodHandles;
   }
 
   public static void setProperty(final Object i, final Field f, final Object v) {
@@ -94,6 +136,8 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
           }
 
           final String objID = oMap.get(SerializationParts.OBJECT_ID).isString().stringValue();
+          final DefinitionAccessors accessors = getAccessors();
+          final ResolvedMarshallers marshallers = getDemarshallers(ctx);
 
           if (ctx.hasObject(objID)) {
             newInstance = ctx.getObject(Object.class, objID);
@@ -110,24 +154,28 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
              * Check to see if this object is instantiate only... meaning it has no fields to marshall.
              */
             if (oMap.containsKey(SerializationParts.INSTANTIATE_ONLY)) {
-              newInstance = getTypeHandled().newInstance();
+              newInstance = accessors != null && accessors.hasDefaultConstructor()
+                  ? accessors.newInstance() : getTypeHandled().newInstance();
               ctx.recordObject(objID, newInstance);
               return newInstance;
             }
 
             final InstantiationMapping cMapping = definition.getInstantiationMapping();
-            final Object[] parms = new Object[cMapping.getMappings().length];
+            final Mapping[] cMappings = cMapping.getMappings();
+            final Object[] parms = new Object[cMappings.length];
             final Class[] targetTypes = cMapping.getSignature();
 
-            int i = 0;
-            for (final Mapping mapping : cMapping.getMappings()) {
-              final Marshaller<Object> marshaller = ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+            for (int i = 0; i < cMappings.length; i++) {
+              final Marshaller<Object> marshaller = marshallers.getInstantiationMarshaller(i, ctx);
               //noinspection unchecked
               parms[i] = DataConversion.convert(
-                      marshaller.demarshall(oMap.get(mapping.getKey()), ctx), targetTypes[i++]);
+                      marshaller.demarshall(oMap.get(cMappings[i].getKey()), ctx), targetTypes[i]);
             }
 
-            if (cMapping instanceof ConstructorMapping) {
+            if (accessors != null && accessors.hasInstantiator()) {
+              newInstance = accessors.instantiate(parms);
+            }
+            else if (cMapping instanceof ConstructorMapping) {
               final Constructor constructor = ((ConstructorMapping) cMapping).getMember().asConstructor();
               constructor.setAccessible(true);
               newInstance = constructor.newInstance(parms);
@@ -139,14 +187,19 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
             ctx.recordObject(objID, newInstance);
           }
 
-          for (final MemberMapping mapping : definition.getWritableMemberMappings()) {
+          final List<MemberMapping> writableMappings = definition.getWritableMemberMappings();
+          for (int i = 0; i < writableMappings.size(); i++) {
+            final MemberMapping mapping = writableMappings.get(i);
             final EJValue o1 = oMap.get(mapping.getKey());
 
             if (!o1.isNull()) {
-              final Marshaller<Object> marshaller
-                      = ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+              final Marshaller<Object> marshaller = marshallers.getWritableMarshaller(i, ctx);
 
-              if (mapping.getBindingMember() instanceof MetaField) {
+              if (accessors != null) {
+                accessors.set(i, newInstance,
+                        DataConversion.convert(marshaller.demarshall(o1, ctx), accessors.getSetterType(i)));
+              }
+              else if (mapping.getBindingMember() instanceof MetaField) {
                 final MetaField f = (MetaField) mapping.getBindingMember();
 
                 setProperty(newInstance, f.asField(),
@@ -176,42 +229,44 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
         return o.getRawValue();
       }
     }
-    catch (Exception e) {
-      throw new MarshallingException("Failed to demarshall an instance of " + definition.getMappingClass(), e);
+    catch (Error e) {
+      throw e;
+    }
+    catch (Throwable t) {
+      throw new MarshallingException("Failed to demarshall an instance of " + definition.getMappingClass(), t);
     }
   }
 
   @Override
   public String marshall(final Object o, final MarshallingSession ctx) {
-    final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(1024);
-    try {
-      marshall(byteArrayOutputStream, o, ctx);
-      return new String(byteArrayOutputStream.toByteArray(), UTF_8);
-    }
-    catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+    final StringBuilder buf = new StringBuilder(128);
+    marshall(buf, o, (EncodingSession) ctx);
+    return buf.toString();
   }
 
-
   @Override
   public void marshall(final OutputStream outstream, final Object o, final MarshallingSession mSession) throws IOException {
+    outstream.write(marshall(o, mSession).getBytes(UTF_8));
+  }
 
+  /**
+   * Marshalls the specified object into the provided builder. Nested objects which are also handled by a
+   * {@link DefaultDefinitionMarshaller} are appended directly to the same builder, rather than being marshalled
+   * into an intermediate string first.
+   */
+  private void marshall(final StringBuilder buf, final Object o, final EncodingSession ctx) {
     if (o == null) {
-      outstream.write("null".getBytes(UTF_8));
+      buf.append("null");
       return;
     }
 
-    final EncodingSession ctx = (EncodingSession) mSession;
     final Class cls = o.getClass();
 
     if (definition.getMappingClass().isEnum()) {
       final Enum enumer = (Enum) o;
 
-      outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\""
-              + enumer.getDeclaringClass().getName() + "\""
-              + ",\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"" + enumer.name() + "\"}")
-              .getBytes(UTF_8));
+      buf.append(ENCODED_TYPE_PREFIX).append(enumer.getDeclaringClass().getName())
+          .append(ENUM_STRING_VALUE_PREFIX).append(enumer.name()).append("\"}");
 
       return;
     }
@@ -219,93 +274,196 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
     final boolean enc = ctx.hasObject(o);
     final String hash = ctx.getObject(o);
 
+    if (cls == getTypeHandled()) {
+      buf.append(getTypePrefix());
+    }
+    else {
+      buf.append(ENCODED_TYPE_PREFIX).append(cls.getName()).append(OBJECT_ID_PREFIX);
+    }
+    buf.append(hash);
+
     if (enc) {
       /**
        * If this object is referencing a duplicate object in the graph, we only provide an ID reference.
        */
-
-      outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + cls.getName()
-              + "\",\"" + SerializationParts.OBJECT_ID + "\":\"" + hash + "\"}").getBytes(UTF_8));
-
+      buf.append("\"}");
       return;
     }
 
-    int i = 0;
-    boolean first = true;
+    buf.append("\",");
 
-    outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + cls.getName() + "\",\""
-            + SerializationParts.OBJECT_ID + "\":\"" + hash + "\",").getBytes(UTF_8));
+    final String[] memberKeys = getMemberKeys();
+    final DefinitionAccessors accessors = getAccessors();
+    final Marshaller<Object>[] marshallers = getReadableMarshallers();
+    final List<MemberMapping> readableMappings = definition.getReadableMemberMappings();
 
-    for (final MemberMapping mapping : definition.getReadableMemberMappings()) {
-      if (!first) {
-        outstream.write(',');
+    int i;
+    for (i = 0; i < readableMappings.size(); i++) {
+      if (i > 0) {
+        buf.append(',');
       }
 
-      i++;
-      final Object v;
+      final MemberMapping mapping = readableMappings.get(i);
+      final Object v = accessors != null ? readMember(accessors, i, o) : readMemberReflectively(mapping, o);
 
-      if (mapping.getReadingMember() instanceof MetaField) {
-        final Field field = ((MetaField) mapping.getReadingMember()).asField();
-        field.setAccessible(true);
+      buf.append(memberKeys[i]);
 
-        try {
-          v = field.get(o);
-        }
-        catch (Exception e) {
-          throw new RuntimeException("error accessing field: " + field, e);
-        }
+      if (v == null) {
+        buf.append("null");
       }
       else {
-        final Method method = ((MetaMethod) mapping.getReadingMember()).asMethod();
-        method.setAccessible(true);
+        Marshaller<Object> marshallerInstance = marshallers[i];
+        if (marshallerInstance == null) {
+          marshallers[i] = marshallerInstance = resolveMarshaller(mapping);
+        }
 
-        try {
-          v = method.invoke(o);
+        if (marshallerInstance instanceof DefaultDefinitionMarshaller) {
+          ((DefaultDefinitionMarshaller) marshallerInstance).marshall(buf, v, ctx);
         }
-        catch (Exception e) {
-          throw new RuntimeException("error calling getter: " + method, e);
+        else {
+          buf.append(marshallerInstance.marshall(v, ctx));
         }
       }
+    }
 
-      outstream.write(("\"" + mapping.getKey() + "\"").getBytes(UTF_8));
-      outstream.write(':');
+    if (i == 0) {
+      buf.append(INSTANTIATE_ONLY_MEMBER);
+    }
 
-      if (v == null) {
-        outstream.write("null".getBytes(UTF_8));
+    buf.append('}');
+  }
+
+  private static Object readMember(final DefinitionAccessors accessors, final int index, final Object o) {
+    try {
+      return accessors.get(index, o);
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Error e) {
+      throw e;
+    }
+    catch (Throwable t) {
+      throw new RuntimeException("error reading member " + index + " of " + o.getClass().getName(), t);
+    }
+  }
+
+  private static Object readMemberReflectively(final MemberMapping mapping, final Object o) {
+    if (mapping.getReadingMember() instanceof MetaField) {
+      final Field field = ((MetaField) mapping.getReadingMember()).asField();
+      field.setAccessible(true);
+
+      try {
+        return field.get(o);
       }
-      else {
-        final DefinitionsFactory definitionsFactory = MappingContextSingleton.get().getDefinitionsFactory();
+      catch (Exception e) {
+        throw new RuntimeException("error accessing field: " + field, e);
+      }
+    }
+    else {
+      final Method method = ((MetaMethod) mapping.getReadingMember()).asMethod();
+      method.setAccessible(true);
 
-        if (definitionsFactory == null) {
-          throw new RuntimeException("definition factory is null!");
-        }
+      try {
+        return method.invoke(o);
+      }
+      catch (Exception e) {
+        throw new RuntimeException("error calling getter: " + method, e);
+      }
+    }
+  }
 
-        final MappingDefinition definition1 = definitionsFactory.getDefinition(mapping.getType());
+  /**
+   * Returns the marshaller for the values of the specified readable member.
+   */
+  private static Marshaller<Object> resolveMarshaller(final MemberMapping mapping) {
+    final DefinitionsFactory definitionsFactory = MappingContextSingleton.get().getDefinitionsFactory();
 
-        if (definition1 == null) {
-          throw new RuntimeException("no mapping definition for: " + mapping.getType().getFullyQualifiedName());
-        }
+    if (definitionsFactory == null) {
+      throw new RuntimeException("definition factory is null!");
+    }
 
-        final Marshaller<Object> marshallerInstance = definition1.getMarshallerInstance();
+    final MappingDefinition definition1 = definitionsFactory.getDefinition(mapping.getType());
 
-        if (marshallerInstance == null) {
-          throw new RuntimeException("no marshaller instance for: " + mapping.getType().getFullyQualifiedName());
-        }
+    if (definition1 == null) {
+      throw new RuntimeException("no mapping definition for: " + mapping.getType().getFullyQualifiedName());
+    }
+
+    final Marshaller<Object> marshallerInstance = definition1.getMarshallerInstance();
+
+    if (marshallerInstance == null) {
+      throw new RuntimeException("no marshaller instance for: " + mapping.getType().getFullyQualifiedName());
+    }
 
-        outstream.write(
-                marshallerInstance.marshall(v, ctx)
-                        .getBytes(UTF_8)
-        );
+    return marshallerInstance;
+  }
+
+  /**
+   * Returns the method handles for the members of the mapped type, or null if the members are accessed reflectively.
+   */
+  private DefinitionAccessors getAccessors() {
+    if (!accessorsResolved) {
+      DefinitionAccessors resolved = null;
+      if (useMethodHandles && !definition.getMappingClass().isEnum()) {
+        try {
+          resolved = DefinitionAccessors.create(definition);
+        }
+        catch (Exception e) {
+          log.debug("could not obtain method handles for " + definition.getMappingClass().getFullyQualifiedName()
+              + "; using reflection", e);
+        }
       }
+      accessors = resolved;
+      accessorsResolved = true;
+    }
+    return accessors;
+  }
 
-      first = false;
+  /**
+   * Returns the marshallers of the readable members, in mapping order. Elements are null until they are resolved.
+   */
+  @SuppressWarnings("unchecked")
+  private Marshaller<Object>[] getReadableMarshallers() {
+    if (readableMarshallers == null) {
+      readableMarshallers = new Marshaller[definition.getReadableMemberMappings().size()];
     }
+    return readableMarshallers;
+  }
 
-    if (i == 0) {
-      outstream.write(("\"" + SerializationParts.INSTANTIATE_ONLY + "\":true").getBytes(UTF_8));
+  /**
+   * Returns the marshallers for demarshalling the members in the mapping context of the specified session.
+   */
+  private ResolvedMarshallers getDemarshallers(final MarshallingSession ctx) {
+    ResolvedMarshallers resolved = demarshallers;
+    if (resolved == null || resolved.context != ctx.getMappingContext()) {
+      demarshallers = resolved = new ResolvedMarshallers(ctx.getMappingContext(), definition);
     }
+    return resolved;
+  }
 
-    outstream.write('}');
+  /**
+   * Returns the constant start of an encoded instance of the mapped type, up to (but excluding) the object id.
+   */
+  private String getTypePrefix() {
+    if (typePrefix == null) {
+      typePrefix = ENCODED_TYPE_PREFIX + getTypeHandled().getName() + OBJECT_ID_PREFIX;
+    }
+    return typePrefix;
+  }
+
+  /**
+   * Returns the quoted keys (including the trailing colon) of the readable members, in mapping order.
+   */
+  private String[] getMemberKeys() {
+    if (memberKeys == null) {
+      final String[] keys = new String[definition.getReadableMemberMappings().size()];
+      int i = 0;
+      for (final MemberMapping mapping : definition.getReadableMemberMappings()) {
+        keys[i++] = "\"" + mapping.getKey() + "\":";
+      }
+      memberKeys = keys;
+    }
+    return memberKeys;
   }
 
   public static Class getClassReference(final EJObject oMap) {
@@ -317,4 +475,43 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
       throw new RuntimeException("could not instantiate class", e);
     }
   }
+
+  /**
+   * The marshallers for the instantiation and writable members of a definition in a mapping context, which are looked
+   * up by type name the first time they are needed.
+   */
+  private static final class ResolvedMarshallers {
+    private final MappingContext context;
+    private final Mapping[] instantiationMappings;
+    private final List<MemberMapping> writableMappings;
+    private final Marshaller<Object>[] instantiationMarshallers;
+    private final Marshaller<Object>[] writableMarshallers;
+
+    @SuppressWarnings("unchecked")
+    private ResolvedMarshallers(final MappingContext context, final MappingDefinition definition) {
+      this.context = context;
+      this.instantiationMappings = definition.getInstantiationMapping().getMappings();
+      this.writableMappings = definition.getWritableMemberMappings();
+      this.instantiationMarshallers = new Marshaller[instantiationMappings.length];
+      this.writableMarshallers = new Marshaller[writableMappings.size()];
+    }
+
+    Marshaller<Object> getInstantiationMarshaller(final int index, final MarshallingSession ctx) {
+      Marshaller<Object> marshaller = instantiationMarshallers[index];
+      if (marshaller == null) {
+        instantiationMarshallers[index] = marshaller =
+            ctx.getMarshallerInstance(instantiationMappings[index].getType().getFullyQualifiedName());
+      }
+      return marshaller;
+    }
+
+    Marshaller<Object> getWritableMarshaller(final int index, final MarshallingSession ctx) {
+      Marshaller<Object> marshaller = writableMarshallers[index];
+      if (marshaller == null) {
+        writableMarshallers[index] = marshaller =
+            ctx.getMarshallerInstance(writableMappings.get(index).getType().getFullyQualifiedName());
+      }
+      return marshaller;
+    }
+  }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server.marshallers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.jboss.errai.codegen.meta.MetaClassMember;
+import org.jboss.errai.codegen.meta.MetaField;
+import org.jboss.errai.codegen.meta.MetaMethod;
+import org.jboss.errai.marshalling.rebind.api.model.ConstructorMapping;
+import org.jboss.errai.marshalling.rebind.api.model.FactoryMapping;
+import org.jboss.errai.marshalling.rebind.api.model.InstantiationMapping;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
+import org.jboss.errai.marshalling.rebind.api.model.MemberMapping;
+
+/**
+ * The method handles through which a {@link DefaultDefinitionMarshaller} reads, writes and instantiates the members of
+ * its {@link MappingDefinition}. They are obtained once per definition, so marshalling an object involves no
+ * reflective access checks or argument arrays, and the JIT can inline the accessors much like the code of a generated
+ * marshaller.
+ */
+final class DefinitionAccessors {
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType INSTANTIATOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  private final MethodHandle[] getters;
+  private final MethodHandle[] setters;
+  private final Class<?>[] setterTypes;
+  private final MethodHandle instantiator;
+  private final MethodHandle defaultConstructor;
+
+  private DefinitionAccessors(final MethodHandle[] getters, final MethodHandle[] setters, final Class<?>[] setterTypes,
+                              final MethodHandle instantiator, final MethodHandle defaultConstructor) {
+    this.getters = getters;
+    this.setters = setters;
+    this.setterTypes = setterTypes;
+    this.instantiator = instantiator;
+    this.defaultConstructor = defaultConstructor;
+  }
+
+  /**
+   * Obtains the accessors for the members of the specified definition.
+   *
+   * @throws ReflectiveOperationException
+   *           if a member is not accessible.
+   */
+  static DefinitionAccessors create(final MappingDefinition definition) throws ReflectiveOperationException {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    final List<MemberMapping> readable = definition.getReadableMemberMappings();
+    final MethodHandle[] getters = new MethodHandle[readable.size()];
+    for (int i = 0; i < getters.length; i++) {
+      final MetaClassMember member = readable.get(i).getReadingMember();
+      if (member instanceof MetaField) {
+        final Field field = ((MetaField) member).asField();
+        field.setAccessible(true);
+        getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+      }
+      else {
+        final Method method = ((MetaMethod) member).asMethod();
+        method.setAccessible(true);
+        getters[i] = lookup.unreflect(method).asType(GETTER_TYPE);
+      }
+    }
+
+    final List<MemberMapping> writable = definition.getWritableMemberMappings();
+    final MethodHandle[] setters = new MethodHandle[writable.size()];
+    final Class<?>[] setterTypes = new Class<?>[writable.size()];
+    for (int i = 0; i < setters.length; i++) {
+      final MetaClassMember member = writable.get(i).getBindingMember();
+      if (member instanceof MetaField) {
+        final Field field = ((MetaField) member).asField();
+        field.setAccessible(true);
+        setters[i] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        setterTypes[i] = field.getType();
+      }
+      else {
+        final Method method = ((MetaMethod) member).asMethod();
+        method.setAccessible(true);
+        setters[i] = lookup.unreflect(method).asType(SETTER_TYPE);
+        setterTypes[i] = method.getParameterTypes()[0];
+      }
+    }
+
+    MethodHandle instantiator = null;
+    final InstantiationMapping instantiationMapping = definition.getInstantiationMapping();
+    if (instantiationMapping instanceof ConstructorMapping
+        && ((ConstructorMapping) instantiationMapping).getMember() != null) {
+      final Constructor<?> constructor = ((ConstructorMapping) instantiationMapping).getMember().asConstructor();
+      constructor.setAccessible(true);
+      instantiator = lookup.unreflectConstructor(constructor);
+    }
+    else if (instantiationMapping instanceof FactoryMapping) {
+      final Method factoryMethod = ((FactoryMapping) instantiationMapping).getMember().asMethod();
+      factoryMethod.setAccessible(true);
+      instantiator = lookup.unreflect(factoryMethod);
+    }
+    if (instantiator != null) {
+      instantiator = instantiator.asSpreader(Object[].class, instantiator.type().parameterCount())
+          .asType(INSTANTIATOR_TYPE);
+    }
+
+    MethodHandle defaultConstructor = null;
+    final Class<?> type = definition.getMappingClass().asClass();
+    try {
+      final Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      defaultConstructor = lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+    }
+    catch (NoSuchMethodException e) {
+      // only needed for types which are instantiated without members.
+    }
+
+    return new DefinitionAccessors(getters, setters, setterTypes, instantiator, defaultConstructor);
+  }
+
+  /**
+   * Returns the value of the readable member at the specified index.
+   */
+  Object get(final int index, final Object instance) throws Throwable {
+    return (Object) getters[index].invokeExact(instance);
+  }
+
+  /**
+   * Sets the writable member at the specified index, which must be of the {@link #getSetterType(int) setter type}.
+   */
+  void set(final int index, final Object instance, final Object value) throws Throwable {
+    setters[index].invokeExact(instance, value);
+  }
+
+  Class<?> getSetterType(final int index) {
+    return setterTypes[index];
+  }
+
+  /**
+   * Returns true if instances are created through the constructor or factory method of the instantiation mapping.
+   */
+  boolean hasInstantiator() {
+    return instantiator != null;
+  }
+
+  Object instantiate(final Object[] parms) throws Throwable {
+    return (Object) instantiator.invokeExact(parms);
+  }
+
+  boolean hasDefaultConstructor() {
+    return defaultConstructor != null;
+  }
+
+  Object newInstance() throws Throwable {
+    return (Object) defaultConstructor.invokeExact();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.BinaryDecoder;
+import org.jboss.errai.marshalling.server.BinaryEncoder;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder;
+import org.jboss.errai.marshalling.server.TypeIdTable;
+import org.junit.Test;
+
+/**
+ * Tests for the binary encoding of the Errai Wire Protocol.
+ */
+public class BinaryProtocolTest {
+  private static final String PAYLOAD = "[{\"ToSubject\":\"Foo\",\"CommandType\":\"Bar\",\"Value\":{"
+      + "\"^EncodedType\":\"org.foo.Quote\",\"^ObjectID\":\"1\",\"symbol\":\"RHT\",\"price\":123.25,"
+      + "\"volume\":-40000,\"big\":9007199254740993,\"tags\":[\"a\",\"b\",\"a\",true,false,null],\"empty\":{}}},"
+      + "{\"ToSubject\":\"Foo\",\"Value\":{\"^EncodedType\":\"org.foo.Quote\",\"^ObjectID\":\"1\"}}]";
+
+  private final TypeIdTable table = new TypeIdTable(Arrays.asList("org.foo.Quote", "java.lang.String"));
+
+  @Test
+  public void testDecodesSameStructuresAsJSON() throws Exception {
+    final EJValue json = JSONStreamDecoder.decode(new ByteArrayInputStream(PAYLOAD.getBytes("UTF-8")));
+    final byte[] binary = new BinaryEncoder(table).encodePayload(json);
+
+    final EJValue decoded = new BinaryDecoder(ByteBuffer.wrap(binary), table).parse();
+    assertEquals(json.getRawValue(), decoded.getRawValue());
+    assertTrue("binary payload of " + binary.length + " bytes is not smaller than JSON",
+        binary.length < PAYLOAD.length() / 2);
+  }
+
+  @Test
+  public void testDecodesFromDirectBuffer() throws Exception {
+    final EJValue json = JSONStreamDecoder.decode(new ByteArrayInputStream(PAYLOAD.getBytes("UTF-8")));
+    final byte[] binary = new BinaryEncoder(table).encodePayload(json);
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(binary.length);
+    direct.put(binary).flip();
+    assertEquals(json.getRawValue(), new BinaryDecoder(direct, table).parse().getRawValue());
+    assertEquals(0, direct.position());
+  }
+
+  @Test
+  public void testKnownStringsAreWrittenAsIds() throws Exception {
+    final byte[] known = new BinaryEncoder(table).encodePayload(Collections.singletonMap("ToSubject", "org.foo.Quote"));
+    // version, fingerprint, object tag, size, and a tag and a one byte id for the key and the value
+    assertEquals(11, known.length);
+
+    final byte[] unknown = new BinaryEncoder(table).encodePayload(Collections.singletonMap("ToSubject", "org.foo.Bar"));
+    assertEquals(10 + "org.foo.Bar".length() + 1, unknown.length);
+  }
+
+  @Test
+  public void testNumbers() throws Exception {
+    final BinaryEncoder encoder = new BinaryEncoder(table);
+    for (final double d : new double[] { 0, -0d, 1, -1, 63, 64, -65, 1e15, -9007199254740992d, 0.1, 1e300,
+        Double.NaN, Double.NEGATIVE_INFINITY, Long.MAX_VALUE }) {
+      final Object decoded = new BinaryDecoder(ByteBuffer.wrap(encoder.encodePayload(d)), table).parse().getRawValue();
+      assertEquals(Double.doubleToLongBits(d), Double.doubleToLongBits((Double) decoded));
+    }
+    assertEquals((double) Integer.MIN_VALUE,
+        new BinaryDecoder(ByteBuffer.wrap(encoder.encodePayload(Integer.MIN_VALUE)), table).parse().getRawValue());
+  }
+
+  @Test
+  public void testPayloadOfDifferentTableIsRejected() throws Exception {
+    final byte[] binary = new BinaryEncoder(table).encodePayload(Collections.singletonMap("ToSubject", "Foo"));
+    try {
+      new BinaryDecoder(ByteBuffer.wrap(binary), new TypeIdTable(Collections.<String>emptyList())).parse();
+      fail("payload of a different type table was decoded");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("type table"));
+    }
+  }
+
+  @Test
+  public void testAdvertisedTableDecodesPayloads() throws Exception {
+    final TypeIdTable remote = TypeIdTable.fromAdvertisement(table.getTypeNames(), table.getFingerprint());
+    assertEquals(table.size(), remote.size());
+
+    final EJValue json = JSONStreamDecoder.decode(new ByteArrayInputStream(PAYLOAD.getBytes("UTF-8")));
+    final byte[] binary = new BinaryEncoder(remote).encodePayload(json);
+    assertEquals(json.getRawValue(), new BinaryDecoder(ByteBuffer.wrap(binary), table).parse().getRawValue());
+
+    try {
+      TypeIdTable.fromAdvertisement(table.getTypeNames(), table.getFingerprint() + 1);
+      fail("advertised table with a wrong fingerprint was accepted");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("fingerprint"));
+    }
+  }
+
+  @Test
+  public void testDeeplyNestedPayloadIsRejected() throws Exception {
+    final byte[] header = Arrays.copyOf(new BinaryEncoder(table).encodePayload(Collections.emptyMap()), 5);
+    final int levels = 100000;
+    final byte[] binary = Arrays.copyOf(header, header.length + levels * 2 + 1);
+    for (int i = 0; i < levels; i++) {
+      // an array of a single element.
+      binary[header.length + i * 2] = 7;
+      binary[header.length + i * 2 + 1] = 1;
+    }
+
+    try {
+      new BinaryDecoder(ByteBuffer.wrap(binary), table).parse();
+      fail("deeply nested payload was decoded");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("nested"));
+    }
+  }
+
+  @Test
+  public void testTruncatedPayloadIsRejected() throws Exception {
+    final byte[] binary = new BinaryEncoder(table).encodePayload(Collections.singletonMap("Value", "some text"));
+    try {
+      new BinaryDecoder(ByteBuffer.wrap(Arrays.copyOf(binary, binary.length - 3)), table).parse();
+      fail("truncated payload was decoded");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("truncated"));
+    }
+  }
+}
@@ -20,12 +20,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.server.JSONByteDecoder;
 import org.jboss.errai.marshalling.server.JSONDecoder;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -267,6 +277,69 @@ public class JSONDecoderTest {
     assertFalse(myValue.isNull());
   }
 
+  @Test
+  public void testDecodeObjectWithEscapedString() throws Exception {
+    EJValue ejv = JSONDecoder.decode("{ \"myValue\": \"a\\\"b\\\\c\\n\\u00EFd\\u00efe\" }");
+    assertEquals("a\"b\\c\n\u00efd\u00efe", ejv.isObject().get("myValue").isString().stringValue());
+  }
+
+  @Test
+  public void testProtocolPartNamesAreShared() throws Exception {
+    EJValue ejv = JSONDecoder.decode("{ \"ToSubject\": \"ToSubject\", \"^EncodedType\": \"java.lang.String\" }");
+    for (Object key : ((Map<?, ?>) ejv.getRawValue()).keySet()) {
+      if (key.equals(MessageParts.ToSubject.name())) {
+        assertSame(MessageParts.ToSubject.name(), key);
+      }
+      else {
+        assertSame(SerializationParts.ENCODED_TYPE, key);
+      }
+    }
+    assertSame(MessageParts.ToSubject.name(), ejv.isObject().get("ToSubject").isString().stringValue());
+  }
+
+  @Test
+  public void testByteDecoderMatchesStreamDecoder() throws Exception {
+    final StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 2000; i++) {
+      if (i > 0) json.append(',');
+      json.append("{\"ToSubject\":\"s\u00e9rvice").append(i)
+          .append("\",\"Value\":[").append(i).append(",-").append(i).append(".5,1.5e3,true,false,null],")
+          .append("\"Text\":\"\u20ac \ud83d\ude00 \\u0041\"}");
+    }
+    json.append(']');
+    final byte[] bytes = json.toString().getBytes("UTF-8");
+
+    final Object expected = new JSONStreamDecoder(new ByteArrayInputStream(bytes)).parse().getRawValue();
+    assertEquals(expected, JSONByteDecoder.decode(bytes).getRawValue());
+    assertEquals(expected, JSONByteDecoder.decode(new TrickleInputStream(bytes)).getRawValue());
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    assertEquals(expected, JSONByteDecoder.decode(direct).getRawValue());
+    assertEquals(0, direct.position());
+  }
+
+  /**
+   * Hands out at most a few bytes per read, so that multi-byte sequences and tokens straddle block boundaries.
+   */
+  private static class TrickleInputStream extends InputStream {
+    private final ByteArrayInputStream delegate;
+
+    private TrickleInputStream(byte[] bytes) {
+      this.delegate = new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public int read() {
+      return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      return delegate.read(b, off, Math.min(len, 3));
+    }
+  }
+
   private static Throwable findRootCause(Throwable e) {
     while (e.getCause() != null && e.getCause() != e) {
       e = e.getCause();
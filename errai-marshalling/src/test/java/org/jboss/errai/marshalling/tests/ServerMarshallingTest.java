@@ -38,8 +38,10 @@ import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.ParserFactory;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.rebind.api.model.MappingDefinition;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.jboss.errai.marshalling.server.marshallers.DefaultDefinitionMarshaller;
 import org.jboss.errai.marshalling.tests.res.EntityWithInheritedTypeVariable;
 import org.jboss.errai.marshalling.tests.res.EnumContainer;
 import org.jboss.errai.marshalling.tests.res.EnumContainerContainer;
@@ -458,6 +460,27 @@ public class ServerMarshallingTest {
     testEncodeDecodeDynamic(user);
   }
 
+  @Test
+  public void testDefinitionMarshallerWithAndWithoutMethodHandles() {
+    final User user = new User();
+    user.setUserId(42);
+    user.setUserName("foo");
+    user.setPassword("bar");
+    user.setRoles(new HashSet<Role>(Arrays.asList(new Role("admin"))));
+
+    final MappingDefinition definition = MappingContextSingleton.get().getDefinitionsFactory().getDefinition(User.class);
+    final Marshaller<Object> handles = new DefaultDefinitionMarshaller(definition, true);
+    final Marshaller<Object> reflection = new DefaultDefinitionMarshaller(definition, false);
+
+    final String enc = handles.marshall(user, MarshallingSessionProviderFactory.getEncoding());
+    Assert.assertEquals(enc, reflection.marshall(user, MarshallingSessionProviderFactory.getEncoding()));
+
+    for (final Marshaller<Object> marshaller : Arrays.asList(handles, reflection)) {
+      final EJValue parsedJson = ParserFactory.get().parse(enc);
+      assertEquals(user, marshaller.demarshall(parsedJson, MarshallingSessionProviderFactory.getDecoding()));
+    }
+  }
+
   class ServerRandomProvider implements RandomProvider {
     private final char[] CHARS = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q',
             'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '0'};
@@ -734,6 +734,12 @@ public class NavigationGraphGenerator extends AbstractAsyncGenerator {
     }
   }
 
+  @Override
+  protected boolean isOutputPersistable() {
+    // the navigation graph rendered for debugging stays in the cache directory along with the output
+    return true;
+  }
+
   @Override
   protected boolean isRelevantClass(MetaClass clazz) {
     return clazz.isAnnotationPresent(Page.class);
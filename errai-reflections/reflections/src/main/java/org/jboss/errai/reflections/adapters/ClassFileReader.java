@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.reflections.adapters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only view of a class file, which reads the constant pool, the class, field and method declarations and their
+ * runtime visible annotations straight from a {@link ByteBuffer}.
+ * <p>
+ * Only the offsets of the constant pool entries, members and annotation attributes are recorded when the class file is
+ * read. Names are decoded when they are asked for, and everything else in the class file, such as code, signatures
+ * and annotation values, is skipped.
+ *
+ * @see ClassFileReaderAdapter
+ */
+public class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = ascii("RuntimeVisibleAnnotations");
+    private static final byte[] RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS = ascii("RuntimeVisibleParameterAnnotations");
+
+    private final ByteBuffer buffer;
+    private final int[] constantPool;
+    private final String[] strings;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final List<Member> fields;
+    private final List<Member> methods;
+    private final int annotations;
+
+    /**
+     * Reads the class file in the specified buffer, from its position to its limit. The buffer must not be modified
+     * while this class file is in use.
+     */
+    public ClassFileReader(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.slice();
+
+        try {
+            if (this.buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a class file");
+            }
+
+            final int constantPoolCount = u2(8);
+            constantPool = new int[constantPoolCount];
+            strings = new String[constantPoolCount];
+
+            int offset = 10;
+            for (int i = 1; i < constantPoolCount; i++) {
+                constantPool[i] = offset;
+                final int tag = this.buffer.get(offset);
+                switch (tag) {
+                    case 1: // Utf8
+                        offset += 3 + u2(offset + 1);
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        offset += 3;
+                        break;
+                    case 15: // MethodHandle
+                        offset += 4;
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        offset += 5;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        offset += 9;
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("unknown constant pool tag " + tag + " at offset " + offset);
+                }
+            }
+
+            thisClass = u2(offset + 2);
+            superClass = u2(offset + 4);
+
+            final int interfaceCount = u2(offset + 6);
+            offset += 8;
+            interfaces = new int[interfaceCount];
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces[i] = u2(offset);
+                offset += 2;
+            }
+
+            final int fieldCount = u2(offset);
+            fields = new ArrayList<Member>(fieldCount);
+            offset = readMembers(offset + 2, fieldCount, fields);
+
+            final int methodCount = u2(offset);
+            methods = new ArrayList<Member>(methodCount);
+            offset = readMembers(offset + 2, methodCount, methods);
+
+            final int[] attributes = readAttributes(offset);
+            annotations = attributes[0];
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new IOException("truncated class file", e);
+        }
+    }
+
+    private int readMembers(int offset, final int count, final List<Member> members) {
+        for (int i = 0; i < count; i++) {
+            final int accessFlags = u2(offset);
+            final int name = u2(offset + 2);
+            final int descriptor = u2(offset + 4);
+            final int[] attributes = readAttributes(offset + 6);
+            members.add(new Member(accessFlags, name, descriptor, attributes[0], attributes[1]));
+            offset = attributes[2];
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the attributes at the specified offset, and returns the offsets of the runtime visible annotations and
+     * runtime visible parameter annotations (or -1), and the offset following the attributes.
+     */
+    private int[] readAttributes(int offset) {
+        final int[] result = {-1, -1, 0};
+
+        final int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            final int name = u2(offset);
+            final int length = buffer.getInt(offset + 2);
+            if (utf8Equals(name, RUNTIME_VISIBLE_ANNOTATIONS)) {
+                result[0] = offset + 6;
+            }
+            else if (utf8Equals(name, RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS)) {
+                result[1] = offset + 6;
+            }
+            offset += 6 + length;
+        }
+
+        result[2] = offset;
+        return result;
+    }
+
+    /**
+     * Returns the binary name of this class, such as <tt>java.util.Map$Entry</tt>.
+     */
+    public String getName() {
+        return className(thisClass);
+    }
+
+    /**
+     * Returns the binary name of the super class, or null for <tt>java.lang.Object</tt>.
+     */
+    public String getSuperclassName() {
+        return superClass == 0 ? null : className(superClass);
+    }
+
+    public List<String> getInterfaceNames() {
+        final List<String> names = new ArrayList<String>(interfaces.length);
+        for (final int index : interfaces) {
+            names.add(className(index));
+        }
+        return names;
+    }
+
+    public List<Member> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    public List<Member> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * Returns the names of the runtime visible annotations of this class.
+     */
+    public List<String> getAnnotationNames() {
+        return annotationNames(annotations);
+    }
+
+    /**
+     * Returns the class file this reader reads.
+     */
+    public ByteBuffer getBytes() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * A field or method of a class file.
+     */
+    public class Member {
+        private final int accessFlags;
+        private final int name;
+        private final int descriptor;
+        private final int annotations;
+        private final int parameterAnnotations;
+
+        private Member(final int accessFlags, final int name, final int descriptor, final int annotations,
+                       final int parameterAnnotations) {
+            this.accessFlags = accessFlags;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.annotations = annotations;
+            this.parameterAnnotations = parameterAnnotations;
+        }
+
+        public int getAccessFlags() {
+            return accessFlags;
+        }
+
+        public String getName() {
+            return utf8(name);
+        }
+
+        public String getDescriptor() {
+            return utf8(descriptor);
+        }
+
+        /**
+         * Returns the names of the runtime visible annotations of this member.
+         */
+        public List<String> getAnnotationNames() {
+            return annotationNames(annotations);
+        }
+
+        /**
+         * Returns the names of the runtime visible annotations of the specified parameter of this method.
+         */
+        public List<String> getParameterAnnotationNames(final int parameterIndex) {
+            if (parameterAnnotations == -1 || parameterIndex >= (buffer.get(parameterAnnotations) & 0xFF)) {
+                return new ArrayList<String>(0);
+            }
+
+            int offset = parameterAnnotations + 1;
+            for (int i = 0; i < parameterIndex; i++) {
+                final int count = u2(offset);
+                offset += 2;
+                for (int a = 0; a < count; a++) {
+                    offset = skipAnnotation(offset);
+                }
+            }
+            return annotationNames(offset);
+        }
+    }
+
+    private List<String> annotationNames(int offset) {
+        if (offset == -1) {
+            return new ArrayList<String>(0);
+        }
+
+        final int count = u2(offset);
+        offset += 2;
+        final List<String> names = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            final String descriptor = utf8(u2(offset));
+            names.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+            offset = skipAnnotation(offset);
+        }
+        return names;
+    }
+
+    private int skipAnnotation(int offset) {
+        final int pairs = u2(offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            offset = skipElementValue(offset + 2);
+        }
+        return offset;
+    }
+
+    private int skipElementValue(final int offset) {
+        final char tag = (char) buffer.get(offset);
+        switch (tag) {
+            case 'e':
+                return offset + 5;
+            case '@':
+                return skipAnnotation(offset + 1);
+            case '[': {
+                final int count = u2(offset + 1);
+                int next = offset + 3;
+                for (int i = 0; i < count; i++) {
+                    next = skipElementValue(next);
+                }
+                return next;
+            }
+            default:
+                // constants, strings and classes
+                return offset + 3;
+        }
+    }
+
+    private String className(final int index) {
+        return utf8(u2(constantPool[index] + 1)).replace('/', '.');
+    }
+
+    private String utf8(final int index) {
+        String string = strings[index];
+        if (string == null) {
+            strings[index] = string = decodeUtf8(constantPool[index] + 3, u2(constantPool[index] + 1));
+        }
+        return string;
+    }
+
+    private boolean utf8Equals(final int index, final byte[] expected) {
+        final int offset = constantPool[index];
+        if (u2(offset + 1) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + 3 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the modified UTF-8 used in class files.
+     */
+    private String decodeUtf8(final int offset, final int length) {
+        final char[] chars = new char[length];
+        int count = 0;
+        int i = offset;
+        final int end = offset + length;
+        while (i < end) {
+            final int b = buffer.get(i++) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            }
+            else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(i++) & 0x3F));
+            }
+            else {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer.get(i++) & 0x3F) << 6) | (buffer.get(i++) & 0x3F));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int u2(final int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static byte[] ascii(final String string) {
+        final byte[] bytes = new byte[string.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) string.charAt(i);
+        }
+        return bytes;
+    }
+}
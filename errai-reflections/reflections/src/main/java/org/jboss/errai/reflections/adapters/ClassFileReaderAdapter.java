@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.reflections.adapters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.errai.reflections.adapters.ClassFileReader.Member;
+import org.jboss.errai.reflections.util.Utils;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+
+/**
+ * A {@link MetadataAdapter} which reads class files with a {@link ClassFileReader} instead of materializing a Javassist
+ * {@link javassist.bytecode.ClassFile}. Only the constant pool offsets and the annotation attributes are looked at, so
+ * scanning allocates little more than the class file bytes and the names which are actually asked for.
+ * <p>
+ * Names and keys are the same as the ones of the {@link JavassistAdapter}.
+ */
+public class ClassFileReaderAdapter implements MetadataAdapter<ClassFileReader, Member, Member> {
+    public List<Member> getFields(final ClassFileReader cls) {
+        return cls.getFields();
+    }
+
+    public List<Member> getMethods(final ClassFileReader cls) {
+        return cls.getMethods();
+    }
+
+    public String getMethodName(final Member method) {
+        return method.getName();
+    }
+
+    public List<String> getParameterNames(final Member method) {
+        final String descriptor = method.getDescriptor();
+        return splitDescriptorToTypeNames(descriptor, 1, descriptor.lastIndexOf(')'));
+    }
+
+    public List<String> getClassAnnotationNames(final ClassFileReader aClass) {
+        return aClass.getAnnotationNames();
+    }
+
+    public List<String> getFieldAnnotationNames(final Member field) {
+        return field.getAnnotationNames();
+    }
+
+    public List<String> getMethodAnnotationNames(final Member method) {
+        return method.getAnnotationNames();
+    }
+
+    public List<String> getParameterAnnotationNames(final Member method, final int parameterIndex) {
+        return method.getParameterAnnotationNames(parameterIndex);
+    }
+
+    public String getReturnTypeName(final Member method) {
+        final String descriptor = method.getDescriptor();
+        return splitDescriptorToTypeNames(descriptor, descriptor.lastIndexOf(')') + 1, descriptor.length()).get(0);
+    }
+
+    public String getFieldName(final Member field) {
+        return field.getName();
+    }
+
+    public ClassFileReader createClassObject(final InputStream inputStream) throws IOException {
+        try {
+            return new ClassFileReader(ByteBuffer.wrap(ByteStreams.toByteArray(inputStream)));
+        } finally {
+            Utils.close(inputStream);
+        }
+    }
+
+    public ClassFileReader createClassObject(final ByteBuffer buffer) throws IOException {
+        return new ClassFileReader(buffer);
+    }
+
+    public String getMethodModifier(final Member method) {
+        final int accessFlags = method.getAccessFlags();
+        return Modifier.isPrivate(accessFlags) ? "private" :
+               Modifier.isProtected(accessFlags) ? "protected" :
+               Modifier.isPublic(accessFlags) ? "public" : "";
+    }
+
+    public String getMethodKey(final ClassFileReader cls, final Member method) {
+        return getMethodName(method) + "(" + Joiner.on(", ").join(getParameterNames(method)) + ")";
+    }
+
+    public String getMethodFullKey(final ClassFileReader cls, final Member method) {
+        return getClassName(cls) + "." + getMethodKey(cls, method);
+    }
+
+    //
+    public String getClassName(final ClassFileReader cls) {
+        return cls.getName();
+    }
+
+    public String getSuperclassName(final ClassFileReader cls) {
+        return cls.getSuperclassName();
+    }
+
+    public List<String> getInterfacesNames(final ClassFileReader cls) {
+        return cls.getInterfaceNames();
+    }
+
+    //
+    /**
+     * Splits the field descriptors between the specified offsets into Java type names, such as <tt>int</tt> or
+     * <tt>java.lang.String[]</tt>.
+     */
+    static List<String> splitDescriptorToTypeNames(final String descriptor, final int begin, final int end) {
+        final List<String> result = new ArrayList<String>();
+
+        int i = begin;
+        while (i < end) {
+            int dimensions = 0;
+            while (descriptor.charAt(i) == '[') {
+                dimensions++;
+                i++;
+            }
+
+            final StringBuilder name = new StringBuilder();
+            final char c = descriptor.charAt(i);
+            if (c == 'L') {
+                final int semicolon = descriptor.indexOf(';', i);
+                name.append(descriptor, i + 1, semicolon);
+                for (int j = 0; j < name.length(); j++) {
+                    if (name.charAt(j) == '/') {
+                        name.setCharAt(j, '.');
+                    }
+                }
+                i = semicolon + 1;
+            }
+            else {
+                name.append(primitiveName(c));
+                i++;
+            }
+
+            for (int d = 0; d < dimensions; d++) {
+                name.append("[]");
+            }
+            result.add(name.toString());
+        }
+
+        return result;
+    }
+
+    private static String primitiveName(final char c) {
+        switch (c) {
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'D': return "double";
+            case 'F': return "float";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'S': return "short";
+            case 'Z': return "boolean";
+            case 'V': return "void";
+            default: throw new IllegalArgumentException("invalid descriptor character " + c);
+        }
+    }
+}
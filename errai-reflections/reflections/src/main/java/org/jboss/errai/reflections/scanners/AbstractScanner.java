@@ -22,10 +22,9 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javassist.bytecode.ClassFile;
-
 import org.jboss.errai.reflections.Configuration;
 import org.jboss.errai.reflections.ReflectionsException;
+import org.jboss.errai.reflections.adapters.ClassFileReaderAdapter;
 import org.jboss.errai.reflections.adapters.MetadataAdapter;
 import org.jboss.errai.reflections.scanners.reg.ScannerRegistry;
 import org.jboss.errai.reflections.util.Utils;
@@ -67,11 +66,19 @@ public abstract class AbstractScanner implements Scanner {
     public void scan(final Vfs.File file) {
         InputStream inputStream = null;
         try {
-            inputStream = file.openInputStream();
-            final Object cls = configuration.getMetadataAdapter().createClassObject(inputStream);
+            final MetadataAdapter adapter = configuration.getMetadataAdapter();
+            final Object cls;
+            if (adapter instanceof ClassFileReaderAdapter && file instanceof Vfs.BufferedFile) {
+                cls = ((ClassFileReaderAdapter) adapter).createClassObject(((Vfs.BufferedFile) file).readByteBuffer());
+            }
+            else {
+                inputStream = file.openInputStream();
+                cls = adapter.createClassObject(inputStream);
+            }
             String fp = file.getFullPath();
             if (fp != null && !fp.contains(".jar")) {
-                String className = ((ClassFile) cls).getName();
+                @SuppressWarnings("unchecked")
+                String className = adapter.getClassName(cls);
                 if (!classesNotInJar.contains(className)) {
                   classesNotInJar.add(className);
                 }
@@ -126,4 +133,11 @@ public abstract class AbstractScanner implements Scanner {
 	public static boolean isInJar(String className) {
 	  return !(classesNotInJar.contains(className));
 	}
+
+	/**
+	 * Records that the given class was found outside of a jar, as scanning its class file would have.
+	 */
+	public static void addClassNotInJar(String className) {
+	  classesNotInJar.add(className);
+	}
 }
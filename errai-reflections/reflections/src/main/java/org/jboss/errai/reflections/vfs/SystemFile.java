@@ -19,9 +19,12 @@ package org.jboss.errai.reflections.vfs;
 import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /** an implementation of {@link org.jboss.errai.reflections.vfs.Vfs.File} for a directory {@link java.io.File} */
-public class SystemFile implements Vfs.File {
+public class SystemFile implements Vfs.BufferedFile {
     private final SystemDir dir;
     private final java.io.File file;
 
@@ -54,6 +57,19 @@ public class SystemFile implements Vfs.File {
         }
     }
 
+    public ByteBuffer readByteBuffer() throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {}
+            buffer.flip();
+            return buffer;
+        } finally {
+            in.close();
+        }
+    }
+
     @Override
     public String toString() {
         return file.toString();
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -87,6 +88,13 @@ public abstract class Vfs {
     InputStream openInputStream() throws IOException;
   }
 
+  /**
+   * a vfs file whose whole content can be read into a {@link java.nio.ByteBuffer} without going through an {@link InputStream}
+   */
+  public interface BufferedFile extends File {
+    ByteBuffer readByteBuffer() throws IOException;
+  }
+
   /**
    * a matcher and factory for a url
    */
@@ -18,10 +18,12 @@ package org.jboss.errai.reflections.vfs;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 
 /** an implementation of {@link org.jboss.errai.reflections.vfs.Vfs.File} for {@link java.util.zip.ZipEntry} */
-public class ZipFile implements Vfs.File {
+public class ZipFile implements Vfs.BufferedFile {
     private final ZipDir dir;
     private final ZipEntry entry;
 
@@ -51,6 +53,33 @@ public class ZipFile implements Vfs.File {
         return dir.zipFile.getInputStream(entry);
     }
 
+    /**
+     * reads the entry into a buffer of its uncompressed size, or through a growing buffer if the size is not known
+     */
+    public ByteBuffer readByteBuffer() throws IOException {
+        final InputStream in = openInputStream();
+        try {
+            byte[] bytes = new byte[entry.getSize() >= 0 ? (int) entry.getSize() : 8192];
+            int length = 0;
+            int read;
+            while (true) {
+                if (length == bytes.length) {
+                    if (entry.getSize() >= 0) {
+                        break;
+                    }
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if ((read = in.read(bytes, length, bytes.length - length)) == -1) {
+                    break;
+                }
+                length += read;
+            }
+            return ByteBuffer.wrap(bytes, 0, length);
+        } finally {
+            in.close();
+        }
+    }
+
     @Override
     public String toString() {
         return dir.getPath() + "!" + java.io.File.separatorChar + entry.toString();